@@ -59,6 +59,8 @@ import io.cdap.plugin.batch.source.TableSource;
 import io.cdap.plugin.batch.source.TimePartitionedFileSetDatasetAvroSource;
 import io.cdap.plugin.batch.source.TimePartitionedFileSetDatasetParquetSource;
 import io.cdap.plugin.error.ErrorCollector;
+import io.cdap.plugin.format.arrow.input.ArrowInputFormatProvider;
+import io.cdap.plugin.format.arrow.output.ArrowOutputFormatProvider;
 import io.cdap.plugin.format.avro.input.AvroInputFormatProvider;
 import io.cdap.plugin.format.avro.output.AvroOutputFormatProvider;
 import io.cdap.plugin.format.blob.input.BlobInputFormatProvider;
@@ -70,6 +72,7 @@ import io.cdap.plugin.format.delimited.output.DelimitedOutputFormatProvider;
 import io.cdap.plugin.format.delimited.output.TSVOutputFormatProvider;
 import io.cdap.plugin.format.json.input.JsonInputFormatProvider;
 import io.cdap.plugin.format.json.output.JsonOutputFormatProvider;
+import io.cdap.plugin.format.orc.input.OrcInputFormatProvider;
 import io.cdap.plugin.format.orc.output.OrcOutputFormatProvider;
 import io.cdap.plugin.format.parquet.input.ParquetInputFormatProvider;
 import io.cdap.plugin.format.parquet.output.ParquetOutputFormatProvider;
@@ -78,6 +81,8 @@ import io.cdap.plugin.transform.JavaScriptTransform;
 import io.cdap.plugin.transform.ProjectionTransform;
 import io.cdap.plugin.transform.ValidatorTransform;
 import io.cdap.plugin.validator.CoreValidator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.VectorSchemaRoot;
 import org.apache.avro.file.DataFileStream;
 import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericRecord;
@@ -153,6 +158,10 @@ public class ETLBatchTestBase extends HydratorTestBase {
                       ErrorCollector.class,
                       FileSink.class);
     // add format plugins
+    addPluginArtifact(NamespaceId.DEFAULT.artifact("formats-arrow", "4.0.0"), DATAPIPELINE_ARTIFACT_ID,
+                      ImmutableSet.of(ArrowOutputFormatProvider.PLUGIN_CLASS, ArrowInputFormatProvider.PLUGIN_CLASS),
+                      ArrowOutputFormatProvider.class, ArrowInputFormatProvider.class, RootAllocator.class,
+                      VectorSchemaRoot.class);
     addPluginArtifact(NamespaceId.DEFAULT.artifact("formats-avro", "4.0.0"), DATAPIPELINE_ARTIFACT_ID,
                       ImmutableSet.of(AvroOutputFormatProvider.PLUGIN_CLASS, AvroInputFormatProvider.PLUGIN_CLASS),
                       AvroOutputFormatProvider.class, AvroInputFormatProvider.class);
@@ -168,9 +177,9 @@ public class ETLBatchTestBase extends HydratorTestBase {
                       ImmutableSet.of(JsonOutputFormatProvider.PLUGIN_CLASS, JsonInputFormatProvider.PLUGIN_CLASS),
                       JsonOutputFormatProvider.class, JsonInputFormatProvider.class);
     addPluginArtifact(NamespaceId.DEFAULT.artifact("formats-orc", "4.0.0"), DATAPIPELINE_ARTIFACT_ID,
-                      ImmutableSet.of(OrcOutputFormatProvider.PLUGIN_CLASS),
-                      OrcOutputFormatProvider.class, OrcOutputFormat.class, OrcStruct.class,
-                      TypeDescription.class, TimestampColumnVector.class);
+                      ImmutableSet.of(OrcOutputFormatProvider.PLUGIN_CLASS, OrcInputFormatProvider.PLUGIN_CLASS),
+                      OrcOutputFormatProvider.class, OrcInputFormatProvider.class, OrcOutputFormat.class,
+                      OrcStruct.class, TypeDescription.class, TimestampColumnVector.class);
     addPluginArtifact(NamespaceId.DEFAULT.artifact("formats-parquet", "4.0.0"), DATAPIPELINE_ARTIFACT_ID,
                       ImmutableSet.of(ParquetOutputFormatProvider.PLUGIN_CLASS,
                                       ParquetInputFormatProvider.PLUGIN_CLASS),
@@ -16,7 +16,10 @@
 
 package io.cdap.plugin.batch.sink;
 
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.primitives.Bytes;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.dataset.DatasetProperties;
@@ -24,6 +27,8 @@ import io.cdap.cdap.api.dataset.table.Table;
 import io.cdap.cdap.api.metadata.MetadataEntity;
 import io.cdap.cdap.api.metadata.MetadataScope;
 import io.cdap.cdap.etl.api.batch.BatchSink;
+import io.cdap.cdap.etl.api.batch.BatchSource;
+import io.cdap.cdap.etl.mock.batch.MockSink;
 import io.cdap.cdap.etl.mock.batch.MockSource;
 import io.cdap.cdap.etl.proto.v2.ETLBatchConfig;
 import io.cdap.cdap.etl.proto.v2.ETLPlugin;
@@ -35,12 +40,24 @@ import io.cdap.cdap.test.ApplicationManager;
 import io.cdap.cdap.test.DataSetManager;
 import io.cdap.plugin.batch.ETLBatchTestBase;
 import io.cdap.plugin.format.FileFormat;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.ipc.ArrowFileReader;
+import org.apache.arrow.vector.ipc.message.ArrowBlock;
 import org.apache.avro.file.DataFileStream;
 import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.io.DatumReader;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.orc.OrcFile;
+import org.apache.orc.Reader;
+import org.apache.orc.RecordReader;
 import org.apache.parquet.avro.AvroParquetReader;
+import org.apache.parquet.hadoop.ParquetFileReader;
 import org.apache.parquet.hadoop.ParquetReader;
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -53,10 +70,18 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import javax.annotation.Nullable;
 
@@ -161,6 +186,406 @@ public class FileSinkTestRun extends ETLBatchTestBase {
     validateDatasetSchema(FileFormat.PARQUET);
   }
 
+  @Test
+  public void testParquetRoundTrip() throws Exception {
+    Schema inner = Schema.recordOf("inner", Schema.Field.of("x", Schema.of(Schema.Type.LONG)));
+    Schema schema = Schema.recordOf(
+      "x",
+      Schema.Field.of("i", Schema.of(Schema.Type.INT)),
+      Schema.Field.of("a", Schema.arrayOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("by", Schema.nullableOf(Schema.of(Schema.Type.BYTES))),
+      Schema.Field.of("r", Schema.nullableOf(inner)));
+    List<StructuredRecord> input = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      StructuredRecord.Builder builder = StructuredRecord.builder(schema)
+        .set("i", i)
+        .set("a", i % 5 == 0 ? new ArrayList<>() : Arrays.asList("a" + i, "b" + i));
+      if (i % 2 == 0) {
+        builder.set("by", new byte[] { (byte) i, (byte) (i >> 8) })
+          .set("r", StructuredRecord.builder(inner).set("x", (long) i << 32).build());
+      }
+      input.add(builder.build());
+    }
+
+    // small row groups and pages, so that the file has several of each
+    File outputDir = runPipeline("ParquetRoundTrip", FileFormat.PARQUET, schema, input,
+                                 ImmutableMap.of("rowGroupSize", "4096", "pageSize", "1024",
+                                                 "enableDictionary", "false", "writerVersion", "v2"));
+    Map<Integer, GenericRecord> output = new HashMap<>();
+    int rowGroups = 0;
+    for (File file : listOutputFiles(outputDir)) {
+      Path parquetFile = new Path(file.toURI());
+      rowGroups += ParquetFileReader.readFooter(new Configuration(), parquetFile).getBlocks().size();
+      try (ParquetReader<GenericRecord> reader = AvroParquetReader.<GenericRecord>builder(parquetFile).build()) {
+        GenericRecord genericRecord = reader.read();
+        while (genericRecord != null) {
+          Assert.assertNull(output.put((int) genericRecord.get("i"), genericRecord));
+          genericRecord = reader.read();
+        }
+      }
+    }
+    Assert.assertTrue(rowGroups > 1);
+    Assert.assertEquals(input.size(), output.size());
+    for (StructuredRecord expected : input) {
+      GenericRecord actual = output.get(expected.<Integer>get("i"));
+      List<String> array = new ArrayList<>();
+      for (Object element : (List<?>) actual.get("a")) {
+        array.add(element.toString());
+      }
+      Assert.assertEquals(expected.get("a"), array);
+      Assert.assertEquals(normalize(expected.get("by")), normalize(actual.get("by")));
+      StructuredRecord expectedInner = expected.get("r");
+      GenericRecord actualInner = (GenericRecord) actual.get("r");
+      Assert.assertEquals(expectedInner == null ? null : expectedInner.get("x"),
+                          actualInner == null ? null : actualInner.get("x"));
+    }
+  }
+
+  @Test
+  public void testOrcFileSinkLogicalTypes() throws Exception {
+    Schema schema = Schema.recordOf(
+      "x",
+      Schema.Field.of("i", Schema.of(Schema.Type.INT)),
+      Schema.Field.of("d", Schema.nullableOf(Schema.of(Schema.LogicalType.DATE))),
+      Schema.Field.of("ts", Schema.nullableOf(Schema.of(Schema.LogicalType.TIMESTAMP_MICROS))));
+    List<StructuredRecord> input = new ArrayList<>();
+    input.add(StructuredRecord.builder(schema).set("i", 0).set("d", 17897).set("ts", 1546300800123456L).build());
+    input.add(StructuredRecord.builder(schema).set("i", 1).build());
+
+    File outputDir = runPipeline("OrcLogicalTypes", FileFormat.ORC, schema, input, new HashMap<>());
+
+    // dates and timestamps are written as their underlying int and long
+    Map<Long, List<Long>> output = new HashMap<>();
+    for (File file : listOutputFiles(outputDir)) {
+      Reader reader = OrcFile.createReader(new Path(file.toURI()), OrcFile.readerOptions(new Configuration()));
+      Assert.assertEquals("struct<i:int,d:int,ts:bigint>", reader.getSchema().toString());
+      VectorizedRowBatch batch = reader.getSchema().createRowBatch();
+      RecordReader rows = reader.rows();
+      try {
+        while (rows.nextBatch(batch)) {
+          for (int row = 0; row < batch.size; row++) {
+            output.put(getLong(batch.cols[0], row), Arrays.asList(getLong(batch.cols[1], row),
+                                                                  getLong(batch.cols[2], row)));
+          }
+        }
+      } finally {
+        rows.close();
+      }
+    }
+    Map<Long, List<Long>> expected = new HashMap<>();
+    expected.put(0L, Arrays.asList(17897L, 1546300800123456L));
+    expected.put(1L, Arrays.<Long>asList(null, null));
+    Assert.assertEquals(expected, output);
+  }
+
+  @Test
+  public void testArrowRoundTrip() throws Exception {
+    Schema schema = Schema.recordOf(
+      "x",
+      Schema.Field.of("i", Schema.of(Schema.Type.INT)),
+      Schema.Field.of("l", Schema.nullableOf(Schema.of(Schema.Type.LONG))),
+      Schema.Field.of("b", Schema.nullableOf(Schema.of(Schema.Type.BOOLEAN))),
+      Schema.Field.of("f", Schema.nullableOf(Schema.of(Schema.Type.FLOAT))),
+      Schema.Field.of("d", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))),
+      Schema.Field.of("s", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("by", Schema.nullableOf(Schema.of(Schema.Type.BYTES))),
+      Schema.Field.of("date", Schema.nullableOf(Schema.of(Schema.LogicalType.DATE))),
+      Schema.Field.of("tmillis", Schema.nullableOf(Schema.of(Schema.LogicalType.TIME_MILLIS))),
+      Schema.Field.of("tmicros", Schema.nullableOf(Schema.of(Schema.LogicalType.TIME_MICROS))),
+      Schema.Field.of("tsmillis", Schema.nullableOf(Schema.of(Schema.LogicalType.TIMESTAMP_MILLIS))),
+      Schema.Field.of("tsmicros", Schema.nullableOf(Schema.of(Schema.LogicalType.TIMESTAMP_MICROS))));
+    List<StructuredRecord> input = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      StructuredRecord.Builder builder = StructuredRecord.builder(schema).set("i", i);
+      // every third record has nulls in all the nullable fields
+      if (i % 3 != 0) {
+        builder.set("l", (long) i << 33)
+          .set("b", i % 2 == 0)
+          .set("f", i + 0.5f)
+          .set("d", i / 4.0d)
+          .set("s", "s" + i)
+          .set("by", new byte[] { (byte) i, (byte) -i })
+          .set("date", 17897 + i)
+          .set("tmillis", 3600000 + i)
+          .set("tmicros", 3600000000L + i)
+          .set("tsmillis", 1546300800123L + i)
+          .set("tsmicros", 1546300800123456L + i);
+      }
+      input.add(builder.build());
+    }
+
+    // small record batches, so that the file has several of them
+    File outputDir = runPipeline("ArrowRoundTrip", FileFormat.ARROW, schema, input,
+                                 ImmutableMap.of("recordBatchSize", "3"));
+    List<File> outputFiles = listOutputFiles(outputDir);
+    int rows = 0;
+    int batches = 0;
+    for (File file : outputFiles) {
+      try (BufferAllocator allocator = new RootAllocator(Long.MAX_VALUE);
+           ArrowFileReader reader = new ArrowFileReader(Files.newByteChannel(file.toPath()), allocator)) {
+        for (ArrowBlock block : reader.getRecordBlocks()) {
+          reader.loadRecordBatch(block);
+          Assert.assertTrue(reader.getVectorSchemaRoot().getRowCount() <= 3);
+          rows += reader.getVectorSchemaRoot().getRowCount();
+          batches++;
+        }
+      }
+    }
+    Assert.assertEquals(10, rows);
+    Assert.assertTrue(batches >= 4);
+
+    // read it back with splits smaller than a record batch, so that every split starts in the middle of the file
+    List<StructuredRecord> output = readWithFileSource("ArrowRoundTrip", outputDir, FileFormat.ARROW, schema,
+                                                       ImmutableMap.of("maxSplitSize", "100"));
+    assertSameRecords(schema, input, output);
+  }
+
+  @Test
+  public void testOrcRoundTripLogicalTypes() throws Exception {
+    Schema schema = Schema.recordOf(
+      "x",
+      Schema.Field.of("i", Schema.of(Schema.Type.INT)),
+      Schema.Field.of("date", Schema.nullableOf(Schema.of(Schema.LogicalType.DATE))),
+      Schema.Field.of("tmillis", Schema.nullableOf(Schema.of(Schema.LogicalType.TIME_MILLIS))),
+      Schema.Field.of("tmicros", Schema.nullableOf(Schema.of(Schema.LogicalType.TIME_MICROS))),
+      Schema.Field.of("tsmillis", Schema.nullableOf(Schema.of(Schema.LogicalType.TIMESTAMP_MILLIS))),
+      Schema.Field.of("tsmicros", Schema.of(Schema.LogicalType.TIMESTAMP_MICROS)));
+    List<StructuredRecord> input = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      StructuredRecord.Builder builder = StructuredRecord.builder(schema)
+        .set("i", i)
+        .set("tsmicros", -1546300800123456L + i);
+      // every third record has nulls in all the nullable fields
+      if (i % 3 != 0) {
+        builder.set("date", 17897 - i)
+          .set("tmillis", 86399999 - i)
+          .set("tmicros", 86399999999L - i)
+          .set("tsmillis", 1546300800123L + i);
+      }
+      input.add(builder.build());
+    }
+
+    File outputDir = runPipeline("OrcRoundTrip", FileFormat.ORC, schema, input, new HashMap<>());
+    List<StructuredRecord> output = readWithFileSource("OrcRoundTrip", outputDir, FileFormat.ORC, schema,
+                                                       new HashMap<>());
+    assertSameRecords(schema, input, output);
+  }
+
+  /**
+   * Reads the files in the given directory with a File source and returns the records it emits.
+   */
+  private List<StructuredRecord> readWithFileSource(String name, File dir, FileFormat format, Schema schema,
+                                                    Map<String, String> properties) throws Exception {
+    String outputName = UUID.randomUUID().toString();
+    Map<String, String> sourceProperties = new HashMap<>(properties);
+    sourceProperties.put("referenceName", name + "Source");
+    sourceProperties.put("path", dir.getAbsolutePath());
+    sourceProperties.put("format", format.name().toLowerCase());
+    sourceProperties.put("schema", schema.toString());
+    ETLBatchConfig conf = ETLBatchConfig.builder()
+      .addStage(new ETLStage("source", new ETLPlugin("File", BatchSource.PLUGIN_TYPE, sourceProperties)))
+      .addStage(new ETLStage("sink", MockSink.getPlugin(outputName)))
+      .addConnection("source", "sink")
+      .build();
+    runETLOnce(deployETL(conf, name + "SourceApp"));
+    return MockSink.readOutput(getDataset(outputName));
+  }
+
+  /**
+   * Asserts that the output has the same records as the input, in any order, using the int field 'i' as their id.
+   */
+  private static void assertSameRecords(Schema schema, List<StructuredRecord> input, List<StructuredRecord> output) {
+    Assert.assertEquals(input.size(), output.size());
+    Map<Integer, StructuredRecord> outputById = new HashMap<>();
+    for (StructuredRecord record : output) {
+      outputById.put(record.get("i"), record);
+    }
+    for (StructuredRecord expected : input) {
+      StructuredRecord actual = outputById.get(expected.<Integer>get("i"));
+      Assert.assertNotNull(actual);
+      for (Schema.Field field : schema.getFields()) {
+        Assert.assertEquals(field.getName(), normalize(expected.get(field.getName())),
+                            normalize(actual.get(field.getName())));
+      }
+    }
+  }
+
+  @Test
+  public void testRollByRecords() throws Exception {
+    List<StructuredRecord> input = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      input.add(StructuredRecord.builder(SCHEMA).set("i", i).set("s", "s" + i).build());
+    }
+    File outputDir = runPipeline("RollByRecords", FileFormat.JSON, SCHEMA, input,
+                                 ImmutableMap.of("maxRecordsPerFile", "3"));
+
+    List<File> files = listOutputFiles(outputDir);
+    Assert.assertTrue(files.size() >= 4);
+    Map<Integer, String> output = new HashMap<>();
+    for (File file : files) {
+      List<String> lines = Files.readAllLines(file.toPath());
+      Assert.assertTrue(file.getName(), lines.size() <= 3);
+      for (String line : lines) {
+        StructuredRecord record = StructuredRecordStringConverter.fromJsonString(line, SCHEMA);
+        Assert.assertNull(output.put(record.get("i"), record.get("s")));
+      }
+    }
+    Assert.assertEquals(10, output.size());
+  }
+
+  @Test
+  public void testRollBySize() throws Exception {
+    List<StructuredRecord> input = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      input.add(StructuredRecord.builder(SCHEMA).set("i", i).set("s", Strings.repeat(Integer.toString(i % 10), 1000))
+                  .build());
+    }
+    // about five records per file
+    File outputDir = runPipeline("RollBySize", FileFormat.AVRO, SCHEMA, input,
+                                 ImmutableMap.of("targetFileSize", "5000"));
+
+    List<File> files = listOutputFiles(outputDir);
+    Assert.assertTrue(files.size() >= 4);
+    org.apache.avro.Schema avroSchema = new org.apache.avro.Schema.Parser().parse(SCHEMA.toString());
+    DatumReader<GenericRecord> datumReader = new GenericDatumReader<>(avroSchema);
+    Map<Integer, String> output = new HashMap<>();
+    for (File file : files) {
+      int records = 0;
+      try (DataFileStream<GenericRecord> fileStream = new DataFileStream<>(new FileInputStream(file), datumReader)) {
+        for (GenericRecord genericRecord : fileStream) {
+          Assert.assertNull(output.put((int) genericRecord.get("i"), genericRecord.get("s").toString()));
+          records++;
+        }
+      }
+      Assert.assertTrue(file.getName(), records <= 5);
+    }
+    Assert.assertEquals(20, output.size());
+    for (StructuredRecord record : input) {
+      Assert.assertEquals(record.get("s"), output.get(record.<Integer>get("i")));
+    }
+  }
+
+  @Test
+  public void testPartitionedOutput() throws Exception {
+    Schema schema = Schema.recordOf("x",
+                                    Schema.Field.of("i", Schema.of(Schema.Type.INT)),
+                                    Schema.Field.of("dt", Schema.of(Schema.Type.STRING)),
+                                    Schema.Field.of("country", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    String[] countries = { "US", "a/b", null };
+    List<StructuredRecord> input = new ArrayList<>();
+    for (int i = 0; i < 60; i++) {
+      input.add(StructuredRecord.builder(schema)
+                  .set("i", i)
+                  .set("dt", "2019-06-0" + (i % 2 + 1))
+                  .set("country", countries[i % 3])
+                  .build());
+    }
+
+    // records cycle through six partitions, so with two open writers nearly every record starts a new file
+    File outputDir = runPipeline("PartitionedUnsorted", FileFormat.JSON, schema, input,
+                                 ImmutableMap.of("partitionFields", "dt,country", "maxOpenWriters", "2"));
+    List<File> unsortedFiles = verifyPartitionedOutput(outputDir, schema, input);
+    Assert.assertTrue(unsortedFiles.size() > 6);
+
+    // sorting by partition before writing groups the records of each partition into fewer files
+    outputDir = runPipeline("PartitionedSorted", FileFormat.JSON, schema, input,
+                            ImmutableMap.of("partitionFields", "dt,country", "maxOpenWriters", "2",
+                                            "partitionSortBufferSize", "1000"));
+    List<File> sortedFiles = verifyPartitionedOutput(outputDir, schema, input);
+    Assert.assertTrue(sortedFiles.size() < unsortedFiles.size());
+  }
+
+  @Test
+  public void testPartitionedByDateAndTimestamp() throws Exception {
+    Schema schema = Schema.recordOf("x",
+                                    Schema.Field.of("i", Schema.of(Schema.Type.INT)),
+                                    Schema.Field.of("dt", Schema.of(Schema.LogicalType.DATE)),
+                                    Schema.Field.of("ts", Schema.nullableOf(
+                                      Schema.of(Schema.LogicalType.TIMESTAMP_MICROS))));
+    List<StructuredRecord> input = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      StructuredRecord.Builder builder = StructuredRecord.builder(schema)
+        .set("i", i)
+        .setDate("dt", LocalDate.of(2019, 6, i % 2 + 1));
+      if (i < 2) {
+        builder.setTimestamp("ts", ZonedDateTime.of(2019, 6, 1, 10, 15, 30, 0, ZoneOffset.UTC));
+      }
+      input.add(builder.build());
+    }
+
+    File outputDir = runPipeline("PartitionedByDate", FileFormat.JSON, schema, input,
+                                 ImmutableMap.of("partitionFields", "dt,ts"));
+    // dates and timestamps are written as ISO-8601 strings rather than as days and microseconds since the epoch
+    Map<String, Integer> partitions = new HashMap<>();
+    for (File file : listOutputFiles(outputDir)) {
+      String partition = file.getParentFile().getParentFile().getName() + "/" + file.getParentFile().getName();
+      for (String line : Files.readAllLines(file.toPath())) {
+        StructuredRecord record = StructuredRecordStringConverter.fromJsonString(line, schema);
+        Assert.assertNull(partitions.put(partition, record.get("i")));
+      }
+    }
+    Assert.assertEquals(ImmutableMap.of("dt=2019-06-01/ts=2019-06-01T10%3A15%3A30Z", 0,
+                                        "dt=2019-06-02/ts=2019-06-01T10%3A15%3A30Z", 1,
+                                        "dt=2019-06-01/ts=__HIVE_DEFAULT_PARTITION__", 2,
+                                        "dt=2019-06-02/ts=__HIVE_DEFAULT_PARTITION__", 3), partitions);
+  }
+
+  /**
+   * Verifies that every record was written exactly once, to the directory of its partition, and returns the files.
+   */
+  private static List<File> verifyPartitionedOutput(File outputDir, Schema schema,
+                                                    List<StructuredRecord> input) throws IOException {
+    List<File> files = listOutputFiles(outputDir);
+    Map<Integer, StructuredRecord> output = new HashMap<>();
+    Set<String> partitions = new HashSet<>();
+    for (File file : files) {
+      String dt = file.getParentFile().getParentFile().getName();
+      String country = file.getParentFile().getName();
+      Assert.assertEquals(outputDir, file.getParentFile().getParentFile().getParentFile());
+      partitions.add(dt + "/" + country);
+      for (String line : Files.readAllLines(file.toPath())) {
+        StructuredRecord record = StructuredRecordStringConverter.fromJsonString(line, schema);
+        Assert.assertEquals("dt=" + record.get("dt"), dt);
+        String expectedCountry = record.get("country") == null ? "__HIVE_DEFAULT_PARTITION__" :
+          record.<String>get("country").replace("/", "%2F");
+        Assert.assertEquals("country=" + expectedCountry, country);
+        Assert.assertNull(output.put(record.get("i"), record));
+      }
+    }
+    Assert.assertEquals(ImmutableSet.of("dt=2019-06-01/country=US", "dt=2019-06-01/country=a%2Fb",
+                                        "dt=2019-06-01/country=__HIVE_DEFAULT_PARTITION__",
+                                        "dt=2019-06-02/country=US", "dt=2019-06-02/country=a%2Fb",
+                                        "dt=2019-06-02/country=__HIVE_DEFAULT_PARTITION__"), partitions);
+    Assert.assertEquals(input.size(), output.size());
+    for (StructuredRecord expected : input) {
+      Assert.assertEquals(expected, output.get(expected.<Integer>get("i")));
+    }
+    return files;
+  }
+
+  /**
+   * Returns bytes as a list, so that they can be compared no matter if they are a byte array or a ByteBuffer.
+   */
+  @Nullable
+  private static Object normalize(@Nullable Object value) {
+    if (value instanceof ByteBuffer) {
+      ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+      byte[] bytes = new byte[buffer.remaining()];
+      buffer.get(bytes);
+      return Bytes.asList(bytes);
+    }
+    if (value instanceof byte[]) {
+      return Bytes.asList((byte[]) value);
+    }
+    return value;
+  }
+
+  @Nullable
+  private static Long getLong(ColumnVector column, int row) {
+    int index = column.isRepeating ? 0 : row;
+    return column.noNulls || !column.isNull[index] ? ((LongColumnVector) column).vector[index] : null;
+  }
+
   private void runPipeline(FileFormat format, FileConsumer fileConsumer) throws Exception {
     runPipeline(format, null, fileConsumer);
   }
@@ -170,49 +595,74 @@ public class FileSinkTestRun extends ETLBatchTestBase {
    * It will always write three records, {"i":0, "s":"abc"}, {"i":1, "s":"def"}, and {"i":2, "s":"ghi"}.
    */
   private void runPipeline(FileFormat format, @Nullable String delimiter, FileConsumer fileConsumer) throws Exception {
+    List<StructuredRecord> input = new ArrayList<>();
+    input.add(StructuredRecord.builder(SCHEMA).set("i", 0).set("s", "abc").build());
+    input.add(StructuredRecord.builder(SCHEMA).set("i", 1).set("s", "def").build());
+    input.add(StructuredRecord.builder(SCHEMA).set("i", 2).set("s", "ghi").build());
+    Map<String, String> properties = new HashMap<>();
+    properties.put("delimiter", delimiter);
+
+    File outputDir = runPipeline(format.name(), format, SCHEMA, input, properties);
+    for (File outputFile : listOutputFiles(outputDir)) {
+      fileConsumer.consume(outputFile);
+    }
+  }
+
+  /**
+   * Creates and runs a pipeline that is the mock source writing the given records to a file sink using the
+   * specified format and sink properties. The name is used as the reference name of the sink.
+   *
+   * @return the output directory of the sink
+   */
+  private File runPipeline(String name, FileFormat format, Schema schema, List<StructuredRecord> input,
+                           Map<String, String> sinkProperties) throws Exception {
     String inputName = UUID.randomUUID().toString();
 
-    File baseDir = TEMP_FOLDER.newFolder(format + "FileSink");
+    File baseDir = TEMP_FOLDER.newFolder(name + "FileSink");
     File outputDir = new File(baseDir, "out");
-    Map<String, String> properties = new HashMap<>();
+    Map<String, String> properties = new HashMap<>(sinkProperties);
     properties.put("path", outputDir.getAbsolutePath());
-    properties.put("referenceName", format.name());
+    properties.put("referenceName", name);
     properties.put("format", format.name());
-    //properties.put("schema", "${schema}");
-    properties.put("schema", SCHEMA.toString());
-    properties.put("delimiter", delimiter);
+    properties.put("schema", schema.toString());
 
     ETLBatchConfig conf = ETLBatchConfig.builder()
-      .addStage(new ETLStage("source", MockSource.getPlugin(inputName, SCHEMA)))
+      .addStage(new ETLStage("source", MockSource.getPlugin(inputName, schema)))
       .addStage(new ETLStage("sink", new ETLPlugin("File", BatchSink.PLUGIN_TYPE, properties)))
       .addConnection("source", "sink")
       .build();
 
-    ApplicationManager appManager = deployETL(conf, format + "FileSinkApp");
+    ApplicationManager appManager = deployETL(conf, name + "FileSinkApp");
 
     DataSetManager<Table> inputManager = getDataset(inputName);
-    List<StructuredRecord> input = new ArrayList<>();
-    input.add(StructuredRecord.builder(SCHEMA).set("i", 0).set("s", "abc").build());
-    input.add(StructuredRecord.builder(SCHEMA).set("i", 1).set("s", "def").build());
-    input.add(StructuredRecord.builder(SCHEMA).set("i", 2).set("s", "ghi").build());
     MockSource.writeInput(inputManager, input);
 
-    Map<String, String> arguments = new HashMap<>();
-    arguments.put("schema", SCHEMA.toString());
-    runETLOnce(appManager, arguments);
+    runETLOnce(appManager);
+    return outputDir;
+  }
 
-    File[] outputFiles = outputDir.listFiles();
-    if (outputFiles == null) {
-      return;
+  /**
+   * Returns the data files under the given directory and its sub directories, skipping hidden and marker files.
+   */
+  private static List<File> listOutputFiles(File dir) {
+    List<File> files = new ArrayList<>();
+    File[] children = dir.listFiles();
+    if (children == null) {
+      return files;
     }
-    for (File outputFile : outputFiles) {
-      String fileName = outputFile.getName();
-      if (fileName.startsWith(".") || "_SUCCESS".equals(fileName)) {
+    Arrays.sort(children);
+    for (File child : children) {
+      String fileName = child.getName();
+      if (fileName.startsWith(".") || fileName.startsWith("_")) {
         continue;
       }
-
-      fileConsumer.consume(outputFile);
+      if (child.isDirectory()) {
+        files.addAll(listOutputFiles(child));
+      } else {
+        files.add(child);
+      }
     }
+    return files;
   }
 
   private void validateDatasetSchema(FileFormat format) throws IOException {
@@ -16,6 +16,7 @@
 
 package io.cdap.plugin.batch.source;
 
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -46,36 +47,54 @@ import io.cdap.plugin.batch.ETLBatchTestBase;
 import io.cdap.plugin.common.Constants;
 import io.cdap.plugin.common.Properties;
 import io.cdap.plugin.format.FileFormat;
+import io.cdap.plugin.format.compress.SeekableZstdCodec;
 import org.apache.avro.file.DataFileWriter;
 import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.generic.GenericRecordBuilder;
 import org.apache.avro.io.DatumWriter;
 import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.orc.OrcFile;
+import org.apache.orc.TypeDescription;
 import org.apache.parquet.avro.AvroParquetWriter;
 import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
 import org.junit.Assert;
 import org.junit.ClassRule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
 import javax.annotation.Nullable;
 
 /**
@@ -90,6 +109,12 @@ public class FileBatchSourceTest extends ETLBatchTestBase {
                                                               Schema.Field.of("l", Schema.of(Schema.Type.LONG)),
                                                               Schema.Field.of("file",
                                                                               Schema.of(Schema.Type.STRING)));
+  private static final Schema BLOB_CHUNK_SCHEMA =
+    Schema.recordOf("blob",
+                    Schema.Field.of("body", Schema.of(Schema.Type.BYTES)),
+                    Schema.Field.of("offset", Schema.of(Schema.Type.LONG)),
+                    Schema.Field.of("checksum", Schema.of(Schema.Type.LONG)),
+                    Schema.Field.of("file", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
   @ClassRule
   public static TemporaryFolder temporaryFolder = new TemporaryFolder();
   private static DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss");
@@ -498,6 +523,131 @@ public class FileBatchSourceTest extends ETLBatchTestBase {
     Assert.assertEquals(expected, output);
   }
 
+  @Test
+  public void testReadBlobChunks() throws Exception {
+    File testFolder = temporaryFolder.newFolder();
+    byte[] content1 = new byte[1000];
+    new Random(0L).nextBytes(content1);
+    byte[] content2 = "short".getBytes(StandardCharsets.US_ASCII);
+    File file1 = new File(testFolder, "test1");
+    File file2 = new File(testFolder, "test2");
+    FileUtils.writeByteArrayToFile(file1, content1);
+    FileUtils.writeByteArrayToFile(file2, content2);
+
+    // splits of 100 bytes start and end in the middle of chunks of 64 bytes, and the last chunk is partial
+    String outputDatasetName = UUID.randomUUID().toString();
+    ApplicationManager appManager = createSourceAndDeployApp("BlobChunks", testFolder, FileFormat.BLOB.name(),
+                                                             outputDatasetName, BLOB_CHUNK_SCHEMA,
+                                                             ImmutableMap.of("chunkSize", "64", "maxSplitSize", "100"));
+    appManager.getWorkflowManager(SmartWorkflow.NAME)
+      .startAndWaitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+
+    List<StructuredRecord> output = MockSink.readOutput(getDataset(outputDatasetName));
+    verifyBlobChunks(output, ImmutableMap.of(file1.toURI().toString(), content1,
+                                             file2.toURI().toString(), content2), 64);
+  }
+
+  @Test
+  public void testReadBlobChunksWithMacro() throws Exception {
+    File testFolder = temporaryFolder.newFolder();
+    byte[] content = new byte[300];
+    new Random(1L).nextBytes(content);
+    File file = new File(testFolder, "test");
+    FileUtils.writeByteArrayToFile(file, content);
+
+    // the schema has the chunk fields although the chunk size is only known at runtime
+    String outputDatasetName = UUID.randomUUID().toString();
+    ApplicationManager appManager = createSourceAndDeployApp("BlobChunksMacro", testFolder, FileFormat.BLOB.name(),
+                                                             outputDatasetName, BLOB_CHUNK_SCHEMA,
+                                                             ImmutableMap.of("chunkSize", "${chunkSize}"));
+    WorkflowManager workflowManager = appManager.getWorkflowManager(SmartWorkflow.NAME);
+    workflowManager.start(ImmutableMap.of("chunkSize", "128"));
+    workflowManager.waitForRuns(ProgramRunStatus.COMPLETED, 1, 5, TimeUnit.MINUTES);
+
+    List<StructuredRecord> output = MockSink.readOutput(getDataset(outputDatasetName));
+    verifyBlobChunks(output, ImmutableMap.of(file.toURI().toString(), content), 128);
+
+    // a chunk size that does not fit in an int fails the run
+    workflowManager.start(ImmutableMap.of("chunkSize", String.valueOf(Integer.MAX_VALUE + 1L)));
+    workflowManager.waitForRuns(ProgramRunStatus.FAILED, 1, 5, TimeUnit.MINUTES);
+  }
+
+  private static void verifyBlobChunks(List<StructuredRecord> output, Map<String, byte[]> contents, int chunkSize) {
+    int expectedChunks = 0;
+    for (byte[] content : contents.values()) {
+      expectedChunks += (content.length + chunkSize - 1) / chunkSize;
+    }
+    Assert.assertEquals(expectedChunks, output.size());
+
+    Set<String> seen = new HashSet<>();
+    for (StructuredRecord record : output) {
+      String file = record.get("file");
+      long offset = record.get("offset");
+      Assert.assertTrue("Chunk at " + offset + " of " + file + " was read twice", seen.add(file + "@" + offset));
+      byte[] content = contents.get(file);
+      Assert.assertEquals(0L, offset % chunkSize);
+      byte[] expected = Arrays.copyOfRange(content, (int) offset, (int) Math.min(content.length, offset + chunkSize));
+      byte[] body = Bytes.toBytes((ByteBuffer) record.get("body"));
+      Assert.assertArrayEquals(expected, body);
+      CRC32 crc = new CRC32();
+      crc.update(expected);
+      Assert.assertEquals(crc.getValue(), (long) record.<Long>get("checksum"));
+    }
+  }
+
+  @Test
+  public void testReadJsonSplits() throws Exception {
+    File fileText = new File(temporaryFolder.newFolder(), "test.json");
+    Schema schema = Schema.recordOf("user",
+                                    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+                                    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+                                    Schema.Field.of("file", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    StringBuilder fileContent = new StringBuilder();
+    Set<StructuredRecord> expected = new HashSet<>();
+    for (long i = 0; i < 500; i++) {
+      // names with multi-byte characters, escapes and trailing whitespace
+      String name = i % 3 == 0 ? null : "n\u00e4me \"" + i + "\"";
+      fileContent.append("{\"id\":").append(i).append(",\"name\":")
+        .append(name == null ? "null" : "\"n\u00e4me \\\"" + i + "\\\"\"").append("} \n");
+      expected.add(StructuredRecord.builder(schema).set("id", i).set("name", name)
+                     .set("file", fileText.toURI().toString()).build());
+    }
+    FileUtils.writeStringToFile(fileText, fileContent.toString(), StandardCharsets.UTF_8);
+
+    // splits that start in the middle of lines
+    String outputDatasetName = UUID.randomUUID().toString();
+    ApplicationManager appManager = createSourceAndDeployApp("JsonSplits", fileText, "json", outputDatasetName,
+                                                             schema, ImmutableMap.of("maxSplitSize", "1000"));
+    appManager.getWorkflowManager(SmartWorkflow.NAME)
+      .startAndWaitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+
+    List<StructuredRecord> output = MockSink.readOutput(getDataset(outputDatasetName));
+    Assert.assertEquals(expected.size(), output.size());
+    Assert.assertEquals(expected, new HashSet<>(output));
+  }
+
+  @Test
+  public void testReadInvalidJsonLines() throws Exception {
+    Schema schema = Schema.recordOf("user",
+                                    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+                                    Schema.Field.of("file", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    Map<String, String> inputs = new LinkedHashMap<>();
+    // blank lines fail, as they did when every line was parsed on its own
+    inputs.put("BlankLine", "{\"id\":0}\n\n{\"id\":1}\n");
+    inputs.put("BlankFirstLine", " \n{\"id\":0}\n");
+    inputs.put("SplitObject", "{\"id\":\n0}\n");
+    inputs.put("TwoObjects", "{\"id\":0} {\"id\":1}\n");
+    for (Map.Entry<String, String> input : inputs.entrySet()) {
+      File fileText = new File(temporaryFolder.newFolder(), "invalid.json");
+      FileUtils.writeStringToFile(fileText, input.getValue());
+      ApplicationManager appManager = createSourceAndDeployApp("InvalidJson" + input.getKey(), fileText, "json",
+                                                               UUID.randomUUID().toString(), schema);
+      WorkflowManager workflowManager = appManager.getWorkflowManager(SmartWorkflow.NAME);
+      workflowManager.start();
+      workflowManager.waitForRuns(ProgramRunStatus.FAILED, 1, 5, TimeUnit.MINUTES);
+    }
+  }
+
   @Test
   public void testReadCSV() throws Exception {
     testReadDelimitedText(FileFormat.CSV.name(), ",");
@@ -876,6 +1026,613 @@ public class FileBatchSourceTest extends ETLBatchTestBase {
     Assert.assertEquals(expected, output);
   }
 
+  @Test
+  public void testParquetFilterAndProjection() throws Exception {
+    File fileParquet = new File(temporaryFolder.newFolder(), "test.parquet");
+    Schema fileSchema = Schema.recordOf("record",
+                                        Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+                                        Schema.Field.of("day", Schema.of(Schema.Type.STRING)),
+                                        Schema.Field.of("status", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+                                        Schema.Field.of("latency", Schema.of(Schema.Type.DOUBLE)));
+    org.apache.avro.Schema avroSchema = new org.apache.avro.Schema.Parser().parse(fileSchema.toString());
+    // small row groups, so that the filter can skip some of them by their statistics
+    try (ParquetWriter<GenericRecord> parquetWriter =
+           new AvroParquetWriter<>(new Path(fileParquet.toURI()), avroSchema, CompressionCodecName.UNCOMPRESSED,
+                                   1024, 512)) {
+      for (int id = 0; id < 1000; id++) {
+        parquetWriter.write(new GenericRecordBuilder(avroSchema)
+                              .set("id", id)
+                              .set("day", id % 2 == 0 ? "2019-06-01" : "2019-06-02")
+                              .set("status", getParquetStatus(id))
+                              .set("latency", id / 100.0d)
+                              .build());
+      }
+    }
+
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+                                    Schema.Field.of("day", Schema.of(Schema.Type.STRING)),
+                                    Schema.Field.of("status", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+                                    Schema.Field.of("latency", Schema.of(Schema.Type.DOUBLE)),
+                                    Schema.Field.of("file", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    Map<String, Predicate<Integer>> cases = new LinkedHashMap<>();
+    cases.put("status IN (200, 204) AND id >= 500", id -> {
+      Integer status = getParquetStatus(id);
+      return status != null && (status == 200 || status == 204) && id >= 500;
+    });
+    cases.put("day = '2019-06-01' OR latency > 9.5", id -> id % 2 == 0 || id / 100.0d > 9.5d);
+    cases.put("status IS NULL", id -> getParquetStatus(id) == null);
+    cases.put("NOT (id < 990)", id -> id >= 990);
+
+    int run = 0;
+    for (Map.Entry<String, Predicate<Integer>> entry : cases.entrySet()) {
+      // the filter uses columns that are not required, which are read for the filter but not emitted
+      String outputDatasetName = UUID.randomUUID().toString();
+      ApplicationManager appManager = createSourceAndDeployApp("ParquetFilter" + run++, fileParquet, "parquet",
+                                                               outputDatasetName, schema,
+                                                               ImmutableMap.of("filter", entry.getKey(),
+                                                                               "requiredFields", "id,status"));
+      appManager.getWorkflowManager(SmartWorkflow.NAME)
+        .startAndWaitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+
+      Set<Integer> expected = new HashSet<>();
+      for (int id = 0; id < 1000; id++) {
+        if (entry.getValue().test(id)) {
+          expected.add(id);
+        }
+      }
+      Set<Integer> ids = new HashSet<>();
+      for (StructuredRecord record : MockSink.readOutput(getDataset(outputDatasetName))) {
+        Assert.assertEquals(ImmutableSet.of("id", "status", "file"),
+                            record.getSchema().getFields().stream().map(Schema.Field::getName)
+                              .collect(Collectors.toSet()));
+        int id = record.get("id");
+        Assert.assertEquals(getParquetStatus(id), record.get("status"));
+        Assert.assertEquals(fileParquet.toURI().toString(), record.get("file"));
+        ids.add(id);
+      }
+      Assert.assertEquals(entry.getKey(), expected, ids);
+    }
+  }
+
+  @Test
+  public void testParquetNestedTypes() throws Exception {
+    Schema nested = Schema.recordOf("nested",
+                                    Schema.Field.of("x", Schema.of(Schema.Type.INT)),
+                                    Schema.Field.of("y", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    Schema fileSchema = Schema.recordOf(
+      "record",
+      Schema.Field.of("b", Schema.of(Schema.Type.BOOLEAN)),
+      Schema.Field.of("i", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+      Schema.Field.of("l", Schema.of(Schema.Type.LONG)),
+      Schema.Field.of("f", Schema.of(Schema.Type.FLOAT)),
+      Schema.Field.of("d", Schema.of(Schema.Type.DOUBLE)),
+      Schema.Field.of("s", Schema.of(Schema.Type.STRING)),
+      Schema.Field.of("by", Schema.of(Schema.Type.BYTES)),
+      Schema.Field.of("arr", Schema.arrayOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("m", Schema.mapOf(Schema.of(Schema.Type.STRING), Schema.of(Schema.Type.INT))),
+      Schema.Field.of("rec", Schema.nullableOf(nested)));
+    org.apache.avro.Schema avroSchema = new org.apache.avro.Schema.Parser().parse(fileSchema.toString());
+    org.apache.avro.Schema avroNested = avroSchema.getField("rec").schema().getTypes().get(0);
+    File fileParquet = new File(temporaryFolder.newFolder(), "nested.parquet");
+
+    List<Schema.Field> fields = new ArrayList<>(fileSchema.getFields());
+    fields.add(Schema.Field.of("file", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    Schema schema = Schema.recordOf("record", fields);
+    String file = fileParquet.toURI().toString();
+    Set<StructuredRecord> expected = new HashSet<>();
+    try (ParquetWriter<GenericRecord> parquetWriter = new AvroParquetWriter<>(new Path(fileParquet.toURI()),
+                                                                              avroSchema)) {
+      for (int n = 0; n < 100; n++) {
+        // few distinct strings, so that they are dictionary encoded
+        String str = "value" + n % 3;
+        byte[] bytes = { (byte) n, (byte) -n };
+        List<String> array = n % 4 == 0 ? Collections.emptyList() : Arrays.asList("a" + n, "b" + n);
+        Map<String, Integer> map = ImmutableMap.of("k" + n, n, "k", -n);
+        GenericRecordBuilder builder = new GenericRecordBuilder(avroSchema)
+          .set("b", n % 2 == 0)
+          .set("i", n % 5 == 0 ? null : n)
+          .set("l", (long) n << 33)
+          .set("f", n / 4.0f)
+          .set("d", n / 3.0d)
+          .set("s", str)
+          .set("by", ByteBuffer.wrap(bytes))
+          .set("arr", array)
+          .set("m", map);
+        StructuredRecord.Builder expectedBuilder = StructuredRecord.builder(schema)
+          .set("b", n % 2 == 0)
+          .set("i", n % 5 == 0 ? null : n)
+          .set("l", (long) n << 33)
+          .set("f", n / 4.0f)
+          .set("d", n / 3.0d)
+          .set("s", str)
+          .set("by", ByteBuffer.wrap(bytes))
+          .set("arr", array)
+          .set("m", map)
+          .set("file", file);
+        if (n % 3 != 0) {
+          String y = n % 2 == 0 ? null : "y" + n;
+          builder.set("rec", new GenericRecordBuilder(avroNested).set("x", n).set("y", y).build());
+          expectedBuilder.set("rec", StructuredRecord.builder(nested).set("x", n).set("y", y).build());
+        }
+        parquetWriter.write(builder.build());
+        expected.add(expectedBuilder.build());
+      }
+    }
+
+    String outputDatasetName = UUID.randomUUID().toString();
+    ApplicationManager appManager = createSourceAndDeployApp("ParquetNested", fileParquet, "parquet",
+                                                             outputDatasetName, schema);
+    appManager.getWorkflowManager(SmartWorkflow.NAME)
+      .startAndWaitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+
+    Set<StructuredRecord> output = new HashSet<>(MockSink.readOutput(getDataset(outputDatasetName)));
+    Assert.assertEquals(expected, output);
+  }
+
+  @Test
+  public void testParquetUnionFallsBackToAvro() throws Exception {
+    // a union of several types cannot be materialized directly, so the file is read through avro instead
+    Schema fileSchema = Schema.recordOf(
+      "record",
+      Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+      Schema.Field.of("u", Schema.unionOf(Schema.of(Schema.Type.INT), Schema.of(Schema.Type.STRING))));
+    org.apache.avro.Schema avroSchema = new org.apache.avro.Schema.Parser().parse(fileSchema.toString());
+    File fileParquet = new File(temporaryFolder.newFolder(), "union.parquet");
+    try (ParquetWriter<GenericRecord> parquetWriter = new AvroParquetWriter<>(new Path(fileParquet.toURI()),
+                                                                              avroSchema)) {
+      parquetWriter.write(new GenericRecordBuilder(avroSchema).set("id", 0).set("u", 5).build());
+      parquetWriter.write(new GenericRecordBuilder(avroSchema).set("id", 1).set("u", "five").build());
+    }
+
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+                                    fileSchema.getField("u"),
+                                    Schema.Field.of("file", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    String outputDatasetName = UUID.randomUUID().toString();
+    ApplicationManager appManager = createSourceAndDeployApp("ParquetUnion", fileParquet, "parquet",
+                                                             outputDatasetName, schema);
+    appManager.getWorkflowManager(SmartWorkflow.NAME)
+      .startAndWaitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+
+    String file = fileParquet.toURI().toString();
+    Set<StructuredRecord> expected = ImmutableSet.of(
+      StructuredRecord.builder(schema).set("id", 0).set("u", 5).set("file", file).build(),
+      StructuredRecord.builder(schema).set("id", 1).set("u", "five").set("file", file).build());
+    Assert.assertEquals(expected, new HashSet<>(MockSink.readOutput(getDataset(outputDatasetName))));
+  }
+
+  @Nullable
+  private static Integer getParquetStatus(int id) {
+    return id % 10 == 0 ? null : 200 + id % 5;
+  }
+
+  @Test
+  public void testOrcFilterOnNullableColumns() throws Exception {
+    File fileOrc = new File(temporaryFolder.newFolder(), "test.orc");
+    TypeDescription orcSchema = TypeDescription.fromString("struct<id:int,x:bigint,name:string>");
+    org.apache.orc.Writer writer = OrcFile.createWriter(new Path(fileOrc.toURI()),
+                                                        OrcFile.writerOptions(new Configuration())
+                                                          .setSchema(orcSchema));
+    VectorizedRowBatch batch = orcSchema.createRowBatch();
+    // rows are (0, 1, 'a'), (1, 5, null), (2, 10, 'b') and (3, null, 'c')
+    Long[] xs = { 1L, 5L, 10L, null };
+    String[] names = { "a", null, "b", "c" };
+    LongColumnVector idColumn = (LongColumnVector) batch.cols[0];
+    LongColumnVector xColumn = (LongColumnVector) batch.cols[1];
+    BytesColumnVector nameColumn = (BytesColumnVector) batch.cols[2];
+    for (int row = 0; row < xs.length; row++) {
+      batch.size++;
+      idColumn.vector[row] = row;
+      if (xs[row] == null) {
+        xColumn.noNulls = false;
+        xColumn.isNull[row] = true;
+      } else {
+        xColumn.vector[row] = xs[row];
+      }
+      if (names[row] == null) {
+        nameColumn.noNulls = false;
+        nameColumn.isNull[row] = true;
+      } else {
+        byte[] bytes = Bytes.toBytes(names[row]);
+        nameColumn.setRef(row, bytes, 0, bytes.length);
+      }
+    }
+    writer.addRowBatch(batch);
+    writer.close();
+
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+                                    Schema.Field.of("x", Schema.nullableOf(Schema.of(Schema.Type.LONG))),
+                                    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+                                    Schema.Field.of("file", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+
+    // only != and NOT IN match null values, negated comparisons are inverted like they are for parquet
+    Map<String, Set<Integer>> cases = new LinkedHashMap<>();
+    cases.put("x > 5", ImmutableSet.of(2));
+    cases.put("NOT (x > 5)", ImmutableSet.of(0, 1));
+    cases.put("NOT (x >= 5)", ImmutableSet.of(0));
+    cases.put("NOT (x < 5)", ImmutableSet.of(1, 2));
+    cases.put("x != 5", ImmutableSet.of(0, 2, 3));
+    cases.put("NOT (x = 5)", ImmutableSet.of(0, 2, 3));
+    cases.put("NOT (x != 5)", ImmutableSet.of(1));
+    cases.put("x NOT IN (1, 10)", ImmutableSet.of(1, 3));
+    cases.put("NOT (x IN (1, 10))", ImmutableSet.of(1, 3));
+    cases.put("NOT (x NOT IN (1, 10))", ImmutableSet.of(0, 2));
+    cases.put("NOT (x < 5 OR name = 'b')", ImmutableSet.of(1));
+    cases.put("NOT (x IS NULL) AND name IS NOT NULL", ImmutableSet.of(0, 2));
+    cases.put("NOT (name IS NOT NULL)", ImmutableSet.of(1));
+
+    int run = 0;
+    for (Map.Entry<String, Set<Integer>> entry : cases.entrySet()) {
+      String appName = "OrcNullableFilter" + run++;
+      String outputDatasetName = UUID.randomUUID().toString();
+      ApplicationManager appManager = createSourceAndDeployApp(appName, fileOrc, "orc", outputDatasetName, schema,
+                                                               ImmutableMap.of("filter", entry.getKey()));
+      appManager.getWorkflowManager(SmartWorkflow.NAME)
+        .startAndWaitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+
+      Set<Integer> ids = new HashSet<>();
+      for (StructuredRecord record : MockSink.readOutput(getDataset(outputDatasetName))) {
+        ids.add(record.get("id"));
+      }
+      Assert.assertEquals(entry.getKey(), entry.getValue(), ids);
+    }
+  }
+
+  @Test
+  public void testReadQuotedCSV() throws Exception {
+    File fileText = new File(temporaryFolder.newFolder(), "quoted.csv");
+    Schema schema = Schema.recordOf("user",
+                                    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+                                    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+                                    Schema.Field.of("count", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+                                    Schema.Field.of("file", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    String inputStr = new StringBuilder()
+      .append("0,\"a,b\",1\n")
+      .append("1,\"say \"\"hi\"\"\",2\n")
+      .append("2,\"first line\nsecond, line\n\"\"third\"\" line\",3\n")
+      .append("3,\"\",\n")
+      .append("\"4\",plain,\"5\"\n").toString();
+    FileUtils.writeStringToFile(fileText, inputStr);
+
+    String outputDatasetName = UUID.randomUUID().toString();
+    ApplicationManager appManager = createSourceAndDeployApp("QuotedCSV", fileText, "csv", outputDatasetName, schema,
+                                                             ImmutableMap.of("enableQuotedValues", "true"));
+    appManager.getWorkflowManager(SmartWorkflow.NAME)
+      .startAndWaitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+
+    String file = fileText.toURI().toString();
+    Set<StructuredRecord> expected = ImmutableSet.of(
+      StructuredRecord.builder(schema).set("id", 0L).set("name", "a,b").set("count", 1).set("file", file).build(),
+      StructuredRecord.builder(schema).set("id", 1L).set("name", "say \"hi\"").set("count", 2).set("file", file)
+        .build(),
+      StructuredRecord.builder(schema).set("id", 2L).set("name", "first line\nsecond, line\n\"third\" line")
+        .set("count", 3).set("file", file).build(),
+      StructuredRecord.builder(schema).set("id", 3L).set("name", "").set("file", file).build(),
+      StructuredRecord.builder(schema).set("id", 4L).set("name", "plain").set("count", 5).set("file", file).build());
+    Set<StructuredRecord> output = new HashSet<>(MockSink.readOutput(getDataset(outputDatasetName)));
+    Assert.assertEquals(expected, output);
+  }
+
+  @Test
+  public void testReadInvalidCSV() throws Exception {
+    Schema schema = Schema.recordOf("user",
+                                    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+                                    Schema.Field.of("count", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+                                    Schema.Field.of("file", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    Map<String, String> inputs = new LinkedHashMap<>();
+    inputs.put("UnterminatedQuote", "0,1\n1,\"2\n2,3\n");
+    inputs.put("IntOverflow", "0,1\n1,2147483648\n");
+    inputs.put("LongOverflow", "0,1\n9223372036854775808,2\n");
+    for (Map.Entry<String, String> input : inputs.entrySet()) {
+      File fileText = new File(temporaryFolder.newFolder(), "invalid.csv");
+      FileUtils.writeStringToFile(fileText, input.getValue());
+      ApplicationManager appManager = createSourceAndDeployApp("InvalidCSV" + input.getKey(), fileText, "csv",
+                                                               UUID.randomUUID().toString(), schema,
+                                                               ImmutableMap.of("enableQuotedValues", "true"));
+      WorkflowManager workflowManager = appManager.getWorkflowManager(SmartWorkflow.NAME);
+      workflowManager.start();
+      workflowManager.waitForRuns(ProgramRunStatus.FAILED, 1, 5, TimeUnit.MINUTES);
+    }
+  }
+
+  @Test
+  public void testReadSeekableZstdSplits() throws Exception {
+    File fileZstd = new File(temporaryFolder.newFolder(), "test.txt.zst");
+    // small frames so that every split starts and ends in the middle of the file
+    SeekableZstdCodec codec = new SeekableZstdCodec();
+    Configuration conf = new Configuration();
+    conf.setInt(SeekableZstdCodec.FRAME_SIZE, 100);
+    codec.setConf(conf);
+    Set<String> expected = new HashSet<>();
+    try (OutputStream out = codec.createOutputStream(new FileOutputStream(fileZstd))) {
+      for (int i = 0; i < 1000; i++) {
+        String line = "line " + i;
+        expected.add(line);
+        out.write(Bytes.toBytes(line + "\n"));
+      }
+    }
+
+    Schema schema = Schema.recordOf("file.record",
+                                    Schema.Field.of("body", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+                                    Schema.Field.of("file", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    String outputDatasetName = UUID.randomUUID().toString();
+    ApplicationManager appManager = createSourceAndDeployApp("SeekableZstdSplits", fileZstd, "text",
+                                                             outputDatasetName, schema,
+                                                             ImmutableMap.of("maxSplitSize", "500"));
+    appManager.getWorkflowManager(SmartWorkflow.NAME)
+      .startAndWaitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+
+    // every line is read exactly once, no matter which split it starts in
+    List<StructuredRecord> output = MockSink.readOutput(getDataset(outputDatasetName));
+    Set<String> lines = new HashSet<>();
+    for (StructuredRecord record : output) {
+      lines.add(record.get("body"));
+    }
+    Assert.assertEquals(expected.size(), output.size());
+    Assert.assertEquals(expected, lines);
+  }
+
+  @Test
+  public void testReadAheadTextSplits() throws Exception {
+    File fileText = new File(temporaryFolder.newFolder(), "test.txt");
+    Set<String> expected = new HashSet<>();
+    try (Writer writer = new FileWriter(fileText)) {
+      for (int i = 0; i < 2000; i++) {
+        String line = "line " + i;
+        expected.add(line);
+        writer.write(line + "\n");
+      }
+    }
+
+    Schema schema = Schema.recordOf("file.record",
+                                    Schema.Field.of("body", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+                                    Schema.Field.of("file", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    // buffers smaller than the splits, which start in the middle of lines
+    String outputDatasetName = UUID.randomUUID().toString();
+    ApplicationManager appManager = createSourceAndDeployApp(
+      "ReadAheadTextSplits", fileText, "text", outputDatasetName, schema,
+      ImmutableMap.of("maxSplitSize", "1000", "readAheadBufferSize", "64", "readAheadDepth", "2"));
+    appManager.getWorkflowManager(SmartWorkflow.NAME)
+      .startAndWaitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+
+    List<StructuredRecord> output = MockSink.readOutput(getDataset(outputDatasetName));
+    Set<String> lines = new HashSet<>();
+    for (StructuredRecord record : output) {
+      lines.add(record.get("body"));
+    }
+    Assert.assertEquals(expected.size(), output.size());
+    Assert.assertEquals(expected, lines);
+  }
+
+  @Test
+  public void testReadAheadAvroSplits() throws Exception {
+    File fileAvro = new File(temporaryFolder.newFolder(), "test.avro");
+    org.apache.avro.Schema avroSchema = new org.apache.avro.Schema.Parser().parse(RECORD_SCHEMA.toString());
+    DatumWriter<GenericRecord> datumWriter = new GenericDatumWriter<>(avroSchema);
+    try (DataFileWriter<GenericRecord> dataFileWriter = new DataFileWriter<>(datumWriter)) {
+      // many small blocks, so that most splits start after the header
+      dataFileWriter.setSyncInterval(100);
+      dataFileWriter.create(avroSchema, fileAvro);
+      for (int i = 0; i < 1000; i++) {
+        dataFileWriter.append(new GenericRecordBuilder(avroSchema).set("i", i).set("l", (long) i).set("file", "")
+                                .build());
+      }
+    }
+
+    String outputDatasetName = UUID.randomUUID().toString();
+    ApplicationManager appManager = createSourceAndDeployApp(
+      "ReadAheadAvroSplits", fileAvro, "avro", outputDatasetName, RECORD_SCHEMA,
+      ImmutableMap.of("maxSplitSize", "2000", "readAheadBufferSize", "256"));
+    appManager.getWorkflowManager(SmartWorkflow.NAME)
+      .startAndWaitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+
+    List<StructuredRecord> output = MockSink.readOutput(getDataset(outputDatasetName));
+    Set<Integer> values = new HashSet<>();
+    for (StructuredRecord record : output) {
+      values.add(record.get("i"));
+      Assert.assertEquals((long) (int) record.get("i"), (long) record.get("l"));
+    }
+    Assert.assertEquals(1000, output.size());
+    Assert.assertEquals(1000, values.size());
+  }
+
+  @Test
+  public void testAvroSplitsWithReusedDatums() throws Exception {
+    Schema nested = Schema.recordOf("nested",
+                                    Schema.Field.of("x", Schema.of(Schema.Type.INT)),
+                                    Schema.Field.of("y", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    Schema fileSchema = Schema.recordOf(
+      "record",
+      Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+      Schema.Field.of("s", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("by", Schema.of(Schema.Type.BYTES)),
+      Schema.Field.of("arr", Schema.arrayOf(Schema.of(Schema.Type.LONG))),
+      Schema.Field.of("m", Schema.mapOf(Schema.of(Schema.Type.STRING), Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("rec", Schema.nullableOf(nested)),
+      Schema.Field.of("u", Schema.unionOf(Schema.of(Schema.Type.INT), Schema.of(Schema.Type.STRING))));
+    org.apache.avro.Schema avroSchema = new org.apache.avro.Schema.Parser().parse(fileSchema.toString());
+    org.apache.avro.Schema avroNested = avroSchema.getField("rec").schema().getTypes().get(0);
+    File fileAvro = new File(temporaryFolder.newFolder(), "test.avro");
+
+    List<Schema.Field> fields = new ArrayList<>(fileSchema.getFields());
+    fields.add(Schema.Field.of("file", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    Schema schema = Schema.recordOf("record", fields);
+    String file = fileAvro.toURI().toString();
+    Map<Integer, StructuredRecord> expected = new HashMap<>();
+    DatumWriter<GenericRecord> datumWriter = new GenericDatumWriter<>(avroSchema);
+    try (DataFileWriter<GenericRecord> dataFileWriter = new DataFileWriter<>(datumWriter)) {
+      // many small blocks, so that splits start at sync markers in the middle of the file
+      dataFileWriter.setSyncInterval(200);
+      dataFileWriter.create(avroSchema, fileAvro);
+      for (int id = 0; id < 500; id++) {
+        // values of varying length, so that a reused datum that is not cleared shows up in the next record
+        String str = id % 7 == 0 ? null : Strings.repeat("s", id % 13);
+        byte[] bytes = new byte[id % 11];
+        Arrays.fill(bytes, (byte) id);
+        List<Long> array = new ArrayList<>();
+        for (int i = 0; i < id % 5; i++) {
+          array.add((long) id * i);
+        }
+        Map<String, String> map = id % 3 == 0 ? Collections.emptyMap() : ImmutableMap.of("k" + id % 3, "v" + id);
+        Object union = id % 2 == 0 ? (Object) id : "u" + id;
+        GenericRecordBuilder builder = new GenericRecordBuilder(avroSchema)
+          .set("id", id).set("s", str).set("by", ByteBuffer.wrap(bytes)).set("arr", array).set("m", map)
+          .set("u", union);
+        StructuredRecord.Builder expectedBuilder = StructuredRecord.builder(schema)
+          .set("id", id).set("s", str).set("by", ByteBuffer.wrap(bytes)).set("arr", array).set("m", map)
+          .set("u", union).set("file", file);
+        if (id % 4 != 0) {
+          String y = id % 8 == 1 ? null : "y" + id;
+          builder.set("rec", new GenericRecordBuilder(avroNested).set("x", id).set("y", y).build());
+          expectedBuilder.set("rec", StructuredRecord.builder(nested).set("x", id).set("y", y).build());
+        }
+        dataFileWriter.append(builder.build());
+        expected.put(id, expectedBuilder.build());
+      }
+    }
+
+    String outputDatasetName = UUID.randomUUID().toString();
+    ApplicationManager appManager = createSourceAndDeployApp("AvroReusedDatums", fileAvro, "avro",
+                                                             outputDatasetName, schema,
+                                                             ImmutableMap.of("maxSplitSize", "1000"));
+    appManager.getWorkflowManager(SmartWorkflow.NAME)
+      .startAndWaitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+
+    List<StructuredRecord> output = MockSink.readOutput(getDataset(outputDatasetName));
+    Assert.assertEquals(expected.size(), output.size());
+    Assert.assertEquals(new HashSet<>(expected.values()), new HashSet<>(output));
+
+    // only the required fields are read
+    outputDatasetName = UUID.randomUUID().toString();
+    appManager = createSourceAndDeployApp("AvroRequiredFields", fileAvro, "avro", outputDatasetName, schema,
+                                          ImmutableMap.of("maxSplitSize", "1000", "requiredFields", "id,by,u"));
+    appManager.getWorkflowManager(SmartWorkflow.NAME)
+      .startAndWaitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+
+    output = MockSink.readOutput(getDataset(outputDatasetName));
+    Assert.assertEquals(expected.size(), output.size());
+    for (StructuredRecord record : output) {
+      Assert.assertEquals(ImmutableSet.of("id", "by", "u", "file"),
+                          record.getSchema().getFields().stream().map(Schema.Field::getName)
+                            .collect(Collectors.toSet()));
+      StructuredRecord expectedRecord = expected.get(record.<Integer>get("id"));
+      Assert.assertEquals(expectedRecord.<ByteBuffer>get("by"), record.get("by"));
+      Assert.assertEquals(expectedRecord.<Object>get("u"), record.get("u"));
+      Assert.assertEquals(file, record.get("file"));
+    }
+  }
+
+  @Test
+  public void testPackedSplits() throws Exception {
+    File testFolder = temporaryFolder.newFolder();
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+                                    Schema.Field.of("file", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    // many tiny files and one large file, which is cut into pieces
+    Set<String> expected = new HashSet<>();
+    for (int i = 0; i < 50; i++) {
+      File file = new File(testFolder, "small" + i + ".csv");
+      FileUtils.writeStringToFile(file, i + "\n" + (i + 1000) + "\n");
+      expected.add(file.toURI() + "#" + i);
+      expected.add(file.toURI() + "#" + (i + 1000));
+    }
+    File large = new File(testFolder, "large.csv");
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < 2000; i++) {
+      content.append(i).append('\n');
+      expected.add(large.toURI() + "#" + i);
+    }
+    FileUtils.writeStringToFile(large, content.toString());
+
+    Map<String, Map<String, String>> cases = new LinkedHashMap<>();
+    cases.put("OpenCost", ImmutableMap.of("fileOpenCost", "1000", "maxSplitSize", "4000"));
+    cases.put("MaxFiles", ImmutableMap.of("maxFilesPerSplit", "7", "maxSplitSize", "4000"));
+    cases.put("TargetSplits", ImmutableMap.of("fileOpenCost", "100", "targetSplits", "5"));
+    for (Map.Entry<String, Map<String, String>> entry : cases.entrySet()) {
+      String outputDatasetName = UUID.randomUUID().toString();
+      ApplicationManager appManager = createSourceAndDeployApp("PackedSplits" + entry.getKey(), testFolder, "csv",
+                                                               outputDatasetName, schema, entry.getValue());
+      appManager.getWorkflowManager(SmartWorkflow.NAME)
+        .startAndWaitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+
+      // every line is read exactly once, however the files are packed
+      List<StructuredRecord> output = MockSink.readOutput(getDataset(outputDatasetName));
+      Set<String> actual = new HashSet<>();
+      for (StructuredRecord record : output) {
+        actual.add(record.get("file") + "#" + record.get("id"));
+      }
+      Assert.assertEquals(entry.getKey(), expected.size(), output.size());
+      Assert.assertEquals(entry.getKey(), expected, actual);
+    }
+  }
+
+  @Test
+  public void testFileIdManifest() throws Exception {
+    File testFolder = temporaryFolder.newFolder();
+    Map<Long, String> pathsById = new HashMap<>();
+    for (int i = 0; i < 5; i++) {
+      File file = new File(testFolder, "test" + i + ".csv");
+      FileUtils.writeStringToFile(file, i + "\n" + (i + 100) + "\n");
+      pathsById.put((long) i, file.toURI().toString());
+      pathsById.put((long) i + 100, file.toURI().toString());
+    }
+    File manifest = new File(temporaryFolder.newFolder(), "ids.tsv");
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+                                    Schema.Field.of("file", Schema.of(Schema.Type.INT)));
+
+    // small splits, so that the files are spread over several combined splits
+    String outputDatasetName = UUID.randomUUID().toString();
+    ApplicationManager appManager = createSourceAndDeployApp("FileIds", testFolder, "csv", outputDatasetName, schema,
+                                                             ImmutableMap.of("fileIdManifest", manifest.getPath(),
+                                                                             "maxSplitSize", "10"));
+    appManager.getWorkflowManager(SmartWorkflow.NAME)
+      .startAndWaitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+
+    Map<Integer, String> manifestPaths = readFileIdManifest(manifest);
+    Assert.assertEquals(5, manifestPaths.size());
+    Assert.assertEquals(new HashSet<>(pathsById.values()), new HashSet<>(manifestPaths.values()));
+    List<StructuredRecord> output = MockSink.readOutput(getDataset(outputDatasetName));
+    Assert.assertEquals(pathsById.size(), output.size());
+    for (StructuredRecord record : output) {
+      Assert.assertEquals(pathsById.get(record.<Long>get("id")), manifestPaths.get(record.<Integer>get("file")));
+    }
+
+    // formats that do not combine files carry the ids in their own splits
+    File blobFolder = temporaryFolder.newFolder();
+    FileUtils.writeStringToFile(new File(blobFolder, "a"), "aaa");
+    FileUtils.writeStringToFile(new File(blobFolder, "b"), "bb");
+    Schema blobSchema = Schema.recordOf("blob",
+                                        Schema.Field.of("body", Schema.of(Schema.Type.BYTES)),
+                                        Schema.Field.of("file", Schema.of(Schema.Type.INT)));
+    outputDatasetName = UUID.randomUUID().toString();
+    appManager = createSourceAndDeployApp("BlobFileIds", blobFolder, FileFormat.BLOB.name(), outputDatasetName,
+                                          blobSchema, ImmutableMap.of("fileIdManifest", manifest.getPath()));
+    appManager.getWorkflowManager(SmartWorkflow.NAME)
+      .startAndWaitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+
+    // the manifest is replaced with the files of the latest run
+    manifestPaths = readFileIdManifest(manifest);
+    Assert.assertEquals(ImmutableMap.of(0, new File(blobFolder, "a").toURI().toString(),
+                                        1, new File(blobFolder, "b").toURI().toString()), manifestPaths);
+    Map<Integer, String> bodies = new HashMap<>();
+    for (StructuredRecord record : MockSink.readOutput(getDataset(outputDatasetName))) {
+      bodies.put(record.get("file"), Bytes.toString((ByteBuffer) record.get("body")));
+    }
+    Assert.assertEquals(ImmutableMap.of(0, "aaa", 1, "bb"), bodies);
+  }
+
+  private static Map<Integer, String> readFileIdManifest(File manifest) throws IOException {
+    Map<Integer, String> paths = new HashMap<>();
+    for (String line : FileUtils.readLines(manifest, StandardCharsets.UTF_8)) {
+      String[] parts = line.split("\t", 2);
+      Assert.assertNull(paths.put(Integer.parseInt(parts[0]), parts[1]));
+    }
+    return paths;
+  }
+
   private ApplicationManager createSourceAndDeployApp(String appName, File file, String format,
                                                       String outputDatasetName, Schema schema) throws Exception {
     return createSourceAndDeployApp(appName, file, format, outputDatasetName, schema, null);
@@ -884,16 +1641,24 @@ public class FileBatchSourceTest extends ETLBatchTestBase {
   private ApplicationManager createSourceAndDeployApp(String appName, File file, String format,
                                                       String outputDatasetName, Schema schema,
                                                       @Nullable String delimiter) throws Exception {
+    Map<String, String> properties = new HashMap<>();
+    if (delimiter != null) {
+      properties.put("delimiter", delimiter);
+    }
+    return createSourceAndDeployApp(appName, file, format, outputDatasetName, schema, properties);
+  }
+
+  private ApplicationManager createSourceAndDeployApp(String appName, File file, String format,
+                                                      String outputDatasetName, Schema schema,
+                                                      Map<String, String> properties) throws Exception {
 
     ImmutableMap.Builder<String, String> sourceProperties = ImmutableMap.<String, String>builder()
       .put(Constants.Reference.REFERENCE_NAME, appName + "TestFile")
       .put(Properties.File.PATH, file.getAbsolutePath())
       .put(Properties.File.FORMAT, format)
       .put(Properties.File.IGNORE_NON_EXISTING_FOLDERS, "false")
-      .put("pathField", "file");
-    if (delimiter != null) {
-      sourceProperties.put("delimiter", delimiter);
-    }
+      .put("pathField", "file")
+      .putAll(properties);
 
     if (schema != null) {
       String schemaString = schema.toString();
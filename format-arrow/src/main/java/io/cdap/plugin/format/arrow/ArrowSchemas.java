@@ -0,0 +1,181 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.arrow;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.arrow.vector.types.DateUnit;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Converts between CDAP schemas and Arrow schemas. Only flat schemas are supported: every field must be a boolean,
+ * int, long, float, double, string or bytes, or one of the date, time and timestamp logical types, and may be
+ * nullable. Timestamps are written in UTC.
+ */
+public final class ArrowSchemas {
+  private static final String UTC = "UTC";
+
+  private ArrowSchemas() {
+    // no-op
+  }
+
+  /**
+   * Converts a CDAP record schema into an Arrow schema with the same field names and order.
+   *
+   * @throws IllegalArgumentException if a field has a type that can't be written
+   */
+  public static org.apache.arrow.vector.types.pojo.Schema toArrowSchema(Schema schema) {
+    List<Field> fields = new ArrayList<>(schema.getFields().size());
+    for (Schema.Field field : schema.getFields()) {
+      Schema fieldSchema = field.getSchema();
+      boolean nullable = fieldSchema.isNullable();
+      ArrowType type = toArrowType(field.getName(), nullable ? fieldSchema.getNonNullable() : fieldSchema);
+      fields.add(new Field(field.getName(), new FieldType(nullable, type, null), Collections.emptyList()));
+    }
+    return new org.apache.arrow.vector.types.pojo.Schema(fields);
+  }
+
+  /**
+   * Converts an Arrow schema into a CDAP record schema, for reading files without a configured schema.
+   *
+   * @throws IllegalArgumentException if a field has a type that can't be read
+   */
+  public static Schema fromArrowSchema(org.apache.arrow.vector.types.pojo.Schema arrowSchema) {
+    List<Schema.Field> fields = new ArrayList<>(arrowSchema.getFields().size());
+    for (Field field : arrowSchema.getFields()) {
+      fields.add(Schema.Field.of(field.getName(), fromArrowField(field)));
+    }
+    return Schema.recordOf("record", fields);
+  }
+
+  /**
+   * Returns the CDAP schema of the values of an Arrow field.
+   *
+   * @throws IllegalArgumentException if the field has a type that can't be read
+   */
+  public static Schema fromArrowField(Field field) {
+    Schema schema = fromArrowType(field.getName(), field.getType());
+    return field.isNullable() ? Schema.nullableOf(schema) : schema;
+  }
+
+  private static ArrowType toArrowType(String name, Schema schema) {
+    Schema.LogicalType logicalType = schema.getLogicalType();
+    if (logicalType != null) {
+      switch (logicalType) {
+        case DATE:
+          return new ArrowType.Date(DateUnit.DAY);
+        case TIME_MILLIS:
+          return new ArrowType.Time(TimeUnit.MILLISECOND, 32);
+        case TIME_MICROS:
+          return new ArrowType.Time(TimeUnit.MICROSECOND, 64);
+        case TIMESTAMP_MILLIS:
+          return new ArrowType.Timestamp(TimeUnit.MILLISECOND, UTC);
+        case TIMESTAMP_MICROS:
+          return new ArrowType.Timestamp(TimeUnit.MICROSECOND, UTC);
+        default:
+          throw unsupported(name, logicalType.name().toLowerCase());
+      }
+    }
+    switch (schema.getType()) {
+      case BOOLEAN:
+        return ArrowType.Bool.INSTANCE;
+      case INT:
+        return new ArrowType.Int(32, true);
+      case LONG:
+        return new ArrowType.Int(64, true);
+      case FLOAT:
+        return new ArrowType.FloatingPoint(FloatingPointPrecision.SINGLE);
+      case DOUBLE:
+        return new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE);
+      case STRING:
+        return ArrowType.Utf8.INSTANCE;
+      case BYTES:
+        return ArrowType.Binary.INSTANCE;
+      default:
+        throw unsupported(name, schema.getType().name().toLowerCase());
+    }
+  }
+
+  private static Schema fromArrowType(String name, ArrowType type) {
+    switch (type.getTypeID()) {
+      case Bool:
+        return Schema.of(Schema.Type.BOOLEAN);
+      case Int:
+        ArrowType.Int intType = (ArrowType.Int) type;
+        if (intType.getIsSigned() && intType.getBitWidth() == 32) {
+          return Schema.of(Schema.Type.INT);
+        }
+        if (intType.getIsSigned() && intType.getBitWidth() == 64) {
+          return Schema.of(Schema.Type.LONG);
+        }
+        break;
+      case FloatingPoint:
+        FloatingPointPrecision precision = ((ArrowType.FloatingPoint) type).getPrecision();
+        if (precision == FloatingPointPrecision.SINGLE) {
+          return Schema.of(Schema.Type.FLOAT);
+        }
+        if (precision == FloatingPointPrecision.DOUBLE) {
+          return Schema.of(Schema.Type.DOUBLE);
+        }
+        break;
+      case Utf8:
+        return Schema.of(Schema.Type.STRING);
+      case Binary:
+        return Schema.of(Schema.Type.BYTES);
+      case Date:
+        if (((ArrowType.Date) type).getUnit() == DateUnit.DAY) {
+          return Schema.of(Schema.LogicalType.DATE);
+        }
+        break;
+      case Time:
+        TimeUnit timeUnit = ((ArrowType.Time) type).getUnit();
+        if (timeUnit == TimeUnit.MILLISECOND) {
+          return Schema.of(Schema.LogicalType.TIME_MILLIS);
+        }
+        if (timeUnit == TimeUnit.MICROSECOND) {
+          return Schema.of(Schema.LogicalType.TIME_MICROS);
+        }
+        break;
+      case Timestamp:
+        TimeUnit timestampUnit = ((ArrowType.Timestamp) type).getUnit();
+        if (timestampUnit == TimeUnit.MILLISECOND) {
+          return Schema.of(Schema.LogicalType.TIMESTAMP_MILLIS);
+        }
+        if (timestampUnit == TimeUnit.MICROSECOND) {
+          return Schema.of(Schema.LogicalType.TIMESTAMP_MICROS);
+        }
+        break;
+      default:
+        break;
+    }
+    throw unsupported(name, type.toString());
+  }
+
+  private static IllegalArgumentException unsupported(String name, String type) {
+    return new IllegalArgumentException(
+      String.format("Field '%s' is of unsupported type '%s'. The arrow format only supports flat records of "
+                      + "simple types.", name, type));
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.arrow.input;
+
+import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Name;
+import io.cdap.cdap.api.annotation.Plugin;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.plugin.PluginClass;
+import io.cdap.plugin.format.arrow.ArrowSchemas;
+import io.cdap.plugin.format.input.PathTrackingConfig;
+import io.cdap.plugin.format.input.PathTrackingInputFormatProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Provides and sets up configuration for an arrow input format.
+ */
+@Plugin(type = "inputformat")
+@Name(ArrowInputFormatProvider.NAME)
+@Description(ArrowInputFormatProvider.DESC)
+public class ArrowInputFormatProvider extends PathTrackingInputFormatProvider<PathTrackingConfig> {
+  static final String NAME = "arrow";
+  static final String DESC = "Plugin for reading files in the arrow IPC file format.";
+  public static final PluginClass PLUGIN_CLASS =
+    new PluginClass("inputformat", NAME, DESC, ArrowInputFormatProvider.class.getName(),
+                    "conf", PathTrackingConfig.FIELDS);
+
+  public ArrowInputFormatProvider(PathTrackingConfig conf) {
+    super(conf);
+  }
+
+  @Override
+  public String getInputFormatClassName() {
+    return CombineArrowInputFormat.class.getName();
+  }
+
+  @Override
+  protected void validate() {
+    if (conf.containsMacro("schema") || conf.getSchema() == null) {
+      return;
+    }
+    // the path field is added by the source, so it does not have to be an arrow type
+    List<Schema.Field> fields = new ArrayList<>();
+    for (Schema.Field field : conf.getSchema().getFields()) {
+      if (!field.getName().equals(conf.getPathField())) {
+        fields.add(field);
+      }
+    }
+    ArrowSchemas.toArrowSchema(Schema.recordOf("record", fields));
+  }
+}
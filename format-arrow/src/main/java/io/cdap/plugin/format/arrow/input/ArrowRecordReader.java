@@ -0,0 +1,246 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.arrow.input;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.format.arrow.ArrowSchemas;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.TimeMicroVector;
+import org.apache.arrow.vector.TimeMilliVector;
+import org.apache.arrow.vector.TimeStampVector;
+import org.apache.arrow.vector.VarBinaryVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowFileReader;
+import org.apache.arrow.vector.ipc.message.ArrowBlock;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Reads the record batches of an Arrow IPC file that start within the split, returning a record builder per row.
+ * Only the vectors of the fields in the schema are converted.
+ */
+class ArrowRecordReader extends RecordReader<NullWritable, StructuredRecord.Builder> {
+  private final String pathField;
+  private Schema schema;
+  private BufferAllocator allocator;
+  private ArrowFileReader reader;
+  private VectorSchemaRoot root;
+  private List<ArrowBlock> blocks;
+  private int blockIndex;
+  private int rowCount;
+  private int row;
+  private String[] names;
+  private FieldVector[] vectors;
+  private ValueGetter[] getters;
+
+  ArrowRecordReader(@Nullable Schema schema, @Nullable String pathField) {
+    this.schema = schema;
+    this.pathField = pathField;
+  }
+
+  @Override
+  public void initialize(InputSplit inputSplit, TaskAttemptContext context) throws IOException {
+    FileSplit split = (FileSplit) inputSplit;
+    Configuration conf = context.getConfiguration();
+    Path path = split.getPath();
+    FileSystem fs = path.getFileSystem(conf);
+    long length = fs.getFileStatus(path).getLen();
+    allocator = new RootAllocator(Long.MAX_VALUE);
+    reader = new ArrowFileReader(new SeekableInputChannel(fs.open(path), length), allocator);
+    root = reader.getVectorSchemaRoot();
+
+    long start = split.getStart();
+    long end = start + split.getLength();
+    blocks = new ArrayList<>();
+    for (ArrowBlock block : reader.getRecordBlocks()) {
+      if (block.getOffset() >= start && block.getOffset() < end) {
+        blocks.add(block);
+      }
+    }
+    blockIndex = 0;
+    rowCount = 0;
+    row = -1;
+
+    if (schema == null) {
+      // if there is no schema, the schema is taken from the file
+      Schema fileSchema = ArrowSchemas.fromArrowSchema(root.getSchema());
+      List<Schema.Field> fields = new ArrayList<>(fileSchema.getFields());
+      if (pathField != null) {
+        fields.add(Schema.Field.of(pathField, Schema.of(Schema.Type.STRING)));
+      }
+      schema = Schema.recordOf(fileSchema.getRecordName(), fields);
+    }
+
+    Map<String, Field> fileFields = new HashMap<>();
+    for (Field fileField : root.getSchema().getFields()) {
+      fileFields.put(fileField.getName(), fileField);
+    }
+    List<Schema.Field> fields = schema.getFields();
+    names = new String[fields.size()];
+    vectors = new FieldVector[fields.size()];
+    getters = new ValueGetter[fields.size()];
+    for (int i = 0; i < names.length; i++) {
+      Schema.Field field = fields.get(i);
+      names[i] = field.getName();
+      if (names[i].equals(pathField)) {
+        continue;
+      }
+      Field fileField = fileFields.get(names[i]);
+      if (fileField == null) {
+        if (!field.getSchema().isNullable()) {
+          throw new IllegalArgumentException(
+            String.format("Non-nullable field '%s' does not exist in file '%s'.", names[i], path));
+        }
+        continue;
+      }
+      // files written by other arrow producers can have types that don't match, or don't exist in CDAP at all
+      Schema fileSchema = nonNullable(ArrowSchemas.fromArrowField(fileField));
+      if (!fileSchema.equals(nonNullable(field.getSchema()))) {
+        throw new IllegalArgumentException(
+          String.format("Field '%s' is of type '%s' in file '%s', but of type '%s' in the schema.", names[i],
+                        fileSchema, path, nonNullable(field.getSchema())));
+      }
+      vectors[i] = root.getVector(names[i]);
+      getters[i] = createGetter(vectors[i]);
+    }
+  }
+
+  @Override
+  public boolean nextKeyValue() throws IOException {
+    row++;
+    while (row >= rowCount) {
+      if (blockIndex == blocks.size()) {
+        return false;
+      }
+      reader.loadRecordBatch(blocks.get(blockIndex++));
+      rowCount = root.getRowCount();
+      row = 0;
+    }
+    return true;
+  }
+
+  @Override
+  public NullWritable getCurrentKey() {
+    return NullWritable.get();
+  }
+
+  @Override
+  public StructuredRecord.Builder getCurrentValue() {
+    StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+    for (int i = 0; i < vectors.length; i++) {
+      FieldVector vector = vectors[i];
+      if (vector != null && !vector.isNull(row)) {
+        builder.set(names[i], getters[i].get(row));
+      }
+    }
+    return builder;
+  }
+
+  @Override
+  public float getProgress() {
+    return blocks == null || blocks.isEmpty() ? 1.0f : (float) blockIndex / blocks.size();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      if (reader != null) {
+        // also closes the vectors and the input stream
+        reader.close();
+      }
+    } finally {
+      if (allocator != null) {
+        allocator.close();
+      }
+    }
+  }
+
+  private static Schema nonNullable(Schema schema) {
+    return schema.isNullable() ? schema.getNonNullable() : schema;
+  }
+
+  private static ValueGetter createGetter(FieldVector vector) {
+    if (vector instanceof BitVector) {
+      return row -> ((BitVector) vector).get(row) != 0;
+    }
+    if (vector instanceof IntVector) {
+      return row -> ((IntVector) vector).get(row);
+    }
+    if (vector instanceof BigIntVector) {
+      return row -> ((BigIntVector) vector).get(row);
+    }
+    if (vector instanceof Float4Vector) {
+      return row -> ((Float4Vector) vector).get(row);
+    }
+    if (vector instanceof Float8Vector) {
+      return row -> ((Float8Vector) vector).get(row);
+    }
+    if (vector instanceof DateDayVector) {
+      return row -> ((DateDayVector) vector).get(row);
+    }
+    if (vector instanceof TimeMilliVector) {
+      return row -> ((TimeMilliVector) vector).get(row);
+    }
+    if (vector instanceof TimeMicroVector) {
+      return row -> ((TimeMicroVector) vector).get(row);
+    }
+    if (vector instanceof TimeStampVector) {
+      return row -> ((TimeStampVector) vector).get(row);
+    }
+    if (vector instanceof VarCharVector) {
+      return row -> new String(((VarCharVector) vector).get(row), StandardCharsets.UTF_8);
+    }
+    if (vector instanceof VarBinaryVector) {
+      return row -> ((VarBinaryVector) vector).get(row);
+    }
+    // ruled out by the schema conversion
+    throw new IllegalStateException("Unsupported vector " + vector.getClass().getName());
+  }
+
+  /**
+   * Gets the value of a row from a vector, as it is stored in a StructuredRecord.
+   */
+  private interface ValueGetter {
+    Object get(int row);
+  }
+}
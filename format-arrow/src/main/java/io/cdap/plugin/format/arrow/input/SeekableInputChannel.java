@@ -0,0 +1,109 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.arrow.input;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * A read only {@link SeekableByteChannel} over a Hadoop input stream, which is what the Arrow file reader needs
+ * to read the footer of a file before its record batches.
+ */
+class SeekableInputChannel implements SeekableByteChannel {
+  // maximum number of bytes copied at a time when reading into a direct buffer
+  private static final int MAX_COPY = 1 << 20;
+
+  private final FSDataInputStream in;
+  private final long size;
+  private byte[] buffer;
+  private boolean open;
+
+  SeekableInputChannel(FSDataInputStream in, long size) {
+    this.in = in;
+    this.size = size;
+    this.buffer = new byte[0];
+    this.open = true;
+  }
+
+  @Override
+  public int read(ByteBuffer dst) throws IOException {
+    int length = dst.remaining();
+    if (length == 0) {
+      return 0;
+    }
+    int read;
+    if (dst.hasArray()) {
+      read = in.read(dst.array(), dst.arrayOffset() + dst.position(), length);
+      if (read > 0) {
+        dst.position(dst.position() + read);
+      }
+    } else {
+      // arrow reads into direct buffers, so copy through a reused array
+      int chunk = Math.min(length, MAX_COPY);
+      if (buffer.length < chunk) {
+        buffer = new byte[chunk];
+      }
+      read = in.read(buffer, 0, chunk);
+      if (read > 0) {
+        dst.put(buffer, 0, read);
+      }
+    }
+    return read;
+  }
+
+  @Override
+  public int write(ByteBuffer src) {
+    throw new NonWritableChannelException();
+  }
+
+  @Override
+  public long position() throws IOException {
+    return in.getPos();
+  }
+
+  @Override
+  public SeekableByteChannel position(long newPosition) throws IOException {
+    in.seek(newPosition);
+    return this;
+  }
+
+  @Override
+  public long size() {
+    return size;
+  }
+
+  @Override
+  public SeekableByteChannel truncate(long size) {
+    throw new NonWritableChannelException();
+  }
+
+  @Override
+  public boolean isOpen() {
+    return open;
+  }
+
+  @Override
+  public void close() throws IOException {
+    open = false;
+    in.close();
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.arrow.output;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+
+import java.io.IOException;
+
+/**
+ * Writes StructuredRecords into Arrow IPC files.
+ */
+public class ArrowOutputFormat extends FileOutputFormat<Void, StructuredRecord> {
+  static final String SCHEMA_KEY = "arrow.schema";
+  static final String BATCH_SIZE = "arrow.record.batch.size";
+  static final int DEFAULT_BATCH_SIZE = 4096;
+
+  @Override
+  public RecordWriter<Void, StructuredRecord> getRecordWriter(TaskAttemptContext context) throws IOException {
+    Configuration conf = context.getConfiguration();
+    Schema schema = Schema.parseJson(conf.get(SCHEMA_KEY));
+    Path file = getDefaultWorkFile(context, ".arrow");
+    FSDataOutputStream out = file.getFileSystem(conf).create(file, false);
+    try {
+      return new ArrowRecordWriter(out, schema, conf.getInt(BATCH_SIZE, DEFAULT_BATCH_SIZE));
+    } catch (IOException | RuntimeException e) {
+      out.close();
+      throw e;
+    }
+  }
+}
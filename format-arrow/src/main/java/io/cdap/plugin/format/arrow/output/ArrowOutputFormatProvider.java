@@ -0,0 +1,109 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.arrow.output;
+
+import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Macro;
+import io.cdap.cdap.api.annotation.Name;
+import io.cdap.cdap.api.annotation.Plugin;
+import io.cdap.cdap.api.data.batch.OutputFormatProvider;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.plugin.PluginClass;
+import io.cdap.cdap.api.plugin.PluginConfig;
+import io.cdap.cdap.api.plugin.PluginPropertyField;
+import io.cdap.plugin.format.arrow.ArrowSchemas;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Output format plugin for arrow.
+ */
+@Plugin(type = "outputformat")
+@Name(ArrowOutputFormatProvider.NAME)
+@Description(ArrowOutputFormatProvider.DESC)
+public class ArrowOutputFormatProvider implements OutputFormatProvider {
+  public static final PluginClass PLUGIN_CLASS = getPluginClass();
+  static final String NAME = "arrow";
+  static final String DESC = "Plugin for writing files in the arrow IPC file format.";
+  private final Conf conf;
+
+  public ArrowOutputFormatProvider(Conf conf) {
+    this.conf = conf;
+  }
+
+  @Override
+  public String getOutputFormatClassName() {
+    return StructuredArrowOutputFormat.class.getName();
+  }
+
+  @Override
+  public Map<String, String> getOutputFormatConfiguration() {
+    conf.validate();
+    Map<String, String> configuration = new HashMap<>();
+    configuration.put(ArrowOutputFormat.SCHEMA_KEY, conf.schema);
+    if (conf.recordBatchSize != null) {
+      configuration.put(ArrowOutputFormat.BATCH_SIZE, String.valueOf(conf.recordBatchSize));
+    }
+    return configuration;
+  }
+
+  /**
+   * Configuration for the output format plugin.
+   */
+  public static class Conf extends PluginConfig {
+    private static final String SCHEMA_DESC = "Schema of the data to write.";
+    private static final String RECORD_BATCH_SIZE_DESC =
+      "Number of records in each record batch. Larger batches are faster to write and read, but require more "
+        + "memory while writing. The default value is 4096.";
+
+    @Macro
+    @Description(SCHEMA_DESC)
+    private String schema;
+
+    @Macro
+    @Nullable
+    @Description(RECORD_BATCH_SIZE_DESC)
+    private Integer recordBatchSize;
+
+    private void validate() {
+      if (!containsMacro("schema")) {
+        try {
+          ArrowSchemas.toArrowSchema(Schema.parseJson(schema));
+        } catch (IOException e) {
+          throw new IllegalArgumentException("Unable to parse schema: " + e.getMessage(), e);
+        }
+      }
+      if (!containsMacro("recordBatchSize") && recordBatchSize != null && recordBatchSize < 1) {
+        throw new IllegalArgumentException(
+          String.format("Invalid record batch size %d. It must be at least 1.", recordBatchSize));
+      }
+    }
+  }
+
+  private static PluginClass getPluginClass() {
+    Map<String, PluginPropertyField> properties = new HashMap<>();
+    properties.put("schema", new PluginPropertyField("schema", Conf.SCHEMA_DESC, "string", true, true));
+    properties.put("recordBatchSize",
+                   new PluginPropertyField("recordBatchSize", Conf.RECORD_BATCH_SIZE_DESC, "int", false, true));
+    return new PluginClass("outputformat", NAME, DESC, ArrowOutputFormatProvider.class.getName(),
+                           "conf", properties);
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.arrow.output;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.format.arrow.ArrowSchemas;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.TimeMicroVector;
+import org.apache.arrow.vector.TimeMilliVector;
+import org.apache.arrow.vector.TimeStampMicroTZVector;
+import org.apache.arrow.vector.TimeStampMilliTZVector;
+import org.apache.arrow.vector.VarBinaryVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.dictionary.DictionaryProvider;
+import org.apache.arrow.vector.ipc.ArrowFileWriter;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes records into an Arrow IPC file. Records are written into off-heap vectors, which are written out as a
+ * record batch whenever the batch size is reached, and then reused for the next batch.
+ */
+class ArrowRecordWriter extends RecordWriter<Void, StructuredRecord> {
+  private final BufferAllocator allocator;
+  private final VectorSchemaRoot root;
+  private final ArrowFileWriter writer;
+  private final int batchSize;
+  private final String[] names;
+  private final boolean[] nullable;
+  private final ValueSetter[] setters;
+  private int rows;
+
+  ArrowRecordWriter(OutputStream out, Schema schema, int batchSize) throws IOException {
+    this.allocator = new RootAllocator(Long.MAX_VALUE);
+    this.root = VectorSchemaRoot.create(ArrowSchemas.toArrowSchema(schema), allocator);
+    this.batchSize = batchSize;
+    List<Schema.Field> fields = schema.getFields();
+    List<FieldVector> vectors = root.getFieldVectors();
+    this.names = new String[fields.size()];
+    this.nullable = new boolean[fields.size()];
+    this.setters = new ValueSetter[fields.size()];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = fields.get(i).getName();
+      nullable[i] = fields.get(i).getSchema().isNullable();
+      FieldVector vector = vectors.get(i);
+      vector.setInitialCapacity(batchSize);
+      vector.allocateNew();
+      setters[i] = createSetter(vector);
+    }
+    this.writer = new ArrowFileWriter(root, new DictionaryProvider.MapDictionaryProvider(), Channels.newChannel(out));
+    writer.start();
+  }
+
+  @Override
+  public void write(Void key, StructuredRecord record) throws IOException {
+    for (int i = 0; i < names.length; i++) {
+      Object value = record.get(names[i]);
+      if (value != null) {
+        setters[i].set(rows, value);
+      } else if (!nullable[i]) {
+        throw new IllegalArgumentException(
+          String.format("Found a null value for non-nullable field '%s'.", names[i]));
+      }
+      // rows that are not set are null, since vectors are cleared before each batch
+    }
+    rows++;
+    if (rows == batchSize) {
+      writeBatch();
+    }
+  }
+
+  @Override
+  public void close(TaskAttemptContext context) throws IOException {
+    try {
+      if (rows > 0) {
+        writeBatch();
+      }
+      writer.end();
+    } finally {
+      try {
+        // also closes the output stream
+        writer.close();
+      } finally {
+        root.close();
+        allocator.close();
+      }
+    }
+  }
+
+  private void writeBatch() throws IOException {
+    root.setRowCount(rows);
+    writer.writeBatch();
+    for (FieldVector vector : root.getFieldVectors()) {
+      // keeps the buffers of the vector, so that the next batch does not allocate
+      vector.reset();
+    }
+    rows = 0;
+  }
+
+  private static ValueSetter createSetter(FieldVector vector) {
+    if (vector instanceof BitVector) {
+      return (row, value) -> ((BitVector) vector).setSafe(row, (Boolean) value ? 1 : 0);
+    }
+    if (vector instanceof IntVector) {
+      return (row, value) -> ((IntVector) vector).setSafe(row, ((Number) value).intValue());
+    }
+    if (vector instanceof BigIntVector) {
+      return (row, value) -> ((BigIntVector) vector).setSafe(row, ((Number) value).longValue());
+    }
+    if (vector instanceof Float4Vector) {
+      return (row, value) -> ((Float4Vector) vector).setSafe(row, ((Number) value).floatValue());
+    }
+    if (vector instanceof Float8Vector) {
+      return (row, value) -> ((Float8Vector) vector).setSafe(row, ((Number) value).doubleValue());
+    }
+    if (vector instanceof DateDayVector) {
+      return (row, value) -> ((DateDayVector) vector).setSafe(row, ((Number) value).intValue());
+    }
+    if (vector instanceof TimeMilliVector) {
+      return (row, value) -> ((TimeMilliVector) vector).setSafe(row, ((Number) value).intValue());
+    }
+    if (vector instanceof TimeMicroVector) {
+      return (row, value) -> ((TimeMicroVector) vector).setSafe(row, ((Number) value).longValue());
+    }
+    if (vector instanceof TimeStampMilliTZVector) {
+      return (row, value) -> ((TimeStampMilliTZVector) vector).setSafe(row, ((Number) value).longValue());
+    }
+    if (vector instanceof TimeStampMicroTZVector) {
+      return (row, value) -> ((TimeStampMicroTZVector) vector).setSafe(row, ((Number) value).longValue());
+    }
+    if (vector instanceof VarCharVector) {
+      return (row, value) -> {
+        byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+        ((VarCharVector) vector).setSafe(row, bytes, 0, bytes.length);
+      };
+    }
+    if (vector instanceof VarBinaryVector) {
+      return (row, value) -> {
+        if (value instanceof ByteBuffer) {
+          ByteBuffer buffer = (ByteBuffer) value;
+          ((VarBinaryVector) vector).setSafe(row, buffer, buffer.position(), buffer.remaining());
+        } else {
+          byte[] bytes = (byte[]) value;
+          ((VarBinaryVector) vector).setSafe(row, bytes, 0, bytes.length);
+        }
+      };
+    }
+    // ruled out by the schema conversion
+    throw new IllegalStateException("Unsupported vector " + vector.getClass().getName());
+  }
+
+  /**
+   * Sets the value of a row in a vector.
+   */
+  private interface ValueSetter {
+    void set(int row, Object value);
+  }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.arrow.output;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.dataset.lib.KeyValue;
+import io.cdap.plugin.format.output.DelegatingOutputFormat;
+import org.apache.hadoop.mapreduce.OutputFormat;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+import java.util.function.Function;
+
+/**
+ * Writes StructuredRecords to Arrow IPC files with an {@link ArrowOutputFormat}.
+ */
+public class StructuredArrowOutputFormat extends DelegatingOutputFormat<Void, StructuredRecord> {
+
+  @Override
+  protected OutputFormat<Void, StructuredRecord> createDelegate() {
+    return new ArrowOutputFormat();
+  }
+
+  @Override
+  protected Function<StructuredRecord, KeyValue<Void, StructuredRecord>> getConversion(TaskAttemptContext context) {
+    return record -> new KeyValue<>(null, record);
+  }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.avro;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.avro.generic.GenericFixed;
+import org.apache.avro.generic.GenericRecord;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Converts GenericRecords of a single Avro schema into StructuredRecords. The conversion is planned once for a pair
+ * of schemas: fields are read by position instead of by name, and a converter is chosen up front for every field,
+ * array element and map value, instead of inspecting the schema for every value as
+ * {@link AvroToStructuredTransformer} does.
+ *
+ * The plan copies everything it takes from a record, so records can be reused by the Avro reader. Schemas that
+ * cannot be planned directly, such as unions of several non-null types, are converted the same way as by
+ * {@link AvroToStructuredTransformer}.
+ */
+public final class AvroConversionPlan {
+  private final Schema schema;
+  private final String[] names;
+  private final int[] positions;
+  private final Converter[] converters;
+
+  private AvroConversionPlan(Schema schema, String[] names, int[] positions, Converter[] converters) {
+    this.schema = schema;
+    this.names = names;
+    this.positions = positions;
+    this.converters = converters;
+  }
+
+  /**
+   * Plans the conversion of records of the given Avro schema.
+   *
+   * @param avroSchema the schema of the Avro records
+   * @param schema the schema of the StructuredRecords to create
+   * @param skipField a field of the schema that is not read from the Avro records, such as the path field
+   * @throws IllegalArgumentException if a non-nullable field of the schema does not exist in the Avro schema
+   */
+  public static AvroConversionPlan compile(org.apache.avro.Schema avroSchema, Schema schema,
+                                           @Nullable String skipField) {
+    return compileRecord(avroSchema, schema, skipField, new FallbackTransformer());
+  }
+
+  /**
+   * Converts a record into a builder for a StructuredRecord of the planned schema.
+   */
+  public StructuredRecord.Builder convert(GenericRecord record) throws IOException {
+    StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+    for (int i = 0; i < converters.length; i++) {
+      Object value = record.get(positions[i]);
+      try {
+        builder.set(names[i], converters[i].convert(value));
+      } catch (IOException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new IllegalArgumentException(
+          String.format("Error converting field '%s': %s", names[i], e.getMessage()), e);
+      }
+    }
+    return builder;
+  }
+
+  private static AvroConversionPlan compileRecord(org.apache.avro.Schema avroSchema, Schema schema,
+                                                  @Nullable String skipField, FallbackTransformer fallback) {
+    List<Schema.Field> fields = schema.getFields();
+    List<String> names = new ArrayList<>(fields.size());
+    List<Integer> positions = new ArrayList<>(fields.size());
+    List<Converter> converters = new ArrayList<>(fields.size());
+    for (Schema.Field field : fields) {
+      String name = field.getName();
+      if (name.equals(skipField)) {
+        continue;
+      }
+      org.apache.avro.Schema.Field avroField = avroSchema.getField(name);
+      if (avroField == null) {
+        if (!field.getSchema().isNullable()) {
+          throw new IllegalArgumentException(
+            String.format("Non-nullable field '%s' does not exist in the Avro schema.", name));
+        }
+        continue;
+      }
+      names.add(name);
+      positions.add(avroField.pos());
+      converters.add(compile(avroField.schema(), field.getSchema(), fallback));
+    }
+    int[] positionArray = new int[positions.size()];
+    for (int i = 0; i < positionArray.length; i++) {
+      positionArray[i] = positions.get(i);
+    }
+    return new AvroConversionPlan(schema, names.toArray(new String[0]), positionArray,
+                                  converters.toArray(new Converter[0]));
+  }
+
+  private static Converter compile(org.apache.avro.Schema avroSchema, Schema schema, FallbackTransformer fallback) {
+    Converter fallbackConverter = value -> fallback.convert(value, schema);
+    boolean nullable = schema.isNullable();
+    Schema nonNullable = nullable ? schema.getNonNullable() : schema;
+    if (nonNullable.getType() == Schema.Type.UNION) {
+      // a union of several non-null types, which is resolved by trying each type
+      return fallbackConverter;
+    }
+    if (avroSchema.getType() == org.apache.avro.Schema.Type.UNION) {
+      org.apache.avro.Schema avroNonNullable = null;
+      for (org.apache.avro.Schema avroType : avroSchema.getTypes()) {
+        if (avroType.getType() != org.apache.avro.Schema.Type.NULL) {
+          if (avroNonNullable != null) {
+            return fallbackConverter;
+          }
+          avroNonNullable = avroType;
+        }
+      }
+      if (avroNonNullable == null) {
+        return fallbackConverter;
+      }
+      avroSchema = avroNonNullable;
+    }
+
+    Converter converter = compileNonNullable(avroSchema, nonNullable, fallback);
+    if (converter == null) {
+      return fallbackConverter;
+    }
+    if (nullable) {
+      return value -> value == null ? null : converter.convert(value);
+    }
+    return value -> {
+      if (value == null) {
+        throw new NullPointerException("Found a null value for a non-nullable field.");
+      }
+      return converter.convert(value);
+    };
+  }
+
+  /**
+   * Returns the converter for non-null values, or null if the values should be converted by the fallback.
+   */
+  @Nullable
+  private static Converter compileNonNullable(org.apache.avro.Schema avroSchema, Schema schema,
+                                              FallbackTransformer fallback) {
+    switch (schema.getType()) {
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+      case BOOLEAN:
+        return value -> value;
+      case STRING:
+        // values may be reused Utf8 instances
+        return Object::toString;
+      case BYTES:
+        return AvroConversionPlan::copyBytes;
+      case RECORD:
+        if (avroSchema.getType() != org.apache.avro.Schema.Type.RECORD) {
+          return null;
+        }
+        AvroConversionPlan plan = compileRecord(avroSchema, schema, null, fallback);
+        return value -> plan.convert((GenericRecord) value).build();
+      case ARRAY:
+        if (avroSchema.getType() != org.apache.avro.Schema.Type.ARRAY) {
+          return null;
+        }
+        Converter elementConverter = compile(avroSchema.getElementType(), schema.getComponentSchema(), fallback);
+        return value -> {
+          Collection<?> values = (Collection<?>) value;
+          List<Object> converted = new ArrayList<>(values.size());
+          for (Object element : values) {
+            converted.add(elementConverter.convert(element));
+          }
+          return converted;
+        };
+      case MAP:
+        if (avroSchema.getType() != org.apache.avro.Schema.Type.MAP) {
+          return null;
+        }
+        Map.Entry<Schema, Schema> mapSchema = schema.getMapSchema();
+        Converter keyConverter = compile(org.apache.avro.Schema.create(org.apache.avro.Schema.Type.STRING),
+                                         mapSchema.getKey(), fallback);
+        Converter valueConverter = compile(avroSchema.getValueType(), mapSchema.getValue(), fallback);
+        return value -> {
+          Map<?, ?> map = (Map<?, ?>) value;
+          Map<Object, Object> converted = new HashMap<>((int) (map.size() / 0.75f) + 1);
+          for (Map.Entry<?, ?> entry : map.entrySet()) {
+            converted.put(keyConverter.convert(entry.getKey()), valueConverter.convert(entry.getValue()));
+          }
+          return converted;
+        };
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Copies bytes, since the reader reuses byte buffers and fixed values between records.
+   */
+  private static Object copyBytes(Object value) {
+    if (value instanceof ByteBuffer) {
+      ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+      byte[] bytes = new byte[buffer.remaining()];
+      buffer.get(bytes);
+      return ByteBuffer.wrap(bytes);
+    }
+    if (value instanceof GenericFixed) {
+      return ByteBuffer.wrap(((GenericFixed) value).bytes().clone());
+    }
+    return value;
+  }
+
+  /**
+   * Converts a single value.
+   */
+  private interface Converter {
+    @Nullable
+    Object convert(@Nullable Object value) throws IOException;
+  }
+
+  /**
+   * Converts values that cannot be planned, by inspecting their schema like {@link AvroToStructuredTransformer}.
+   */
+  private static final class FallbackTransformer extends AvroToStructuredTransformer {
+
+    Object convert(@Nullable Object value, Schema schema) throws IOException {
+      return convertField(value, schema);
+    }
+
+    @Override
+    protected Object convertBytes(Object field) {
+      return copyBytes(field);
+    }
+  }
+}
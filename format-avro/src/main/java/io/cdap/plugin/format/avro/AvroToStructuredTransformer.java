@@ -31,7 +31,10 @@ import javax.annotation.Nullable;
  */
 public class AvroToStructuredTransformer extends RecordConverter<GenericRecord, StructuredRecord> {
 
-  private final Map<Integer, Schema> schemaCache = Maps.newHashMap();
+  private final Map<org.apache.avro.Schema, Schema> schemaCache = Maps.newHashMap();
+  // records read from the same file share a schema instance, which avoids hashing the schema for every record
+  private org.apache.avro.Schema lastSchema;
+  private Schema lastStructuredSchema;
 
   public StructuredRecord transform(GenericRecord genericRecord) throws IOException {
     org.apache.avro.Schema genericRecordSchema = genericRecord.getSchema();
@@ -62,15 +65,16 @@ public class AvroToStructuredTransformer extends RecordConverter<GenericRecord,
   }
 
   public Schema convertSchema(org.apache.avro.Schema schema) throws IOException {
-    int hashCode = schema.hashCode();
-    Schema structuredSchema;
-
-    if (schemaCache.containsKey(hashCode)) {
-      structuredSchema = schemaCache.get(hashCode);
-    } else {
+    if (schema == lastSchema) {
+      return lastStructuredSchema;
+    }
+    Schema structuredSchema = schemaCache.get(schema);
+    if (structuredSchema == null) {
       structuredSchema = Schema.parseJson(schema.toString());
-      schemaCache.put(hashCode, structuredSchema);
+      schemaCache.put(schema, structuredSchema);
     }
+    lastSchema = schema;
+    lastStructuredSchema = structuredSchema;
     return structuredSchema;
   }
 }
@@ -14,15 +14,23 @@
  * the License.
  */
 
+
 package io.cdap.plugin.format.avro.input;
 
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
-import io.cdap.plugin.format.avro.AvroToStructuredTransformer;
+import io.cdap.plugin.format.SchemaProjection;
+import io.cdap.plugin.format.avro.AvroConversionPlan;
 import io.cdap.plugin.format.input.PathTrackingInputFormat;
+import io.cdap.plugin.format.input.ReadAheadInputStream;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.file.SeekableInput;
+import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericRecord;
-import org.apache.avro.mapred.AvroKey;
-import org.apache.avro.mapreduce.AvroKeyInputFormat;
+import org.apache.avro.mapreduce.AvroJob;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.RecordReader;
@@ -39,41 +47,77 @@ import javax.annotation.Nullable;
  */
 public class PathTrackingAvroInputFormat extends PathTrackingInputFormat {
 
+  @Override
+  protected boolean supportsProjection() {
+    return true;
+  }
+
   @Override
   protected RecordReader<NullWritable, StructuredRecord.Builder> createRecordReader(
     FileSplit split, TaskAttemptContext context,
-    @Nullable String pathField, @Nullable Schema schema) throws IOException, InterruptedException {
-
-    RecordReader<AvroKey<GenericRecord>, NullWritable> delegate = (new AvroKeyInputFormat<GenericRecord>())
-      .createRecordReader(split, context);
-    return new AvroRecordReader(delegate, schema, pathField);
+    @Nullable String pathField, @Nullable Schema schema) {
+    Schema projectedSchema = schema == null ? null :
+      SchemaProjection.getProjectedSchema(context.getConfiguration(), schema, pathField);
+    return new AvroRecordReader(projectedSchema == null ? schema : projectedSchema, pathField);
   }
 
   /**
-   * Transforms GenericRecords into StructuredRecord.
+   * Reads GenericRecords from an Avro data file, reusing the same record for every read, and transforms them into
+   * StructuredRecords with a conversion plan that is compiled once for the file.
    */
   static class AvroRecordReader extends RecordReader<NullWritable, StructuredRecord.Builder> {
-    private final RecordReader<AvroKey<GenericRecord>, NullWritable> delegate;
-    private final AvroToStructuredTransformer recordTransformer;
     private final String pathField;
     private Schema schema;
+    private DataFileReader<GenericRecord> reader;
+    private AvroConversionPlan plan;
+    private GenericRecord datum;
+    private StructuredRecord.Builder current;
+    private long start;
+    private long end;
 
-    AvroRecordReader(RecordReader<AvroKey<GenericRecord>, NullWritable> delegate, @Nullable Schema schema,
-                     @Nullable String pathField) {
-      this.delegate = delegate;
+    AvroRecordReader(@Nullable Schema schema, @Nullable String pathField) {
       this.schema = schema;
       this.pathField = pathField;
-      this.recordTransformer = new AvroToStructuredTransformer();
     }
 
     @Override
-    public void initialize(InputSplit split, TaskAttemptContext context) throws IOException, InterruptedException {
-      delegate.initialize(split, context);
+    public void initialize(InputSplit split, TaskAttemptContext context) throws IOException {
+      FileSplit fileSplit = (FileSplit) split;
+      Configuration conf = context.getConfiguration();
+      GenericDatumReader<GenericRecord> datumReader = new GenericDatumReader<>();
+      end = fileSplit.getStart() + fileSplit.getLength();
+      reader = new DataFileReader<>(new StreamInput(fileSplit.getPath(), conf, fileSplit.getStart(), end), datumReader);
+      // the configured schema is used as the reader schema, so that avro resolves it against the file schema
+      org.apache.avro.Schema readSchema = AvroJob.getInputKeySchema(conf);
+      if (readSchema == null) {
+        readSchema = reader.getSchema();
+      }
+
+      // if schema is null, the schema is taken from the file
+      if (schema == null) {
+        schema = getSchema(readSchema);
+      } else {
+        // let avro skip over the fields that are not needed instead of decoding them
+        readSchema = project(readSchema, schema, pathField);
+      }
+      if (!readSchema.equals(reader.getSchema())) {
+        datumReader.setExpected(readSchema);
+      }
+      plan = AvroConversionPlan.compile(readSchema, schema, pathField);
+
+      // start reading at the first block boundary after the start of the split
+      reader.sync(fileSplit.getStart());
+      start = reader.previousSync();
     }
 
     @Override
-    public boolean nextKeyValue() throws IOException, InterruptedException {
-      return delegate.nextKeyValue();
+    public boolean nextKeyValue() throws IOException {
+      if (!reader.hasNext() || reader.pastSync(end)) {
+        return false;
+      }
+      datum = reader.next(datum);
+      current = plan.convert(datum);
+      return true;
     }
 
     @Override
@@ -82,33 +126,96 @@ public class PathTrackingAvroInputFormat extends PathTrackingInputFormat {
     }
 
     @Override
-    public StructuredRecord.Builder getCurrentValue() throws IOException, InterruptedException {
-      GenericRecord genericRecord = delegate.getCurrentKey().datum();
-      // if schema is null, but we're still able to read, that means the file contains the schema information
-      // set the schema based on the schema of the record
-      if (schema == null) {
-        if (pathField == null) {
-          schema = Schema.parseJson(genericRecord.getSchema().toString());
-        } else {
-          // if there is a path field, add the path as a field in the schema
-          Schema schemaWithoutPath = Schema.parseJson(genericRecord.getSchema().toString());
-          List<Schema.Field> fields = new ArrayList<>(schemaWithoutPath.getFields().size() + 1);
-          fields.addAll(schemaWithoutPath.getFields());
-          fields.add(Schema.Field.of(pathField, Schema.of(Schema.Type.STRING)));
-          schema = Schema.recordOf(schemaWithoutPath.getRecordName(), fields);
+    public StructuredRecord.Builder getCurrentValue() {
+      return current;
+    }
+
+    @Override
+    public float getProgress() throws IOException {
+      if (reader == null || end == start) {
+        return 0.0f;
+      }
+      return Math.min(1.0f, (reader.previousSync() - start) / (float) (end - start));
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (reader != null) {
+        reader.close();
+      }
+    }
+
+    private Schema getSchema(org.apache.avro.Schema writerSchema) throws IOException {
+      Schema schemaWithoutPath = Schema.parseJson(writerSchema.toString());
+      if (pathField == null) {
+        return schemaWithoutPath;
+      }
+      // if there is a path field, add the path as a field in the schema
+      List<Schema.Field> fields = new ArrayList<>(schemaWithoutPath.getFields().size() + 1);
+      fields.addAll(schemaWithoutPath.getFields());
+      fields.add(Schema.Field.of(pathField, Schema.of(Schema.Type.STRING)));
+      return Schema.recordOf(schemaWithoutPath.getRecordName(), fields);
+    }
+
+    /**
+     * Returns the given reader schema with only the fields of the given schema, other than the path field.
+     */
+    private static org.apache.avro.Schema project(org.apache.avro.Schema readSchema, Schema schema,
+                                                  @Nullable String pathField) {
+      List<org.apache.avro.Schema.Field> fields = new ArrayList<>();
+      for (org.apache.avro.Schema.Field field : readSchema.getFields()) {
+        if (!field.name().equals(pathField) && schema.getField(field.name()) != null) {
+          fields.add(new org.apache.avro.Schema.Field(field.name(), field.schema(), field.doc(),
+                                                      field.defaultValue()));
         }
       }
-      return recordTransformer.transform(genericRecord, schema, pathField);
+      if (fields.size() == readSchema.getFields().size()) {
+        return readSchema;
+      }
+      org.apache.avro.Schema projected = org.apache.avro.Schema.createRecord(
+        readSchema.getName(), readSchema.getDoc(), readSchema.getNamespace(), readSchema.isError());
+      projected.setFields(fields);
+      return projected;
+    }
+  }
+
+  /**
+   * Avro input that reads the file through a {@link ReadAheadInputStream} if read-ahead is enabled.
+   */
+  private static final class StreamInput implements SeekableInput {
+    private final FSDataInputStream in;
+    private final long length;
+
+    private StreamInput(Path path, Configuration conf, long start, long end) throws IOException {
+      this.length = path.getFileSystem(conf).getFileStatus(path).getLen();
+      this.in = ReadAheadInputStream.open(path, conf, start, end);
+      // the header is read from the beginning of the file, which is only read ahead by the first split
+      in.seek(0L);
+    }
+
+    @Override
+    public void seek(long p) throws IOException {
+      in.seek(p);
+    }
+
+    @Override
+    public long tell() throws IOException {
+      return in.getPos();
+    }
+
+    @Override
+    public long length() {
+      return length;
     }
 
     @Override
-    public float getProgress() throws IOException, InterruptedException {
-      return delegate.getProgress();
+    public int read(byte[] b, int off, int len) throws IOException {
+      return in.read(b, off, len);
     }
 
     @Override
     public void close() throws IOException {
-      delegate.close();
+      in.close();
     }
   }
 }
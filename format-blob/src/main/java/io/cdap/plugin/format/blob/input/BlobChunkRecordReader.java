@@ -0,0 +1,204 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.blob.input;
+
+import com.google.common.io.ByteStreams;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.format.input.ReadAheadInputStream;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocalFileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import javax.annotation.Nullable;
+
+/**
+ * Reads a file as a sequence of chunks of a fixed size, emitting one record per chunk with the offset of the chunk
+ * in the file and a CRC32 checksum of its bytes. Chunks start at multiples of the chunk size, and a split reads every
+ * chunk that starts within it, even if the chunk ends after the split. Files on the local file system are memory
+ * mapped, so that the bodies of their chunks are never copied onto the heap. They are mapped in windows of whole
+ * chunks that the bodies are sliced out of, so that a split holds a few large mappings rather than one per chunk,
+ * since a mapping is only released once the garbage collector collects all of its buffers.
+ */
+class BlobChunkRecordReader extends RecordReader<NullWritable, StructuredRecord.Builder> {
+  static final String BODY_FIELD = "body";
+  static final String OFFSET_FIELD = "offset";
+  static final String CHECKSUM_FIELD = "checksum";
+  static final long DEFAULT_MAP_WINDOW_SIZE = 64L * 1024 * 1024;
+
+  private final Schema schema;
+  private final int chunkSize;
+  private final long mapWindowSize;
+  private final boolean hasOffset;
+  private final boolean hasChecksum;
+  private final CRC32 crc;
+  private FileChannel channel;
+  private MappedByteBuffer window;
+  private long windowStart;
+  private long windowEnd;
+  private FSDataInputStream input;
+  private long start;
+  private long end;
+  private long position;
+  private ByteBuffer body;
+  private long offset;
+  private long checksum;
+
+  BlobChunkRecordReader(Schema schema, int chunkSize) {
+    this(schema, chunkSize, DEFAULT_MAP_WINDOW_SIZE);
+  }
+
+  /**
+   * @param mapWindowSize the number of bytes to map at a time, which is rounded down to whole chunks
+   */
+  BlobChunkRecordReader(Schema schema, int chunkSize, long mapWindowSize) {
+    this.schema = schema;
+    this.chunkSize = chunkSize;
+    // at least one chunk, and never more than a single mapping can hold
+    this.mapWindowSize = Math.max(chunkSize, Math.min(mapWindowSize, Integer.MAX_VALUE) / chunkSize * chunkSize);
+    this.hasOffset = schema.getField(OFFSET_FIELD) != null;
+    this.hasChecksum = schema.getField(CHECKSUM_FIELD) != null;
+    this.crc = new CRC32();
+  }
+
+  @Override
+  public void initialize(InputSplit inputSplit, TaskAttemptContext context) throws IOException {
+    FileSplit split = (FileSplit) inputSplit;
+    Configuration conf = context.getConfiguration();
+    Path path = split.getPath();
+    FileSystem fs = path.getFileSystem(conf);
+    long fileLength = fs.getFileStatus(path).getLen();
+    // round up to the first chunk that starts in the split
+    start = (split.getStart() + chunkSize - 1) / chunkSize * chunkSize;
+    position = start;
+    long splitEnd = split.getStart() + split.getLength();
+    // the last chunk that starts in the split is read to its end
+    end = splitEnd >= fileLength ? fileLength :
+      Math.min(fileLength, (splitEnd + chunkSize - 1) / chunkSize * chunkSize);
+    if (start >= end) {
+      return;
+    }
+
+    File localFile = getLocalFile(fs, path);
+    if (localFile != null) {
+      channel = FileChannel.open(localFile.toPath(), StandardOpenOption.READ);
+    } else {
+      input = ReadAheadInputStream.open(path, conf, start, end);
+    }
+  }
+
+  @Override
+  public boolean nextKeyValue() throws IOException {
+    if (position >= end) {
+      return false;
+    }
+    int length = (int) Math.min(chunkSize, end - position);
+    if (channel != null) {
+      if (window == null || position + length > windowEnd) {
+        // windows start at a chunk and hold whole chunks, so a chunk never spans two windows
+        long windowLength = Math.min(mapWindowSize, end - position);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowLength);
+        windowStart = position;
+        windowEnd = position + windowLength;
+      }
+      ByteBuffer chunk = window.duplicate();
+      chunk.position((int) (position - windowStart));
+      chunk.limit(chunk.position() + length);
+      body = chunk.slice();
+    } else {
+      // each record gets its own array, since records may be held on to after the next one is read
+      byte[] bytes = new byte[length];
+      ByteStreams.readFully(input, bytes);
+      body = ByteBuffer.wrap(bytes);
+    }
+    if (hasChecksum) {
+      crc.reset();
+      crc.update(body.duplicate());
+      checksum = crc.getValue();
+    }
+    offset = position;
+    position += length;
+    return true;
+  }
+
+  @Override
+  public NullWritable getCurrentKey() {
+    return NullWritable.get();
+  }
+
+  @Override
+  public StructuredRecord.Builder getCurrentValue() {
+    StructuredRecord.Builder builder = StructuredRecord.builder(schema).set(BODY_FIELD, body.duplicate());
+    if (hasOffset) {
+      builder.set(OFFSET_FIELD, offset);
+    }
+    if (hasChecksum) {
+      builder.set(CHECKSUM_FIELD, checksum);
+    }
+    return builder;
+  }
+
+  @Override
+  public float getProgress() {
+    return end <= start ? 1.0f : (float) (position - start) / (end - start);
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      window = null;
+      if (channel != null) {
+        channel.close();
+      }
+    } finally {
+      if (input != null) {
+        input.close();
+      }
+    }
+  }
+
+  /**
+   * Returns the file to memory map for the given path, or null if the path is not on the local file system.
+   * Mapped files bypass the checksum files of the local file system, which the chunk checksums make up for.
+   */
+  @Nullable
+  private static File getLocalFile(FileSystem fs, Path path) {
+    if (fs instanceof LocalFileSystem) {
+      return ((LocalFileSystem) fs).pathToFile(path);
+    }
+    if (fs instanceof RawLocalFileSystem) {
+      return ((RawLocalFileSystem) fs).pathToFile(path);
+    }
+    return null;
+  }
+}
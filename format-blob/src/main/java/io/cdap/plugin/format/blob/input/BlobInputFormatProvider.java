@@ -17,19 +17,24 @@
 package io.cdap.plugin.format.blob.input;
 
 import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Macro;
 import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.plugin.PluginClass;
+import io.cdap.cdap.api.plugin.PluginPropertyField;
 import io.cdap.plugin.format.input.PathTrackingConfig;
 import io.cdap.plugin.format.input.PathTrackingInputFormatProvider;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
 
 /**
- * Reads the entire contents of a File into a single record
+ * Reads the entire contents of a File into a single record, or into one record per chunk if a chunk size is given.
  */
 @Plugin(type = "inputformat")
 @Name(BlobInputFormatProvider.NAME)
@@ -37,9 +42,7 @@ import java.util.List;
 public class BlobInputFormatProvider extends PathTrackingInputFormatProvider<BlobInputFormatProvider.BlobConfig> {
   static final String NAME = "blob";
   static final String DESC = "Plugin for reading files in blob format.";
-  public static final PluginClass PLUGIN_CLASS =
-    new PluginClass("inputformat", NAME, DESC, BlobInputFormatProvider.class.getName(),
-                    "conf", PathTrackingConfig.FIELDS);
+  public static final PluginClass PLUGIN_CLASS = getPluginClass();
 
   public BlobInputFormatProvider(BlobConfig conf) {
     super(conf);
@@ -50,8 +53,21 @@ public class BlobInputFormatProvider extends PathTrackingInputFormatProvider<Blo
     return PathTrackingBlobInputFormat.class.getName();
   }
 
+  @Override
+  protected void addFormatProperties(Map<String, String> properties) {
+    if (conf.chunkSize != null) {
+      properties.put(PathTrackingBlobInputFormat.CHUNK_SIZE, String.valueOf(conf.chunkSize));
+    }
+  }
+
   @Override
   protected void validate() {
+    // the chunk size is only set once its macro is evaluated, so it is checked whenever it is set
+    if (conf.chunkSize != null && (conf.chunkSize < 1 || conf.chunkSize > Integer.MAX_VALUE)) {
+      throw new IllegalArgumentException(
+        String.format("Invalid chunk size %d. It must be between 1 and %d bytes.", conf.chunkSize, Integer.MAX_VALUE));
+    }
+
     if (conf.containsMacro("schema")) {
       return;
     }
@@ -72,7 +88,19 @@ public class BlobInputFormatProvider extends PathTrackingInputFormatProvider<Blo
     // blob must contain 'body' as type 'bytes'.
     // it can optionally contain a path field of type 'string'
     int numExpectedFields = pathField == null ? 1 : 2;
+    boolean chunked = conf.isChunked();
+    if (chunked) {
+      // chunks can optionally contain their offset and checksum
+      numExpectedFields += validateChunkField(schema, BlobChunkRecordReader.OFFSET_FIELD);
+      numExpectedFields += validateChunkField(schema, BlobChunkRecordReader.CHECKSUM_FIELD);
+    }
     int numFields = schema.getFields().size();
+    if (chunked && numFields > numExpectedFields) {
+      throw new IllegalArgumentException(
+        String.format("The schema for the 'blob' format must only contain the 'body', '%s' and '%s' fields%s when "
+                        + "a chunk size is given.", BlobChunkRecordReader.OFFSET_FIELD,
+                      BlobChunkRecordReader.CHECKSUM_FIELD, pathField == null ? "" : " and the path field"));
+    }
     if (numFields > numExpectedFields) {
       int numExtra = numFields - numExpectedFields;
       if (pathField == null) {
@@ -87,10 +115,39 @@ public class BlobInputFormatProvider extends PathTrackingInputFormatProvider<Blo
     }
   }
 
+  private static int validateChunkField(Schema schema, String name) {
+    Schema.Field field = schema.getField(name);
+    if (field == null) {
+      return 0;
+    }
+    Schema fieldSchema = field.getSchema();
+    Schema.Type type = fieldSchema.isNullable() ? fieldSchema.getNonNullable().getType() : fieldSchema.getType();
+    if (type != Schema.Type.LONG) {
+      throw new IllegalArgumentException(String.format("The '%s' field must be of type 'long', but found '%s'",
+                                                       name, type.name().toLowerCase()));
+    }
+    return 1;
+  }
+
+  private static PluginClass getPluginClass() {
+    Map<String, PluginPropertyField> properties = new HashMap<>(PathTrackingConfig.FIELDS);
+    properties.put("chunkSize", new PluginPropertyField("chunkSize", BlobConfig.CHUNK_SIZE_DESC, "long", false, true));
+    return new PluginClass("inputformat", NAME, DESC, BlobInputFormatProvider.class.getName(), "conf", properties);
+  }
+
   /**
    * Config for blob format. Overrides getSchema method to return the default schema if it is not provided.
    */
   public static class BlobConfig extends PathTrackingConfig {
+    private static final String CHUNK_SIZE_DESC =
+      "Number of bytes in each record. When given, files are read as a sequence of chunks of this size, along with "
+        + "the offset and CRC32 checksum of each chunk, and can be larger than 2GB. If not specified, every file is "
+        + "read into a single record.";
+
+    @Macro
+    @Nullable
+    @Description(CHUNK_SIZE_DESC)
+    private Long chunkSize;
 
     /**
      * Return the configured schema, or the default schema if none was given. Should never be called if the
@@ -111,9 +168,21 @@ public class BlobInputFormatProvider extends PathTrackingInputFormatProvider<Blo
       }
     }
 
+    /**
+     * Returns whether files are read in chunks. A chunk size that is a macro counts as chunked, so that a schema
+     * with the chunk fields is accepted before the macro is evaluated.
+     */
+    boolean isChunked() {
+      return chunkSize != null || containsMacro("chunkSize");
+    }
+
     private Schema getDefaultSchema() {
       List<Schema.Field> fields = new ArrayList<>();
       fields.add(Schema.Field.of("body", Schema.of(Schema.Type.BYTES)));
+      if (isChunked()) {
+        fields.add(Schema.Field.of(BlobChunkRecordReader.OFFSET_FIELD, Schema.of(Schema.Type.LONG)));
+        fields.add(Schema.Field.of(BlobChunkRecordReader.CHECKSUM_FIELD, Schema.of(Schema.Type.LONG)));
+      }
       if (pathField != null && !pathField.isEmpty()) {
         fields.add(Schema.Field.of(pathField, Schema.of(Schema.Type.STRING)));
       }
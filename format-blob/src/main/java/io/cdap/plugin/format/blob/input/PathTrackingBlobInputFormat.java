@@ -20,11 +20,13 @@ import com.google.common.io.ByteStreams;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.format.input.PathTrackingInputFormat;
+import io.cdap.plugin.format.input.ReadAheadInputStream;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
-import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.input.FileSplit;
@@ -33,15 +35,40 @@ import java.io.IOException;
 import javax.annotation.Nullable;
 
 /**
- * Blob input format
+ * Blob input format. Reads each file into a single record, or into one record per chunk if a chunk size is set.
  */
 public class PathTrackingBlobInputFormat extends PathTrackingInputFormat {
+  static final String CHUNK_SIZE = "blob.chunk.size";
+
+  /**
+   * Files read as a whole can't be split, while chunked files can be split anywhere.
+   */
+  @Override
+  protected boolean isSplitable(JobContext context, Path file) {
+    return getChunkSize(context.getConfiguration()) > 0;
+  }
+
+  /**
+   * Returns the configured chunk size, or 0 if files are read as a whole.
+   */
+  private static int getChunkSize(Configuration conf) {
+    long chunkSize = conf.getLong(CHUNK_SIZE, 0L);
+    if (chunkSize < 0 || chunkSize > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException(
+        String.format("Invalid chunk size %d. It must be between 1 and %d bytes.", chunkSize, Integer.MAX_VALUE));
+    }
+    return (int) chunkSize;
+  }
 
   @Override
   protected RecordReader<NullWritable, StructuredRecord.Builder> createRecordReader(FileSplit split,
                                                                                     TaskAttemptContext context,
                                                                                     @Nullable String pathField,
                                                                                     @Nullable Schema schema) {
+    int chunkSize = getChunkSize(context.getConfiguration());
+    if (chunkSize > 0) {
+      return new BlobChunkRecordReader(schema, chunkSize);
+    }
     if (split.getLength() > Integer.MAX_VALUE) {
       throw new IllegalArgumentException("Blob format cannot be used with files larger than 2GB");
     }
@@ -66,8 +93,8 @@ public class PathTrackingBlobInputFormat extends PathTrackingInputFormat {
         }
 
         Path path = split.getPath();
-        FileSystem fs = path.getFileSystem(context.getConfiguration());
-        try (FSDataInputStream input = fs.open(path)) {
+        try (FSDataInputStream input = ReadAheadInputStream.open(path, context.getConfiguration(), 0L,
+                                                                 split.getLength())) {
           val = new byte[(int) split.getLength()];
           ByteStreams.readFully(input, val);
         }
@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.blob.input;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+/**
+ * Tests for {@link BlobChunkRecordReader}.
+ */
+public class BlobChunkRecordReaderTest {
+  @ClassRule
+  public static final TemporaryFolder TMP_FOLDER = new TemporaryFolder();
+
+  private static final Schema SCHEMA = Schema.recordOf(
+    "chunk",
+    Schema.Field.of(BlobChunkRecordReader.BODY_FIELD, Schema.of(Schema.Type.BYTES)),
+    Schema.Field.of(BlobChunkRecordReader.OFFSET_FIELD, Schema.of(Schema.Type.LONG)),
+    Schema.Field.of(BlobChunkRecordReader.CHECKSUM_FIELD, Schema.of(Schema.Type.LONG)));
+
+  @Test
+  public void testChunksAcrossMapWindows() throws Exception {
+    byte[] content = new byte[1000];
+    new Random(0).nextBytes(content);
+    File file = TMP_FOLDER.newFile();
+    Files.write(file.toPath(), content);
+
+    // windows of three chunks that do not line up with the splits, of a single chunk, and of the whole file
+    for (long windowSize : new long[] { 200L, 1L, BlobChunkRecordReader.DEFAULT_MAP_WINDOW_SIZE }) {
+      List<StructuredRecord> records = new ArrayList<>();
+      for (long splitStart = 0; splitStart < content.length; splitStart += 300) {
+        FileSplit split = new FileSplit(new Path(file.toURI()), splitStart,
+                                        Math.min(300, content.length - splitStart), new String[0]);
+        try (BlobChunkRecordReader reader = new BlobChunkRecordReader(SCHEMA, 64, windowSize)) {
+          reader.initialize(split, new TaskAttemptContextImpl(new Configuration(), new TaskAttemptID()));
+          while (reader.nextKeyValue()) {
+            records.add(reader.getCurrentValue().build());
+          }
+        }
+      }
+
+      // bodies stay valid after the reader moved on to other windows and was closed
+      Assert.assertEquals(16, records.size());
+      for (int i = 0; i < records.size(); i++) {
+        StructuredRecord record = records.get(i);
+        long offset = record.get(BlobChunkRecordReader.OFFSET_FIELD);
+        Assert.assertEquals(i * 64L, offset);
+        ByteBuffer body = record.get(BlobChunkRecordReader.BODY_FIELD);
+        byte[] bytes = new byte[body.remaining()];
+        body.duplicate().get(bytes);
+        byte[] expected = Arrays.copyOfRange(content, (int) offset, (int) Math.min(content.length, offset + 64));
+        Assert.assertArrayEquals(expected, bytes);
+        CRC32 crc = new CRC32();
+        crc.update(expected);
+        Assert.assertEquals(crc.getValue(), (long) record.<Long>get(BlobChunkRecordReader.CHECKSUM_FIELD));
+      }
+    }
+  }
+}
@@ -30,12 +30,13 @@ import javax.annotation.Nullable;
  * TODO: remove once formats have completely been converted to plugins
  */
 public enum FileFormat {
+  ARROW(true, true),
   AVRO(true, true),
   BLOB(true, false),
   CSV(true, true),
   DELIMITED(true, true),
   JSON(true, true),
-  ORC(false, true),
+  ORC(true, true),
   PARQUET(true, true),
   TEXT(true, false),
   TSV(true, true);
@@ -0,0 +1,400 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * A filter expression over the top level fields of a record, which formats translate into their own predicates
+ * so that data that cannot match is skipped while reading.
+ *
+ * Expressions compare fields with literals and can be combined with AND, OR, NOT and parentheses:
+ * <pre>
+ *   day = '2019-06-01' AND (status IN (200, 204) OR latency >= 1.5) AND user IS NOT NULL
+ * </pre>
+ * Supported comparisons are =, !=, &lt;&gt;, &lt;, &lt;=, &gt;, &gt;=, IN, NOT IN, IS NULL and IS NOT NULL.
+ * String literals are single quoted, with '' representing a quote. A comparison with a null value is false,
+ * except for != which is true, so NOT IN and != also match null values. NOT inverts the comparisons beneath it
+ * rather than their result, so NOT (x &gt; 5) is x &lt;= 5 and does not match null values either.
+ */
+public final class FilterExpression {
+  private final Node root;
+  private final Set<String> fields;
+
+  private FilterExpression(Node root, Set<String> fields) {
+    this.root = root;
+    this.fields = Collections.unmodifiableSet(fields);
+  }
+
+  /**
+   * Parses the given expression.
+   *
+   * @throws IllegalArgumentException if the expression is invalid
+   */
+  public static FilterExpression parse(String expression) {
+    Parser parser = new Parser(expression);
+    Node root = parser.parseOr();
+    if (parser.peek() != null) {
+      throw parser.error("Unexpected '" + parser.peek().text + "'");
+    }
+    return new FilterExpression(root, parser.fields);
+  }
+
+  public Node getRoot() {
+    return root;
+  }
+
+  /**
+   * Returns the names of the fields that the expression refers to.
+   */
+  public Set<String> getFields() {
+    return fields;
+  }
+
+  /**
+   * Comparison operators.
+   */
+  public enum Operator {
+    EQ, NOT_EQ, LT, LT_EQ, GT, GT_EQ
+  }
+
+  /**
+   * A node of the parsed expression.
+   */
+  public abstract static class Node {
+  }
+
+  /**
+   * Matches if all of its children match.
+   */
+  public static final class And extends Node {
+    private final List<Node> children;
+
+    private And(List<Node> children) {
+      this.children = Collections.unmodifiableList(children);
+    }
+
+    public List<Node> getChildren() {
+      return children;
+    }
+  }
+
+  /**
+   * Matches if any of its children match.
+   */
+  public static final class Or extends Node {
+    private final List<Node> children;
+
+    private Or(List<Node> children) {
+      this.children = Collections.unmodifiableList(children);
+    }
+
+    public List<Node> getChildren() {
+      return children;
+    }
+  }
+
+  /**
+   * Matches if its child does not match.
+   */
+  public static final class Not extends Node {
+    private final Node child;
+
+    private Not(Node child) {
+      this.child = child;
+    }
+
+    public Node getChild() {
+      return child;
+    }
+  }
+
+  /**
+   * Compares a field with a literal. A null value is used for IS NULL, with {@link Operator#EQ}, and IS NOT NULL,
+   * with {@link Operator#NOT_EQ}.
+   */
+  public static final class Comparison extends Node {
+    private final String field;
+    private final Operator operator;
+    private final String value;
+
+    private Comparison(String field, Operator operator, @Nullable String value) {
+      this.field = field;
+      this.operator = operator;
+      this.value = value;
+    }
+
+    public String getField() {
+      return field;
+    }
+
+    public Operator getOperator() {
+      return operator;
+    }
+
+    @Nullable
+    public String getValue() {
+      return value;
+    }
+  }
+
+  /**
+   * Matches if a field is equal to any of the given literals.
+   */
+  public static final class In extends Node {
+    private final String field;
+    private final List<String> values;
+
+    private In(String field, List<String> values) {
+      this.field = field;
+      this.values = Collections.unmodifiableList(values);
+    }
+
+    public String getField() {
+      return field;
+    }
+
+    public List<String> getValues() {
+      return values;
+    }
+  }
+
+  private enum TokenType {
+    WORD, STRING, NUMBER, SYMBOL
+  }
+
+  private static final class Token {
+    private final TokenType type;
+    private final String text;
+
+    private Token(TokenType type, String text) {
+      this.type = type;
+      this.text = text;
+    }
+
+    private boolean is(String keyword) {
+      return type != TokenType.STRING && text.equalsIgnoreCase(keyword);
+    }
+  }
+
+  /**
+   * Recursive descent parser over the tokens of an expression.
+   */
+  private static final class Parser {
+    private final String expression;
+    private final List<Token> tokens;
+    private final Set<String> fields;
+    private int pos;
+
+    private Parser(String expression) {
+      this.expression = expression;
+      this.tokens = tokenize();
+      this.fields = new LinkedHashSet<>();
+    }
+
+    private Node parseOr() {
+      List<Node> children = new ArrayList<>();
+      children.add(parseAnd());
+      while (peek() != null && peek().is("OR")) {
+        pos++;
+        children.add(parseAnd());
+      }
+      return children.size() == 1 ? children.get(0) : new Or(children);
+    }
+
+    private Node parseAnd() {
+      List<Node> children = new ArrayList<>();
+      children.add(parseNot());
+      while (peek() != null && peek().is("AND")) {
+        pos++;
+        children.add(parseNot());
+      }
+      return children.size() == 1 ? children.get(0) : new And(children);
+    }
+
+    private Node parseNot() {
+      if (peek() != null && peek().is("NOT")) {
+        pos++;
+        return new Not(parseNot());
+      }
+      if (peek() != null && peek().is("(")) {
+        pos++;
+        Node node = parseOr();
+        expect(")");
+        return node;
+      }
+      return parseComparison();
+    }
+
+    private Node parseComparison() {
+      Token fieldToken = next();
+      if (fieldToken.type != TokenType.WORD) {
+        throw error("Expected a field name but found '" + fieldToken.text + "'");
+      }
+      String field = fieldToken.text;
+      fields.add(field);
+
+      Token token = next();
+      if (token.is("IS")) {
+        boolean not = peek() != null && peek().is("NOT");
+        if (not) {
+          pos++;
+        }
+        expect("NULL");
+        return new Comparison(field, not ? Operator.NOT_EQ : Operator.EQ, null);
+      }
+      if (token.is("NOT")) {
+        expect("IN");
+        return new Not(parseIn(field));
+      }
+      if (token.is("IN")) {
+        return parseIn(field);
+      }
+      Operator operator;
+      switch (token.type == TokenType.SYMBOL ? token.text : "") {
+        case "=":
+        case "==":
+          operator = Operator.EQ;
+          break;
+        case "!=":
+        case "<>":
+          operator = Operator.NOT_EQ;
+          break;
+        case "<":
+          operator = Operator.LT;
+          break;
+        case "<=":
+          operator = Operator.LT_EQ;
+          break;
+        case ">":
+          operator = Operator.GT;
+          break;
+        case ">=":
+          operator = Operator.GT_EQ;
+          break;
+        default:
+          throw error("Expected a comparison for field '" + field + "' but found '" + token.text + "'");
+      }
+      return new Comparison(field, operator, literal(next()));
+    }
+
+    private Node parseIn(String field) {
+      expect("(");
+      List<String> values = new ArrayList<>();
+      values.add(literal(next()));
+      while (peek() != null && peek().is(",")) {
+        pos++;
+        values.add(literal(next()));
+      }
+      expect(")");
+      return new In(field, values);
+    }
+
+    private String literal(Token token) {
+      if (token.type == TokenType.STRING || token.type == TokenType.NUMBER
+        || token.is("true") || token.is("false")) {
+        return token.text;
+      }
+      throw error("Expected a literal value but found '" + token.text + "'");
+    }
+
+    @Nullable
+    private Token peek() {
+      return pos < tokens.size() ? tokens.get(pos) : null;
+    }
+
+    private Token next() {
+      if (pos >= tokens.size()) {
+        throw error("Unexpected end of expression");
+      }
+      return tokens.get(pos++);
+    }
+
+    private void expect(String text) {
+      Token token = next();
+      if (!token.is(text)) {
+        throw error("Expected '" + text + "' but found '" + token.text + "'");
+      }
+    }
+
+    private IllegalArgumentException error(String message) {
+      return new IllegalArgumentException(String.format("Invalid filter '%s': %s.", expression, message));
+    }
+
+    private List<Token> tokenize() {
+      List<Token> tokens = new ArrayList<>();
+      int i = 0;
+      int length = expression.length();
+      while (i < length) {
+        char c = expression.charAt(i);
+        if (Character.isWhitespace(c)) {
+          i++;
+        } else if (c == '\'') {
+          StringBuilder value = new StringBuilder();
+          i++;
+          while (true) {
+            if (i >= length) {
+              throw error("Unterminated string literal");
+            }
+            char s = expression.charAt(i++);
+            if (s == '\'') {
+              if (i < length && expression.charAt(i) == '\'') {
+                value.append('\'');
+                i++;
+              } else {
+                break;
+              }
+            } else {
+              value.append(s);
+            }
+          }
+          tokens.add(new Token(TokenType.STRING, value.toString()));
+        } else if (Character.isDigit(c) || ((c == '-' || c == '.') && i + 1 < length
+          && Character.isDigit(expression.charAt(i + 1)))) {
+          int start = i++;
+          while (i < length && (Character.isLetterOrDigit(expression.charAt(i)) || expression.charAt(i) == '.'
+            || ((expression.charAt(i) == '-' || expression.charAt(i) == '+')
+            && Character.toLowerCase(expression.charAt(i - 1)) == 'e'))) {
+            i++;
+          }
+          tokens.add(new Token(TokenType.NUMBER, expression.substring(start, i)));
+        } else if (Character.isLetter(c) || c == '_') {
+          int start = i++;
+          while (i < length && (Character.isLetterOrDigit(expression.charAt(i)) || expression.charAt(i) == '_')) {
+            i++;
+          }
+          tokens.add(new Token(TokenType.WORD, expression.substring(start, i)));
+        } else if (i + 1 < length && (expression.startsWith("<=", i) || expression.startsWith(">=", i)
+          || expression.startsWith("!=", i) || expression.startsWith("<>", i) || expression.startsWith("==", i))) {
+          tokens.add(new Token(TokenType.SYMBOL, expression.substring(i, i + 2)));
+          i += 2;
+        } else if ("=<>(),".indexOf(c) >= 0) {
+          tokens.add(new Token(TokenType.SYMBOL, String.valueOf(c)));
+          i++;
+        } else {
+          throw error(String.format("Unexpected character '%c'", c));
+        }
+      }
+      return tokens;
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.conf.Configuration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+/**
+ * Utility methods for reading only a subset of the fields in a schema. The required fields are stored in the
+ * Hadoop Configuration so that record readers can skip over any field that is not required.
+ */
+public final class SchemaProjection {
+  private static final String REQUIRED_FIELDS = "input.required.fields";
+
+  private SchemaProjection() {
+  }
+
+  public static void configure(Configuration conf, Collection<String> requiredFields) {
+    conf.setStrings(REQUIRED_FIELDS, requiredFields.toArray(new String[0]));
+  }
+
+  /**
+   * Parses a comma separated list of field names.
+   *
+   * @return the field names, or null if the list is null or empty
+   */
+  @Nullable
+  public static Set<String> parseFields(@Nullable String fields) {
+    if (fields == null) {
+      return null;
+    }
+    Set<String> parsed = Arrays.stream(fields.split(","))
+      .map(String::trim)
+      .filter(field -> !field.isEmpty())
+      .collect(Collectors.toCollection(LinkedHashSet::new));
+    return parsed.isEmpty() ? null : parsed;
+  }
+
+  /**
+   * Returns the schema that records should be read with, based on the required fields in the Configuration.
+   *
+   * @param conf the Configuration to get the required fields from
+   * @param schema the full schema of the data
+   * @param pathField the field that the file path will be placed in, which is always kept
+   * @return the projected schema, or null if all fields are required
+   */
+  @Nullable
+  public static Schema getProjectedSchema(Configuration conf, Schema schema, @Nullable String pathField) {
+    String[] requiredFields = conf.getStrings(REQUIRED_FIELDS);
+    if (requiredFields == null || requiredFields.length == 0) {
+      return null;
+    }
+    Schema projected = project(schema, Arrays.asList(requiredFields), pathField);
+    return projected.getFields().size() == schema.getFields().size() ? null : projected;
+  }
+
+  /**
+   * Returns a schema that only contains the given fields, in the order that they appear in the original schema.
+   *
+   * @param schema the schema to project
+   * @param fields the fields to keep
+   * @param pathField the field that the file path will be placed in, which is kept even if it is not given
+   * @return the projected schema
+   * @throws IllegalArgumentException if a field does not exist in the schema
+   */
+  public static Schema project(Schema schema, Collection<String> fields, @Nullable String pathField) {
+    Set<String> keep = new HashSet<>(fields);
+    for (String field : keep) {
+      if (schema.getField(field) == null) {
+        throw new IllegalArgumentException(
+          String.format("Required field '%s' is not present in the schema.", field));
+      }
+    }
+    List<Schema.Field> projected = new ArrayList<>(keep.size() + 1);
+    for (Schema.Field field : schema.getFields()) {
+      if (keep.contains(field.getName()) || field.getName().equals(pathField)) {
+        projected.add(field);
+      }
+    }
+    return Schema.recordOf(schema.getRecordName(), projected);
+  }
+}
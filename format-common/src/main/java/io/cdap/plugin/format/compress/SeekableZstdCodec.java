@@ -0,0 +1,148 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.compress;
+
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.compress.CompressionInputStream;
+import org.apache.hadoop.io.compress.CompressionOutputStream;
+import org.apache.hadoop.io.compress.Compressor;
+import org.apache.hadoop.io.compress.Decompressor;
+import org.apache.hadoop.io.compress.SplitCompressionInputStream;
+import org.apache.hadoop.io.compress.SplittableCompressionCodec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Codec for Zstandard files in the seekable format, where the data is compressed as a sequence of independent frames
+ * followed by a seek table that records the compressed and decompressed size of every frame.
+ *
+ * Files written by this codec are in that format. When a split is read with
+ * {@link #createInputStream(InputStream, long, long, long)}, the seek table is used to start decompressing at the
+ * first frame that begins in the split, which allows large files to be read by many tasks. Zstandard files without
+ * a seek table can still be read, but only as a whole by the task that reads the start of the file. The same is
+ * true for splits read through {@link SplittableCompressionCodec}, which does not pass the length of the file that
+ * is needed to find the seek table.
+ */
+public class SeekableZstdCodec implements SplittableCompressionCodec, Configurable {
+  public static final String LEVEL = "io.compression.codec.zstd.seekable.level";
+  public static final String FRAME_SIZE = "io.compression.codec.zstd.seekable.frame.size";
+  static final int DEFAULT_LEVEL = 3;
+  static final int DEFAULT_FRAME_SIZE = 1024 * 1024;
+  private static final String CODECS = "io.compression.codecs";
+
+  private Configuration conf;
+
+  /**
+   * Adds this codec to the codecs known to the given configuration, so that files with a '.zst' extension are
+   * decompressed when they are read.
+   */
+  public static void register(Configuration conf) {
+    String codecs = conf.get(CODECS);
+    String name = SeekableZstdCodec.class.getName();
+    if (codecs == null || codecs.trim().isEmpty()) {
+      conf.set(CODECS, name);
+    } else if (!codecs.contains(name)) {
+      conf.set(CODECS, codecs + "," + name);
+    }
+  }
+
+  @Override
+  public void setConf(Configuration conf) {
+    this.conf = conf;
+  }
+
+  @Override
+  public Configuration getConf() {
+    return conf;
+  }
+
+  @Override
+  public CompressionOutputStream createOutputStream(OutputStream out) throws IOException {
+    int level = conf == null ? DEFAULT_LEVEL : conf.getInt(LEVEL, DEFAULT_LEVEL);
+    int frameSize = conf == null ? DEFAULT_FRAME_SIZE : conf.getInt(FRAME_SIZE, DEFAULT_FRAME_SIZE);
+    return new SeekableZstdOutputStream(out, level, frameSize);
+  }
+
+  @Override
+  public CompressionOutputStream createOutputStream(OutputStream out, Compressor compressor) throws IOException {
+    return createOutputStream(out);
+  }
+
+  /**
+   * Frames are compressed by the output stream itself, so there is no compressor to pool.
+   */
+  @Override
+  public Class<? extends Compressor> getCompressorType() {
+    return null;
+  }
+
+  @Override
+  public Compressor createCompressor() {
+    return null;
+  }
+
+  @Override
+  public CompressionInputStream createInputStream(InputStream in) throws IOException {
+    return new ZstdStreamInputStream(in);
+  }
+
+  @Override
+  public CompressionInputStream createInputStream(InputStream in, Decompressor decompressor) throws IOException {
+    return createInputStream(in);
+  }
+
+  @Override
+  public SplitCompressionInputStream createInputStream(InputStream seekableIn, Decompressor decompressor,
+                                                       long start, long end, READ_MODE readMode) throws IOException {
+    return new SeekableZstdInputStream(seekableIn, start, end, -1L);
+  }
+
+  /**
+   * Creates a stream that reads the frames that begin in a split of a file.
+   *
+   * @param seekableIn the stream of the file, which must be seekable and support positioned reads
+   * @param start the offset where the split starts
+   * @param end the offset where the split ends
+   * @param length the length of the file, usually from its {@link org.apache.hadoop.fs.FileStatus}
+   */
+  public SplitCompressionInputStream createInputStream(InputStream seekableIn, long start, long end,
+                                                       long length) throws IOException {
+    return new SeekableZstdInputStream(seekableIn, start, end, length);
+  }
+
+  /**
+   * Frames are decompressed by the input stream itself, so there is no decompressor to pool.
+   */
+  @Override
+  public Class<? extends Decompressor> getDecompressorType() {
+    return null;
+  }
+
+  @Override
+  public Decompressor createDecompressor() {
+    return null;
+  }
+
+  @Override
+  public String getDefaultExtension() {
+    return ".zst";
+  }
+}
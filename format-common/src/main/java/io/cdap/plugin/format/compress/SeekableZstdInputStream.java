@@ -0,0 +1,254 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.compress;
+
+import com.github.luben.zstd.ZstdDecompressCtx;
+import com.github.luben.zstd.ZstdInputStream;
+import org.apache.hadoop.fs.PositionedReadable;
+import org.apache.hadoop.fs.Seekable;
+import org.apache.hadoop.io.compress.SplitCompressionInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import javax.annotation.Nullable;
+
+/**
+ * Reads the frames of a seekable Zstandard file that begin at or after the start of a split.
+ *
+ * Positions are offsets in the compressed file. The split is adjusted to start at the first frame that begins at or
+ * after its start and to end at the first frame that begins at or after its end, which is where the next split
+ * starts. A read never returns data of more than one frame, and once a frame has been read from, the position is
+ * one past the start of the frame. That way, line readers read past the end of the split up to and including the
+ * first line that begins in the next frame, which is exactly the line that the reader of the next split skips.
+ *
+ * Files without a seek table are treated as a single frame, so they are read as a whole by the split that starts
+ * at the beginning of the file. The same is true if the length of the file is not known, since the seek table is
+ * found at the end of the file. Checksums in the seek table are not verified.
+ */
+class SeekableZstdInputStream extends SplitCompressionInputStream {
+  private static final int SKIPPABLE_MAGIC = 0x184D2A5E;
+  private static final int SEEKABLE_MAGIC = 0x8F92EAB1;
+  private static final int FOOTER_SIZE = 9;
+  private static final int SKIPPABLE_HEADER_SIZE = 8;
+
+  private final byte[] single = new byte[1];
+  private final PositionedReadable file;
+  // compressed offset of every frame, followed by the offset where the frames end
+  private final long[] offsets;
+  // decompressed size of every frame, or null if the file has no seek table
+  private final int[] sizes;
+  private ZstdDecompressCtx decompressor;
+  private ZstdInputStream stream;
+  private byte[] compressed = new byte[0];
+  private byte[] decompressed = new byte[0];
+  private int position;
+  private int limit;
+  private int frame;
+  private long pos;
+
+  /**
+   * Creates a stream for a split of a file.
+   *
+   * @param in the stream of the file, which must be seekable and support positioned reads
+   * @param start the offset where the split starts
+   * @param end the offset where the split ends
+   * @param length the length of the file, or -1 if it is not known
+   */
+  SeekableZstdInputStream(InputStream in, long start, long end, long length) throws IOException {
+    super(in, start, end);
+    if (!(in instanceof PositionedReadable) || !(in instanceof Seekable)) {
+      throw new IOException("Seekable Zstandard files can only be split when read from a positioned stream.");
+    }
+    this.file = (PositionedReadable) in;
+    int[] frameSizes = length < 0 ? null : readSeekTable(file, length);
+    if (frameSizes == null) {
+      this.offsets = new long[] { 0L, length < 0 ? Long.MAX_VALUE : length };
+      this.sizes = null;
+    } else {
+      this.offsets = new long[frameSizes.length / 2 + 1];
+      this.sizes = new int[frameSizes.length / 2];
+      for (int i = 0; i < sizes.length; i++) {
+        offsets[i + 1] = offsets[i] + (frameSizes[2 * i] & 0xFFFFFFFFL);
+        sizes[i] = frameSizes[2 * i + 1];
+      }
+    }
+    this.frame = firstFrameAtOrAfter(start);
+    setStart(offsets[frame]);
+    setEnd(offsets[firstFrameAtOrAfter(end)]);
+    this.pos = offsets[frame];
+  }
+
+  @Override
+  public int read() throws IOException {
+    int read = read(single, 0, 1);
+    return read < 0 ? -1 : single[0] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (stream != null) {
+      return stream.read(b, off, len);
+    }
+    while (position == limit) {
+      if (frame >= offsets.length - 1) {
+        return -1;
+      }
+      nextFrame();
+    }
+    int read = Math.min(len, limit - position);
+    System.arraycopy(decompressed, position, b, off, read);
+    position += read;
+    return read;
+  }
+
+  @Override
+  public long getPos() {
+    return pos;
+  }
+
+  /**
+   * Discards any decompressed data and starts reading again at the first frame of the split.
+   */
+  @Override
+  public void resetState() throws IOException {
+    if (stream != null) {
+      stream.close();
+      stream = null;
+    }
+    position = 0;
+    limit = 0;
+    frame = firstFrameAtOrAfter(getAdjustedStart());
+    pos = offsets[frame];
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      if (decompressor != null) {
+        decompressor.close();
+      }
+      if (stream != null) {
+        stream.close();
+      }
+    } finally {
+      super.close();
+    }
+  }
+
+  private void nextFrame() throws IOException {
+    long offset = offsets[frame];
+    pos = offset + 1;
+    if (sizes == null) {
+      // no seek table, decompress the whole file as a stream
+      ((Seekable) in).seek(offset);
+      stream = ZstdStreamInputStream.open(in);
+      frame++;
+      return;
+    }
+    int compressedSize = (int) (offsets[frame + 1] - offset);
+    int size = sizes[frame];
+    if (compressed.length < compressedSize) {
+      compressed = new byte[compressedSize];
+    }
+    if (decompressed.length < size) {
+      decompressed = new byte[size];
+    }
+    file.readFully(offset, compressed, 0, compressedSize);
+    if (decompressor == null) {
+      decompressor = new ZstdDecompressCtx();
+    }
+    int decompressedSize = compressedSize == 0 ? 0
+      : decompressor.decompressByteArray(decompressed, 0, size, compressed, 0, compressedSize);
+    if (decompressedSize != size) {
+      throw new IOException(String.format("Corrupt Zstandard frame at offset %d: expected %d bytes but got %d.",
+                                          offset, size, decompressedSize));
+    }
+    position = 0;
+    limit = size;
+    frame++;
+  }
+
+  private int firstFrameAtOrAfter(long offset) {
+    int low = 0;
+    int high = offsets.length - 1;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (offsets[mid] < offset) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Reads the compressed and decompressed size of every frame from the seek table at the end of the file.
+   *
+   * @return the sizes, two per frame, or null if the file does not end with a seek table
+   */
+  @Nullable
+  private static int[] readSeekTable(PositionedReadable file, long length) throws IOException {
+    if (length < FOOTER_SIZE + SKIPPABLE_HEADER_SIZE) {
+      return null;
+    }
+    byte[] footer = new byte[FOOTER_SIZE];
+    file.readFully(length - FOOTER_SIZE, footer, 0, FOOTER_SIZE);
+    if (readInt(footer, 5) != SEEKABLE_MAGIC) {
+      return null;
+    }
+    long frames = readInt(footer, 0) & 0xFFFFFFFFL;
+    int descriptor = footer[4] & 0xFF;
+    if ((descriptor & 0x7C) != 0) {
+      throw new IOException("Unsupported seekable Zstandard seek table descriptor " + descriptor + ".");
+    }
+    int entrySize = (descriptor & 0x80) == 0 ? 8 : 12;
+    long tableSize = frames * entrySize + FOOTER_SIZE;
+    if (tableSize + SKIPPABLE_HEADER_SIZE > length || tableSize > Integer.MAX_VALUE - SKIPPABLE_HEADER_SIZE) {
+      throw new IOException("Invalid seekable Zstandard seek table with " + frames + " frames.");
+    }
+    byte[] table = new byte[(int) tableSize + SKIPPABLE_HEADER_SIZE];
+    file.readFully(length - table.length, table, 0, table.length);
+    if (readInt(table, 0) != SKIPPABLE_MAGIC || (readInt(table, 4) & 0xFFFFFFFFL) != tableSize) {
+      throw new IOException("Invalid seekable Zstandard seek table header.");
+    }
+    int[] sizes = new int[(int) frames * 2];
+    long compressedTotal = 0L;
+    for (int i = 0; i < frames; i++) {
+      int entry = SKIPPABLE_HEADER_SIZE + i * entrySize;
+      sizes[2 * i] = readInt(table, entry);
+      sizes[2 * i + 1] = readInt(table, entry + 4);
+      compressedTotal += sizes[2 * i] & 0xFFFFFFFFL;
+      if (sizes[2 * i + 1] < 0) {
+        throw new IOException("Seekable Zstandard frames larger than 2GB are not supported.");
+      }
+    }
+    if (compressedTotal != length - table.length) {
+      throw new IOException("Seekable Zstandard seek table does not match the size of the file.");
+    }
+    return sizes;
+  }
+
+  private static int readInt(byte[] bytes, int offset) {
+    return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8 | (bytes[offset + 2] & 0xFF) << 16
+      | (bytes[offset + 3] & 0xFF) << 24;
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.compress;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdCompressCtx;
+import org.apache.hadoop.io.compress.CompressionOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Writes data as a seekable Zstandard file. Data is buffered and compressed into independent frames of a fixed
+ * decompressed size, and a seek table with the size of every frame is written when the stream is finished.
+ */
+class SeekableZstdOutputStream extends CompressionOutputStream {
+  private static final int SKIPPABLE_MAGIC = 0x184D2A5E;
+  private static final int SEEKABLE_MAGIC = 0x8F92EAB1;
+
+  private final ZstdCompressCtx compressor;
+  private final byte[] buffer;
+  private byte[] compressed;
+  private int position;
+  // compressed and decompressed size of every frame written so far
+  private int[] frames = new int[64];
+  private int frameCount;
+  private boolean finished;
+
+  SeekableZstdOutputStream(OutputStream out, int level, int frameSize) {
+    super(out);
+    if (frameSize < 1) {
+      throw new IllegalArgumentException(
+        String.format("The Zstandard frame size must be at least 1, but is %d.", frameSize));
+    }
+    this.compressor = new ZstdCompressCtx();
+    this.compressor.setLevel(level);
+    this.buffer = new byte[frameSize];
+    this.compressed = new byte[(int) Zstd.compressBound(frameSize)];
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    buffer[position++] = (byte) b;
+    if (position == buffer.length) {
+      writeFrame();
+    }
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    while (len > 0) {
+      int length = Math.min(len, buffer.length - position);
+      System.arraycopy(b, off, buffer, position, length);
+      position += length;
+      off += length;
+      len -= length;
+      if (position == buffer.length) {
+        writeFrame();
+      }
+    }
+  }
+
+  /**
+   * Writes the buffered data as a frame, followed by the seek table. Nothing can be written afterwards.
+   */
+  @Override
+  public void finish() throws IOException {
+    if (finished) {
+      return;
+    }
+    if (position > 0) {
+      writeFrame();
+    }
+    int tableSize = frameCount * 8 + 9;
+    byte[] table = new byte[tableSize + 8];
+    writeInt(table, 0, SKIPPABLE_MAGIC);
+    writeInt(table, 4, tableSize);
+    for (int i = 0; i < frameCount; i++) {
+      writeInt(table, 8 + i * 8, frames[2 * i]);
+      writeInt(table, 12 + i * 8, frames[2 * i + 1]);
+    }
+    int footer = 8 + frameCount * 8;
+    writeInt(table, footer, frameCount);
+    // descriptor without checksums
+    table[footer + 4] = 0;
+    writeInt(table, footer + 5, SEEKABLE_MAGIC);
+    out.write(table);
+    finished = true;
+  }
+
+  /**
+   * Starts a new seekable stream, so that another one can be written after the stream was finished. Since frames
+   * are independent of each other, there is no compression state to reset, only the frames of the seek table.
+   * Data that was written since the last frame, and that was not finished, is discarded.
+   */
+  @Override
+  public void resetState() {
+    position = 0;
+    frameCount = 0;
+    finished = false;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      super.close();
+    } finally {
+      compressor.close();
+    }
+  }
+
+  private void writeFrame() throws IOException {
+    if (finished) {
+      throw new IOException("Cannot write to a finished seekable Zstandard stream.");
+    }
+    int length = compressor.compressByteArray(compressed, 0, compressed.length, buffer, 0, position);
+    out.write(compressed, 0, length);
+    if (2 * frameCount + 2 > frames.length) {
+      frames = Arrays.copyOf(frames, frames.length * 2);
+    }
+    frames[2 * frameCount] = length;
+    frames[2 * frameCount + 1] = position;
+    frameCount++;
+    position = 0;
+  }
+
+  private static void writeInt(byte[] bytes, int offset, int value) {
+    bytes[offset] = (byte) value;
+    bytes[offset + 1] = (byte) (value >>> 8);
+    bytes[offset + 2] = (byte) (value >>> 16);
+    bytes[offset + 3] = (byte) (value >>> 24);
+  }
+}
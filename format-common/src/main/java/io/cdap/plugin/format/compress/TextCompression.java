@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.compress;
+
+import io.cdap.plugin.format.FileFormat;
+import org.apache.hadoop.io.compress.BZip2Codec;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.GzipCodec;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+/**
+ * Compression codecs for files written by formats that write lines of text.
+ */
+public enum TextCompression {
+  NONE(null),
+  GZIP(GzipCodec.class),
+  BZIP2(BZip2Codec.class),
+  ZSTD(SeekableZstdCodec.class);
+
+  private final Class<? extends CompressionCodec> codecClass;
+
+  TextCompression(@Nullable Class<? extends CompressionCodec> codecClass) {
+    this.codecClass = codecClass;
+  }
+
+  /**
+   * Returns the output format properties that enable this compression.
+   */
+  public Map<String, String> getOutputConfiguration() {
+    if (codecClass == null) {
+      return Collections.emptyMap();
+    }
+    Map<String, String> properties = new HashMap<>();
+    properties.put(FileOutputFormat.COMPRESS, "true");
+    properties.put(FileOutputFormat.COMPRESS_CODEC, codecClass.getName());
+    return properties;
+  }
+
+  /**
+   * Whether files of the given format are written as lines of text, and can therefore be compressed with one of
+   * these codecs.
+   */
+  public static boolean supports(FileFormat format) {
+    return format == FileFormat.CSV || format == FileFormat.DELIMITED || format == FileFormat.JSON
+      || format == FileFormat.TSV;
+  }
+
+  /**
+   * Get the compression with the given name, ignoring case. A null name means no compression.
+   *
+   * @throws IllegalArgumentException if there is no compression with the given name
+   */
+  public static TextCompression from(@Nullable String name) {
+    if (name == null || name.isEmpty()) {
+      return NONE;
+    }
+    try {
+      return valueOf(name.toUpperCase());
+    } catch (IllegalArgumentException e) {
+      String values = Arrays.stream(values()).map(v -> v.name().toLowerCase()).collect(Collectors.joining(", "));
+      throw new IllegalArgumentException(
+        String.format("Invalid compression codec '%s'. Supported codecs are: %s.", name, values));
+    }
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.compress;
+
+import com.github.luben.zstd.ZstdInputStream;
+import org.apache.hadoop.io.compress.CompressionInputStream;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decompresses a whole Zstandard stream, whether or not it has a seek table.
+ */
+class ZstdStreamInputStream extends CompressionInputStream {
+  private final byte[] single = new byte[1];
+  private ZstdInputStream zstd;
+
+  ZstdStreamInputStream(InputStream in) throws IOException {
+    super(in);
+    this.zstd = open(in);
+  }
+
+  /**
+   * Opens a decompressing stream that does not close the given stream when it is closed, so that the decompressor
+   * can be replaced when the state is reset. Skippable frames, such as the seek table, are skipped.
+   */
+  static ZstdInputStream open(InputStream in) throws IOException {
+    return new ZstdInputStream(new FilterInputStream(in) {
+      @Override
+      public void close() {
+        // closed by the compression stream
+      }
+    });
+  }
+
+  @Override
+  public int read() throws IOException {
+    int read = zstd.read(single, 0, 1);
+    return read < 0 ? -1 : single[0] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    return zstd.read(b, off, len);
+  }
+
+  /**
+   * Discards the state of the decompressor, so that a new Zstandard stream is read from the current position of
+   * the underlying stream.
+   */
+  @Override
+  public void resetState() throws IOException {
+    zstd.close();
+    zstd = open(in);
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      zstd.close();
+    } finally {
+      super.close();
+    }
+  }
+}
@@ -17,8 +17,10 @@
 package io.cdap.plugin.format.input;
 
 import io.cdap.cdap.api.data.format.StructuredRecord;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.input.CombineFileInputFormat;
@@ -26,6 +28,7 @@ import org.apache.hadoop.mapreduce.lib.input.CombineFileRecordReader;
 import org.apache.hadoop.mapreduce.lib.input.CombineFileSplit;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * Similar to CombineTextInputFormat except it uses PathTrackingInputFormat to keep track of filepaths that
@@ -33,6 +36,25 @@ import java.io.IOException;
  */
 public abstract class CombinePathTrackingInputFormat extends CombineFileInputFormat<NullWritable, StructuredRecord> {
 
+  /**
+   * Lists input files with {@link FileListing} if parallel or cached listing is configured.
+   */
+  @Override
+  protected List<FileStatus> listStatus(JobContext job) throws IOException {
+    return FileListing.isEnabled(job.getConfiguration()) ? FileListing.listStatus(job) : super.listStatus(job);
+  }
+
+  /**
+   * Packs input files into splits with {@link SplitPacking} if cost based packing is configured, and assigns an id
+   * to each file with {@link FileIds} if the path field should contain file ids.
+   */
+  @Override
+  public List<InputSplit> getSplits(JobContext job) throws IOException {
+    List<InputSplit> splits = SplitPacking.isEnabled(job.getConfiguration()) ?
+      SplitPacking.getSplits(job, listStatus(job), path -> isSplitable(job, path)) : super.getSplits(job);
+    return FileIds.isEnabled(job.getConfiguration()) ? FileIds.assign(job, splits) : splits;
+  }
+
   /**
    * Creates a RecordReader that delegates to some other RecordReader for each path in the input split.
    * The header for each file is set in the context Configuration to make it available to the delegate RecordReaders.
@@ -40,7 +62,7 @@ public abstract class CombinePathTrackingInputFormat extends CombineFileInputFor
   @Override
   public RecordReader<NullWritable, StructuredRecord> createRecordReader(InputSplit split, TaskAttemptContext context)
     throws IOException {
-    return new CombineFileRecordReader<>((CombineFileSplit) split, context, getRecordReaderClass());
+    return new FileIdRecordReader((CombineFileSplit) split, context, getRecordReaderClass());
   }
 
   /**
@@ -50,4 +72,27 @@ public abstract class CombinePathTrackingInputFormat extends CombineFileInputFor
    */
   protected abstract Class<? extends RecordReader<NullWritable, StructuredRecord>> getRecordReaderClass();
 
+  /**
+   * A CombineFileRecordReader that makes the id of each file in the split available to the delegate RecordReader
+   * for that file, if file ids are assigned.
+   */
+  private static class FileIdRecordReader extends CombineFileRecordReader<NullWritable, StructuredRecord> {
+
+    FileIdRecordReader(CombineFileSplit split, TaskAttemptContext context,
+                       Class<? extends RecordReader<NullWritable, StructuredRecord>> rrClass) throws IOException {
+      super(split, context, rrClass);
+    }
+
+    @Override
+    protected boolean initNextRecordReader() throws IOException {
+      // called from the super constructor as well, so this must only rely on fields of the super class
+      if (split instanceof PathTrackingCombineFileSplit && idx < split.getNumPaths()) {
+        int[] fileIds = ((PathTrackingCombineFileSplit) split).getFileIds();
+        if (fileIds != null) {
+          context.getConfiguration().setInt(FileIds.FILE_ID, fileIds[idx]);
+        }
+      }
+      return super.initNextRecordReader();
+    }
+  }
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.input;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.lib.input.CombineFileSplit;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import javax.annotation.Nullable;
+
+/**
+ * Replaces the path of the file a record was read from with a compact int id.
+ *
+ * Ids are assigned when splits are computed, by numbering the distinct file URIs of all splits in sorted order, and
+ * are carried in the splits themselves. The mapping from ids to URIs is written to a manifest file with one
+ * tab separated 'id path' line per file, so that the paths can be joined back in when they are needed.
+ */
+public final class FileIds {
+  static final String MANIFEST = "path.tracking.file.id.manifest";
+  // id of the file that the next delegate record reader of a combined split reads
+  static final String FILE_ID = "path.tracking.file.id";
+
+  private FileIds() {
+    // no-op
+  }
+
+  /**
+   * Configures the path field to contain file ids instead of file paths.
+   *
+   * @param conf the configuration of the job
+   * @param manifest the path of the file to write the mapping from ids to file paths to, or null to emit paths
+   */
+  public static void configure(Configuration conf, @Nullable String manifest) {
+    if (manifest != null) {
+      conf.set(MANIFEST, manifest);
+    }
+  }
+
+  static boolean isEnabled(Configuration conf) {
+    return conf.get(MANIFEST) != null;
+  }
+
+  /**
+   * Assigns an id to every file of the given splits, writes the manifest, and returns splits that carry the ids.
+   */
+  static List<InputSplit> assign(JobContext job, List<InputSplit> splits) throws IOException {
+    TreeSet<String> uris = new TreeSet<>();
+    for (InputSplit split : splits) {
+      if (split instanceof CombineFileSplit) {
+        for (Path path : ((CombineFileSplit) split).getPaths()) {
+          uris.add(path.toUri().toString());
+        }
+      } else {
+        uris.add(((FileSplit) split).getPath().toUri().toString());
+      }
+    }
+    Map<String, Integer> ids = new HashMap<>(uris.size() * 2);
+    for (String uri : uris) {
+      ids.put(uri, ids.size());
+    }
+    writeManifest(job.getConfiguration(), uris);
+
+    List<InputSplit> assigned = new ArrayList<>(splits.size());
+    for (InputSplit split : splits) {
+      if (split instanceof CombineFileSplit) {
+        CombineFileSplit combineSplit = (CombineFileSplit) split;
+        int[] fileIds = new int[combineSplit.getNumPaths()];
+        for (int i = 0; i < fileIds.length; i++) {
+          fileIds[i] = ids.get(combineSplit.getPath(i).toUri().toString());
+        }
+        assigned.add(new PathTrackingCombineFileSplit(combineSplit, fileIds));
+      } else {
+        FileSplit fileSplit = (FileSplit) split;
+        assigned.add(new PathTrackingFileSplit(fileSplit, ids.get(fileSplit.getPath().toUri().toString())));
+      }
+    }
+    return assigned;
+  }
+
+  /**
+   * Writes the manifest to a temporary file next to the configured path and then renames it, so that a failed
+   * write never leaves a partial manifest behind.
+   */
+  private static void writeManifest(Configuration conf, Iterable<String> uris) throws IOException {
+    Path path = new Path(conf.get(MANIFEST));
+    FileSystem fs = path.getFileSystem(conf);
+    Path tmp = new Path(path.getParent(), "." + path.getName() + "." + System.nanoTime() + ".tmp");
+    try {
+      try (Writer writer = new BufferedWriter(new OutputStreamWriter(fs.create(tmp, true), StandardCharsets.UTF_8))) {
+        int id = 0;
+        for (String uri : uris) {
+          writer.write(Integer.toString(id++));
+          writer.write('\t');
+          writer.write(uri);
+          writer.write('\n');
+        }
+      }
+      if (fs.exists(path) && !fs.delete(path, false)) {
+        throw new IOException("Unable to replace file id manifest " + path);
+      }
+      if (!fs.rename(tmp, path)) {
+        throw new IOException("Unable to rename " + tmp + " to file id manifest " + path);
+      }
+    } finally {
+      fs.delete(tmp, false);
+    }
+  }
+}
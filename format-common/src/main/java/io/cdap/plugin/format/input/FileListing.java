@@ -0,0 +1,173 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.input;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PathFilter;
+import org.apache.hadoop.fs.RemoteIterator;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.InvalidInputException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Lists the input files of a job, as {@link FileInputFormat#listStatus(JobContext)} does, but lists directories on
+ * several threads.
+ *
+ * Directories are listed level by level, with all the directories of a level listed in parallel. Files are listed
+ * with their block locations, so that split planning does not need to look them up one file at a time.
+ */
+public final class FileListing {
+  static final String THREADS = "input.listing.threads";
+
+  private static final PathFilter HIDDEN_FILE_FILTER =
+    path -> !path.getName().startsWith("_") && !path.getName().startsWith(".");
+
+  private FileListing() {
+    // no-op
+  }
+
+  /**
+   * Configures how input files are listed.
+   *
+   * @param conf the configuration of the job
+   * @param threads the number of threads to list directories with
+   */
+  public static void configure(Configuration conf, int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException(
+        String.format("The number of listing threads must be at least 1, but is %d.", threads));
+    }
+    conf.setInt(THREADS, threads);
+  }
+
+  /**
+   * Whether input files should be listed by this class instead of the default single threaded listing.
+   */
+  static boolean isEnabled(Configuration conf) {
+    return conf.getInt(THREADS, 1) > 1;
+  }
+
+  /**
+   * Lists the input files of the job.
+   */
+  static List<FileStatus> listStatus(JobContext job) throws IOException {
+    Configuration conf = job.getConfiguration();
+    Path[] inputPaths = FileInputFormat.getInputPaths(job);
+    if (inputPaths.length == 0) {
+      throw new IOException("No input paths specified in job");
+    }
+    boolean recursive = FileInputFormat.getInputDirRecursive(job);
+    PathFilter userFilter = FileInputFormat.getInputPathFilter(job);
+    PathFilter inputFilter = path -> HIDDEN_FILE_FILTER.accept(path)
+      && (userFilter == null || userFilter.accept(path));
+
+    List<FileStatus> result = new ArrayList<>();
+    List<Path> directories = new ArrayList<>();
+    List<IOException> errors = new ArrayList<>();
+    for (Path inputPath : inputPaths) {
+      FileSystem fs = inputPath.getFileSystem(conf);
+      FileStatus[] matches = fs.globStatus(inputPath, inputFilter);
+      if (matches == null) {
+        errors.add(new IOException("Input path does not exist: " + inputPath));
+      } else if (matches.length == 0) {
+        errors.add(new IOException("Input Pattern " + inputPath + " matches 0 files"));
+      } else {
+        for (FileStatus match : matches) {
+          if (match.isDirectory()) {
+            directories.add(match.getPath());
+          } else {
+            result.add(match);
+          }
+        }
+      }
+    }
+    if (!errors.isEmpty()) {
+      throw new InvalidInputException(errors);
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(conf.getInt(THREADS, 1), runnable -> {
+      Thread thread = new Thread(runnable, "input-listing");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      while (!directories.isEmpty()) {
+        List<Future<List<FileStatus>>> listings = new ArrayList<>(directories.size());
+        for (Path directory : directories) {
+          listings.add(executor.submit(() -> listDirectory(directory, conf)));
+        }
+        List<Path> subdirectories = new ArrayList<>();
+        for (Future<List<FileStatus>> listing : listings) {
+          for (FileStatus status : getListing(listing)) {
+            if (!inputFilter.accept(status.getPath())) {
+              continue;
+            }
+            if (recursive && status.isDirectory()) {
+              subdirectories.add(status.getPath());
+            } else {
+              result.add(status);
+            }
+          }
+        }
+        directories = subdirectories;
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    result.sort(Comparator.comparing(FileStatus::getPath));
+    return result;
+  }
+
+  private static List<FileStatus> listDirectory(Path directory, Configuration conf) throws IOException {
+    List<FileStatus> children = new ArrayList<>();
+    RemoteIterator<LocatedFileStatus> iterator = directory.getFileSystem(conf).listLocatedStatus(directory);
+    while (iterator.hasNext()) {
+      children.add(iterator.next());
+    }
+    return children;
+  }
+
+  private static List<FileStatus> getListing(Future<List<FileStatus>> listing) throws IOException {
+    try {
+      return listing.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while listing input files.");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("Failed to list input files.", e.getCause());
+    }
+  }
+}
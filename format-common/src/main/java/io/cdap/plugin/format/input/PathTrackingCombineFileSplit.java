@@ -0,0 +1,74 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.input;
+
+import org.apache.hadoop.mapreduce.lib.input.CombineFileSplit;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link CombineFileSplit} that also contains the id of each of its files, if file ids are assigned.
+ * See {@link FileIds}.
+ */
+public class PathTrackingCombineFileSplit extends CombineFileSplit {
+  private int[] fileIds;
+
+  public PathTrackingCombineFileSplit() {
+    // exists for Hadoop deserialization
+  }
+
+  public PathTrackingCombineFileSplit(CombineFileSplit split, @Nullable int[] fileIds) throws IOException {
+    super(split.getPaths(), split.getStartOffsets(), split.getLengths(), split.getLocations());
+    this.fileIds = fileIds;
+  }
+
+  /**
+   * Returns the id of the file of each path in the split, or null if file ids are not assigned.
+   */
+  @Nullable
+  public int[] getFileIds() {
+    return fileIds;
+  }
+
+  @Override
+  public void write(DataOutput out) throws IOException {
+    super.write(out);
+    out.writeBoolean(fileIds != null);
+    if (fileIds != null) {
+      // there is one id per path, so the number of ids is already known when reading
+      for (int fileId : fileIds) {
+        out.writeInt(fileId);
+      }
+    }
+  }
+
+  @Override
+  public void readFields(DataInput in) throws IOException {
+    super.readFields(in);
+    fileIds = null;
+    if (in.readBoolean()) {
+      fileIds = new int[getNumPaths()];
+      for (int i = 0; i < fileIds.length; i++) {
+        fileIds[i] = in.readInt();
+      }
+    }
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.input;
+
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A {@link FileSplit} that also contains the id of its file. See {@link FileIds}.
+ */
+public class PathTrackingFileSplit extends FileSplit {
+  private int fileId;
+
+  public PathTrackingFileSplit() {
+    // exists for Hadoop deserialization
+  }
+
+  public PathTrackingFileSplit(FileSplit split, int fileId) throws IOException {
+    super(split.getPath(), split.getStart(), split.getLength(), split.getLocations());
+    this.fileId = fileId;
+  }
+
+  public int getFileId() {
+    return fileId;
+  }
+
+  @Override
+  public void write(DataOutput out) throws IOException {
+    super.write(out);
+    out.writeInt(fileId);
+  }
+
+  @Override
+  public void readFields(DataInput in) throws IOException {
+    super.readFields(in);
+    fileId = in.readInt();
+  }
+}
@@ -18,15 +18,19 @@ package io.cdap.plugin.format.input;
 
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.format.SchemaProjection;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 import org.apache.hadoop.mapreduce.lib.input.FileSplit;
 
 import java.io.IOException;
+import java.util.List;
 import javax.annotation.Nullable;
 
 /**
@@ -47,6 +51,20 @@ public abstract class PathTrackingInputFormat extends FileInputFormat<NullWritab
   static final String FILENAME_ONLY = "path.tracking.filename.only";
   static final String SCHEMA = "schema";
 
+  @Override
+  protected List<FileStatus> listStatus(JobContext job) throws IOException {
+    return FileListing.isEnabled(job.getConfiguration()) ? FileListing.listStatus(job) : super.listStatus(job);
+  }
+
+  /**
+   * Assigns an id to each file with {@link FileIds} if the path field should contain file ids.
+   */
+  @Override
+  public List<InputSplit> getSplits(JobContext job) throws IOException {
+    List<InputSplit> splits = super.getSplits(job);
+    return FileIds.isEnabled(job.getConfiguration()) ? FileIds.assign(job, splits) : splits;
+  }
+
   @Override
   public RecordReader<NullWritable, StructuredRecord> createRecordReader(InputSplit split,
                                                                          TaskAttemptContext context)
@@ -60,13 +78,33 @@ public abstract class PathTrackingInputFormat extends FileInputFormat<NullWritab
     Configuration hConf = context.getConfiguration();
     String pathField = hConf.get(PATH_FIELD);
     boolean userFilenameOnly = hConf.getBoolean(FILENAME_ONLY, false);
-    String path = userFilenameOnly ? fileSplit.getPath().getName() : fileSplit.getPath().toUri().toString();
+    Object path;
+    if (pathField == null) {
+      path = null;
+    } else if (FileIds.isEnabled(hConf)) {
+      path = fileSplit instanceof PathTrackingFileSplit ? ((PathTrackingFileSplit) fileSplit).getFileId() :
+        getFileId(hConf);
+    } else {
+      // interned so that the records of every piece of a file that a task reads share the same string
+      path = (userFilenameOnly ? fileSplit.getPath().getName() : fileSplit.getPath().toUri().toString()).intern();
+    }
     String schema = hConf.get(SCHEMA);
     Schema parsedSchema = schema == null ? null : Schema.parseJson(schema);
 
     RecordReader<NullWritable, StructuredRecord.Builder> delegate = createRecordReader(fileSplit, context,
                                                                                        pathField, parsedSchema);
-    return new TrackingRecordReader(delegate, pathField, path);
+    Schema projectedSchema = parsedSchema == null || supportsProjection() ? null :
+      SchemaProjection.getProjectedSchema(hConf, parsedSchema, pathField);
+    return new TrackingRecordReader(delegate, pathField, path, projectedSchema);
+  }
+
+  private static int getFileId(Configuration hConf) {
+    int fileId = hConf.getInt(FileIds.FILE_ID, -1);
+    if (fileId < 0) {
+      // should never happen
+      throw new IllegalStateException("No file id is assigned to the input split.");
+    }
+    return fileId;
   }
 
   protected abstract RecordReader<NullWritable, StructuredRecord.Builder> createRecordReader(
@@ -74,18 +112,29 @@ public abstract class PathTrackingInputFormat extends FileInputFormat<NullWritab
     @Nullable String pathField, @Nullable Schema schema) throws IOException, InterruptedException;
 
   /**
-   * Supports adding a field to each record that contains the path of the file the record was read from.
+   * Whether the record readers of this format only read the fields of the schema returned by
+   * {@link SchemaProjection#getProjectedSchema(Configuration, Schema, String)}. If not, full records are read
+   * and the fields that are not required are dropped afterwards.
+   */
+  protected boolean supportsProjection() {
+    return false;
+  }
+
+  /**
+   * Supports adding a field to each record that contains the path, or the id, of the file the record was read from.
    */
   static class TrackingRecordReader extends RecordReader<NullWritable, StructuredRecord> {
     private final RecordReader<NullWritable, StructuredRecord.Builder> delegate;
     private final String pathField;
-    private final String path;
+    private final Object path;
+    private final Schema projectedSchema;
 
     TrackingRecordReader(RecordReader<NullWritable, StructuredRecord.Builder> delegate,
-                         @Nullable String pathField, String path) {
+                         @Nullable String pathField, @Nullable Object path, @Nullable Schema projectedSchema) {
       this.delegate = delegate;
       this.pathField = pathField;
       this.path = path;
+      this.projectedSchema = projectedSchema;
     }
 
     @Override
@@ -104,7 +153,15 @@ public abstract class PathTrackingInputFormat extends FileInputFormat<NullWritab
       if (pathField != null) {
         recordBuilder.set(pathField, path);
       }
-      return recordBuilder.build();
+      if (projectedSchema == null) {
+        return recordBuilder.build();
+      }
+      StructuredRecord record = recordBuilder.build();
+      StructuredRecord.Builder projected = StructuredRecord.builder(projectedSchema);
+      for (Schema.Field field : projectedSchema.getFields()) {
+        projected.set(field.getName(), record.get(field.getName()));
+      }
+      return projected.build();
     }
 
     @Override
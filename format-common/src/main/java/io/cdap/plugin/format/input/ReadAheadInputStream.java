@@ -0,0 +1,419 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.input;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PositionedReadable;
+import org.apache.hadoop.fs.Seekable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import javax.annotation.Nullable;
+
+/**
+ * An input stream that reads ahead of the reader on a background thread, so that the reader does not wait on the
+ * network for every buffer it reads from a high latency file system.
+ *
+ * A fixed ring of buffers is filled with the bytes that follow the current position, as long as it is within a
+ * range of the file, which is usually the split. Bytes outside of the range, such as the header of a file that is
+ * read by every split, are read directly from the file. Reading ahead starts with the first read in the range.
+ * Seeking within the current buffer is free, while seeking anywhere else discards the buffers, and reading ahead
+ * starts again at the new position. Positioned reads go directly to the file.
+ */
+public class ReadAheadInputStream extends InputStream implements Seekable, PositionedReadable {
+  static final String BUFFER_SIZE = "input.readahead.buffer.size";
+  static final String DEPTH = "input.readahead.depth";
+  static final int DEFAULT_DEPTH = 4;
+
+  // threads are shared by all streams, since a task may open a stream for each of many small files
+  private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, "input-read-ahead");
+    thread.setDaemon(true);
+    return thread;
+  });
+  // marks the end of the bytes that are read ahead
+  private static final Chunk END = new Chunk(0);
+
+  private final FSDataInputStream in;
+  private final long rangeStart;
+  private final long limit;
+  private final BlockingQueue<Chunk> free;
+  private final BlockingQueue<Chunk> filled;
+  private Future<?> prefetch;
+  private volatile boolean stopped;
+  // set by the background thread if reading ahead failed
+  private volatile IOException error;
+  // position of the next byte read by the background thread
+  private long fetchPosition;
+  private Chunk current;
+  private int offset;
+  private long pos;
+
+  private ReadAheadInputStream(FSDataInputStream in, long rangeStart, long limit,
+                              int bufferSize, int depth) throws IOException {
+    this.in = in;
+    this.rangeStart = rangeStart;
+    this.limit = limit;
+    this.free = new LinkedBlockingQueue<>();
+    this.filled = new LinkedBlockingQueue<>();
+    // small files, or the small splits of a combined split, do not need full sized buffers
+    int chunkSize = (int) Math.max(1L, Math.min(bufferSize, limit - rangeStart));
+    for (int i = 0; i < depth; i++) {
+      free.add(new Chunk(chunkSize));
+    }
+    this.pos = in.getPos();
+  }
+
+  /**
+   * Configures read-ahead for input files.
+   *
+   * @param conf the configuration of the job
+   * @param bufferSize the size of each buffer in bytes, or null to disable read-ahead
+   * @param depth the number of buffers to read ahead
+   */
+  public static void configure(Configuration conf, @Nullable Long bufferSize, int depth) {
+    if (bufferSize == null) {
+      conf.unset(BUFFER_SIZE);
+      return;
+    }
+    if (bufferSize < 1 || bufferSize > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException(
+        String.format("The read-ahead buffer size must be between 1 and %d bytes, but is %d.",
+                      Integer.MAX_VALUE, bufferSize));
+    }
+    if (depth < 1) {
+      throw new IllegalArgumentException(
+        String.format("The read-ahead depth must be at least 1, but is %d.", depth));
+    }
+    conf.setInt(BUFFER_SIZE, bufferSize.intValue());
+    conf.setInt(DEPTH, depth);
+  }
+
+  /**
+   * Whether input files should be read ahead.
+   */
+  public static boolean isEnabled(Configuration conf) {
+    return conf.getInt(BUFFER_SIZE, 0) > 0;
+  }
+
+  /**
+   * Opens a file positioned at the given start, reading ahead of the reader if read-ahead is enabled.
+   *
+   * @param path the file to open
+   * @param conf the configuration of the job
+   * @param start the position where bytes start to be read ahead, usually the start of the split
+   * @param limit the position after which bytes are no longer read ahead, usually the end of the split
+   */
+  public static FSDataInputStream open(Path path, Configuration conf, long start, long limit) throws IOException {
+    FileSystem fs = path.getFileSystem(conf);
+    FSDataInputStream in = fs.open(path);
+    if (start > 0) {
+      in.seek(start);
+    }
+    if (!isEnabled(conf)) {
+      return in;
+    }
+    return new FSDataInputStream(new ReadAheadInputStream(in, start, limit, conf.getInt(BUFFER_SIZE, 0),
+                                                          conf.getInt(DEPTH, DEFAULT_DEPTH)));
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!ensureData()) {
+      return current == null ? readDirect() : -1;
+    }
+    pos++;
+    return current.data[offset++] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (!ensureData()) {
+      return current == null ? readDirect(b, off, len) : -1;
+    }
+    int read = Math.min(len, current.length - offset);
+    System.arraycopy(current.data, offset, b, off, read);
+    offset += read;
+    pos += read;
+    return read;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    if (n <= 0) {
+      return 0L;
+    }
+    if (current != null && current != END && n <= current.length - offset) {
+      offset += (int) n;
+      pos += n;
+      return n;
+    }
+    return super.skip(n);
+  }
+
+  @Override
+  public int available() throws IOException {
+    return current == null || current == END ? 0 : current.length - offset;
+  }
+
+  @Override
+  public void seek(long position) throws IOException {
+    if (current != null && current != END && position >= current.start
+      && position <= current.start + current.length) {
+      offset = (int) (position - current.start);
+      pos = position;
+      return;
+    }
+    stop();
+    in.seek(position);
+    pos = position;
+  }
+
+  @Override
+  public long getPos() {
+    return pos;
+  }
+
+  @Override
+  public boolean seekToNewSource(long targetPos) {
+    return false;
+  }
+
+  @Override
+  public int read(long position, byte[] buffer, int off, int length) throws IOException {
+    // some file systems implement positioned reads with a seek, which must not race with the background thread
+    stop();
+    try {
+      return in.read(position, buffer, off, length);
+    } finally {
+      in.seek(pos);
+    }
+  }
+
+  @Override
+  public void readFully(long position, byte[] buffer, int off, int length) throws IOException {
+    stop();
+    try {
+      in.readFully(position, buffer, off, length);
+    } finally {
+      in.seek(pos);
+    }
+  }
+
+  @Override
+  public void readFully(long position, byte[] buffer) throws IOException {
+    readFully(position, buffer, 0, buffer.length);
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      stop();
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Makes sure that the current chunk has unread bytes, waiting for the background thread if needed. Reading ahead
+   * is started if the position is in the range that is read ahead.
+   *
+   * @return false if there are no bytes read ahead, in which case the current chunk is null if the file should be
+   *   read directly, or {@link #END} if the end of the file was reached
+   */
+  private boolean ensureData() throws IOException {
+    if (error != null) {
+      throw error;
+    }
+    while (current == null || current == END || offset == current.length) {
+      if (prefetch == null) {
+        if (current != null || pos < rangeStart || pos >= limit) {
+          return false;
+        }
+        start();
+        continue;
+      }
+      if (current != null && current != END) {
+        free.add(current);
+      }
+      current = take();
+      offset = 0;
+      if (current == END) {
+        awaitPrefetch();
+        prefetch = null;
+        if (error != null) {
+          // the position of the file is unknown, so every read fails until the stream is repositioned
+          current = null;
+          throw error;
+        }
+        // past the limit, the rest of the file is read directly from the position the background thread reached
+        current = fetchPosition < limit ? END : null;
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int readDirect() throws IOException {
+    int b = in.read();
+    if (b >= 0) {
+      pos++;
+    }
+    return b;
+  }
+
+  private int readDirect(byte[] b, int off, int len) throws IOException {
+    int read = in.read(b, off, len);
+    if (read > 0) {
+      pos += read;
+    }
+    return read;
+  }
+
+  private Chunk take() throws IOException {
+    try {
+      return filled.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for data to be read ahead.");
+    }
+  }
+
+  /**
+   * Starts reading ahead from the current position of the file, which must be before the limit.
+   */
+  private void start() throws IOException {
+    current = null;
+    offset = 0;
+    fetchPosition = in.getPos();
+    stopped = false;
+    prefetch = EXECUTOR.submit(this::prefetch);
+  }
+
+  /**
+   * Stops reading ahead and returns all buffers to the free list. Afterwards, the file is positioned after the last
+   * byte that was read ahead, and any error of the background thread is cleared, since the caller repositions it.
+   */
+  private void stop() throws IOException {
+    if (current != null && current != END) {
+      free.add(current);
+    }
+    current = null;
+    if (prefetch != null) {
+      stopped = true;
+      // the background thread may be waiting for a free buffer
+      filled.drainTo(free);
+      free.remove(END);
+      awaitPrefetch();
+      filled.drainTo(free);
+      free.remove(END);
+      prefetch = null;
+    }
+    error = null;
+  }
+
+  private void awaitPrefetch() throws IOException {
+    try {
+      prefetch.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for data to be read ahead.");
+    } catch (ExecutionException e) {
+      throw new IOException("Failed to read ahead.", e.getCause());
+    }
+  }
+
+  /**
+   * Fills free buffers with the bytes that follow, until the limit or the end of the file is reached.
+   * Runs on a background thread.
+   */
+  private void prefetch() {
+    try {
+      while (!stopped) {
+        if (fetchPosition >= limit) {
+          filled.add(END);
+          return;
+        }
+        Chunk chunk = free.take();
+        if (stopped) {
+          free.add(chunk);
+          return;
+        }
+        int toRead = (int) Math.min(chunk.data.length, limit - fetchPosition);
+        int read = 0;
+        try {
+          while (read < toRead) {
+            int n = in.read(chunk.data, read, toRead - read);
+            if (n < 0) {
+              break;
+            }
+            read += n;
+          }
+        } catch (IOException e) {
+          error = e;
+          free.add(chunk);
+          filled.add(END);
+          return;
+        }
+        chunk.start = fetchPosition;
+        chunk.length = read;
+        fetchPosition += read;
+        if (read > 0) {
+          filled.add(chunk);
+        } else {
+          free.add(chunk);
+        }
+        if (read < toRead) {
+          // end of file
+          filled.add(END);
+          return;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      error = new InterruptedIOException("Interrupted while reading ahead.");
+      filled.add(END);
+    }
+  }
+
+  /**
+   * A buffer of bytes read ahead.
+   */
+  private static final class Chunk {
+    private final byte[] data;
+    private long start;
+    private int length;
+
+    private Chunk(int size) {
+      this.data = new byte[size];
+    }
+  }
+}
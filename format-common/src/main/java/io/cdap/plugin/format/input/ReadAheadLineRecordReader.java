@@ -0,0 +1,209 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.input;
+
+import io.cdap.plugin.format.compress.SeekableZstdCodec;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.io.compress.SplitCompressionInputStream;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.lib.input.LineRecordReader;
+import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
+import org.apache.hadoop.util.LineReader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import javax.annotation.Nullable;
+
+/**
+ * Reads the lines of an uncompressed file split through a {@link ReadAheadInputStream}. Lines are assigned to splits
+ * the same way as by {@link LineRecordReader}: a split skips its first line unless it starts at the beginning of the
+ * file, and reads every line that starts at or before its end. A split also reads the line after a multi-byte record
+ * delimiter that straddles its end, since the next split cannot recognize the part of the delimiter it starts with,
+ * and a UTF-8 byte order mark at the start of the file is skipped.
+ *
+ * Seekable Zstandard files are read by this reader as well, since {@link LineRecordReader} cannot pass the length of
+ * the file that is needed to find their seek table. For those, positions are offsets of the frames in the compressed
+ * file, as defined by the {@link SeekableZstdCodec} stream.
+ */
+public class ReadAheadLineRecordReader extends RecordReader<LongWritable, Text> {
+  private static final byte[] UTF8_BOM = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+  private final byte[] recordDelimiter;
+  private final LongWritable key = new LongWritable();
+  private final Text value = new Text();
+  private FSDataInputStream fileIn;
+  private SplitCompressionInputStream compressedIn;
+  private LineReader in;
+  private int maxLineLength;
+  private long start;
+  private long end;
+  private long pos;
+  private boolean needAdditionalRecord;
+
+  private ReadAheadLineRecordReader(@Nullable byte[] recordDelimiter) {
+    this.recordDelimiter = recordDelimiter;
+  }
+
+  /**
+   * Creates a line reader for the given split. Hadoop's {@link LineRecordReader} is used if read-ahead is disabled or
+   * the file is compressed with a codec other than {@link SeekableZstdCodec}.
+   */
+  public static RecordReader<LongWritable, Text> create(FileSplit split, TaskAttemptContext context) {
+    Configuration conf = context.getConfiguration();
+    CompressionCodec codec = new CompressionCodecFactory(conf).getCodec(split.getPath());
+    if (!(codec instanceof SeekableZstdCodec) && (codec != null || !ReadAheadInputStream.isEnabled(conf))) {
+      return new TextInputFormat().createRecordReader(split, context);
+    }
+    String delimiter = conf.get("textinputformat.record.delimiter");
+    return new ReadAheadLineRecordReader(delimiter == null ? null : delimiter.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Override
+  public void initialize(InputSplit genericSplit, TaskAttemptContext context) throws IOException {
+    FileSplit split = (FileSplit) genericSplit;
+    Configuration conf = context.getConfiguration();
+    maxLineLength = conf.getInt(LineRecordReader.MAX_LINE_LENGTH, Integer.MAX_VALUE);
+    start = split.getStart();
+    end = start + split.getLength();
+
+    Path path = split.getPath();
+    CompressionCodec codec = new CompressionCodecFactory(conf).getCodec(path);
+    if (codec instanceof SeekableZstdCodec) {
+      // frames are read with positioned reads, which are not served by the read-ahead buffer
+      FileSystem fs = path.getFileSystem(conf);
+      long length = fs.getFileStatus(path).getLen();
+      fileIn = fs.open(path);
+      compressedIn = ((SeekableZstdCodec) codec).createInputStream(fileIn, start, end, length);
+      start = compressedIn.getAdjustedStart();
+      end = compressedIn.getAdjustedEnd();
+      in = recordDelimiter == null ? new LineReader(compressedIn, conf)
+        : new LineReader(compressedIn, conf, recordDelimiter);
+    } else {
+      fileIn = ReadAheadInputStream.open(path, conf, start, end);
+      in = recordDelimiter == null ? new LineReader(fileIn, conf) : new LineReader(fileIn, conf, recordDelimiter);
+    }
+    // the first line belongs to the previous split, which reads past its end to finish it
+    if (start != 0) {
+      start += in.readLine(new Text(), 0, maxBytesToConsume(start));
+    }
+    pos = start;
+  }
+
+  @Override
+  public boolean nextKeyValue() throws IOException {
+    key.set(pos);
+    int newSize = 0;
+    while (getFilePosition() <= end || needAdditionalRecord) {
+      if (pos == 0) {
+        newSize = readFirstLine();
+      } else {
+        newSize = in.readLine(value, maxLineLength, Math.max(maxBytesToConsume(pos), maxLineLength));
+        pos += newSize;
+      }
+      needAdditionalRecord = delimiterStraddlesEnd();
+      // lines longer than the maximum length are skipped
+      if (newSize == 0 || newSize < maxLineLength) {
+        break;
+      }
+    }
+    return newSize != 0;
+  }
+
+  /**
+   * Reads the first line of the file without its UTF-8 byte order mark, and returns the number of bytes consumed,
+   * or 0 if the file contains nothing but the mark.
+   */
+  private int readFirstLine() throws IOException {
+    int newMaxLineLength = (int) Math.min(UTF8_BOM.length + (long) maxLineLength, Integer.MAX_VALUE);
+    int newSize = in.readLine(value, newMaxLineLength, Math.max(maxBytesToConsume(pos), newMaxLineLength));
+    pos += newSize;
+    byte[] bytes = value.getBytes();
+    int length = value.getLength();
+    if (length < UTF8_BOM.length || bytes[0] != UTF8_BOM[0] || bytes[1] != UTF8_BOM[1] || bytes[2] != UTF8_BOM[2]) {
+      return newSize;
+    }
+    if (length == UTF8_BOM.length) {
+      value.clear();
+    } else {
+      value.set(value.copyBytes(), UTF8_BOM.length, length - UTF8_BOM.length);
+    }
+    return newSize == UTF8_BOM.length ? 0 : newSize;
+  }
+
+  /**
+   * Returns whether the line that was just read ended in a multi-byte record delimiter that starts before the end of
+   * the split and ends after it. The next split starts inside that delimiter, so it does not see it and skips the line
+   * after it as its partial first line, which is why this split has to read that line as well.
+   */
+  private boolean delimiterStraddlesEnd() {
+    return recordDelimiter != null && compressedIn == null && pos > end && pos - recordDelimiter.length < end;
+  }
+
+  @Override
+  public LongWritable getCurrentKey() {
+    return key;
+  }
+
+  @Override
+  public Text getCurrentValue() {
+    return value;
+  }
+
+  @Override
+  public float getProgress() throws IOException {
+    if (start == end) {
+      return 0.0f;
+    }
+    return Math.min(1.0f, (getFilePosition() - start) / (float) (end - start));
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (in != null) {
+      in.close();
+    } else if (compressedIn != null) {
+      compressedIn.close();
+    } else if (fileIn != null) {
+      fileIn.close();
+    }
+  }
+
+  /**
+   * Returns the position in the file, which is the position of the compressed stream for compressed files.
+   */
+  private long getFilePosition() throws IOException {
+    return compressedIn == null ? pos : compressedIn.getPos();
+  }
+
+  private int maxBytesToConsume(long position) {
+    // the length of a compressed line is not related to the compressed positions
+    if (compressedIn != null) {
+      return Integer.MAX_VALUE;
+    }
+    return (int) Math.max(Math.min(Integer.MAX_VALUE, end - position), maxLineLength);
+  }
+}
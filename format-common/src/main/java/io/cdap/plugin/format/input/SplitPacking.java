@@ -0,0 +1,309 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.input;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.BlockLocation;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.lib.input.CombineFileSplit;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+/**
+ * Groups input files into splits by estimated cost rather than by size alone.
+ *
+ * The cost of a file, or of a piece of a large file, is its length plus a fixed cost for opening it, so that
+ * splits made of many tiny files are not much more expensive to read than splits made of a few large ones.
+ * Pieces are packed into splits of equal capacity with best fit decreasing, first among the pieces local to a node,
+ * then among the pieces local to a rack, and finally among whatever is left. The capacity is the maximum split size,
+ * or the total cost divided by the target number of splits if one is given. Splits can also be capped in the number
+ * of files they contain.
+ */
+public final class SplitPacking {
+  static final String OPEN_COST = "input.packing.open.cost";
+  static final String MAX_FILES = "input.packing.max.files";
+  static final String TARGET_SPLITS = "input.packing.target.splits";
+  static final long DEFAULT_OPEN_COST = 4L * 1024 * 1024;
+  // hosts of a split that is not local to a single node, most bytes first
+  private static final int MAX_LOCATIONS = 3;
+
+  private SplitPacking() {
+    // no-op
+  }
+
+  /**
+   * Configures cost based packing of input splits. Packing is enabled if any of the arguments is not null.
+   *
+   * @param conf the configuration of the job
+   * @param openCost the cost of opening a file, in bytes, or null to use the default of 4MB
+   * @param maxFiles the maximum number of files in a split, or null for no limit
+   * @param targetSplits the number of splits to aim for, or null to make splits as large as the maximum split size
+   */
+  public static void configure(Configuration conf, @Nullable Long openCost, @Nullable Integer maxFiles,
+                               @Nullable Integer targetSplits) {
+    if (openCost != null && openCost < 0) {
+      throw new IllegalArgumentException(
+        String.format("The file open cost must not be negative, but is %d.", openCost));
+    }
+    if (maxFiles != null && maxFiles < 1) {
+      throw new IllegalArgumentException(
+        String.format("The maximum number of files per split must be at least 1, but is %d.", maxFiles));
+    }
+    if (targetSplits != null && targetSplits < 1) {
+      throw new IllegalArgumentException(
+        String.format("The target number of splits must be at least 1, but is %d.", targetSplits));
+    }
+    if (openCost != null) {
+      conf.setLong(OPEN_COST, openCost);
+    }
+    if (maxFiles != null) {
+      conf.setInt(MAX_FILES, maxFiles);
+    }
+    if (targetSplits != null) {
+      conf.setInt(TARGET_SPLITS, targetSplits);
+    }
+  }
+
+  /**
+   * Whether splits should be packed by this class instead of the default grouping of CombineFileInputFormat.
+   */
+  static boolean isEnabled(Configuration conf) {
+    return conf.get(OPEN_COST) != null || conf.get(MAX_FILES) != null || conf.get(TARGET_SPLITS) != null;
+  }
+
+  /**
+   * Packs the given files into splits.
+   *
+   * @param job the job to create splits for
+   * @param files the input files of the job
+   * @param splitable whether a file can be read starting from somewhere other than its beginning
+   */
+  static List<InputSplit> getSplits(JobContext job, List<FileStatus> files,
+                                    Predicate<Path> splitable) throws IOException {
+    Configuration conf = job.getConfiguration();
+    long openCost = conf.getLong(OPEN_COST, DEFAULT_OPEN_COST);
+    int maxFiles = conf.getInt(MAX_FILES, Integer.MAX_VALUE);
+    int targetSplits = conf.getInt(TARGET_SPLITS, 0);
+    long maxSplitSize = conf.getLong(FileInputFormat.SPLIT_MAXSIZE, 0L);
+
+    long capacity = maxSplitSize > 0 ? maxSplitSize : Long.MAX_VALUE;
+    if (targetSplits > 0) {
+      long totalCost = 0L;
+      for (FileStatus file : files) {
+        totalCost += file.getLen() + openCost;
+      }
+      capacity = Math.max(1L, (totalCost + targetSplits - 1) / targetSplits);
+    }
+    // large files are cut into pieces that fit into a split, but never larger than the maximum split size
+    long maxPieceSize = Math.max(1L, Math.min(capacity, maxSplitSize > 0 ? maxSplitSize : Long.MAX_VALUE));
+
+    List<Piece> pieces = new ArrayList<>();
+    for (FileStatus file : files) {
+      addPieces(pieces, file, conf, splitable.test(file.getPath()) ? maxPieceSize : Long.MAX_VALUE, openCost);
+    }
+    pieces.sort((p1, p2) -> Long.compare(p2.cost, p1.cost));
+
+    Map<String, List<Piece>> nodes = new TreeMap<>();
+    Map<String, List<Piece>> racks = new TreeMap<>();
+    for (Piece piece : pieces) {
+      for (String host : piece.hosts) {
+        nodes.computeIfAbsent(host, k -> new ArrayList<>()).add(piece);
+      }
+      for (String rack : piece.racks) {
+        racks.computeIfAbsent(rack, k -> new ArrayList<>()).add(piece);
+      }
+    }
+
+    List<InputSplit> splits = new ArrayList<>();
+    for (Map.Entry<String, List<Piece>> node : nodes.entrySet()) {
+      for (Bin bin : pack(node.getValue(), capacity, maxFiles)) {
+        if (bin.isComplete(capacity, maxFiles)) {
+          splits.add(bin.toSplit(new String[] { node.getKey() }));
+        }
+      }
+    }
+    for (List<Piece> rackPieces : racks.values()) {
+      for (Bin bin : pack(rackPieces, capacity, maxFiles)) {
+        if (bin.isComplete(capacity, maxFiles)) {
+          splits.add(bin.toSplit(bin.getLocations()));
+        }
+      }
+    }
+    for (Bin bin : pack(pieces, capacity, maxFiles)) {
+      splits.add(bin.toSplit(bin.getLocations()));
+    }
+    return splits;
+  }
+
+  /**
+   * Cuts a file into pieces of at most the given size along its blocks.
+   */
+  private static void addPieces(List<Piece> pieces, FileStatus file, Configuration conf,
+                                long maxPieceSize, long openCost) throws IOException {
+    BlockLocation[] blocks = file instanceof LocatedFileStatus
+      ? ((LocatedFileStatus) file).getBlockLocations()
+      : file.getPath().getFileSystem(conf).getFileBlockLocations(file, 0L, file.getLen());
+    if (blocks == null || blocks.length == 0 || file.getLen() <= maxPieceSize) {
+      BlockLocation first = blocks == null || blocks.length == 0 ? null : blocks[0];
+      pieces.add(new Piece(file.getPath(), 0L, file.getLen(), openCost, first));
+      return;
+    }
+    for (BlockLocation block : blocks) {
+      long offset = block.getOffset();
+      long left = Math.min(block.getLength(), file.getLen() - offset);
+      while (left > 0) {
+        // avoid leaving a tiny piece at the end of a block by cutting the last two pieces in half
+        long length = left > maxPieceSize && left < 2 * maxPieceSize ? left / 2 : Math.min(left, maxPieceSize);
+        pieces.add(new Piece(file.getPath(), offset, length, openCost, block));
+        offset += length;
+        left -= length;
+      }
+    }
+  }
+
+  /**
+   * Packs the pieces that are not part of a split yet with best fit decreasing. The pieces must be sorted by
+   * decreasing cost.
+   */
+  private static List<Bin> pack(List<Piece> pieces, long capacity, int maxFiles) {
+    List<Bin> bins = new ArrayList<>();
+    // open bins by their remaining capacity
+    TreeMap<Long, Deque<Bin>> open = new TreeMap<>();
+    for (Piece piece : pieces) {
+      if (piece.packed) {
+        continue;
+      }
+      Map.Entry<Long, Deque<Bin>> fit = open.ceilingEntry(piece.cost);
+      Bin bin;
+      if (fit == null) {
+        bin = new Bin();
+        bins.add(bin);
+      } else {
+        bin = fit.getValue().poll();
+        if (fit.getValue().isEmpty()) {
+          open.remove(fit.getKey());
+        }
+      }
+      bin.add(piece);
+      long remaining = capacity - bin.cost;
+      if (remaining > 0 && bin.pieces.size() < maxFiles) {
+        open.computeIfAbsent(remaining, k -> new ArrayDeque<>()).add(bin);
+      }
+    }
+    return bins;
+  }
+
+  /**
+   * A file or a part of a file that is read as a whole by a single task.
+   */
+  private static final class Piece {
+    private final Path path;
+    private final long start;
+    private final long length;
+    private final long cost;
+    private final String[] hosts;
+    private final Set<String> racks;
+    private boolean packed;
+
+    private Piece(Path path, long start, long length, long openCost, @Nullable BlockLocation block)
+      throws IOException {
+      this.path = path;
+      this.start = start;
+      this.length = length;
+      this.cost = length + openCost;
+      this.hosts = block == null ? new String[0] : block.getHosts();
+      this.racks = new LinkedHashSet<>();
+      if (block != null) {
+        for (String topologyPath : block.getTopologyPaths()) {
+          int index = topologyPath.lastIndexOf('/');
+          if (index > 0) {
+            racks.add(topologyPath.substring(0, index));
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * The pieces that make up a split.
+   */
+  private static final class Bin {
+    private final List<Piece> pieces = new ArrayList<>();
+    private long cost;
+
+    private void add(Piece piece) {
+      pieces.add(piece);
+      cost += piece.cost;
+    }
+
+    /**
+     * Whether the bin is full enough to be made into a split with the locality of the level it was packed at.
+     * Bins that are not are dropped and their pieces are packed again at the next level.
+     */
+    private boolean isComplete(long capacity, int maxFiles) {
+      return capacity == Long.MAX_VALUE || cost >= capacity / 2 || pieces.size() >= maxFiles;
+    }
+
+    /**
+     * Returns the hosts that hold the most bytes of the bin.
+     */
+    private String[] getLocations() {
+      Map<String, Long> bytes = new HashMap<>();
+      for (Piece piece : pieces) {
+        for (String host : piece.hosts) {
+          bytes.merge(host, piece.length, Long::sum);
+        }
+      }
+      return bytes.entrySet().stream()
+        .sorted((e1, e2) -> Long.compare(e2.getValue(), e1.getValue()))
+        .limit(MAX_LOCATIONS)
+        .map(Map.Entry::getKey)
+        .toArray(String[]::new);
+    }
+
+    private CombineFileSplit toSplit(String[] locations) {
+      Path[] paths = new Path[pieces.size()];
+      long[] starts = new long[pieces.size()];
+      long[] lengths = new long[pieces.size()];
+      for (int i = 0; i < pieces.size(); i++) {
+        Piece piece = pieces.get(i);
+        piece.packed = true;
+        paths[i] = piece.path;
+        starts[i] = piece.start;
+        lengths[i] = piece.length;
+      }
+      return new CombineFileSplit(paths, starts, lengths, locations);
+    }
+  }
+}
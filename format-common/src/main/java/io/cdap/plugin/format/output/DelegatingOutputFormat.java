@@ -18,15 +18,25 @@ package io.cdap.plugin.format.output;
 
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.dataset.lib.KeyValue;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.OutputCommitter;
 import org.apache.hadoop.mapreduce.OutputFormat;
 import org.apache.hadoop.mapreduce.RecordWriter;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputCommitter;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.function.Function;
+import javax.annotation.Nullable;
 
 /**
  * A output format that transforms a StructuredRecord into some other object, then delegates writing to another
@@ -36,13 +46,49 @@ import java.util.function.Function;
  * @param <V> output value type of the delegate
  */
 public abstract class DelegatingOutputFormat<K, V> extends OutputFormat<NullWritable, StructuredRecord> {
+  static final String ROLL_BYTES = "delegating.output.roll.bytes";
+  static final String ROLL_RECORDS = "delegating.output.roll.records";
   private OutputFormat<K, V> delegate;
 
+  /**
+   * Returns the configuration that makes each task roll over to a new file when the current one reaches a size or
+   * a number of records. Files after the first are named like the first one, with the index of the file appended
+   * to the name, for example 'part_1-m-00000.avro'.
+   *
+   * @param targetFileSize the estimated number of bytes to roll over at, or null for no limit
+   * @param maxRecordsPerFile the number of records to roll over at, or null for no limit
+   */
+  public static Map<String, String> getRollingConfiguration(@Nullable Long targetFileSize,
+                                                            @Nullable Long maxRecordsPerFile) {
+    if (targetFileSize != null && targetFileSize < 1) {
+      throw new IllegalArgumentException(
+        String.format("The target file size must be at least 1 byte, but is %d.", targetFileSize));
+    }
+    if (maxRecordsPerFile != null && maxRecordsPerFile < 1) {
+      throw new IllegalArgumentException(
+        String.format("The maximum number of records per file must be at least 1, but is %d.", maxRecordsPerFile));
+    }
+    Map<String, String> properties = new HashMap<>();
+    if (targetFileSize != null) {
+      properties.put(ROLL_BYTES, String.valueOf(targetFileSize));
+    }
+    if (maxRecordsPerFile != null) {
+      properties.put(ROLL_RECORDS, String.valueOf(maxRecordsPerFile));
+    }
+    return properties;
+  }
+
   @Override
   public RecordWriter<NullWritable, StructuredRecord> getRecordWriter(TaskAttemptContext context)
     throws IOException, InterruptedException {
-    RecordWriter<K, V> delegateWriter = getDelegate().getRecordWriter(context);
-    return new DelegatingRecordWriter<>(delegateWriter, getConversion(context));
+    Configuration conf = context.getConfiguration();
+    long targetBytes = conf.getLong(ROLL_BYTES, 0L);
+    long maxRecords = conf.getLong(ROLL_RECORDS, 0L);
+    if (targetBytes <= 0L && maxRecords <= 0L) {
+      RecordWriter<K, V> delegateWriter = getDelegate().getRecordWriter(context);
+      return new DelegatingRecordWriter<>(delegateWriter, getConversion(context));
+    }
+    return new DelegatingRecordWriter<>(new TaskFiles(context), getConversion(context), targetBytes, maxRecords);
   }
 
   @Override
@@ -66,4 +112,63 @@ public abstract class DelegatingOutputFormat<K, V> extends OutputFormat<NullWrit
 
   protected abstract Function<StructuredRecord, KeyValue<K, V>> getConversion(TaskAttemptContext context)
     throws IOException;
+
+  /**
+   * The files of a task. The first file has the name the delegate output format would use anyway, and the others
+   * have the index of the file appended to that name.
+   */
+  private class TaskFiles implements DelegatingRecordWriter.RollingFiles<K, V> {
+    private final TaskAttemptContext context;
+    private final String name;
+    // context of the file that was opened last, files are written one after the other
+    private TaskAttemptContext fileContext;
+
+    private TaskFiles(TaskAttemptContext context) {
+      this.context = context;
+      this.name = OutputNames.get(context);
+    }
+
+    @Override
+    public RecordWriter<K, V> open(int index) throws IOException, InterruptedException {
+      fileContext = index == 0 ? context : OutputNames.withName(context, name + "_" + index);
+      return getDelegate().getRecordWriter(fileContext);
+    }
+
+    @Override
+    public void close(int index, RecordWriter<K, V> writer) throws IOException, InterruptedException {
+      writer.close(fileContext);
+    }
+
+    @Override
+    public long getSize(int index) throws IOException {
+      OutputCommitter committer;
+      try {
+        committer = getDelegate().getOutputCommitter(context);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while getting the output committer.", e);
+      }
+      if (!(committer instanceof FileOutputCommitter)) {
+        return -1L;
+      }
+      // the extension is not known here, so look for the file by the name it starts with
+      Path prefix = new Path(((FileOutputCommitter) committer).getWorkPath(),
+                             FileOutputFormat.getUniqueFile(fileContext, OutputNames.get(fileContext), ""));
+      FileSystem fs = prefix.getFileSystem(context.getConfiguration());
+      FileStatus[] statuses;
+      try {
+        statuses = fs.listStatus(prefix.getParent(), path -> path.getName().startsWith(prefix.getName()));
+      } catch (FileNotFoundException e) {
+        return -1L;
+      }
+      if (statuses.length == 0) {
+        return -1L;
+      }
+      long size = 0L;
+      for (FileStatus status : statuses) {
+        size += status.getLen();
+      }
+      return size;
+    }
+  }
 }
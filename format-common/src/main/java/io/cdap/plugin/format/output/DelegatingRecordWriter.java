@@ -14,40 +14,190 @@
  * the License.
  */
 
+
 package io.cdap.plugin.format.output;
 
 import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.dataset.lib.KeyValue;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.RecordWriter;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Map;
 import java.util.function.Function;
+import javax.annotation.Nullable;
 
 /**
  * A record writer that transforms a StructuredRecord into some other object and delegates the actual write.
  *
+ * It can optionally roll over to a new file once the current file holds a number of records, or is estimated to
+ * have reached a number of bytes. The bytes of a file are estimated from the size of the values of its records,
+ * scaled by the ratio of actual file sizes to estimated sizes of the files that are already closed, so that the
+ * estimate adapts to the encoding and compression of the format.
+ *
  * @param <K> output key type of the delegate
  * @param <V> output value type of the delegate
  */
 public class DelegatingRecordWriter<K, V> extends RecordWriter<NullWritable, StructuredRecord> {
-  private final RecordWriter<K, V> delegate;
   private final Function<StructuredRecord, KeyValue<K, V>> conversion;
+  private final RollingFiles<K, V> files;
+  private final long targetBytes;
+  private final long maxRecords;
+  private RecordWriter<K, V> delegate;
+  private int fileIndex;
+  private long fileRecords;
+  private long fileEstimatedBytes;
+  private long closedBytes;
+  private long closedEstimatedBytes;
 
   public DelegatingRecordWriter(RecordWriter<K, V> delegate, Function<StructuredRecord, KeyValue<K, V>> conversion) {
     this.delegate = delegate;
     this.conversion = conversion;
+    this.files = null;
+    this.targetBytes = 0L;
+    this.maxRecords = 0L;
+  }
+
+  /**
+   * Creates a record writer that rolls over to a new file whenever one of the given limits is reached.
+   *
+   * @param files opens and closes the files to write to
+   * @param conversion converts records to the key and value of the delegate
+   * @param targetBytes the number of bytes to roll over at, or 0 for no limit
+   * @param maxRecords the number of records to roll over at, or 0 for no limit
+   */
+  DelegatingRecordWriter(RollingFiles<K, V> files, Function<StructuredRecord, KeyValue<K, V>> conversion,
+                         long targetBytes, long maxRecords) throws IOException, InterruptedException {
+    this.files = files;
+    this.conversion = conversion;
+    this.targetBytes = targetBytes;
+    this.maxRecords = maxRecords;
+    // the first file is always created, even if the task does not write any record, as without rolling
+    this.delegate = files.open(0);
   }
 
   @Override
   public void write(NullWritable key, StructuredRecord value) throws IOException, InterruptedException {
+    if (delegate == null) {
+      delegate = files.open(++fileIndex);
+    }
     KeyValue<K, V> converted = conversion.apply(value);
     delegate.write(converted.getKey(), converted.getValue());
+    if (files == null) {
+      return;
+    }
+    fileRecords++;
+    if (targetBytes > 0) {
+      fileEstimatedBytes += estimateSize(value);
+    }
+    if ((maxRecords > 0 && fileRecords >= maxRecords) || (targetBytes > 0 && getEstimatedBytes() >= targetBytes)) {
+      closeFile();
+    }
   }
 
   @Override
   public void close(TaskAttemptContext context) throws IOException, InterruptedException {
-    delegate.close(context);
+    if (files == null) {
+      delegate.close(context);
+    } else if (delegate != null) {
+      files.close(fileIndex, delegate);
+      delegate = null;
+    }
+  }
+
+  private void closeFile() throws IOException, InterruptedException {
+    files.close(fileIndex, delegate);
+    delegate = null;
+    if (targetBytes > 0) {
+      long size = files.getSize(fileIndex);
+      if (size > 0) {
+        closedBytes += size;
+        closedEstimatedBytes += fileEstimatedBytes;
+      }
+    }
+    fileRecords = 0L;
+    fileEstimatedBytes = 0L;
+  }
+
+  private long getEstimatedBytes() {
+    if (closedBytes == 0L || closedEstimatedBytes == 0L) {
+      return fileEstimatedBytes;
+    }
+    return (long) (fileEstimatedBytes * ((double) closedBytes / closedEstimatedBytes));
+  }
+
+  /**
+   * Estimates the number of bytes a value takes up when it is written, without any encoding overhead.
+   */
+  private static long estimateSize(@Nullable Object value) {
+    if (value == null || value instanceof Boolean) {
+      return 1L;
+    }
+    if (value instanceof Integer || value instanceof Float) {
+      return 4L;
+    }
+    if (value instanceof Long || value instanceof Double) {
+      return 8L;
+    }
+    if (value instanceof String) {
+      return ((String) value).length();
+    }
+    if (value instanceof byte[]) {
+      return ((byte[]) value).length;
+    }
+    if (value instanceof ByteBuffer) {
+      return ((ByteBuffer) value).remaining();
+    }
+    if (value instanceof StructuredRecord) {
+      StructuredRecord record = (StructuredRecord) value;
+      long size = 0L;
+      for (Schema.Field field : record.getSchema().getFields()) {
+        size += estimateSize(record.get(field.getName()));
+      }
+      return size;
+    }
+    if (value instanceof Collection) {
+      long size = 0L;
+      for (Object element : (Collection<?>) value) {
+        size += estimateSize(element);
+      }
+      return size;
+    }
+    if (value instanceof Map) {
+      long size = 0L;
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        size += estimateSize(entry.getKey()) + estimateSize(entry.getValue());
+      }
+      return size;
+    }
+    return value.toString().length();
+  }
+
+  /**
+   * The files a rolling record writer writes to, which are numbered from 0.
+   *
+   * @param <K> output key type of the delegate
+   * @param <V> output value type of the delegate
+   */
+  interface RollingFiles<K, V> {
+
+    /**
+     * Opens a record writer for the file with the given index.
+     */
+    RecordWriter<K, V> open(int index) throws IOException, InterruptedException;
+
+    /**
+     * Closes the record writer of the file with the given index.
+     */
+    void close(int index, RecordWriter<K, V> writer) throws IOException, InterruptedException;
+
+    /**
+     * Returns the size in bytes of the closed file with the given index, or -1 if it is not known.
+     */
+    long getSize(int index) throws IOException;
   }
 }
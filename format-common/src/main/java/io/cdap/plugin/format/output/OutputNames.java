@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.output;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+
+/**
+ * Utilities to direct the files that a task writes with an output format to other names within the work directory
+ * of the task. Files in the work directory are committed with the task, however many there are.
+ */
+final class OutputNames {
+  // same as FileOutputFormat.BASE_OUTPUT_NAME, and the output name avro uses for its files
+  private static final String BASE_OUTPUT_NAME = "mapreduce.output.basename";
+  private static final String AVRO_OUTPUT_NAME = "avro.mo.config.namedOutput";
+
+  private OutputNames() {
+    // no-op
+  }
+
+  /**
+   * Returns the name that the files of a task start with, before the task id and extension.
+   */
+  static String get(TaskAttemptContext context) {
+    return context.getConfiguration().get(BASE_OUTPUT_NAME, "part");
+  }
+
+  /**
+   * Returns a copy of the given context in which files are named after the given name, which can contain
+   * directories relative to the work directory.
+   */
+  static TaskAttemptContext withName(TaskAttemptContext context, String name) {
+    Configuration conf = new Configuration(context.getConfiguration());
+    conf.set(BASE_OUTPUT_NAME, name);
+    conf.set(AVRO_OUTPUT_NAME, name);
+    return new TaskAttemptContextImpl(conf, context.getTaskAttemptID());
+  }
+}
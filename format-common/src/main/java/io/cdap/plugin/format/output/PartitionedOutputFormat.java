@@ -0,0 +1,143 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.output;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.OutputCommitter;
+import org.apache.hadoop.mapreduce.OutputFormat;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.util.ReflectionUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * An output format that writes each record to a subdirectory of the output directory named after the values of
+ * the partition fields of the record, for example 'dt=2019-06-01/country=US/'. Writing is delegated to another
+ * output format, which is given a separate record writer for each partition. See {@link PartitionedRecordWriter}.
+ */
+public class PartitionedOutputFormat extends OutputFormat<NullWritable, StructuredRecord> {
+  static final String DELEGATE = "partitioned.output.delegate";
+  static final String FIELDS = "partitioned.output.fields";
+  static final String MAX_OPEN_WRITERS = "partitioned.output.max.open.writers";
+  static final String SORT_BUFFER = "partitioned.output.sort.buffer";
+  public static final int DEFAULT_MAX_OPEN_WRITERS = 16;
+  private OutputFormat<NullWritable, StructuredRecord> delegate;
+
+  /**
+   * Returns the configuration that partitions the output of the given output format.
+   *
+   * @param delegateClassName the class name of the output format to write each partition with
+   * @param fields the fields to partition by, in the order of the directory levels
+   * @param maxOpenWriters the maximum number of partitions a task keeps open at the same time
+   * @param sortBufferSize the number of records to buffer and sort by partition before writing them,
+   *                       or null to write records in the order they arrive
+   */
+  public static Map<String, String> getConfiguration(String delegateClassName, List<String> fields,
+                                                     int maxOpenWriters, @Nullable Integer sortBufferSize) {
+    if (fields.isEmpty()) {
+      throw new IllegalArgumentException("At least one partition field must be given.");
+    }
+    if (maxOpenWriters < 1) {
+      throw new IllegalArgumentException(
+        String.format("The maximum number of open writers must be at least 1, but is %d.", maxOpenWriters));
+    }
+    if (sortBufferSize != null && sortBufferSize < 1) {
+      throw new IllegalArgumentException(
+        String.format("The partition sort buffer size must be at least 1, but is %d.", sortBufferSize));
+    }
+    Map<String, String> properties = new HashMap<>();
+    properties.put(DELEGATE, delegateClassName);
+    properties.put(FIELDS, String.join(",", fields));
+    properties.put(MAX_OPEN_WRITERS, String.valueOf(maxOpenWriters));
+    if (sortBufferSize != null) {
+      properties.put(SORT_BUFFER, String.valueOf(sortBufferSize));
+    }
+    return properties;
+  }
+
+  /**
+   * Parses a comma separated list of partition fields, keeping their order.
+   *
+   * @return the fields, or an empty list if none are given
+   */
+  public static List<String> parseFields(@Nullable String fields) {
+    List<String> parsed = new ArrayList<>();
+    if (fields == null) {
+      return parsed;
+    }
+    for (String field : fields.split(",")) {
+      String trimmed = field.trim();
+      if (trimmed.isEmpty()) {
+        continue;
+      }
+      if (parsed.contains(trimmed)) {
+        throw new IllegalArgumentException(String.format("Partition field '%s' is given more than once.", trimmed));
+      }
+      parsed.add(trimmed);
+    }
+    return parsed;
+  }
+
+  @Override
+  public RecordWriter<NullWritable, StructuredRecord> getRecordWriter(TaskAttemptContext context)
+    throws IOException, InterruptedException {
+    Configuration conf = context.getConfiguration();
+    List<String> fields = Arrays.asList(conf.getStrings(FIELDS));
+    int maxOpenWriters = conf.getInt(MAX_OPEN_WRITERS, DEFAULT_MAX_OPEN_WRITERS);
+    int sortBufferSize = conf.getInt(SORT_BUFFER, 0);
+    return new PartitionedRecordWriter(getDelegate(conf), context, fields, maxOpenWriters, sortBufferSize);
+  }
+
+  @Override
+  public void checkOutputSpecs(JobContext context) throws IOException, InterruptedException {
+    getDelegate(context.getConfiguration()).checkOutputSpecs(context);
+  }
+
+  @Override
+  public OutputCommitter getOutputCommitter(TaskAttemptContext context) throws IOException, InterruptedException {
+    return getDelegate(context.getConfiguration()).getOutputCommitter(context);
+  }
+
+  @SuppressWarnings("unchecked")
+  private OutputFormat<NullWritable, StructuredRecord> getDelegate(Configuration conf) throws IOException {
+    if (delegate == null) {
+      String className = conf.get(DELEGATE);
+      if (className == null) {
+        throw new IllegalArgumentException(String.format("The output format to delegate to must be set with '%s'.",
+                                                         DELEGATE));
+      }
+      try {
+        delegate = (OutputFormat<NullWritable, StructuredRecord>)
+          ReflectionUtils.newInstance(conf.getClassByName(className), conf);
+      } catch (ClassNotFoundException e) {
+        throw new IOException("Unable to load output format " + className, e);
+      }
+    }
+    return delegate;
+  }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.output;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.OutputFormat;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Routes records to a record writer per partition directory.
+ *
+ * Each partition is written by a record writer of the delegate output format that is given a copy of the task
+ * context whose output name points into the partition directory, so the files end up in the work directory of the
+ * task like any other output and are committed with it. At most a fixed number of writers are open at a time.
+ * When the limit is reached, the least recently used writer is closed, and a new file is started if the partition
+ * receives more records later on. Records can optionally be buffered and sorted by partition before they are
+ * written, so that each partition is written in fewer, larger files.
+ */
+class PartitionedRecordWriter extends RecordWriter<NullWritable, StructuredRecord> {
+  // same directory name as Hive uses for null and empty partition values
+  private static final String DEFAULT_PARTITION = "__HIVE_DEFAULT_PARTITION__";
+  private static final Comparator<PendingRecord> BY_PARTITION = Comparator.comparing(pending -> pending.partition);
+
+  private final OutputFormat<NullWritable, StructuredRecord> format;
+  private final TaskAttemptContext context;
+  private final String[] fields;
+  private final String baseName;
+  private final int maxOpenWriters;
+  private final int sortBufferSize;
+  // in access order, so that the first entry is the least recently used writer
+  private final LinkedHashMap<String, PartitionWriter> writers;
+  // number of files started for each partition
+  private final Map<String, Integer> fileCounts;
+  private final List<PendingRecord> buffer;
+
+  PartitionedRecordWriter(OutputFormat<NullWritable, StructuredRecord> format, TaskAttemptContext context,
+                          List<String> fields, int maxOpenWriters, int sortBufferSize) {
+    this.format = format;
+    this.context = context;
+    this.fields = fields.toArray(new String[0]);
+    this.baseName = OutputNames.get(context);
+    this.maxOpenWriters = maxOpenWriters;
+    this.sortBufferSize = sortBufferSize;
+    this.writers = new LinkedHashMap<>(16, 0.75f, true);
+    this.fileCounts = new HashMap<>();
+    this.buffer = new ArrayList<>(Math.min(sortBufferSize, 1024));
+  }
+
+  @Override
+  public void write(NullWritable key, StructuredRecord record) throws IOException, InterruptedException {
+    String partition = getPartition(record);
+    if (sortBufferSize <= 0) {
+      getWriter(partition).write(NullWritable.get(), record);
+      return;
+    }
+    buffer.add(new PendingRecord(partition, record));
+    if (buffer.size() >= sortBufferSize) {
+      flush();
+    }
+  }
+
+  @Override
+  public void close(TaskAttemptContext context) throws IOException, InterruptedException {
+    IOException failure = null;
+    try {
+      flush();
+    } catch (IOException e) {
+      failure = e;
+    }
+    // close all writers even if some fail, so that no file is left open
+    for (PartitionWriter writer : writers.values()) {
+      try {
+        writer.close();
+      } catch (IOException e) {
+        if (failure == null) {
+          failure = e;
+        } else {
+          failure.addSuppressed(e);
+        }
+      }
+    }
+    writers.clear();
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private void flush() throws IOException, InterruptedException {
+    // the sort is stable, so records of a partition keep their order
+    buffer.sort(BY_PARTITION);
+    String current = null;
+    RecordWriter<NullWritable, StructuredRecord> writer = null;
+    for (PendingRecord pending : buffer) {
+      if (!pending.partition.equals(current)) {
+        current = pending.partition;
+        writer = getWriter(current);
+      }
+      writer.write(NullWritable.get(), pending.record);
+    }
+    buffer.clear();
+  }
+
+  private RecordWriter<NullWritable, StructuredRecord> getWriter(String partition)
+    throws IOException, InterruptedException {
+    PartitionWriter writer = writers.get(partition);
+    if (writer != null) {
+      return writer.delegate;
+    }
+    if (writers.size() >= maxOpenWriters) {
+      Iterator<PartitionWriter> eldest = writers.values().iterator();
+      PartitionWriter evicted = eldest.next();
+      eldest.remove();
+      evicted.close();
+    }
+    int fileCount = fileCounts.merge(partition, 1, Integer::sum);
+    // files of the same task in the same partition need distinct names, since the task id is the only unique part
+    String outputName = partition + "/" + (fileCount == 1 ? baseName : baseName + "-" + fileCount);
+    TaskAttemptContext partitionContext = OutputNames.withName(context, outputName);
+    writer = new PartitionWriter(format.getRecordWriter(partitionContext), partitionContext);
+    writers.put(partition, writer);
+    return writer.delegate;
+  }
+
+  private String getPartition(StructuredRecord record) {
+    StringBuilder partition = new StringBuilder();
+    for (String field : fields) {
+      if (partition.length() > 0) {
+        partition.append('/');
+      }
+      partition.append(field).append('=');
+      String stringValue = getValue(record, field);
+      if (stringValue.isEmpty()) {
+        partition.append(DEFAULT_PARTITION);
+      } else {
+        escape(stringValue, partition);
+      }
+    }
+    return partition.toString();
+  }
+
+  /**
+   * Returns the partition value of a field. Dates, times and timestamps are formatted as ISO-8601 strings, like
+   * '2019-06-01', '10:15:30' and '2019-06-01T10:15:30Z', rather than the days or microseconds they are stored as.
+   */
+  private static String getValue(StructuredRecord record, String field) {
+    Object value = record.get(field);
+    if (value == null) {
+      return "";
+    }
+    Schema schema = record.getSchema().getField(field).getSchema();
+    Schema.LogicalType logicalType = (schema.isNullable() ? schema.getNonNullable() : schema).getLogicalType();
+    if (logicalType == null) {
+      return value.toString();
+    }
+    switch (logicalType) {
+      case DATE:
+        return record.getDate(field).toString();
+      case TIME_MILLIS:
+      case TIME_MICROS:
+        return record.getTime(field).toString();
+      case TIMESTAMP_MILLIS:
+      case TIMESTAMP_MICROS:
+        return record.getTimestamp(field).toInstant().toString();
+      default:
+        return value.toString();
+    }
+  }
+
+  /**
+   * Escapes the characters that are not safe in a directory name the same way as Hive, as '%' followed by two hex
+   * digits.
+   */
+  private static void escape(String value, StringBuilder builder) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < 0x20 || c == 0x7F || "\"#%'*/:=?\\{[]^".indexOf(c) >= 0) {
+        builder.append('%').append(Character.toUpperCase(Character.forDigit(c >> 4, 16)))
+          .append(Character.toUpperCase(Character.forDigit(c & 0xF, 16)));
+      } else {
+        builder.append(c);
+      }
+    }
+  }
+
+  /**
+   * A record writer of a partition, with the context it has to be closed with.
+   */
+  private static final class PartitionWriter {
+    private final RecordWriter<NullWritable, StructuredRecord> delegate;
+    private final TaskAttemptContext context;
+
+    private PartitionWriter(RecordWriter<NullWritable, StructuredRecord> delegate, TaskAttemptContext context) {
+      this.delegate = delegate;
+      this.context = context;
+    }
+
+    private void close() throws IOException {
+      try {
+        delegate.close(context);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while closing a partition writer.", e);
+      }
+    }
+  }
+
+  /**
+   * A record waiting in the sort buffer.
+   */
+  private static final class PendingRecord {
+    private final String partition;
+    private final StructuredRecord record;
+
+    private PendingRecord(String partition, StructuredRecord record) {
+      this.partition = partition;
+      this.record = record;
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.output;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.GzipCodec;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+import org.apache.hadoop.util.ReflectionUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.Function;
+
+/**
+ * Writes each StructuredRecord as a line of text, like {@link TextOutputFormat} does for Text values, except that
+ * records are encoded straight into a reused UTF-8 buffer instead of into a String and then a Text per record.
+ * Output files are created and compressed the same way as by TextOutputFormat.
+ */
+public class StructuredTextOutputFormat extends FileOutputFormat<NullWritable, StructuredRecord> {
+  private final Function<TaskAttemptContext, RecordEncoder> encoderFactory;
+
+  /**
+   * Creates an output format that encodes records with the encoders created by the given factory.
+   *
+   * @param encoderFactory creates the encoder of a task
+   */
+  public StructuredTextOutputFormat(Function<TaskAttemptContext, RecordEncoder> encoderFactory) {
+    this.encoderFactory = encoderFactory;
+  }
+
+  @Override
+  public RecordWriter<NullWritable, StructuredRecord> getRecordWriter(TaskAttemptContext context)
+    throws IOException {
+    Configuration conf = context.getConfiguration();
+    boolean isCompressed = getCompressOutput(context);
+    CompressionCodec codec = null;
+    String extension = "";
+    if (isCompressed) {
+      codec = ReflectionUtils.newInstance(getOutputCompressorClass(context, GzipCodec.class), conf);
+      extension = codec.getDefaultExtension();
+    }
+    Path file = getDefaultWorkFile(context, extension);
+    FileSystem fs = file.getFileSystem(conf);
+    OutputStream out = fs.create(file, false);
+    if (codec != null) {
+      out = codec.createOutputStream(out);
+    }
+    return new LineWriter(out, encoderFactory.apply(context));
+  }
+
+  /**
+   * Encodes a record as a line of text, without the line terminator.
+   */
+  public interface RecordEncoder {
+
+    /**
+     * Appends the encoding of the given record to the buffer.
+     */
+    void encode(StructuredRecord record, TextBuffer buffer) throws IOException;
+  }
+
+  /**
+   * Writes each record as its encoding followed by a newline.
+   */
+  private static class LineWriter extends RecordWriter<NullWritable, StructuredRecord> {
+    private final OutputStream out;
+    private final RecordEncoder encoder;
+    private final TextBuffer buffer;
+
+    LineWriter(OutputStream out, RecordEncoder encoder) {
+      this.out = out;
+      this.encoder = encoder;
+      this.buffer = new TextBuffer();
+    }
+
+    @Override
+    public void write(NullWritable key, StructuredRecord record) throws IOException {
+      buffer.reset();
+      encoder.encode(record, buffer);
+      buffer.write('\n');
+      buffer.writeTo(out);
+    }
+
+    @Override
+    public void close(TaskAttemptContext context) throws IOException {
+      out.close();
+    }
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.output;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A growable buffer of UTF-8 encoded text that is reused across records, so that records can be encoded without
+ * building an intermediate String per record.
+ */
+public final class TextBuffer {
+  private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes();
+  private byte[] bytes = new byte[1024];
+  private int length;
+
+  /**
+   * Empties the buffer.
+   */
+  public void reset() {
+    length = 0;
+  }
+
+  /**
+   * Returns the number of bytes in the buffer.
+   */
+  public int length() {
+    return length;
+  }
+
+  /**
+   * Drops everything after the first {@code length} bytes, for example to undo a partially encoded value.
+   */
+  public void truncate(int length) {
+    if (length < 0 || length > this.length) {
+      throw new IndexOutOfBoundsException(String.format("Cannot truncate %d bytes to %d.", this.length, length));
+    }
+    this.length = length;
+  }
+
+  /**
+   * Appends a single byte, which must be an ASCII character to keep the buffer valid UTF-8.
+   */
+  public void write(int b) {
+    ensureCapacity(1);
+    bytes[length++] = (byte) b;
+  }
+
+  /**
+   * Appends encoded bytes.
+   */
+  public void write(byte[] b) {
+    ensureCapacity(b.length);
+    System.arraycopy(b, 0, bytes, length, b.length);
+    length += b.length;
+  }
+
+  /**
+   * Appends the UTF-8 encoding of the given characters.
+   */
+  public void writeUtf8(CharSequence chars) {
+    writeUtf8(chars, 0, chars.length());
+  }
+
+  /**
+   * Appends the UTF-8 encoding of the characters from {@code start} to {@code end}, exclusive. Unpaired surrogates
+   * are replaced by '?', the same as {@link String#getBytes(java.nio.charset.Charset)} does.
+   */
+  public void writeUtf8(CharSequence chars, int start, int end) {
+    // at most 3 bytes per char, surrogate pairs take 4 bytes for 2 chars
+    ensureCapacity(3 * (end - start));
+    byte[] buf = bytes;
+    int pos = length;
+    for (int i = start; i < end; i++) {
+      char c = chars.charAt(i);
+      if (c < 0x80) {
+        buf[pos++] = (byte) c;
+      } else if (c < 0x800) {
+        buf[pos++] = (byte) (0xC0 | (c >> 6));
+        buf[pos++] = (byte) (0x80 | (c & 0x3F));
+      } else if (Character.isSurrogate(c)) {
+        int codePoint = -1;
+        if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(chars.charAt(i + 1))) {
+          codePoint = Character.toCodePoint(c, chars.charAt(++i));
+        }
+        if (codePoint < 0) {
+          buf[pos++] = '?';
+        } else {
+          buf[pos++] = (byte) (0xF0 | (codePoint >> 18));
+          buf[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+          buf[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+          buf[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+        }
+      } else {
+        buf[pos++] = (byte) (0xE0 | (c >> 12));
+        buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        buf[pos++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+    length = pos;
+  }
+
+  /**
+   * Appends the decimal digits of the given value, the same as {@link Long#toString(long)} but without creating a
+   * String.
+   */
+  public void writeLong(long value) {
+    if (value == Long.MIN_VALUE) {
+      // cannot be negated
+      write(MIN_LONG);
+      return;
+    }
+    ensureCapacity(20);
+    if (value < 0) {
+      bytes[length++] = '-';
+      value = -value;
+    }
+    int digits = 1;
+    for (long rest = value / 10; rest > 0; rest /= 10) {
+      digits++;
+    }
+    int pos = length + digits;
+    length = pos;
+    do {
+      bytes[--pos] = (byte) ('0' + (value % 10));
+      value /= 10;
+    } while (value > 0);
+  }
+
+  /**
+   * Returns a copy of the content of the buffer.
+   */
+  public byte[] toByteArray() {
+    return Arrays.copyOf(bytes, length);
+  }
+
+  /**
+   * Writes the content of the buffer to the given stream.
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    out.write(bytes, 0, length);
+  }
+
+  private void ensureCapacity(int extra) {
+    int required = length + extra;
+    if (required > bytes.length) {
+      bytes = Arrays.copyOf(bytes, Math.max(required, bytes.length * 2));
+    }
+  }
+}
@@ -29,6 +29,9 @@ import io.cdap.cdap.etl.api.batch.BatchSinkContext;
 import io.cdap.plugin.common.LineageRecorder;
 import io.cdap.plugin.common.batch.sink.SinkOutputFormatProvider;
 import io.cdap.plugin.format.FileFormat;
+import io.cdap.plugin.format.compress.TextCompression;
+import io.cdap.plugin.format.output.DelegatingOutputFormat;
+import io.cdap.plugin.format.output.PartitionedOutputFormat;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 
@@ -64,6 +67,14 @@ public abstract class AbstractFileSink<T extends PluginConfig & FileSinkProperti
       throw new IllegalArgumentException(String.format("Could not find the '%s' output format plugin.",
                                                        format.name().toLowerCase()));
     }
+
+    Schema schema = config.getSchema();
+    if (schema == null) {
+      schema = pipelineConfigurer.getStageConfigurer().getInputSchema();
+    }
+    if (schema != null) {
+      validatePartitionFields(schema);
+    }
   }
 
   @Override
@@ -87,12 +98,28 @@ public abstract class AbstractFileSink<T extends PluginConfig & FileSinkProperti
     }
 
     Map<String, String> outputProperties = new HashMap<>(outputFormatProvider.getOutputFormatConfiguration());
+    if (TextCompression.supports(config.getFormat())) {
+      outputProperties.putAll(TextCompression.from(config.getCompressionCodec()).getOutputConfiguration());
+    }
+    outputProperties.putAll(DelegatingOutputFormat.getRollingConfiguration(config.getTargetFileSize(),
+                                                                           config.getMaxRecordsPerFile()));
     outputProperties.putAll(getFileSystemProperties(context));
     outputProperties.put(FileOutputFormat.OUTDIR, getOutputDir(context.getLogicalStartTime()));
 
+    String outputFormatClassName = outputFormatProvider.getOutputFormatClassName();
+    List<String> partitionFields = config.getPartitionFields();
+    if (!partitionFields.isEmpty()) {
+      if (schema != null) {
+        validatePartitionFields(schema);
+      }
+      outputProperties.putAll(PartitionedOutputFormat.getConfiguration(outputFormatClassName, partitionFields,
+                                                                       config.getMaxOpenWriters(),
+                                                                       config.getPartitionSortBufferSize()));
+      outputFormatClassName = PartitionedOutputFormat.class.getName();
+    }
+
     context.addOutput(Output.of(config.getReferenceName(),
-                                new SinkOutputFormatProvider(outputFormatProvider.getOutputFormatClassName(),
-                                                             outputProperties)));
+                                new SinkOutputFormatProvider(outputFormatClassName, outputProperties)));
   }
 
   @Override
@@ -117,6 +144,23 @@ public abstract class AbstractFileSink<T extends PluginConfig & FileSinkProperti
                                 outputFields);
   }
 
+  private void validatePartitionFields(Schema schema) {
+    for (String partitionField : config.getPartitionFields()) {
+      Schema.Field field = schema.getField(partitionField);
+      if (field == null) {
+        throw new IllegalArgumentException(
+          String.format("Partition field '%s' is not present in the schema.", partitionField));
+      }
+      Schema fieldSchema = field.getSchema().isNullable() ? field.getSchema().getNonNullable() : field.getSchema();
+      Schema.Type type = fieldSchema.getType();
+      if (!type.isSimpleType() || type == Schema.Type.BYTES || type == Schema.Type.NULL) {
+        throw new IllegalArgumentException(
+          String.format("Partition field '%s' must be of type boolean, int, long, float, double, string, "
+                          + "date, time or timestamp, but found '%s'.", partitionField, type));
+      }
+    }
+  }
+
   private String getOutputDir(long logicalStartTime) {
     String suffix = config.getSuffix();
     String timeSuffix = suffix == null || suffix.isEmpty() ? "" : new SimpleDateFormat(suffix).format(logicalStartTime);
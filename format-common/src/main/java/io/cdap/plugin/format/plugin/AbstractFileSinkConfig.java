@@ -22,9 +22,13 @@ import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.plugin.PluginConfig;
 import io.cdap.plugin.common.IdUtils;
 import io.cdap.plugin.format.FileFormat;
+import io.cdap.plugin.format.compress.TextCompression;
+import io.cdap.plugin.format.output.PartitionedOutputFormat;
 
 import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.List;
 import javax.annotation.Nullable;
 
 /**
@@ -42,8 +46,8 @@ public abstract class AbstractFileSinkConfig extends PluginConfig implements Fil
     "If not specified, nothing will be appended to the path.")
   private String suffix;
 
-  @Description("The format to write in. The format must be one of 'json', 'avro', 'parquet', 'csv', 'tsv', "
-    + "or 'delimited'.")
+  @Description("The format to write in. The format must be one of 'json', 'arrow', 'avro', 'orc', 'parquet', 'csv', "
+    + "'tsv', or 'delimited'.")
   private String format;
 
   @Macro
@@ -57,6 +61,109 @@ public abstract class AbstractFileSinkConfig extends PluginConfig implements Fil
   @Description("The schema of the data to write.")
   private String schema;
 
+  @Macro
+  @Nullable
+  @Description("Number of bytes in each stripe if the format is 'orc'. Larger stripes allow for larger, more "
+    + "efficient reads, but require more memory while writing. The default value is 64MB.")
+  private Long stripeSize;
+
+  @Macro
+  @Nullable
+  @Description("Number of rows between row index entries if the format is 'orc'. Readers can skip row groups of "
+    + "this many rows when filtering. The value must be at least 1000. The default value is 10000.")
+  private Long indexStride;
+
+  @Macro
+  @Nullable
+  @Description("Comma separated list of the columns to create bloom filters for if the format is 'orc'. "
+    + "Bloom filters let readers skip row groups when filtering on equality.")
+  private String bloomFilterColumns;
+
+  @Macro
+  @Nullable
+  @Description("Maximum ratio of distinct values to the number of values in a string column for dictionary "
+    + "encoding to be used if the format is 'orc'. A value of 0 disables dictionary encoding. "
+    + "The default value is 0.8.")
+  private Double dictionaryKeyThreshold;
+
+  @Macro
+  @Nullable
+  @Description("Number of bytes in each row group if the format is 'parquet'. Larger row groups allow for larger, "
+    + "more efficient reads, but require more memory while writing. The default value is 128MB.")
+  private Long rowGroupSize;
+
+  @Macro
+  @Nullable
+  @Description("Number of bytes in each page if the format is 'parquet'. The default value is 1MB.")
+  private Integer pageSize;
+
+  @Macro
+  @Nullable
+  @Description("Maximum number of bytes in the dictionary of a column chunk if the format is 'parquet'. Columns whose "
+    + "dictionary grows larger than this fall back to plain encoding. The default value is 1MB.")
+  private Integer dictionaryPageSize;
+
+  @Macro
+  @Nullable
+  @Description("Whether to dictionary encode columns if the format is 'parquet'. The default value is true.")
+  private Boolean enableDictionary;
+
+  @Macro
+  @Nullable
+  @Description("Version of the data pages to write if the format is 'parquet'. Must be 'v1' or 'v2'. "
+    + "The default value is 'v1'.")
+  private String writerVersion;
+
+  @Macro
+  @Nullable
+  @Description("Number of records in each record batch if the format is 'arrow'. Larger batches are faster to write "
+    + "and read, but require more memory while writing. The default value is 4096.")
+  private Integer recordBatchSize;
+
+  @Macro
+  @Nullable
+  @Description("Compression codec to use if the format is 'csv', 'delimited', 'json' or 'tsv'. Supported codecs are "
+    + "'none', 'gzip', 'bzip2' and 'zstd'. Files compressed with 'bzip2' or 'zstd' can be split when they are read. "
+    + "The codec will be ignored for other formats. The default value is 'none'.")
+  private String compressionCodec;
+
+  @Macro
+  @Nullable
+  @Description("Size in bytes at which each task starts a new file, unless the format is 'orc'. The size of a file is "
+    + "estimated while it is written, from the size of its values and the sizes of the files the task has already "
+    + "written, so files can be somewhat larger or smaller. If not specified, files are not rolled by size.")
+  private Long targetFileSize;
+
+  @Macro
+  @Nullable
+  @Description("Number of records at which each task starts a new file, unless the format is 'orc'. "
+    + "If not specified, files are not rolled by number of records.")
+  private Long maxRecordsPerFile;
+
+  @Macro
+  @Nullable
+  @Description("Comma separated list of the fields to partition the output by. Each record is written to a "
+    + "subdirectory of the output directory named after the values of these fields, for example "
+    + "'dt=2019-06-01/country=US'. Partition fields must be of type boolean, int, long, float, double, string, "
+    + "date, time or timestamp. Dates, times and timestamps are written as ISO-8601 strings. "
+    + "If not specified, all records are written to the output directory.")
+  private String partitionFields;
+
+  @Macro
+  @Nullable
+  @Description("Maximum number of partitions that each task writes to at the same time when partition fields are "
+    + "given. When a task receives a record for another partition, the file of the least recently written partition "
+    + "is closed, and a new file is started if that partition receives more records. The default value is 16.")
+  private Integer maxOpenWriters;
+
+  @Macro
+  @Nullable
+  @Description("Number of records that each task buffers and sorts by partition before writing them when partition "
+    + "fields are given. Sorting groups the records of a partition together, so that fewer, larger files are written "
+    + "for each partition, at the cost of keeping the buffered records in memory. If not specified, records are "
+    + "written in the order they are received.")
+  private Integer partitionSortBufferSize;
+
   public void validate() {
     IdUtils.validateId(referenceName);
     if (suffix != null && !containsMacro("suffix")) {
@@ -66,6 +173,63 @@ public abstract class AbstractFileSinkConfig extends PluginConfig implements Fil
       getFormat();
     }
     getSchema();
+    if (!containsMacro("compressionCodec")) {
+      TextCompression.from(compressionCodec);
+    }
+    if (!containsMacro("targetFileSize") && targetFileSize != null && targetFileSize < 1) {
+      throw new IllegalArgumentException(
+        String.format("Invalid target file size %d. It must be at least 1 byte.", targetFileSize));
+    }
+    if (!containsMacro("maxRecordsPerFile") && maxRecordsPerFile != null && maxRecordsPerFile < 1) {
+      throw new IllegalArgumentException(
+        String.format("Invalid maximum records per file %d. It must be at least 1.", maxRecordsPerFile));
+    }
+    if (!containsMacro("partitionFields")) {
+      getPartitionFields();
+    }
+    if (!containsMacro("maxOpenWriters") && getMaxOpenWriters() < 1) {
+      throw new IllegalArgumentException(
+        String.format("Invalid maximum open writers %d. It must be at least 1.", getMaxOpenWriters()));
+    }
+    if (!containsMacro("partitionSortBufferSize") && partitionSortBufferSize != null && partitionSortBufferSize < 1) {
+      throw new IllegalArgumentException(
+        String.format("Invalid partition sort buffer size %d. It must be at least 1.", partitionSortBufferSize));
+    }
+  }
+
+  @Nullable
+  @Override
+  public Long getTargetFileSize() {
+    return targetFileSize;
+  }
+
+  @Nullable
+  @Override
+  public Long getMaxRecordsPerFile() {
+    return maxRecordsPerFile;
+  }
+
+  @Override
+  public List<String> getPartitionFields() {
+    return containsMacro("partitionFields") ? Collections.emptyList() :
+      PartitionedOutputFormat.parseFields(partitionFields);
+  }
+
+  @Override
+  public int getMaxOpenWriters() {
+    return maxOpenWriters == null ? PartitionedOutputFormat.DEFAULT_MAX_OPEN_WRITERS : maxOpenWriters;
+  }
+
+  @Nullable
+  @Override
+  public Integer getPartitionSortBufferSize() {
+    return partitionSortBufferSize;
+  }
+
+  @Nullable
+  @Override
+  public String getCompressionCodec() {
+    return compressionCodec;
   }
 
   @Override
@@ -31,7 +31,13 @@ import io.cdap.plugin.common.SourceInputFormatProvider;
 import io.cdap.plugin.common.batch.JobUtils;
 import io.cdap.plugin.format.FileFormat;
 import io.cdap.plugin.format.RegexPathFilter;
+import io.cdap.plugin.format.SchemaProjection;
+import io.cdap.plugin.format.compress.SeekableZstdCodec;
 import io.cdap.plugin.format.input.EmptyInputFormat;
+import io.cdap.plugin.format.input.FileIds;
+import io.cdap.plugin.format.input.FileListing;
+import io.cdap.plugin.format.input.ReadAheadInputStream;
+import io.cdap.plugin.format.input.SplitPacking;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
@@ -44,8 +50,10 @@ import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 
 /**
  * Common logic for a source that reads from a Hadoop FileSystem. Supports functionality that is common across any
@@ -85,23 +93,31 @@ public abstract class AbstractFileSource<T extends PluginConfig & FileSourceProp
     }
 
     String pathField = config.getPathField();
+    boolean useFileIds = config.getFileIdManifest() != null;
+    if (useFileIds && pathField == null) {
+      throw new IllegalArgumentException("A path field must be given in order to emit file ids.");
+    }
     if (pathField != null && schema != null) {
+      String expectedType = useFileIds ? "int" : "string";
       Schema.Field schemaPathField = schema.getField(pathField);
       if (schemaPathField == null) {
         throw new IllegalArgumentException(
-          String.format("Path field '%s' is not present in the schema. Please add it to the schema as a string field.",
-                        pathField));
+          String.format("Path field '%s' is not present in the schema. Please add it to the schema as %s %s field.",
+                        pathField, useFileIds ? "an" : "a", expectedType));
       }
       Schema pathFieldSchema = schemaPathField.getSchema();
       Schema.Type pathFieldType = pathFieldSchema.isNullable() ? pathFieldSchema.getNonNullable().getType() :
         pathFieldSchema.getType();
-      if (pathFieldType != Schema.Type.STRING) {
+      if (pathFieldType != (useFileIds ? Schema.Type.INT : Schema.Type.STRING)) {
         throw new IllegalArgumentException(
-          String.format("Path field '%s' must be of type 'string', but found '%s'.", pathField, pathFieldType));
+          String.format("Path field '%s' must be of type '%s', but found '%s'.", pathField, expectedType,
+                        pathFieldType));
       }
     }
 
-    pipelineConfigurer.getStageConfigurer().setOutputSchema(config.getSchema());
+    // the fields that records are projected to are not known until the macro is evaluated at runtime
+    Schema outputSchema = config.containsMacro("requiredFields") ? null : getOutputSchema();
+    pipelineConfigurer.getStageConfigurer().setOutputSchema(outputSchema);
   }
 
   @Override
@@ -120,7 +136,7 @@ public abstract class AbstractFileSource<T extends PluginConfig & FileSourceProp
     }
     FileInputFormat.setInputDirRecursive(job, config.shouldReadRecursively());
 
-    Schema schema = config.getSchema();
+    Schema schema = getOutputSchema();
     LineageRecorder lineageRecorder = new LineageRecorder(context, config.getReferenceName());
     lineageRecorder.createExternalDataset(schema);
 
@@ -154,6 +170,15 @@ public abstract class AbstractFileSource<T extends PluginConfig & FileSourceProp
       for (Map.Entry<String, String> propertyEntry : inputFormatProvider.getInputFormatConfiguration().entrySet()) {
         hConf.set(propertyEntry.getKey(), propertyEntry.getValue());
       }
+      Set<String> requiredFields = config.getRequiredFields();
+      if (requiredFields != null) {
+        SchemaProjection.configure(hConf, requiredFields);
+      }
+      FileListing.configure(hConf, config.getListingThreads());
+      SeekableZstdCodec.register(hConf);
+      ReadAheadInputStream.configure(hConf, config.getReadAheadBufferSize(), config.getReadAheadDepth());
+      SplitPacking.configure(hConf, config.getFileOpenCost(), config.getMaxFilesPerSplit(), config.getTargetSplits());
+      FileIds.configure(hConf, config.getFileIdManifest());
     }
 
     // set entries here again, in case anything set by PathTrackingInputFormat should be overridden
@@ -170,6 +195,19 @@ public abstract class AbstractFileSource<T extends PluginConfig & FileSourceProp
     emitter.emit(input.getValue());
   }
 
+  /**
+   * Returns the schema of the records emitted by this source, which only contains the required fields if there are any.
+   */
+  @Nullable
+  private Schema getOutputSchema() {
+    Schema schema = config.getSchema();
+    Set<String> requiredFields = config.getRequiredFields();
+    if (schema == null || requiredFields == null) {
+      return schema;
+    }
+    return SchemaProjection.project(schema, requiredFields, config.getPathField());
+  }
+
   /**
    * Override this to provide any additional Configuration properties that are required by the FileSystem.
    * For example, if the FileSystem requires setting properties for credentials, those should be returned by
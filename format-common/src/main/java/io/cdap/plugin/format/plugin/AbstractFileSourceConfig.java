@@ -23,7 +23,9 @@ import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.plugin.PluginConfig;
 import io.cdap.plugin.common.IdUtils;
 import io.cdap.plugin.format.FileFormat;
+import io.cdap.plugin.format.SchemaProjection;
 
+import java.util.Set;
 import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 
@@ -47,8 +49,8 @@ public abstract class AbstractFileSourceConfig extends PluginConfig implements F
 
   @Macro
   @Nullable
-  @Description("Format of the data to read. Supported formats are 'avro', 'blob', 'csv', 'delimited', 'json', "
-    + "'parquet', 'text', or 'tsv'. ")
+  @Description("Format of the data to read. Supported formats are 'arrow', 'avro', 'blob', 'csv', 'delimited', "
+    + "'json', 'orc', 'parquet', 'text', or 'tsv'. ")
   private String format;
 
   @Nullable
@@ -57,6 +59,25 @@ public abstract class AbstractFileSourceConfig extends PluginConfig implements F
   @Macro
   private Long maxSplitSize;
 
+  @Macro
+  @Nullable
+  @Description("Cost in bytes of opening a file when grouping files into partitions. When this, the maximum number of "
+    + "files per partition or the target number of partitions is set, files are grouped by their size plus this "
+    + "cost, so that partitions of many small files are not much more expensive to read than others. "
+    + "The default is 4MB.")
+  private Long fileOpenCost;
+
+  @Macro
+  @Nullable
+  @Description("Maximum number of files in each partition. If not specified, there is no limit.")
+  private Integer maxFilesPerSplit;
+
+  @Macro
+  @Nullable
+  @Description("Number of partitions to aim for. When set, partitions are sized so that their total cost is spread "
+    + "evenly over about this many partitions, instead of being as large as the maximum split size.")
+  private Integer targetSplits;
+
   @Nullable
   @Description("Whether to allow an input that does not exist. When false, the source will fail the run if the input "
     + "does not exist. When true, the run will not fail and the source will not generate any output. "
@@ -79,17 +100,80 @@ public abstract class AbstractFileSourceConfig extends PluginConfig implements F
     + "The default value is false.")
   private Boolean filenameOnly;
 
+  @Macro
   @Nullable
-  @Description("Output schema for the source. Formats like 'avro' and 'parquet' require a schema in order to "
+  @Description("Path of a file to write the mapping from file ids to file paths to. When set, the path field "
+    + "contains a compact int id of the file the record was read from instead of its path, and the path field must "
+    + "exist in the output schema as an int. Ids are assigned in the order of the file paths, and the file is "
+    + "overwritten with one tab separated id and path per line every time the pipeline runs.")
+  private String fileIdManifest;
+
+  @Nullable
+  @Description("Output schema for the source. Formats like 'avro', 'orc' and 'parquet' require a schema in order to "
     + "read the data.")
   private String schema;
 
+  @Macro
+  @Nullable
+  @Description("Comma separated list of the fields in the schema to read. Only these fields, and the path field, "
+    + "will be included in output records. The 'arrow', 'avro', 'csv', 'delimited', 'json', 'orc', 'parquet' and "
+    + "'tsv' formats skip over the other fields without decoding them. If no value is given, all fields are read.")
+  private String requiredFields;
+
   @Macro
   @Nullable
   @Description("The delimiter to use if the format is 'delimited'. The delimiter will be ignored if the format "
     + "is anything other than 'delimited'.")
   private String delimiter;
 
+  @Macro
+  @Nullable
+  @Description("Whether to treat content between quotes as a value if the format is 'csv', 'delimited' or 'tsv'. "
+    + "Quoted values may contain the delimiter and newlines, and a quote inside a quoted value is escaped by "
+    + "doubling it. Files are not split when this is enabled. The default value is false.")
+  private Boolean enableQuotedValues;
+
+  @Macro
+  @Nullable
+  @Description("Whether each file contains a single json array of records if the format is 'json'. "
+    + "When false, every line is expected to contain one json record. "
+    + "Files are not split when this is enabled. The default value is false.")
+  private Boolean jsonArray;
+
+  @Macro
+  @Nullable
+  @Description("Number of bytes in each record if the format is 'blob'. When given, files are read as a sequence of "
+    + "chunks of this size, along with the offset and CRC32 checksum of each chunk, so that files larger than 2GB "
+    + "can be read and split across tasks. If not specified, every file is read into a single record.")
+  private Long chunkSize;
+
+  @Macro
+  @Nullable
+  @Description("Expression that records must match in order to be read if the format is 'orc' or "
+    + "'parquet', such as \"day = '2019-06-01' AND status IN (200, 204)\". Stripes and row groups whose statistics "
+    + "show that no record can match are skipped without being read. The filter will be ignored for other formats.")
+  private String filter;
+
+  @Macro
+  @Nullable
+  @Description("Number of threads to list the input directories with. Listing directories in parallel speeds up "
+    + "planning when the input contains many directories, for example when reading recursively. The default is 1.")
+  private Integer listingThreads;
+
+  @Macro
+  @Nullable
+  @Description("Size in bytes of each buffer to read input files ahead with. When set, the bytes that follow the "
+    + "current position of a split are read on a background thread while records are parsed, which improves "
+    + "throughput on high latency storage. The formats 'avro', 'blob', 'csv', 'delimited', 'json', 'text' and 'tsv' "
+    + "support read-ahead, except for compressed files read line by line. If not specified, files are not read "
+    + "ahead.")
+  private Long readAheadBufferSize;
+
+  @Macro
+  @Nullable
+  @Description("Number of buffers to read ahead when a read-ahead buffer size is given. The default is 4.")
+  private Integer readAheadDepth;
+
   // this is a hidden property that only exists for wrangler's parse-as-csv that uses the header as the schema
   // when this is true and the format is text, the header will be the first record returned by every record reader
   @Nullable
@@ -102,7 +186,11 @@ public abstract class AbstractFileSourceConfig extends PluginConfig implements F
     ignoreNonExistingFolders = false;
     recursive = false;
     filenameOnly = false;
+    enableQuotedValues = false;
+    jsonArray = false;
     copyHeader = false;
+    listingThreads = 1;
+    readAheadDepth = 4;
   }
 
   public void validate() {
@@ -116,6 +204,38 @@ public abstract class AbstractFileSourceConfig extends PluginConfig implements F
     if (!containsMacro("schema")) {
       getSchema();
     }
+
+    if (!containsMacro("fileOpenCost") && fileOpenCost != null && fileOpenCost < 0) {
+      throw new IllegalArgumentException(
+        String.format("Invalid file open cost %d. The file open cost must not be negative.", fileOpenCost));
+    }
+    if (!containsMacro("maxFilesPerSplit") && maxFilesPerSplit != null && maxFilesPerSplit < 1) {
+      throw new IllegalArgumentException(
+        String.format("Invalid maximum files per split %d. It must be at least 1.", maxFilesPerSplit));
+    }
+    if (!containsMacro("targetSplits") && targetSplits != null && targetSplits < 1) {
+      throw new IllegalArgumentException(
+        String.format("Invalid target splits %d. It must be at least 1.", targetSplits));
+    }
+    if (!containsMacro("readAheadBufferSize") && readAheadBufferSize != null
+      && (readAheadBufferSize < 1 || readAheadBufferSize > Integer.MAX_VALUE)) {
+      throw new IllegalArgumentException(
+        String.format("Invalid read-ahead buffer size %d. It must be between 1 and %d bytes.",
+                      readAheadBufferSize, Integer.MAX_VALUE));
+    }
+    if (!containsMacro("chunkSize") && chunkSize != null && (chunkSize < 1 || chunkSize > Integer.MAX_VALUE)) {
+      throw new IllegalArgumentException(
+        String.format("Invalid chunk size %d. It must be between 1 and %d bytes.", chunkSize, Integer.MAX_VALUE));
+    }
+    if (!containsMacro("readAheadDepth") && getReadAheadDepth() < 1) {
+      throw new IllegalArgumentException(
+        String.format("Invalid read-ahead depth %d. It must be at least 1.", getReadAheadDepth()));
+    }
+    if (!containsMacro("listingThreads") && getListingThreads() < 1) {
+      throw new IllegalArgumentException(
+        String.format("Invalid listing threads %d. The number of listing threads must be at least 1.",
+                      getListingThreads()));
+    }
   }
 
   @Override
@@ -139,6 +259,24 @@ public abstract class AbstractFileSourceConfig extends PluginConfig implements F
     return maxSplitSize;
   }
 
+  @Nullable
+  @Override
+  public Long getFileOpenCost() {
+    return fileOpenCost;
+  }
+
+  @Nullable
+  @Override
+  public Integer getMaxFilesPerSplit() {
+    return maxFilesPerSplit;
+  }
+
+  @Nullable
+  @Override
+  public Integer getTargetSplits() {
+    return targetSplits;
+  }
+
   @Override
   public boolean shouldAllowEmptyInput() {
     return ignoreNonExistingFolders;
@@ -169,6 +307,34 @@ public abstract class AbstractFileSourceConfig extends PluginConfig implements F
     }
   }
 
+  @Nullable
+  @Override
+  public Set<String> getRequiredFields() {
+    return containsMacro("requiredFields") ? null : SchemaProjection.parseFields(requiredFields);
+  }
+
+  @Override
+  public int getListingThreads() {
+    return listingThreads == null ? 1 : listingThreads;
+  }
+
+  @Nullable
+  @Override
+  public String getFileIdManifest() {
+    return fileIdManifest == null || fileIdManifest.isEmpty() ? null : fileIdManifest;
+  }
+
+  @Nullable
+  @Override
+  public Long getReadAheadBufferSize() {
+    return readAheadBufferSize;
+  }
+
+  @Override
+  public int getReadAheadDepth() {
+    return readAheadDepth == null ? 4 : readAheadDepth;
+  }
+
   public boolean shouldCopyHeader() {
     return copyHeader;
   }
@@ -18,7 +18,10 @@ package io.cdap.plugin.format.plugin;
 
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.format.FileFormat;
+import io.cdap.plugin.format.output.PartitionedOutputFormat;
 
+import java.util.Collections;
+import java.util.List;
 import javax.annotation.Nullable;
 
 /**
@@ -65,4 +68,55 @@ public interface FileSinkProperties {
    */
   @Nullable
   String getSuffix();
+
+  /**
+   * Get the name of the compression codec to write files with if the format writes lines of text, or null if files
+   * should not be compressed.
+   */
+  @Nullable
+  default String getCompressionCodec() {
+    return null;
+  }
+
+  /**
+   * Get the estimated size in bytes at which each task starts a new file, or null if files should not be rolled by
+   * size.
+   */
+  @Nullable
+  default Long getTargetFileSize() {
+    return null;
+  }
+
+  /**
+   * Get the number of records at which each task starts a new file, or null if files should not be rolled by
+   * number of records.
+   */
+  @Nullable
+  default Long getMaxRecordsPerFile() {
+    return null;
+  }
+
+  /**
+   * Get the fields to partition the output by, in the order of the directory levels, or an empty list if the
+   * output should not be partitioned.
+   */
+  default List<String> getPartitionFields() {
+    return Collections.emptyList();
+  }
+
+  /**
+   * Get the maximum number of partitions that each task writes to at the same time.
+   */
+  default int getMaxOpenWriters() {
+    return PartitionedOutputFormat.DEFAULT_MAX_OPEN_WRITERS;
+  }
+
+  /**
+   * Get the number of records that each task buffers and sorts by partition before writing them, or null if records
+   * should be written in the order they are received.
+   */
+  @Nullable
+  default Integer getPartitionSortBufferSize() {
+    return null;
+  }
 }
@@ -19,6 +19,7 @@ package io.cdap.plugin.format.plugin;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.format.FileFormat;
 
+import java.util.Set;
 import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 
@@ -86,9 +87,73 @@ public interface FileSourceProperties {
    */
   boolean useFilenameAsPath();
 
+  /**
+   * The path of the file to write the mapping from file ids to file paths to, or null if the path field should
+   * contain file paths rather than file ids.
+   */
+  @Nullable
+  default String getFileIdManifest() {
+    return null;
+  }
+
   /**
    * The output schema if it is known and constant.
    */
   @Nullable
   Schema getSchema();
+
+  /**
+   * The fields of the schema that should be read, or null if all of them should be read. Formats that support it
+   * will skip over the other fields instead of decoding them.
+   */
+  @Nullable
+  default Set<String> getRequiredFields() {
+    return null;
+  }
+
+  /**
+   * The number of threads to list input directories with.
+   */
+  default int getListingThreads() {
+    return 1;
+  }
+
+  /**
+   * The cost in bytes of opening a file when packing files into splits, or null if not configured.
+   */
+  @Nullable
+  default Long getFileOpenCost() {
+    return null;
+  }
+
+  /**
+   * The maximum number of files in a split, or null if there is no limit.
+   */
+  @Nullable
+  default Integer getMaxFilesPerSplit() {
+    return null;
+  }
+
+  /**
+   * The number of splits to aim for, or null if splits should be as large as the maximum split size.
+   */
+  @Nullable
+  default Integer getTargetSplits() {
+    return null;
+  }
+
+  /**
+   * The size in bytes of each buffer to read input files ahead with, or null if files should not be read ahead.
+   */
+  @Nullable
+  default Long getReadAheadBufferSize() {
+    return null;
+  }
+
+  /**
+   * The number of buffers to read input files ahead with.
+   */
+  default int getReadAheadDepth() {
+    return 4;
+  }
 }
@@ -0,0 +1,101 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Tests for {@link SchemaProjection}.
+ */
+public class SchemaProjectionTest {
+  private static final Schema INNER = Schema.recordOf(
+    "inner",
+    Schema.Field.of("x", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("y", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("inner", Schema.nullableOf(INNER)),
+    Schema.Field.of("inners", Schema.arrayOf(INNER)),
+    Schema.Field.of("file", Schema.of(Schema.Type.STRING)));
+
+  @Test
+  public void testParseFields() {
+    Assert.assertNull(SchemaProjection.parseFields(null));
+    Assert.assertNull(SchemaProjection.parseFields(""));
+    Assert.assertNull(SchemaProjection.parseFields(" , ,"));
+    Assert.assertEquals(Arrays.asList("name", "id"),
+                        Arrays.asList(SchemaProjection.parseFields(" name,id ,, name").toArray()));
+  }
+
+  @Test
+  public void testProjectKeepsSchemaOrder() {
+    Schema projected = SchemaProjection.project(SCHEMA, Arrays.asList("name", "id"), null);
+    Assert.assertEquals(Schema.recordOf("record", SCHEMA.getField("id"), SCHEMA.getField("name")), projected);
+  }
+
+  @Test
+  public void testProjectKeepsNestedFieldsWhole() {
+    Schema projected = SchemaProjection.project(SCHEMA, Arrays.asList("inners", "inner"), null);
+    Assert.assertEquals(Schema.recordOf("record", SCHEMA.getField("inner"), SCHEMA.getField("inners")), projected);
+    Assert.assertEquals(Schema.nullableOf(INNER), projected.getField("inner").getSchema());
+    Assert.assertEquals(Schema.arrayOf(INNER), projected.getField("inners").getSchema());
+  }
+
+  @Test
+  public void testProjectKeepsPathField() {
+    Schema projected = SchemaProjection.project(SCHEMA, Collections.singletonList("id"), "file");
+    Assert.assertEquals(Schema.recordOf("record", SCHEMA.getField("id"), SCHEMA.getField("file")), projected);
+
+    // the path field may be required as well
+    Assert.assertEquals(projected, SchemaProjection.project(SCHEMA, Arrays.asList("file", "id"), "file"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMissingFieldIsRejected() {
+    SchemaProjection.project(SCHEMA, Arrays.asList("id", "missing"), null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNestedFieldNameIsRejected() {
+    // only top level fields can be required
+    SchemaProjection.project(SCHEMA, Collections.singletonList("inner.x"), null);
+  }
+
+  @Test
+  public void testProjectedSchemaFromConfiguration() {
+    Configuration conf = new Configuration();
+    // nothing is projected if no fields are required
+    Assert.assertNull(SchemaProjection.getProjectedSchema(conf, SCHEMA, "file"));
+
+    SchemaProjection.configure(conf, Arrays.asList("inner", "id"));
+    Assert.assertEquals(Schema.recordOf("record", SCHEMA.getField("id"), SCHEMA.getField("inner"),
+                                        SCHEMA.getField("file")),
+                        SchemaProjection.getProjectedSchema(conf, SCHEMA, "file"));
+
+    // nothing is projected if every field is required
+    SchemaProjection.configure(conf, Arrays.asList("id", "name", "inner", "inners"));
+    Assert.assertNull(SchemaProjection.getProjectedSchema(conf, SCHEMA, "file"));
+  }
+}
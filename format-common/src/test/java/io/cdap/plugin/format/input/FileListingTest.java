@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.input;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.BlockLocation;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Tests for {@link FileListing}.
+ */
+public class FileListingTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Configuration conf;
+  private File inputDir;
+
+  @Before
+  public void setUp() throws IOException {
+    conf = new Configuration();
+    inputDir = temporaryFolder.newFolder("input");
+    FileListing.configure(conf, 2);
+  }
+
+  @Test
+  public void testListing() throws Exception {
+    write(new File(inputDir, "a.txt"), "a");
+    write(new File(new File(inputDir, "sub"), "b.txt"), "bb");
+    write(new File(new File(new File(inputDir, "sub"), "deeper"), "c.txt"), "ccc");
+    write(new File(inputDir, "_SUCCESS"), "");
+    write(new File(new File(inputDir, ".hidden"), "d.txt"), "d");
+
+    List<FileStatus> statuses = list();
+    Assert.assertEquals(3, statuses.size());
+    Assert.assertEquals("a.txt", statuses.get(0).getPath().getName());
+    Assert.assertEquals("b.txt", statuses.get(1).getPath().getName());
+    Assert.assertEquals("c.txt", statuses.get(2).getPath().getName());
+  }
+
+  @Test
+  public void testFilesAreListedWithBlockLocations() throws Exception {
+    write(new File(new File(inputDir, "sub"), "a.txt"), "abcdef");
+
+    List<FileStatus> statuses = list();
+    Assert.assertEquals(1, statuses.size());
+    Assert.assertEquals(6L, statuses.get(0).getLen());
+    BlockLocation[] locations = ((LocatedFileStatus) statuses.get(0)).getBlockLocations();
+    Assert.assertEquals(6L, locations[locations.length - 1].getOffset() + locations[locations.length - 1].getLength());
+  }
+
+  private List<FileStatus> list() throws IOException {
+    Job job = Job.getInstance(conf);
+    FileInputFormat.addInputPath(job, new Path(inputDir.toURI()));
+    FileInputFormat.setInputDirRecursive(job, true);
+    return FileListing.listStatus(job);
+  }
+
+  private static void write(File file, String content) throws IOException {
+    Assert.assertTrue(file.getParentFile().isDirectory() || file.getParentFile().mkdirs());
+    try (OutputStream out = new FileOutputStream(file)) {
+      out.write(content.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.input;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests that {@link ReadAheadLineRecordReader} reads every line exactly once, however the file is split.
+ */
+public class ReadAheadLineRecordReaderTest {
+  @ClassRule
+  public static final TemporaryFolder TMP_FOLDER = new TemporaryFolder();
+
+  private static final byte[] UTF8_BOM = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+
+  @Test
+  public void testMultiByteDelimiterAcrossSplits() throws Exception {
+    List<String> lines = Arrays.asList("first", "", "third record", "4", "fifth", "sixth");
+    Configuration conf = newConfiguration();
+    conf.set("textinputformat.record.delimiter", "<|>");
+    File file = write(String.join("<|>", lines).getBytes(StandardCharsets.UTF_8));
+
+    // splits of every size end inside, before and after the delimiters
+    for (int splitSize = 1; splitSize <= file.length(); splitSize++) {
+      Assert.assertEquals("Split size " + splitSize, lines, readSplits(file, splitSize, conf));
+    }
+  }
+
+  @Test
+  public void testByteOrderMarkIsSkipped() throws Exception {
+    Configuration conf = newConfiguration();
+    File file = write(UTF8_BOM, "a\nbb\r\nccc\n".getBytes(StandardCharsets.UTF_8));
+    for (int splitSize = 1; splitSize <= file.length(); splitSize++) {
+      Assert.assertEquals("Split size " + splitSize, Arrays.asList("a", "bb", "ccc"),
+                          readSplits(file, splitSize, conf));
+    }
+
+    // a first line that only holds the mark is empty, and a file that only holds the mark has no lines
+    Assert.assertEquals(Arrays.asList("", "x"),
+                        readSplits(write(UTF8_BOM, "\nx".getBytes(StandardCharsets.UTF_8)), 100, conf));
+    Assert.assertEquals(new ArrayList<String>(), readSplits(write(UTF8_BOM), 100, conf));
+
+    // only a mark at the start of the file is skipped
+    Assert.assertEquals(Arrays.asList("a", "\uFEFFb"),
+                        readSplits(write("a\n".getBytes(StandardCharsets.UTF_8), UTF8_BOM,
+                                         "b".getBytes(StandardCharsets.UTF_8)), 100, conf));
+  }
+
+  private static Configuration newConfiguration() {
+    Configuration conf = new Configuration();
+    ReadAheadInputStream.configure(conf, 1024L, 2);
+    return conf;
+  }
+
+  private static File write(byte[]... parts) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (byte[] part : parts) {
+      out.write(part);
+    }
+    File file = new File(TMP_FOLDER.newFolder(), "lines.txt");
+    Files.write(file.toPath(), out.toByteArray());
+    return file;
+  }
+
+  /**
+   * Reads the file in splits of the given size, and returns the lines of all the splits.
+   */
+  private static List<String> readSplits(File file, int splitSize, Configuration conf) throws Exception {
+    List<String> lines = new ArrayList<>();
+    for (long start = 0; start < file.length(); start += splitSize) {
+      FileSplit split = new FileSplit(new Path(file.toURI()), start, Math.min(splitSize, file.length() - start),
+                                      new String[0]);
+      TaskAttemptContext context = new TaskAttemptContextImpl(conf, new TaskAttemptID());
+      try (RecordReader<LongWritable, Text> reader = ReadAheadLineRecordReader.create(split, context)) {
+        Assert.assertTrue(reader instanceof ReadAheadLineRecordReader);
+        reader.initialize(split, context);
+        while (reader.nextKeyValue()) {
+          lines.add(reader.getCurrentValue().toString());
+        }
+      }
+    }
+    return lines;
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.input;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.BlockLocation;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.lib.input.CombineFileSplit;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+
+/**
+ * Tests for {@link SplitPacking}.
+ */
+public class SplitPackingTest {
+
+  @Test
+  public void testEnabled() {
+    Configuration conf = new Configuration();
+    Assert.assertFalse(SplitPacking.isEnabled(conf));
+    SplitPacking.configure(conf, null, null, null);
+    Assert.assertFalse(SplitPacking.isEnabled(conf));
+    SplitPacking.configure(conf, null, 5, null);
+    Assert.assertTrue(SplitPacking.isEnabled(conf));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidTargetSplits() {
+    SplitPacking.configure(new Configuration(), null, null, 0);
+  }
+
+  @Test
+  public void testMaxFilesPerSplit() throws IOException {
+    List<FileStatus> files = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      files.add(file("f" + i, 10L, null));
+    }
+    List<CombineFileSplit> splits = getSplits(files, 1000L, 10L, 3, null, false);
+
+    Assert.assertEquals(4, splits.size());
+    for (CombineFileSplit split : splits) {
+      Assert.assertTrue(split.getNumPaths() <= 3);
+    }
+    assertCovered(files, splits);
+  }
+
+  @Test
+  public void testTargetSplits() throws IOException {
+    List<FileStatus> files = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      files.add(file("f" + i, 100L, null));
+    }
+    // the capacity is the total cost over the target, so every split holds two files
+    List<CombineFileSplit> splits = getSplits(files, 0L, 0L, null, 4, false);
+
+    Assert.assertEquals(4, splits.size());
+    for (CombineFileSplit split : splits) {
+      Assert.assertEquals(2, split.getNumPaths());
+      Assert.assertEquals(200L, split.getLength());
+    }
+    assertCovered(files, splits);
+  }
+
+  @Test
+  public void testOpenCostBalancesSmallFiles() throws IOException {
+    // one large file and many tiny files, which cost about as much as the large file because of the open cost
+    List<FileStatus> files = new ArrayList<>();
+    files.add(file("large", 1000L, null));
+    for (int i = 0; i < 20; i++) {
+      files.add(file("small" + i, 1L, null));
+    }
+    List<CombineFileSplit> splits = getSplits(files, 0L, 50L, null, 2, false);
+
+    Assert.assertEquals(2, splits.size());
+    Map<Integer, Long> lengthsByFiles = new TreeMap<>();
+    for (CombineFileSplit split : splits) {
+      lengthsByFiles.put(split.getNumPaths(), split.getLength());
+    }
+    Assert.assertEquals(Long.valueOf(1000L), lengthsByFiles.get(1));
+    Assert.assertEquals(Long.valueOf(20L), lengthsByFiles.get(20));
+  }
+
+  @Test
+  public void testSplittableFileIsCut() throws IOException {
+    // files are cut along their blocks
+    List<FileStatus> files = Arrays.asList(file("large", 1000L, "host1"), file("small", 10L, null));
+    List<CombineFileSplit> splits = getSplits(files, 300L, 0L, null, null, true);
+
+    // the end of the file is cut into two halves instead of leaving a tiny last piece
+    List<Long> lengths = new ArrayList<>();
+    for (CombineFileSplit split : splits) {
+      for (int i = 0; i < split.getNumPaths(); i++) {
+        Assert.assertTrue(split.getLength(i) <= 300L);
+        if (split.getPath(i).getName().equals("large")) {
+          lengths.add(split.getLength(i));
+        }
+      }
+    }
+    lengths.sort(null);
+    Assert.assertEquals(Arrays.asList(200L, 200L, 300L, 300L), lengths);
+    assertCovered(files, splits);
+
+    // files that are not splittable are read as a whole
+    splits = getSplits(files, 300L, 0L, null, null, false);
+    assertCovered(files, splits);
+    for (CombineFileSplit split : splits) {
+      for (int i = 0; i < split.getNumPaths(); i++) {
+        if (split.getPath(i).getName().equals("large")) {
+          Assert.assertEquals(1000L, split.getLength(i));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testNodeLocality() throws IOException {
+    List<FileStatus> files = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      files.add(file("a" + i, 100L, "host1"));
+      files.add(file("b" + i, 100L, "host2"));
+    }
+    List<CombineFileSplit> splits = getSplits(files, 200L, 0L, null, null, false);
+
+    // full splits are made of the files of a single node, and are located on that node
+    Assert.assertEquals(4, splits.size());
+    for (CombineFileSplit split : splits) {
+      String[] locations = split.getLocations();
+      Assert.assertEquals(1, locations.length);
+      String prefix = locations[0].equals("host1") ? "a" : "b";
+      for (Path path : split.getPaths()) {
+        Assert.assertTrue(path.getName().startsWith(prefix));
+      }
+    }
+    assertCovered(files, splits);
+  }
+
+  private static List<CombineFileSplit> getSplits(List<FileStatus> files, long maxSplitSize, long openCost,
+                                                  @Nullable Integer maxFiles, @Nullable Integer targetSplits,
+                                                  boolean splitable) throws IOException {
+    Configuration conf = new Configuration();
+    conf.setLong(FileInputFormat.SPLIT_MAXSIZE, maxSplitSize);
+    SplitPacking.configure(conf, openCost, maxFiles, targetSplits);
+    List<CombineFileSplit> splits = new ArrayList<>();
+    for (InputSplit split : SplitPacking.getSplits(Job.getInstance(conf), files, path -> splitable)) {
+      splits.add((CombineFileSplit) split);
+    }
+    return splits;
+  }
+
+  /**
+   * Asserts that every byte of every file is in exactly one split.
+   */
+  private static void assertCovered(List<FileStatus> files, List<CombineFileSplit> splits) {
+    Map<Path, TreeMap<Long, Long>> pieces = new HashMap<>();
+    for (CombineFileSplit split : splits) {
+      for (int i = 0; i < split.getNumPaths(); i++) {
+        Long previous = pieces.computeIfAbsent(split.getPath(i), p -> new TreeMap<>())
+          .put(split.getOffset(i), split.getLength(i));
+        Assert.assertNull("Piece at " + split.getOffset(i) + " of " + split.getPath(i) + " is in two splits",
+                          previous);
+      }
+    }
+    Assert.assertEquals(files.size(), pieces.size());
+    for (FileStatus file : files) {
+      long position = 0L;
+      for (Map.Entry<Long, Long> piece : pieces.get(file.getPath()).entrySet()) {
+        Assert.assertEquals(position, (long) piece.getKey());
+        position += piece.getValue();
+      }
+      Assert.assertEquals(file.getLen(), position);
+    }
+  }
+
+  private static FileStatus file(String name, long length, @Nullable String host) throws IOException {
+    FileStatus status = new FileStatus(length, false, 1, Math.max(1L, length), 0L, new Path("/input", name));
+    BlockLocation[] blocks = host == null ? new BlockLocation[0] :
+      new BlockLocation[] { new BlockLocation(new String[] { host + ":50010" }, new String[] { host },
+                                              new String[] { "/rack/" + host }, 0L, length) };
+    return new LocatedFileStatus(status, blocks);
+  }
+}
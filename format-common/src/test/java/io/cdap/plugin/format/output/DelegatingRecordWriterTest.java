@@ -0,0 +1,173 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.output;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.dataset.lib.KeyValue;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for rolling over to new files in {@link DelegatingRecordWriter}.
+ */
+public class DelegatingRecordWriterTest {
+  private static final Schema SCHEMA = Schema.recordOf("record",
+                                                       Schema.Field.of("i", Schema.of(Schema.Type.INT)),
+                                                       Schema.Field.of("s", Schema.of(Schema.Type.STRING)));
+
+  @Test
+  public void testRollByRecords() throws Exception {
+    ListFiles files = new ListFiles(-1L);
+    write(files, 0L, 3L, 10);
+    Assert.assertEquals(Arrays.asList(3, 3, 3, 1), files.getFileSizes());
+    Assert.assertTrue(files.allClosed());
+
+    // no empty file is started after the last full one
+    files = new ListFiles(-1L);
+    write(files, 0L, 3L, 9);
+    Assert.assertEquals(Arrays.asList(3, 3, 3), files.getFileSizes());
+    Assert.assertTrue(files.allClosed());
+  }
+
+  @Test
+  public void testFirstFileWithoutRecords() throws Exception {
+    ListFiles files = new ListFiles(-1L);
+    write(files, 0L, 3L, 0);
+    Assert.assertEquals(Arrays.asList(0), files.getFileSizes());
+    Assert.assertTrue(files.allClosed());
+  }
+
+  @Test
+  public void testRollByEstimatedBytes() throws Exception {
+    // every record is estimated at 14 bytes, but takes up twice as much in the files
+    ListFiles files = new ListFiles(2L);
+    write(files, 50L, 0L, 12);
+    // the first file is rolled by the plain estimate, after 56 bytes, and the others by the corrected estimate
+    Assert.assertEquals(Arrays.asList(4, 2, 2, 2, 2), files.getFileSizes());
+    Assert.assertTrue(files.allClosed());
+  }
+
+  @Test
+  public void testRollByEstimatedBytesWithUnknownSizes() throws Exception {
+    ListFiles files = new ListFiles(-1L);
+    write(files, 50L, 0L, 12);
+    Assert.assertEquals(Arrays.asList(4, 4, 4), files.getFileSizes());
+  }
+
+  @Test
+  public void testFirstLimitWins() throws Exception {
+    ListFiles files = new ListFiles(-1L);
+    write(files, 50L, 3L, 8);
+    Assert.assertEquals(Arrays.asList(3, 3, 2), files.getFileSizes());
+  }
+
+  private static void write(ListFiles files, long targetBytes, long maxRecords,
+                            int count) throws IOException, InterruptedException {
+    DelegatingRecordWriter<NullWritable, StructuredRecord> writer =
+      new DelegatingRecordWriter<>(files, record -> new KeyValue<>(NullWritable.get(), record), targetBytes,
+                                   maxRecords);
+    for (int i = 0; i < count; i++) {
+      // 4 bytes for the int and 10 bytes for the string
+      writer.write(NullWritable.get(), StructuredRecord.builder(SCHEMA).set("i", i).set("s", "abcdefghij").build());
+    }
+    writer.close(null);
+  }
+
+  /**
+   * Files that keep their records in memory.
+   */
+  private static final class ListFiles implements DelegatingRecordWriter.RollingFiles<NullWritable, StructuredRecord> {
+    private static final long ESTIMATED_RECORD_SIZE = 14L;
+    private final long sizeFactor;
+    private final List<ListWriter> writers = new ArrayList<>();
+
+    /**
+     * @param sizeFactor the factor of the actual to the estimated size of the files, or -1 if it is not known
+     */
+    private ListFiles(long sizeFactor) {
+      this.sizeFactor = sizeFactor;
+    }
+
+    @Override
+    public RecordWriter<NullWritable, StructuredRecord> open(int index) {
+      Assert.assertEquals(writers.size(), index);
+      if (index > 0) {
+        Assert.assertTrue("A file was opened before the previous one was closed", writers.get(index - 1).closed);
+      }
+      ListWriter writer = new ListWriter();
+      writers.add(writer);
+      return writer;
+    }
+
+    @Override
+    public void close(int index, RecordWriter<NullWritable, StructuredRecord> writer) {
+      Assert.assertSame(writers.get(index), writer);
+      writers.get(index).close(null);
+    }
+
+    @Override
+    public long getSize(int index) {
+      return sizeFactor < 0 ? -1L : writers.get(index).records.size() * ESTIMATED_RECORD_SIZE * sizeFactor;
+    }
+
+    private List<Integer> getFileSizes() {
+      List<Integer> sizes = new ArrayList<>();
+      int next = 0;
+      for (ListWriter writer : writers) {
+        for (StructuredRecord record : writer.records) {
+          // records are written to the files in order
+          Assert.assertEquals(next++, (int) record.<Integer>get("i"));
+        }
+        sizes.add(writer.records.size());
+      }
+      return sizes;
+    }
+
+    private boolean allClosed() {
+      return writers.stream().allMatch(writer -> writer.closed);
+    }
+  }
+
+  /**
+   * A record writer that keeps its records in memory.
+   */
+  private static final class ListWriter extends RecordWriter<NullWritable, StructuredRecord> {
+    private final List<StructuredRecord> records = new ArrayList<>();
+    private boolean closed;
+
+    @Override
+    public void write(NullWritable key, StructuredRecord value) {
+      Assert.assertFalse(closed);
+      records.add(value);
+    }
+
+    @Override
+    public void close(TaskAttemptContext context) {
+      Assert.assertFalse("A file was closed twice", closed);
+      closed = true;
+    }
+  }
+}
@@ -20,7 +20,6 @@ import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
 import io.cdap.cdap.api.plugin.PluginClass;
-import io.cdap.plugin.format.input.PathTrackingConfig;
 import io.cdap.plugin.format.input.PathTrackingInputFormatProvider;
 
 import java.util.Map;
@@ -31,14 +30,14 @@ import java.util.Map;
 @Plugin(type = "inputformat")
 @Name(CSVInputFormatProvider.NAME)
 @Description(CSVInputFormatProvider.DESC)
-public class CSVInputFormatProvider extends PathTrackingInputFormatProvider<PathTrackingConfig> {
+public class CSVInputFormatProvider extends PathTrackingInputFormatProvider<DelimitedConfig> {
   static final String NAME = "csv";
   static final String DESC = "Plugin for reading files in csv format.";
   public static final PluginClass PLUGIN_CLASS =
     new PluginClass("inputformat", NAME, DESC, CSVInputFormatProvider.class.getName(),
-                    "conf", PathTrackingConfig.FIELDS);
+                    "conf", DelimitedConfig.FIELDS);
 
-  public CSVInputFormatProvider(PathTrackingConfig conf) {
+  public CSVInputFormatProvider(DelimitedConfig conf) {
     super(conf);
   }
 
@@ -57,5 +56,6 @@ public class CSVInputFormatProvider extends PathTrackingInputFormatProvider<Path
   @Override
   protected void addFormatProperties(Map<String, String> properties) {
     properties.put(PathTrackingDelimitedInputFormat.DELIMITER, ",");
+    properties.put(PathTrackingDelimitedInputFormat.ENABLE_QUOTES, String.valueOf(conf.getEnableQuotedValues()));
   }
 }
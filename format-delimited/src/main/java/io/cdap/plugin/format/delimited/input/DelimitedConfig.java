@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.delimited.input;
+
+import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Macro;
+import io.cdap.cdap.api.plugin.PluginPropertyField;
+import io.cdap.plugin.format.input.PathTrackingConfig;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Plugin config for delimited input format plugins.
+ */
+public class DelimitedConfig extends PathTrackingConfig {
+  public static final Map<String, PluginPropertyField> FIELDS;
+  static final String ENABLE_QUOTED_VALUES_DESC =
+    "Whether to treat content between quotes as a value. Quoted values may contain the delimiter and newlines, "
+      + "and a quote inside a quoted value is escaped by doubling it. "
+      + "Files are not split when this is enabled. The default value is false.";
+
+  static {
+    Map<String, PluginPropertyField> fields = new HashMap<>(PathTrackingConfig.FIELDS);
+    fields.put("enableQuotedValues",
+               new PluginPropertyField("enableQuotedValues", ENABLE_QUOTED_VALUES_DESC, "boolean", false, true));
+    FIELDS = Collections.unmodifiableMap(fields);
+  }
+
+  @Macro
+  @Nullable
+  @Description(ENABLE_QUOTED_VALUES_DESC)
+  protected Boolean enableQuotedValues;
+
+  public boolean getEnableQuotedValues() {
+    return enableQuotedValues == null ? false : enableQuotedValues;
+  }
+}
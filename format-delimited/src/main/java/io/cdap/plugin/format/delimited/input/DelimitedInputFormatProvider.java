@@ -22,7 +22,6 @@ import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
 import io.cdap.cdap.api.plugin.PluginClass;
 import io.cdap.cdap.api.plugin.PluginPropertyField;
-import io.cdap.plugin.format.input.PathTrackingConfig;
 import io.cdap.plugin.format.input.PathTrackingInputFormatProvider;
 
 import java.util.HashMap;
@@ -61,12 +60,13 @@ public class DelimitedInputFormatProvider extends PathTrackingInputFormatProvide
   @Override
   protected void addFormatProperties(Map<String, String> properties) {
     properties.put(PathTrackingDelimitedInputFormat.DELIMITER, conf.delimiter == null ? "," : conf.delimiter);
+    properties.put(PathTrackingDelimitedInputFormat.ENABLE_QUOTES, String.valueOf(conf.getEnableQuotedValues()));
   }
 
   /**
    * Plugin config for delimited input format
    */
-  public static class Conf extends PathTrackingConfig {
+  public static class Conf extends DelimitedConfig {
     private static final String DELIMITER_DESC = "Delimiter to use to separate record fields.";
 
     @Macro
@@ -77,7 +77,7 @@ public class DelimitedInputFormatProvider extends PathTrackingInputFormatProvide
 
 
   private static PluginClass getPluginClass() {
-    Map<String, PluginPropertyField> properties = new HashMap<>(PathTrackingConfig.FIELDS);
+    Map<String, PluginPropertyField> properties = new HashMap<>(DelimitedConfig.FIELDS);
     properties.put("delimiter", new PluginPropertyField("delimiter", Conf.DELIMITER_DESC, "string", false, true));
     return new PluginClass("inputformat", NAME, DESC, DelimitedInputFormatProvider.class.getName(),
                            "conf", properties);
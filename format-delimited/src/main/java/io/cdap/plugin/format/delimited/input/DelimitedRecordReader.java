@@ -0,0 +1,429 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.delimited.input;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.format.UnexpectedFormatException;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Reads delimited lines into StructuredRecord builders. Fields are located with a single scan over the bytes of
+ * each line and values are converted straight from the line bytes, so no intermediate Strings are created for
+ * non-string fields.
+ *
+ * If a projected schema is given, only the fields in that schema are converted. When quoted values are disabled,
+ * the scan also stops at the last projected field, so trailing fields are never looked at.
+ *
+ * When quoted values are enabled, values are parsed as described in RFC 4180: a value that starts with a quote
+ * ends at the next unescaped quote, may contain the delimiter and line breaks, and uses two quotes to represent
+ * a quote. Line breaks inside quoted values are returned as '\n'. A record can only span lines if the file is
+ * read from its beginning, so the input format must not split files when quoted values are enabled.
+ */
+class DelimitedRecordReader extends RecordReader<NullWritable, StructuredRecord.Builder> {
+  private static final byte QUOTE = '"';
+  private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+  // longest digit strings that cannot overflow
+  private static final int MAX_INT_DIGITS = 9;
+  private static final int MAX_LONG_DIGITS = 18;
+
+  private final RecordReader<LongWritable, Text> delegate;
+  private final Schema outputSchema;
+  private final byte[] delimiter;
+  private final boolean enableQuotes;
+  private final String[] fieldNames;
+  private final Schema.Type[] fieldTypes;
+  private final boolean[] required;
+  private final boolean[] nullable;
+  // index of the last field that has to be found before the rest of the record can be skipped, or -1
+  private final int lastField;
+  private final int[] starts;
+  private final int[] ends;
+  private final boolean[] quoted;
+  private final boolean[] escaped;
+
+  private byte[] bytes;
+  private int length;
+  private int numFields;
+  // buffer for records that span multiple lines
+  private byte[] recordBuffer;
+  // buffer for quoted values that contain escaped quotes
+  private byte[] valueBuffer;
+  // where the scan of a record that ended inside a quoted value stopped: the field, the position of its opening
+  // quote, the position to continue at and whether an escaped quote was found
+  private int openField;
+  private int openStart;
+  private int openPos;
+  private boolean openEscaped;
+
+  DelimitedRecordReader(RecordReader<LongWritable, Text> delegate, Schema schema,
+                        @Nullable Schema projectedSchema, String delimiter, boolean enableQuotes) {
+    if (delimiter.isEmpty()) {
+      throw new IllegalArgumentException("The delimiter cannot be empty.");
+    }
+    this.delegate = delegate;
+    this.outputSchema = projectedSchema == null ? schema : projectedSchema;
+    this.delimiter = delimiter.getBytes(StandardCharsets.UTF_8);
+    this.enableQuotes = enableQuotes;
+
+    List<Schema.Field> fields = schema.getFields();
+    int size = fields.size();
+    this.fieldNames = new String[size];
+    this.fieldTypes = new Schema.Type[size];
+    this.required = new boolean[size];
+    this.nullable = new boolean[size];
+    int last = -1;
+    for (int i = 0; i < size; i++) {
+      Schema.Field field = fields.get(i);
+      Schema fieldSchema = field.getSchema();
+      nullable[i] = fieldSchema.isNullable();
+      fieldSchema = nullable[i] ? fieldSchema.getNonNullable() : fieldSchema;
+      fieldNames[i] = field.getName();
+      // logical types are left to StructuredRecord.Builder#convertAndSet
+      fieldTypes[i] = fieldSchema.getLogicalType() == null ? fieldSchema.getType() : null;
+      required[i] = projectedSchema == null || projectedSchema.getField(field.getName()) != null;
+      last = required[i] ? i : last;
+    }
+    this.lastField = projectedSchema == null || enableQuotes ? -1 : last;
+    this.starts = new int[size];
+    this.ends = new int[size];
+    this.quoted = new boolean[size];
+    this.escaped = new boolean[size];
+    this.recordBuffer = new byte[0];
+    this.valueBuffer = new byte[0];
+  }
+
+  @Override
+  public void initialize(InputSplit split, TaskAttemptContext context) throws IOException, InterruptedException {
+    delegate.initialize(split, context);
+  }
+
+  @Override
+  public boolean nextKeyValue() throws IOException, InterruptedException {
+    if (!delegate.nextKeyValue()) {
+      return false;
+    }
+    Text line = delegate.getCurrentValue();
+    bytes = line.getBytes();
+    length = line.getLength();
+    if (scan(false)) {
+      return true;
+    }
+
+    // the line ended inside a quoted value, keep appending lines until the value is closed, continuing the scan
+    // where it stopped so that long multi-line values are only scanned once
+    append(line, false);
+    do {
+      if (!delegate.nextKeyValue()) {
+        throw new IOException("Found an unterminated quoted value at the end of the input.");
+      }
+      append(delegate.getCurrentValue(), true);
+      bytes = recordBuffer;
+    } while (!scan(true));
+    return true;
+  }
+
+  @Override
+  public NullWritable getCurrentKey() {
+    return NullWritable.get();
+  }
+
+  @Override
+  public StructuredRecord.Builder getCurrentValue() {
+    StructuredRecord.Builder builder = StructuredRecord.builder(outputSchema);
+    for (int i = 0; i < numFields; i++) {
+      if (required[i]) {
+        setField(builder, i);
+      }
+    }
+    return builder;
+  }
+
+  @Override
+  public float getProgress() throws IOException, InterruptedException {
+    return delegate.getProgress();
+  }
+
+  @Override
+  public void close() throws IOException {
+    delegate.close();
+  }
+
+  /**
+   * Finds the boundaries of every field in the current record.
+   *
+   * @param resume whether to continue the quoted value that the previous scan of the record stopped in, after lines
+   *   were appended to the record, instead of scanning from the start of the record
+   * @return false if the record ended inside a quoted value, true otherwise
+   */
+  private boolean scan(boolean resume) {
+    int pos = 0;
+    if (resume) {
+      int end = scanQuoted(openField, openStart, openPos, openEscaped);
+      if (end < 0) {
+        return false;
+      }
+      if (end >= length || openField == lastField) {
+        return true;
+      }
+      pos = end + delimiter.length;
+    } else {
+      numFields = 0;
+    }
+    while (true) {
+      if (numFields == starts.length) {
+        throw new IllegalArgumentException(
+          String.format("Found more than the %d fields in the schema in record '%s'.", starts.length,
+                        new String(bytes, 0, length, StandardCharsets.UTF_8)));
+      }
+      int field = numFields++;
+      int end;
+      if (enableQuotes && pos < length && bytes[pos] == QUOTE) {
+        end = scanQuoted(field, pos, pos + 1, false);
+        if (end < 0) {
+          return false;
+        }
+      } else {
+        end = pos;
+        while (end < length && !isDelimiter(end)) {
+          end++;
+        }
+        starts[field] = pos;
+        ends[field] = end;
+        quoted[field] = false;
+        escaped[field] = false;
+      }
+      if (end >= length || field == lastField) {
+        return true;
+      }
+      pos = end + delimiter.length;
+    }
+  }
+
+  /**
+   * Finds the closing quote of a quoted value and sets the boundaries of its field.
+   *
+   * @param field the index of the field
+   * @param quote the position of the opening quote
+   * @param from the position to continue looking for the closing quote at
+   * @param hasEscape whether an escaped quote was already found in the value
+   * @return the position after the closing quote, or -1 if the record ended inside the value, in which case the
+   *   state of the search is kept for {@link #scan(boolean)} to resume it
+   */
+  private int scanQuoted(int field, int quote, int from, boolean hasEscape) {
+    int i = from;
+    while (true) {
+      if (i >= length) {
+        openField = field;
+        openStart = quote;
+        openPos = i;
+        openEscaped = hasEscape;
+        return -1;
+      }
+      if (bytes[i] == QUOTE) {
+        if (i + 1 < length && bytes[i + 1] == QUOTE) {
+          hasEscape = true;
+          i += 2;
+          continue;
+        }
+        break;
+      }
+      i++;
+    }
+    starts[field] = quote + 1;
+    ends[field] = i;
+    quoted[field] = true;
+    escaped[field] = hasEscape;
+    int end = i + 1;
+    if (end < length && !isDelimiter(end)) {
+      throw new IllegalArgumentException(
+        String.format("Found unexpected characters after the closing quote of field '%s' in record '%s'.",
+                      fieldNames[field], new String(bytes, 0, length, StandardCharsets.UTF_8)));
+    }
+    return end;
+  }
+
+  private boolean isDelimiter(int pos) {
+    if (bytes[pos] != delimiter[0]) {
+      return false;
+    }
+    if (pos + delimiter.length > length) {
+      return false;
+    }
+    for (int i = 1; i < delimiter.length; i++) {
+      if (bytes[pos + i] != delimiter[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void append(Text line, boolean newLine) {
+    int offset = newLine ? length + 1 : 0;
+    int required = offset + line.getLength();
+    if (recordBuffer.length < required) {
+      recordBuffer = Arrays.copyOf(recordBuffer, Math.max(required, recordBuffer.length * 2));
+    }
+    if (newLine) {
+      recordBuffer[length] = '\n';
+    }
+    System.arraycopy(line.getBytes(), 0, recordBuffer, offset, line.getLength());
+    length = required;
+  }
+
+  /**
+   * Parses the value of a field from the bytes of the current record and sets it on the builder.
+   */
+  private void setField(StructuredRecord.Builder builder, int field) {
+    String name = fieldNames[field];
+    Schema.Type type = fieldTypes[field];
+    byte[] src = bytes;
+    int start = starts[field];
+    int end = ends[field];
+    if (escaped[field]) {
+      end = unescape(start, end);
+      start = 0;
+      src = valueBuffer;
+    }
+
+    if (start == end) {
+      // empty values are null, except for quoted empty strings
+      if (quoted[field] && type == Schema.Type.STRING) {
+        builder.set(name, "");
+        return;
+      }
+      if (!nullable[field]) {
+        throw new UnexpectedFormatException(
+          String.format("Field '%s' is not nullable, but is empty in record '%s'.",
+                        name, new String(bytes, 0, length, StandardCharsets.UTF_8)));
+      }
+      builder.set(name, null);
+      return;
+    }
+
+    if (type == null) {
+      // logical types
+      builder.convertAndSet(name, new String(src, start, end - start, StandardCharsets.UTF_8));
+      return;
+    }
+    switch (type) {
+      case STRING:
+        builder.set(name, new String(src, start, end - start, StandardCharsets.UTF_8));
+        break;
+      case BOOLEAN:
+        builder.set(name, isTrue(src, start, end));
+        break;
+      case INT:
+      case LONG:
+        int digits = countDigits(src, start, end);
+        if (digits > 0 && digits <= (type == Schema.Type.INT ? MAX_INT_DIGITS : MAX_LONG_DIGITS)) {
+          long value = parseLong(src, start, end);
+          builder.set(name, type == Schema.Type.INT ? (Object) (int) value : (Object) value);
+        } else {
+          // numbers that might overflow, or are not numbers at all, are left to the JDK to parse or reject
+          String str = new String(src, start, end - start, StandardCharsets.UTF_8);
+          builder.set(name, type == Schema.Type.INT ? (Object) Integer.parseInt(str) : (Object) Long.parseLong(str));
+        }
+        break;
+      case FLOAT:
+        builder.set(name, Float.parseFloat(new String(src, start, end - start, StandardCharsets.UTF_8)));
+        break;
+      case DOUBLE:
+        builder.set(name, Double.parseDouble(new String(src, start, end - start, StandardCharsets.UTF_8)));
+        break;
+      default:
+        builder.convertAndSet(name, new String(src, start, end - start, StandardCharsets.UTF_8));
+    }
+  }
+
+  /**
+   * Copies a quoted value into the value buffer, replacing every pair of quotes with a single quote.
+   *
+   * @return the length of the unescaped value
+   */
+  private int unescape(int start, int end) {
+    if (valueBuffer.length < end - start) {
+      valueBuffer = new byte[Math.max(end - start, valueBuffer.length * 2)];
+    }
+    int j = 0;
+    for (int i = start; i < end; i++) {
+      valueBuffer[j++] = bytes[i];
+      if (bytes[i] == QUOTE) {
+        i++;
+      }
+    }
+    return j;
+  }
+
+  /**
+   * Returns the number of digits in the given range if it is an optionally signed integer, or -1 if it is not.
+   */
+  private static int countDigits(byte[] src, int start, int end) {
+    int i = start;
+    if (src[i] == '-' || src[i] == '+') {
+      i++;
+    }
+    if (i == end) {
+      return -1;
+    }
+    for (int j = i; j < end; j++) {
+      if (src[j] < '0' || src[j] > '9') {
+        return -1;
+      }
+    }
+    return end - i;
+  }
+
+  private static long parseLong(byte[] src, int start, int end) {
+    int i = start;
+    boolean negative = src[i] == '-';
+    if (negative || src[i] == '+') {
+      i++;
+    }
+    long value = 0;
+    for (; i < end; i++) {
+      value = value * 10 + (src[i] - '0');
+    }
+    return negative ? -value : value;
+  }
+
+  /**
+   * Same as {@link Boolean#parseBoolean(String)}, without creating a String.
+   */
+  private static boolean isTrue(byte[] src, int start, int end) {
+    if (end - start != TRUE.length) {
+      return false;
+    }
+    for (int i = 0; i < TRUE.length; i++) {
+      if ((src[start + i] | 0x20) != TRUE[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
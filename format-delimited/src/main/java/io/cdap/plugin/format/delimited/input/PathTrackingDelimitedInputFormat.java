@@ -16,21 +16,20 @@
 
 package io.cdap.plugin.format.delimited.input;
 
-import com.google.common.base.Splitter;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.format.SchemaProjection;
 import io.cdap.plugin.format.input.PathTrackingInputFormat;
+import io.cdap.plugin.format.input.ReadAheadLineRecordReader;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
-import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.input.FileSplit;
-import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
 
-import java.io.IOException;
-import java.util.Iterator;
 import javax.annotation.Nullable;
 
 /**
@@ -38,6 +37,18 @@ import javax.annotation.Nullable;
  */
 public class PathTrackingDelimitedInputFormat extends PathTrackingInputFormat {
   static final String DELIMITER = "delimiter";
+  static final String ENABLE_QUOTES = "enable.quoted.values";
+
+  @Override
+  protected boolean isSplitable(JobContext context, Path file) {
+    // a quoted value can contain newlines, so a split cannot reliably find the start of a record
+    return !context.getConfiguration().getBoolean(ENABLE_QUOTES, false) && super.isSplitable(context, file);
+  }
+
+  @Override
+  protected boolean supportsProjection() {
+    return true;
+  }
 
   @Override
   protected RecordReader<NullWritable, StructuredRecord.Builder> createRecordReader(FileSplit split,
@@ -45,52 +56,10 @@ public class PathTrackingDelimitedInputFormat extends PathTrackingInputFormat {
                                                                                     @Nullable String pathField,
                                                                                     @Nullable Schema schema) {
 
-    RecordReader<LongWritable, Text> delegate = (new TextInputFormat()).createRecordReader(split, context);
+    RecordReader<LongWritable, Text> delegate = ReadAheadLineRecordReader.create(split, context);
     String delimiter = context.getConfiguration().get(DELIMITER);
-
-    return new RecordReader<NullWritable, StructuredRecord.Builder>() {
-
-      @Override
-      public void initialize(InputSplit split, TaskAttemptContext context) throws IOException, InterruptedException {
-        delegate.initialize(split, context);
-      }
-
-      @Override
-      public boolean nextKeyValue() throws IOException, InterruptedException {
-        return delegate.nextKeyValue();
-      }
-
-      @Override
-      public NullWritable getCurrentKey() {
-        return NullWritable.get();
-      }
-
-      @Override
-      public StructuredRecord.Builder getCurrentValue() throws IOException, InterruptedException {
-        String delimitedString = delegate.getCurrentValue().toString();
-
-        StructuredRecord.Builder builder = StructuredRecord.builder(schema);
-        Iterator<Schema.Field> fields = schema.getFields().iterator();
-
-        for (String part : Splitter.on(delimiter).split(delimitedString)) {
-          if (part.isEmpty()) {
-            builder.set(fields.next().getName(), null);
-          } else {
-            builder.convertAndSet(fields.next().getName(), part);
-          }
-        }
-        return builder;
-      }
-
-      @Override
-      public float getProgress() throws IOException, InterruptedException {
-        return delegate.getProgress();
-      }
-
-      @Override
-      public void close() throws IOException {
-        delegate.close();
-      }
-    };
+    boolean enableQuotes = context.getConfiguration().getBoolean(ENABLE_QUOTES, false);
+    Schema projectedSchema = SchemaProjection.getProjectedSchema(context.getConfiguration(), schema, pathField);
+    return new DelimitedRecordReader(delegate, schema, projectedSchema, delimiter, enableQuotes);
   }
 }
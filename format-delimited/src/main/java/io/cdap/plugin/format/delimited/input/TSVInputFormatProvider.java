@@ -20,7 +20,6 @@ import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
 import io.cdap.cdap.api.plugin.PluginClass;
-import io.cdap.plugin.format.input.PathTrackingConfig;
 import io.cdap.plugin.format.input.PathTrackingInputFormatProvider;
 
 import java.util.Map;
@@ -31,14 +30,14 @@ import java.util.Map;
 @Plugin(type = "inputformat")
 @Name(TSVInputFormatProvider.NAME)
 @Description(TSVInputFormatProvider.DESC)
-public class TSVInputFormatProvider extends PathTrackingInputFormatProvider<PathTrackingConfig> {
+public class TSVInputFormatProvider extends PathTrackingInputFormatProvider<DelimitedConfig> {
   static final String NAME = "tsv";
   static final String DESC = "Plugin for reading files in tsv format.";
   public static final PluginClass PLUGIN_CLASS =
     new PluginClass("inputformat", NAME, DESC, TSVInputFormatProvider.class.getName(),
-                    "conf", PathTrackingConfig.FIELDS);
+                    "conf", DelimitedConfig.FIELDS);
 
-  public TSVInputFormatProvider(PathTrackingConfig conf) {
+  public TSVInputFormatProvider(DelimitedConfig conf) {
     super(conf);
   }
 
@@ -57,5 +56,6 @@ public class TSVInputFormatProvider extends PathTrackingInputFormatProvider<Path
   @Override
   protected void addFormatProperties(Map<String, String> properties) {
     properties.put(PathTrackingDelimitedInputFormat.DELIMITER, "\t");
+    properties.put(PathTrackingDelimitedInputFormat.ENABLE_QUOTES, String.valueOf(conf.getEnableQuotedValues()));
   }
 }
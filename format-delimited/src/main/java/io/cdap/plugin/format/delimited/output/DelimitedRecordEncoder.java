@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.delimited.output;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.format.StructuredRecordStringConverter;
+import io.cdap.plugin.format.output.StructuredTextOutputFormat;
+import io.cdap.plugin.format.output.TextBuffer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Encodes records as delimited text, the same as {@link StructuredRecordStringConverter#toDelimitedString}.
+ * Records whose fields are all booleans, numbers or strings are encoded directly into the buffer. Records with other
+ * fields, such as logical types or bytes, are converted with StructuredRecordStringConverter.
+ */
+final class DelimitedRecordEncoder implements StructuredTextOutputFormat.RecordEncoder {
+  private final String delimiter;
+  private final byte[] delimiterBytes;
+  // records written by a task almost always share the same schema instance, so the field types are only
+  // looked up again when the schema instance changes
+  private Schema schema;
+  private Schema.Type[] types;
+
+  DelimitedRecordEncoder(String delimiter) {
+    this.delimiter = delimiter;
+    this.delimiterBytes = delimiter.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public void encode(StructuredRecord record, TextBuffer buffer) {
+    Schema recordSchema = record.getSchema();
+    if (recordSchema != schema) {
+      schema = recordSchema;
+      types = getTypes(recordSchema);
+    }
+    if (types == null) {
+      buffer.writeUtf8(StructuredRecordStringConverter.toDelimitedString(record, delimiter));
+      return;
+    }
+    List<Schema.Field> fields = recordSchema.getFields();
+    for (int i = 0; i < types.length; i++) {
+      if (i > 0) {
+        buffer.write(delimiterBytes);
+      }
+      Object value = record.get(fields.get(i).getName());
+      if (value == null) {
+        continue;
+      }
+      if ((types[i] == Schema.Type.INT || types[i] == Schema.Type.LONG) && value instanceof Number) {
+        buffer.writeLong(((Number) value).longValue());
+      } else {
+        buffer.writeUtf8(value.toString());
+      }
+    }
+  }
+
+  /**
+   * Returns the type of each field, or null if any field is not a boolean, number or string.
+   */
+  @Nullable
+  private static Schema.Type[] getTypes(Schema schema) {
+    List<Schema.Field> fields = schema.getFields();
+    Schema.Type[] types = new Schema.Type[fields.size()];
+    for (int i = 0; i < types.length; i++) {
+      Schema fieldSchema = fields.get(i).getSchema();
+      if (fieldSchema.isNullable()) {
+        fieldSchema = fieldSchema.getNonNullable();
+      }
+      if (fieldSchema.getLogicalType() != null) {
+        return null;
+      }
+      switch (fieldSchema.getType()) {
+        case BOOLEAN:
+        case INT:
+        case LONG:
+        case FLOAT:
+        case DOUBLE:
+        case STRING:
+          types[i] = fieldSchema.getType();
+          break;
+        default:
+          return null;
+      }
+    }
+    return types;
+  }
+}
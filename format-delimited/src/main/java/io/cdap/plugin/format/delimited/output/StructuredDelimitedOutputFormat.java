@@ -18,14 +18,12 @@ package io.cdap.plugin.format.delimited.output;
 
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.dataset.lib.KeyValue;
-import io.cdap.cdap.format.StructuredRecordStringConverter;
 import io.cdap.plugin.format.output.DelegatingOutputFormat;
+import io.cdap.plugin.format.output.StructuredTextOutputFormat;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.NullWritable;
-import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.OutputFormat;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
-import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
@@ -34,9 +32,10 @@ import java.util.Map;
 import java.util.function.Function;
 
 /**
- * Converts StructuredRecord into string before delegating to TextOutputFormat.
+ * Writes StructuredRecords as lines of delimited text. Fields are encoded straight into the output buffer,
+ * see {@link DelimitedRecordEncoder}.
  */
-public class StructuredDelimitedOutputFormat extends DelegatingOutputFormat<NullWritable, Text> {
+public class StructuredDelimitedOutputFormat extends DelegatingOutputFormat<NullWritable, StructuredRecord> {
   static final String DELIMITER_KEY = "delimiter";
 
   static Map<String, String> getConfiguration(String delimiter) {
@@ -48,17 +47,20 @@ public class StructuredDelimitedOutputFormat extends DelegatingOutputFormat<Null
   }
 
   @Override
-  protected OutputFormat<NullWritable, Text> createDelegate() {
-    return new TextOutputFormat<>();
+  protected OutputFormat<NullWritable, StructuredRecord> createDelegate() {
+    return new StructuredTextOutputFormat(context -> new DelimitedRecordEncoder(getDelimiter(context)));
   }
 
   @Override
-  protected Function<StructuredRecord, KeyValue<NullWritable, Text>> getConversion(TaskAttemptContext context) {
+  protected Function<StructuredRecord, KeyValue<NullWritable, StructuredRecord>> getConversion(
+    TaskAttemptContext context) {
+    return record -> new KeyValue<>(NullWritable.get(), record);
+  }
+
+  private static String getDelimiter(TaskAttemptContext context) {
     Configuration hConf = context.getConfiguration();
     String encodedDelimiter = hConf.get(DELIMITER_KEY);
-    String delimiter = new String(Base64.getDecoder().decode(encodedDelimiter), StandardCharsets.UTF_8);
-    return record -> new KeyValue<>(NullWritable.get(),
-                                    new Text(StructuredRecordStringConverter.toDelimitedString(record, delimiter)));
+    return new String(Base64.getDecoder().decode(encodedDelimiter), StandardCharsets.UTF_8);
   }
 
 }
@@ -0,0 +1,236 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.delimited.input;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.format.UnexpectedFormatException;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Tests for {@link DelimitedRecordReader}.
+ */
+public class DelimitedRecordReaderTest {
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("s", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("i", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+    Schema.Field.of("l", Schema.nullableOf(Schema.of(Schema.Type.LONG))),
+    Schema.Field.of("b", Schema.nullableOf(Schema.of(Schema.Type.BOOLEAN))),
+    Schema.Field.of("f", Schema.nullableOf(Schema.of(Schema.Type.FLOAT))),
+    Schema.Field.of("d", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))));
+
+  private static final List<String> LINES = Arrays.asList(
+    "a,1,2,true,1.5,2.5",
+    "\"x,y\",-3,+4,TRUE,-0.25,1e10",
+    "\"say \"\"hi\"\"\",,,false,,",
+    "\"multi",
+    "line\",5",
+    "\"\"",
+    ",7",
+    "z,2147483647,9223372036854775807,no,3,4",
+    "\"\"\"\",-2147483648,-9223372036854775808");
+
+  @Test
+  public void testRecords() throws Exception {
+    List<StructuredRecord> records = readRecords(SCHEMA, null, LINES);
+    Assert.assertEquals(8, records.size());
+
+    Assert.assertEquals(StructuredRecord.builder(SCHEMA)
+                          .set("s", "a").set("i", 1).set("l", 2L).set("b", true).set("f", 1.5f).set("d", 2.5d)
+                          .build(), records.get(0));
+    Assert.assertEquals(StructuredRecord.builder(SCHEMA)
+                          .set("s", "x,y").set("i", -3).set("l", 4L).set("b", true).set("f", -0.25f).set("d", 1e10d)
+                          .build(), records.get(1));
+    Assert.assertEquals(StructuredRecord.builder(SCHEMA).set("s", "say \"hi\"").set("b", false).build(),
+                        records.get(2));
+    Assert.assertEquals(StructuredRecord.builder(SCHEMA).set("s", "multi\nline").set("i", 5).build(),
+                        records.get(3));
+    Assert.assertEquals(StructuredRecord.builder(SCHEMA).set("s", "").build(), records.get(4));
+    Assert.assertEquals(StructuredRecord.builder(SCHEMA).set("i", 7).build(), records.get(5));
+    Assert.assertEquals(StructuredRecord.builder(SCHEMA)
+                          .set("s", "z").set("i", Integer.MAX_VALUE).set("l", Long.MAX_VALUE).set("b", false)
+                          .set("f", 3f).set("d", 4d)
+                          .build(), records.get(6));
+    Assert.assertEquals(StructuredRecord.builder(SCHEMA)
+                          .set("s", "\"").set("i", Integer.MIN_VALUE).set("l", Long.MIN_VALUE)
+                          .build(), records.get(7));
+  }
+
+  @Test
+  public void testProjection() throws Exception {
+    Schema projected = Schema.recordOf("projected", SCHEMA.getField("l"), SCHEMA.getField("s"));
+    List<String> lines = Arrays.asList("a,1,2,true,1.5,2.5", "b,2", "c,3,30", ",,,,,", "e,5,50,false");
+    List<StructuredRecord> records = readRecords(SCHEMA, projected, lines, ",", false);
+    Assert.assertEquals(5, records.size());
+    Assert.assertEquals(StructuredRecord.builder(projected).set("s", "a").set("l", 2L).build(), records.get(0));
+    Assert.assertEquals(StructuredRecord.builder(projected).set("s", "b").build(), records.get(1));
+    Assert.assertEquals(StructuredRecord.builder(projected).build(), records.get(3));
+  }
+
+  @Test
+  public void testMultiByteDelimiter() throws Exception {
+    List<String> lines = Arrays.asList("a::1::2", "b:c::::3");
+    List<StructuredRecord> records = readRecords(SCHEMA, null, lines, "::", false);
+    Assert.assertEquals(StructuredRecord.builder(SCHEMA).set("s", "a").set("i", 1).set("l", 2L).build(),
+                        records.get(0));
+    Assert.assertEquals(StructuredRecord.builder(SCHEMA).set("s", "b:c").set("l", 3L).build(), records.get(1));
+  }
+
+  @Test
+  public void testMultiLineValues() throws Exception {
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("s", Schema.of(Schema.Type.STRING)),
+                                    Schema.Field.of("i", Schema.of(Schema.Type.INT)),
+                                    Schema.Field.of("t", Schema.of(Schema.Type.STRING)));
+    List<String> lines = new ArrayList<>();
+    StringBuilder expected = new StringBuilder();
+    lines.add("\"start");
+    expected.append("start");
+    for (int i = 0; i < 1000; i++) {
+      lines.add("line " + i + ",");
+      expected.append("\nline ").append(i).append(',');
+    }
+    // escaped quotes at the end of lines, and a second multi-line value in the same record
+    lines.add("a\"\"");
+    lines.add("\"\"b\",1,\"x");
+    lines.add("y\"");
+    lines.add("next,2,z");
+    expected.append("\na\"\n\"b");
+
+    List<StructuredRecord> records = readRecords(schema, null, lines);
+    Assert.assertEquals(2, records.size());
+    Assert.assertEquals(StructuredRecord.builder(schema).set("s", expected.toString()).set("i", 1).set("t", "x\ny")
+                          .build(), records.get(0));
+    Assert.assertEquals(StructuredRecord.builder(schema).set("s", "next").set("i", 2).set("t", "z").build(),
+                        records.get(1));
+  }
+
+  @Test
+  public void testEmptyValueInNonNullableField() throws Exception {
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("s", Schema.of(Schema.Type.STRING)),
+                                    Schema.Field.of("i", Schema.of(Schema.Type.INT)));
+    List<String> lines = Arrays.asList("a,1", "b,");
+    try {
+      readRecords(schema, null, lines);
+      Assert.fail("Expected an empty value in a non-nullable field to fail.");
+    } catch (UnexpectedFormatException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testOverflow() throws Exception {
+    for (String line : Arrays.asList("a,2147483648", "a,-2147483649", "a,1,9223372036854775808", "a,12x")) {
+      try {
+        readRecords(SCHEMA, null, Arrays.asList(line));
+        Assert.fail("Expected '" + line + "' to fail.");
+      } catch (NumberFormatException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testUnterminatedQuote() throws Exception {
+    try {
+      readRecords(SCHEMA, null, Arrays.asList("a,1", "\"b,2", "c,3"));
+      Assert.fail("Expected an unterminated quoted value to fail.");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  private static List<StructuredRecord> readRecords(Schema schema, @Nullable Schema projected,
+                                                    List<String> lines) throws Exception {
+    return readRecords(schema, projected, lines, ",", true);
+  }
+
+  private static List<StructuredRecord> readRecords(Schema schema, @Nullable Schema projected, List<String> lines,
+                                                    String delimiter, boolean enableQuotes) throws Exception {
+    List<StructuredRecord> records = new ArrayList<>();
+    try (DelimitedRecordReader reader = new DelimitedRecordReader(new LineReader(lines), schema, projected,
+                                                                  delimiter, enableQuotes)) {
+      while (reader.nextKeyValue()) {
+        records.add(reader.getCurrentValue().build());
+      }
+    }
+    return records;
+  }
+
+  /**
+   * Returns lines the way a line record reader does, reusing the same Text for every line.
+   */
+  private static final class LineReader extends RecordReader<LongWritable, Text> {
+    private final Iterator<String> lines;
+    private final LongWritable key = new LongWritable();
+    private final Text value = new Text();
+
+    private LineReader(List<String> lines) {
+      this.lines = lines.iterator();
+    }
+
+    @Override
+    public void initialize(InputSplit split, TaskAttemptContext context) {
+      // no-op
+    }
+
+    @Override
+    public boolean nextKeyValue() {
+      if (!lines.hasNext()) {
+        return false;
+      }
+      key.set(key.get() + value.getLength() + 1);
+      value.set(lines.next());
+      return true;
+    }
+
+    @Override
+    public LongWritable getCurrentKey() {
+      return key;
+    }
+
+    @Override
+    public Text getCurrentValue() {
+      return value;
+    }
+
+    @Override
+    public float getProgress() {
+      return 0f;
+    }
+
+    @Override
+    public void close() {
+      // no-op
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.delimited.output;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.format.StructuredRecordStringConverter;
+import io.cdap.plugin.format.output.TextBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tests that {@link DelimitedRecordEncoder} encodes records the same as {@link StructuredRecordStringConverter}.
+ */
+public class DelimitedRecordEncoderTest {
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("b", Schema.nullableOf(Schema.of(Schema.Type.BOOLEAN))),
+    Schema.Field.of("i", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+    Schema.Field.of("l", Schema.nullableOf(Schema.of(Schema.Type.LONG))),
+    Schema.Field.of("f", Schema.nullableOf(Schema.of(Schema.Type.FLOAT))),
+    Schema.Field.of("d", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))),
+    Schema.Field.of("s", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+
+  @Test
+  public void testPrimitives() {
+    for (String delimiter : new String[] { ",", "\t", "::", "¦" }) {
+      DelimitedRecordEncoder encoder = new DelimitedRecordEncoder(delimiter);
+      assertEncoded(encoder, delimiter, StructuredRecord.builder(SCHEMA)
+        .set("b", true).set("i", Integer.MIN_VALUE).set("l", Long.MIN_VALUE).set("f", -0.25f).set("d", 1e-10d)
+        .set("s", "plain").build());
+      assertEncoded(encoder, delimiter, StructuredRecord.builder(SCHEMA)
+        .set("b", false).set("i", Integer.MAX_VALUE).set("l", Long.MAX_VALUE).set("f", Float.NaN)
+        .set("d", Double.NEGATIVE_INFINITY).set("s", "").build());
+      assertEncoded(encoder, delimiter, StructuredRecord.builder(SCHEMA).set("i", 0).set("l", -1L).build());
+      assertEncoded(encoder, delimiter, StructuredRecord.builder(SCHEMA).build());
+    }
+  }
+
+  @Test
+  public void testStringsAreWrittenAsIs() {
+    DelimitedRecordEncoder encoder = new DelimitedRecordEncoder(",");
+    for (String value : new String[] { "a,b", "quote \" and newline \n", "latin é, cjk 中文", "pair \uD83D\uDE00",
+      "unpaired \uD83D surrogate" }) {
+      assertEncoded(encoder, ",", StructuredRecord.builder(SCHEMA).set("s", value).set("i", 1).build());
+    }
+  }
+
+  @Test
+  public void testUnsupportedSchemasFallBack() {
+    DelimitedRecordEncoder encoder = new DelimitedRecordEncoder(",");
+    Schema schema = Schema.recordOf(
+      "other",
+      Schema.Field.of("s", Schema.of(Schema.Type.STRING)),
+      Schema.Field.of("date", Schema.nullableOf(Schema.of(Schema.LogicalType.DATE))),
+      Schema.Field.of("l", Schema.nullableOf(Schema.of(Schema.Type.LONG))));
+    assertEncoded(encoder, ",", StructuredRecord.builder(schema).set("s", "x").set("date", 17897).set("l", 5L).build());
+
+    // the encoder switches back when the schema changes again
+    assertEncoded(encoder, ",", StructuredRecord.builder(SCHEMA).set("l", 7L).set("s", "y").build());
+    assertEncoded(encoder, ",", StructuredRecord.builder(schema).set("s", "z").build());
+  }
+
+  /**
+   * Asserts that the encoder appends the same bytes that StructuredRecordStringConverter produces, and leaves what was
+   * in the buffer before untouched.
+   */
+  private static void assertEncoded(DelimitedRecordEncoder encoder, String delimiter, StructuredRecord record) {
+    String expected = "previous\n" + StructuredRecordStringConverter.toDelimitedString(record, delimiter);
+    TextBuffer buffer = new TextBuffer();
+    buffer.writeUtf8("previous\n");
+    encoder.encode(record, buffer);
+    Assert.assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), buffer.toByteArray());
+  }
+}
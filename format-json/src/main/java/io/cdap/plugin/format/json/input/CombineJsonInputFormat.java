@@ -17,13 +17,13 @@
 package io.cdap.plugin.format.json.input;
 
 import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.plugin.format.input.CombinePathTrackingInputFormat;
 import io.cdap.plugin.format.input.PathTrackingInputFormat;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.NullWritable;
-import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
-import org.apache.hadoop.mapreduce.lib.input.CombineFileInputFormat;
-import org.apache.hadoop.mapreduce.lib.input.CombineFileRecordReader;
 import org.apache.hadoop.mapreduce.lib.input.CombineFileRecordReaderWrapper;
 import org.apache.hadoop.mapreduce.lib.input.CombineFileSplit;
 
@@ -32,15 +32,18 @@ import java.io.IOException;
 /**
  * Combined input format that tracks which file each json record was read from.
  */
-public class CombineJsonInputFormat extends CombineFileInputFormat<NullWritable, StructuredRecord> {
+public class CombineJsonInputFormat extends CombinePathTrackingInputFormat {
+
+  @Override
+  protected boolean isSplitable(JobContext context, Path file) {
+    // an array can only be read from the start of the file
+    return !context.getConfiguration().getBoolean(PathTrackingJsonInputFormat.JSON_ARRAY, false)
+      && super.isSplitable(context, file);
+  }
 
-  /**
-   * Creates a RecordReader that delegates to some other RecordReader for each path in the input split.
-   */
   @Override
-  public RecordReader<NullWritable, StructuredRecord> createRecordReader(InputSplit split, TaskAttemptContext context)
-    throws IOException {
-    return new CombineFileRecordReader<>((CombineFileSplit) split, context, WrapperReader.class);
+  protected Class<? extends RecordReader<NullWritable, StructuredRecord>> getRecordReaderClass() {
+    return WrapperReader.class;
   }
 
   /**
@@ -0,0 +1,121 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.json.input;
+
+import com.google.gson.stream.JsonReader;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.plugin.format.input.ReadAheadInputStream;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads files that contain a single json array of objects, which may span any number of lines. Objects are
+ * streamed from the array one at a time, so the file is never fully held in memory. An array cannot be entered
+ * in the middle, so each file must be read by a single split.
+ */
+class JsonArrayRecordReader extends RecordReader<NullWritable, StructuredRecord.Builder> {
+  private final JsonRecordDecoder decoder;
+  private FSDataInputStream fileIn;
+  private JsonReader reader;
+  private long length;
+  private boolean done;
+  private StructuredRecord.Builder current;
+
+  JsonArrayRecordReader(JsonRecordDecoder decoder) {
+    this.decoder = decoder;
+  }
+
+  @Override
+  public void initialize(InputSplit split, TaskAttemptContext context) throws IOException {
+    FileSplit fileSplit = (FileSplit) split;
+    if (fileSplit.getStart() != 0) {
+      throw new IOException(String.format("Json array file '%s' cannot be read from offset %d.",
+                                          fileSplit.getPath(), fileSplit.getStart()));
+    }
+    Path path = fileSplit.getPath();
+    Configuration conf = context.getConfiguration();
+    fileIn = ReadAheadInputStream.open(path, conf, 0L, fileSplit.getLength());
+    length = fileSplit.getLength();
+
+    CompressionCodec codec = new CompressionCodecFactory(conf).getCodec(path);
+    InputStream in = codec == null ? fileIn : codec.createInputStream(fileIn);
+    reader = new JsonReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+    try {
+      reader.beginArray();
+    } catch (EOFException e) {
+      // empty file
+      done = true;
+    }
+  }
+
+  @Override
+  public boolean nextKeyValue() throws IOException {
+    if (done) {
+      return false;
+    }
+    if (!reader.hasNext()) {
+      reader.endArray();
+      done = true;
+      return false;
+    }
+    current = decoder.decode(reader);
+    return true;
+  }
+
+  @Override
+  public NullWritable getCurrentKey() {
+    return NullWritable.get();
+  }
+
+  @Override
+  public StructuredRecord.Builder getCurrentValue() {
+    return current;
+  }
+
+  @Override
+  public float getProgress() throws IOException {
+    if (done || length == 0) {
+      return 1.0f;
+    }
+    // position of the underlying file, which is compressed if a codec is used
+    return Math.min(1.0f, fileIn.getPos() / (float) length);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (reader != null) {
+      reader.close();
+    } else if (fileIn != null) {
+      fileIn.close();
+    }
+  }
+}
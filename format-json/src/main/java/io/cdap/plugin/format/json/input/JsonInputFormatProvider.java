@@ -17,26 +17,30 @@
 package io.cdap.plugin.format.json.input;
 
 import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Macro;
 import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
 import io.cdap.cdap.api.plugin.PluginClass;
+import io.cdap.cdap.api.plugin.PluginPropertyField;
 import io.cdap.plugin.format.input.PathTrackingConfig;
 import io.cdap.plugin.format.input.PathTrackingInputFormatProvider;
 
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
 /**
  * Reads json into StructuredRecords.
  */
 @Plugin(type = "inputformat")
 @Name(JsonInputFormatProvider.NAME)
 @Description(JsonInputFormatProvider.DESC)
-public class JsonInputFormatProvider extends PathTrackingInputFormatProvider<PathTrackingConfig> {
+public class JsonInputFormatProvider extends PathTrackingInputFormatProvider<JsonInputFormatProvider.Conf> {
   static final String NAME = "json";
   static final String DESC = "Plugin for reading files in json format.";
-  public static final PluginClass PLUGIN_CLASS =
-    new PluginClass("inputformat", NAME, DESC, JsonInputFormatProvider.class.getName(),
-                    "conf", PathTrackingConfig.FIELDS);
+  public static final PluginClass PLUGIN_CLASS = getPluginClass();
 
-  public JsonInputFormatProvider(PathTrackingConfig conf) {
+  public JsonInputFormatProvider(Conf conf) {
     super(conf);
   }
 
@@ -51,4 +55,34 @@ public class JsonInputFormatProvider extends PathTrackingInputFormatProvider<Pat
       throw new IllegalArgumentException("Json format cannot be used without specifying a schema.");
     }
   }
+
+  @Override
+  protected void addFormatProperties(Map<String, String> properties) {
+    properties.put(PathTrackingJsonInputFormat.JSON_ARRAY, String.valueOf(conf.isJsonArray()));
+  }
+
+  /**
+   * Plugin config for json input format
+   */
+  public static class Conf extends PathTrackingConfig {
+    private static final String JSON_ARRAY_DESC = "Whether each file contains a single json array of records, "
+      + "which may span multiple lines, instead of one json record per line. "
+      + "Files are not split when this is enabled. The default value is false.";
+
+    @Macro
+    @Nullable
+    @Description(JSON_ARRAY_DESC)
+    private Boolean jsonArray;
+
+    public boolean isJsonArray() {
+      return jsonArray == null ? false : jsonArray;
+    }
+  }
+
+  private static PluginClass getPluginClass() {
+    Map<String, PluginPropertyField> properties = new HashMap<>(PathTrackingConfig.FIELDS);
+    properties.put("jsonArray", new PluginPropertyField("jsonArray", Conf.JSON_ARRAY_DESC, "boolean", false, true));
+    return new PluginClass("inputformat", NAME, DESC, JsonInputFormatProvider.class.getName(),
+                           "conf", properties);
+  }
 }
@@ -0,0 +1,192 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.json.input;
+
+import com.google.gson.stream.JsonReader;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads one json object per line. A single {@link JsonReader} is used for the whole split, reading the lines as if
+ * they were the elements of a json array: each line is decoded into a reused character buffer and handed to the
+ * reader with a separating comma, only once the reader needs it. The values are parsed straight into the record
+ * builder.
+ *
+ * Each line must hold exactly one object. Blank lines and objects that span lines fail the read, as they did when
+ * every line was parsed on its own, and so does anything but whitespace after the object on a line.
+ */
+class JsonLineRecordReader extends RecordReader<NullWritable, StructuredRecord.Builder> {
+  private final RecordReader<LongWritable, Text> delegate;
+  private final JsonRecordDecoder decoder;
+  private final CharsetDecoder charsetDecoder;
+  private final LineSource source;
+  private JsonReader reader;
+  private CharBuffer chars;
+  private StructuredRecord.Builder current;
+
+  JsonLineRecordReader(RecordReader<LongWritable, Text> delegate, JsonRecordDecoder decoder) {
+    this.delegate = delegate;
+    this.decoder = decoder;
+    // same handling of malformed input as Text#toString
+    this.charsetDecoder = StandardCharsets.UTF_8.newDecoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    this.source = new LineSource();
+    this.chars = CharBuffer.allocate(0);
+  }
+
+  @Override
+  public void initialize(InputSplit split, TaskAttemptContext context) throws IOException, InterruptedException {
+    delegate.initialize(split, context);
+    reader = new JsonReader(source);
+    reader.beginArray();
+  }
+
+  @Override
+  public boolean nextKeyValue() throws IOException {
+    if (!reader.hasNext()) {
+      return false;
+    }
+    current = decoder.decode(reader);
+    return true;
+  }
+
+  @Override
+  public NullWritable getCurrentKey() {
+    return NullWritable.get();
+  }
+
+  @Override
+  public StructuredRecord.Builder getCurrentValue() {
+    return current;
+  }
+
+  @Override
+  public float getProgress() throws IOException, InterruptedException {
+    return delegate.getProgress();
+  }
+
+  @Override
+  public void close() throws IOException {
+    delegate.close();
+  }
+
+  /**
+   * Decodes a line into the character buffer, which is then ready to be read.
+   *
+   * @param separate whether the line is preceded by a separator from the previous line
+   */
+  private void decode(Text line, boolean separate) {
+    // utf-8 never decodes to more chars than bytes, plus the separator
+    if (chars.capacity() < line.getLength() + 2) {
+      chars = CharBuffer.allocate(Math.max(line.getLength() + 2, chars.capacity() * 2));
+    }
+    chars.clear();
+    if (separate) {
+      // the new line keeps the line numbers in parse errors relative to the start of the split
+      chars.put(',').put('\n');
+    }
+    charsetDecoder.reset();
+    charsetDecoder.decode(ByteBuffer.wrap(line.getBytes(), 0, line.getLength()), chars, true);
+    charsetDecoder.flush(chars);
+    chars.flip();
+  }
+
+  private static boolean isBlank(Text line) {
+    byte[] bytes = line.getBytes();
+    for (int i = 0; i < line.getLength(); i++) {
+      if (!Character.isWhitespace(bytes[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * The characters of the lines of the split, as a json array of the lines. The next line is only read from the
+   * delegate when the json reader has consumed the previous one.
+   */
+  private final class LineSource extends Reader {
+    private boolean started;
+    private boolean ended;
+    private long lines;
+
+    @Override
+    public int read(char[] buffer, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (!started) {
+        started = true;
+        buffer[off] = '[';
+        return 1;
+      }
+      if (!chars.hasRemaining()) {
+        if (ended) {
+          return -1;
+        }
+        if (!nextLine()) {
+          ended = true;
+          buffer[off] = ']';
+          return 1;
+        }
+        Text line = delegate.getCurrentValue();
+        if (isBlank(line)) {
+          // a blank line would be read as a missing array element, which the json reader does not always catch
+          throw new IOException(String.format("Found a blank line at line %d of the split where a json object "
+                                                + "was expected.", lines));
+        }
+        decode(line, lines > 1);
+      }
+      int count = Math.min(len, chars.remaining());
+      chars.get(buffer, off, count);
+      return count;
+    }
+
+    private boolean nextLine() throws IOException {
+      try {
+        if (!delegate.nextKeyValue()) {
+          return false;
+        }
+        lines++;
+        return true;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while reading the next line.");
+      }
+    }
+
+    @Override
+    public void close() {
+      // the delegate is closed by the record reader
+    }
+  }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.json.input;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decodes json objects from a {@link JsonReader} directly into a {@link StructuredRecord.Builder}. The field
+ * lookup for the top level schema is built once, and members that are not in the schema are skipped without
+ * being decoded.
+ *
+ * Values are decoded the same way as {@link io.cdap.cdap.format.StructuredRecordStringConverter}, with bytes
+ * represented as an array of numbers.
+ */
+final class JsonRecordDecoder {
+  private final Schema schema;
+  private final Map<String, Schema> fieldSchemas;
+
+  JsonRecordDecoder(Schema schema) {
+    this.schema = schema;
+    this.fieldSchemas = new HashMap<>();
+    for (Schema.Field field : schema.getFields()) {
+      fieldSchemas.put(field.getName(), field.getSchema());
+    }
+  }
+
+  /**
+   * Reads the next json object from the reader.
+   */
+  StructuredRecord.Builder decode(JsonReader reader) throws IOException {
+    StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      Schema fieldSchema = fieldSchemas.get(name);
+      if (fieldSchema == null) {
+        reader.skipValue();
+      } else {
+        builder.set(name, decodeValue(reader, fieldSchema));
+      }
+    }
+    reader.endObject();
+    return builder;
+  }
+
+  private static Object decodeValue(JsonReader reader, Schema schema) throws IOException {
+    switch (schema.getType()) {
+      case NULL:
+        reader.nextNull();
+        return null;
+      case BOOLEAN:
+        return reader.nextBoolean();
+      case INT:
+        return reader.nextInt();
+      case LONG:
+        return reader.nextLong();
+      case FLOAT:
+        return (float) reader.nextDouble();
+      case DOUBLE:
+        return reader.nextDouble();
+      case STRING:
+      case ENUM:
+        return reader.nextString();
+      case BYTES:
+        return decodeBytes(reader);
+      case ARRAY:
+        return decodeArray(reader, schema.getComponentSchema());
+      case MAP:
+        return decodeMap(reader, schema.getMapSchema().getValue());
+      case RECORD:
+        return decodeRecord(reader, schema);
+      case UNION:
+        return decodeUnion(reader, schema);
+      default:
+        throw new IOException("Unsupported schema type " + schema.getType());
+    }
+  }
+
+  private static StructuredRecord decodeRecord(JsonReader reader, Schema schema) throws IOException {
+    StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      Schema.Field field = schema.getField(name);
+      if (field == null) {
+        reader.skipValue();
+      } else {
+        builder.set(name, decodeValue(reader, field.getSchema()));
+      }
+    }
+    reader.endObject();
+    return builder.build();
+  }
+
+  private static ByteBuffer decodeBytes(JsonReader reader) throws IOException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    reader.beginArray();
+    while (reader.hasNext()) {
+      os.write(reader.nextInt());
+    }
+    reader.endArray();
+    return ByteBuffer.wrap(os.toByteArray());
+  }
+
+  private static List<Object> decodeArray(JsonReader reader, Schema componentSchema) throws IOException {
+    List<Object> list = new ArrayList<>();
+    reader.beginArray();
+    while (reader.hasNext()) {
+      list.add(decodeValue(reader, componentSchema));
+    }
+    reader.endArray();
+    return list;
+  }
+
+  private static Map<String, Object> decodeMap(JsonReader reader, Schema valueSchema) throws IOException {
+    Map<String, Object> map = new LinkedHashMap<>();
+    reader.beginObject();
+    while (reader.hasNext()) {
+      map.put(reader.nextName(), decodeValue(reader, valueSchema));
+    }
+    reader.endObject();
+    return map;
+  }
+
+  /**
+   * Decodes a union value using the first schema in the union that can hold the next json token. Numbers are
+   * decoded with the narrowest numeric schema in the union that can hold them.
+   */
+  private static Object decodeUnion(JsonReader reader, Schema schema) throws IOException {
+    JsonToken token = reader.peek();
+    if (token == JsonToken.NUMBER) {
+      return decodeUnionNumber(reader.nextString(), schema);
+    }
+    for (Schema unionSchema : schema.getUnionSchemas()) {
+      if (accepts(unionSchema.getType(), token)) {
+        return decodeValue(reader, unionSchema);
+      }
+    }
+    throw new IOException(String.format("Unable to decode json %s as a value of schema %s", token, schema));
+  }
+
+  /**
+   * Decodes a json number into an int or a long if it is integral and in range, and otherwise into a float if it
+   * can be represented exactly as a float, or into a double. A float is only used for a number that it cannot
+   * represent exactly if the union does not contain a double.
+   */
+  private static Object decodeUnionNumber(String number, Schema schema) throws IOException {
+    Set<Schema.Type> types = EnumSet.noneOf(Schema.Type.class);
+    for (Schema unionSchema : schema.getUnionSchemas()) {
+      types.add(unionSchema.getType());
+    }
+    if (number.indexOf('.') < 0 && number.indexOf('e') < 0 && number.indexOf('E') < 0) {
+      try {
+        long value = Long.parseLong(number);
+        if (types.contains(Schema.Type.INT) && value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+          return (int) value;
+        }
+        if (types.contains(Schema.Type.LONG)) {
+          return value;
+        }
+      } catch (NumberFormatException e) {
+        // the number does not fit in a long, so it can only be held by a float or a double
+      }
+    }
+    double value = Double.parseDouble(number);
+    if (types.contains(Schema.Type.FLOAT)
+      && (types.contains(Schema.Type.DOUBLE) ? (float) value == value : !Float.isInfinite((float) value))) {
+      return (float) value;
+    }
+    if (types.contains(Schema.Type.DOUBLE)) {
+      return value;
+    }
+    throw new IOException(String.format("Unable to decode json number %s as a value of schema %s", number, schema));
+  }
+
+  private static boolean accepts(Schema.Type type, JsonToken token) {
+    switch (token) {
+      case NULL:
+        return type == Schema.Type.NULL;
+      case BOOLEAN:
+        return type == Schema.Type.BOOLEAN;
+      case NUMBER:
+        return type == Schema.Type.INT || type == Schema.Type.LONG
+          || type == Schema.Type.FLOAT || type == Schema.Type.DOUBLE;
+      case STRING:
+        return type == Schema.Type.STRING || type == Schema.Type.ENUM;
+      case BEGIN_ARRAY:
+        return type == Schema.Type.ARRAY || type == Schema.Type.BYTES;
+      case BEGIN_OBJECT:
+        return type == Schema.Type.RECORD || type == Schema.Type.MAP;
+      default:
+        return false;
+    }
+  }
+}
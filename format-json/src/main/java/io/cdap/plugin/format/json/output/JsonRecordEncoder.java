@@ -0,0 +1,255 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.json.output;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.format.StructuredRecordStringConverter;
+import io.cdap.plugin.format.output.StructuredTextOutputFormat;
+import io.cdap.plugin.format.output.TextBuffer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes records as JSON objects, the same as {@link StructuredRecordStringConverter#toJsonString}, by generating
+ * the JSON straight into the buffer and escaping strings on the fly.
+ *
+ * Records, arrays, booleans, numbers and strings are generated directly. Records that contain anything else, such as
+ * logical types, bytes, enums, maps or unions other than nullable types, are converted with
+ * StructuredRecordStringConverter instead, as are records with numbers that are not finite.
+ */
+final class JsonRecordEncoder implements StructuredTextOutputFormat.RecordEncoder {
+  private static final byte[] NULL = "null".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] TRUE = "true".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] FALSE = "false".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+  private static final UnsupportedValueException UNSUPPORTED = new UnsupportedValueException();
+
+  // whether a record schema can be generated directly, by schema instance, since records almost always share them
+  private final Map<Schema, Boolean> supported = new IdentityHashMap<>();
+  // the encoded '"name":' prefix of each field of a record schema
+  private final Map<Schema, byte[][]> fieldNames = new IdentityHashMap<>();
+  private final TextBuffer nameBuffer = new TextBuffer();
+
+  @Override
+  public void encode(StructuredRecord record, TextBuffer buffer) throws IOException {
+    Schema schema = record.getSchema();
+    Boolean isSupported = supported.get(schema);
+    if (isSupported == null) {
+      isSupported = isSupported(schema);
+      supported.put(schema, isSupported);
+    }
+    if (isSupported) {
+      int start = buffer.length();
+      try {
+        writeRecord(record, schema, buffer);
+        return;
+      } catch (UnsupportedValueException e) {
+        buffer.truncate(start);
+      }
+    }
+    buffer.writeUtf8(StructuredRecordStringConverter.toJsonString(record));
+  }
+
+  private void writeRecord(StructuredRecord record, Schema schema, TextBuffer buffer) {
+    List<Schema.Field> fields = schema.getFields();
+    byte[][] names = getFieldNames(schema);
+    buffer.write('{');
+    for (int i = 0; i < names.length; i++) {
+      if (i > 0) {
+        buffer.write(',');
+      }
+      Schema.Field field = fields.get(i);
+      buffer.write(names[i]);
+      writeValue(record.get(field.getName()), field.getSchema(), buffer);
+    }
+    buffer.write('}');
+  }
+
+  private void writeValue(Object value, Schema schema, TextBuffer buffer) {
+    if (value == null) {
+      buffer.write(NULL);
+      return;
+    }
+    Schema valueSchema = schema.isNullable() ? schema.getNonNullable() : schema;
+    switch (valueSchema.getType()) {
+      case BOOLEAN:
+        buffer.write((Boolean) value ? TRUE : FALSE);
+        break;
+      case INT:
+      case LONG:
+        buffer.writeLong(((Number) value).longValue());
+        break;
+      case FLOAT:
+      case DOUBLE:
+        // floats are written as doubles, as JSON has no other floating point type
+        double number = ((Number) value).doubleValue();
+        if (Double.isNaN(number) || Double.isInfinite(number)) {
+          throw UNSUPPORTED;
+        }
+        buffer.writeUtf8(Double.toString(number));
+        break;
+      case STRING:
+        writeString(value.toString(), buffer);
+        break;
+      case RECORD:
+        writeRecord((StructuredRecord) value, valueSchema, buffer);
+        break;
+      case ARRAY:
+        writeArray(value, valueSchema.getComponentSchema(), buffer);
+        break;
+      default:
+        // ruled out by isSupported
+        throw UNSUPPORTED;
+    }
+  }
+
+  private void writeArray(Object value, Schema componentSchema, TextBuffer buffer) {
+    buffer.write('[');
+    if (value instanceof Collection) {
+      boolean first = true;
+      for (Object element : (Collection<?>) value) {
+        if (!first) {
+          buffer.write(',');
+        }
+        first = false;
+        writeValue(element, componentSchema, buffer);
+      }
+    } else if (value instanceof Object[]) {
+      Object[] elements = (Object[]) value;
+      for (int i = 0; i < elements.length; i++) {
+        if (i > 0) {
+          buffer.write(',');
+        }
+        writeValue(elements[i], componentSchema, buffer);
+      }
+    } else {
+      // arrays of primitives
+      throw UNSUPPORTED;
+    }
+    buffer.write(']');
+  }
+
+  /**
+   * Writes a JSON string, escaping the same characters as Gson's JsonWriter.
+   */
+  private static void writeString(String value, TextBuffer buffer) {
+    buffer.write('"');
+    int runStart = 0;
+    int length = value.length();
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c >= 0x20 && c != '"' && c != '\\' && c != '\u2028' && c != '\u2029') {
+        continue;
+      }
+      buffer.writeUtf8(value, runStart, i);
+      runStart = i + 1;
+      buffer.write('\\');
+      switch (c) {
+        case '"':
+        case '\\':
+          buffer.write(c);
+          break;
+        case '\t':
+          buffer.write('t');
+          break;
+        case '\b':
+          buffer.write('b');
+          break;
+        case '\n':
+          buffer.write('n');
+          break;
+        case '\r':
+          buffer.write('r');
+          break;
+        case '\f':
+          buffer.write('f');
+          break;
+        default:
+          buffer.write('u');
+          buffer.write(HEX_DIGITS[(c >> 12) & 0xF]);
+          buffer.write(HEX_DIGITS[(c >> 8) & 0xF]);
+          buffer.write(HEX_DIGITS[(c >> 4) & 0xF]);
+          buffer.write(HEX_DIGITS[c & 0xF]);
+      }
+    }
+    buffer.writeUtf8(value, runStart, length);
+    buffer.write('"');
+  }
+
+  private byte[][] getFieldNames(Schema schema) {
+    byte[][] names = fieldNames.get(schema);
+    if (names == null) {
+      List<Schema.Field> fields = schema.getFields();
+      names = new byte[fields.size()][];
+      for (int i = 0; i < names.length; i++) {
+        nameBuffer.reset();
+        writeString(fields.get(i).getName(), nameBuffer);
+        nameBuffer.write(':');
+        names[i] = nameBuffer.toByteArray();
+      }
+      fieldNames.put(schema, names);
+    }
+    return names;
+  }
+
+  private static boolean isSupported(Schema schema) {
+    if (schema.isNullable()) {
+      schema = schema.getNonNullable();
+    }
+    if (schema.getLogicalType() != null) {
+      return false;
+    }
+    switch (schema.getType()) {
+      case BOOLEAN:
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+      case STRING:
+        return true;
+      case ARRAY:
+        return isSupported(schema.getComponentSchema());
+      case RECORD:
+        for (Schema.Field field : schema.getFields()) {
+          if (!isSupported(field.getSchema())) {
+            return false;
+          }
+        }
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Thrown when a value cannot be generated directly, to fall back to StructuredRecordStringConverter for the record.
+   */
+  private static final class UnsupportedValueException extends RuntimeException {
+
+    private UnsupportedValueException() {
+      // shared instance that is only used for control flow, so it needs no stack trace
+      super(null, null, false, false);
+    }
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.json.input;
+
+import com.google.gson.stream.JsonReader;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+
+/**
+ * Tests for decoding union values in {@link JsonRecordDecoder}.
+ */
+public class JsonRecordDecoderTest {
+
+  @Test
+  public void testNumbersInUnions() throws Exception {
+    Schema intLong = union(Schema.Type.INT, Schema.Type.LONG);
+    Assert.assertEquals(5, decode(intLong, "5"));
+    Assert.assertEquals(Integer.MIN_VALUE, decode(intLong, Integer.toString(Integer.MIN_VALUE)));
+    Assert.assertEquals(Integer.MAX_VALUE + 1L, decode(intLong, Long.toString(Integer.MAX_VALUE + 1L)));
+    Assert.assertEquals(Long.MIN_VALUE, decode(intLong, Long.toString(Long.MIN_VALUE)));
+
+    // the order of the schemas in the union does not matter
+    Assert.assertEquals(5, decode(union(Schema.Type.LONG, Schema.Type.INT), "5"));
+    Assert.assertEquals(1L << 40, decode(union(Schema.Type.LONG, Schema.Type.INT), Long.toString(1L << 40)));
+
+    Schema intDouble = union(Schema.Type.INT, Schema.Type.DOUBLE);
+    Assert.assertEquals(7, decode(intDouble, "7"));
+    Assert.assertEquals(1.5d, decode(intDouble, "1.5"));
+    Assert.assertEquals(1e10d, decode(intDouble, "10000000000"));
+    Assert.assertEquals(-2e3d, decode(intDouble, "-2e3"));
+
+    Schema floatDouble = union(Schema.Type.DOUBLE, Schema.Type.FLOAT);
+    Assert.assertEquals(1.5f, decode(floatDouble, "1.5"));
+    Assert.assertEquals(0.1d, decode(floatDouble, "0.1"));
+    Assert.assertEquals(1e100d, decode(floatDouble, "1e100"));
+
+    // numbers that do not fit in a long
+    Assert.assertEquals(1e20d, decode(union(Schema.Type.LONG, Schema.Type.DOUBLE), "100000000000000000000"));
+    Assert.assertEquals(0.1f, decode(union(Schema.Type.FLOAT, Schema.Type.STRING), "0.1"));
+
+    // nullable numbers and the other branches are decoded as before
+    Schema nullable = Schema.nullableOf(Schema.of(Schema.Type.LONG));
+    Assert.assertEquals(3L, decode(nullable, "3"));
+    Assert.assertNull(decode(nullable, "null"));
+    Schema mixed = Schema.unionOf(Schema.of(Schema.Type.INT), Schema.of(Schema.Type.STRING),
+                                  Schema.arrayOf(Schema.of(Schema.Type.LONG)));
+    Assert.assertEquals("s", decode(mixed, "\"s\""));
+    Assert.assertEquals(Arrays.asList(1L, 2L), decode(mixed, "[1, 2]"));
+  }
+
+  @Test
+  public void testNumbersOutsideOfUnions() throws Exception {
+    for (String number : new String[] { "1.5", "3000000000" }) {
+      try {
+        decode(union(Schema.Type.INT, Schema.Type.STRING), number);
+        Assert.fail("Expected " + number + " to not be decoded as an int");
+      } catch (IOException e) {
+        // expected
+      }
+    }
+    try {
+      decode(union(Schema.Type.FLOAT, Schema.Type.BOOLEAN), "1e100");
+      Assert.fail("Expected 1e100 to not be decoded as a float");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  private static Schema union(Schema.Type... types) {
+    Schema[] schemas = new Schema[types.length];
+    for (int i = 0; i < types.length; i++) {
+      schemas[i] = Schema.of(types[i]);
+    }
+    return Schema.unionOf(schemas);
+  }
+
+  /**
+   * Decodes the json value as the value of a field with the given schema.
+   */
+  private static Object decode(Schema schema, String json) throws IOException {
+    Schema recordSchema = Schema.recordOf("record", Schema.Field.of("x", schema));
+    StructuredRecord record = new JsonRecordDecoder(recordSchema)
+      .decode(new JsonReader(new StringReader("{\"x\": " + json + "}")))
+      .build();
+    return record.get("x");
+  }
+}
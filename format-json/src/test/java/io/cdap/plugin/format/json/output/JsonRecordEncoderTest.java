@@ -0,0 +1,142 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.json.output;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.format.StructuredRecordStringConverter;
+import io.cdap.plugin.format.output.TextBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Tests that {@link JsonRecordEncoder} encodes records the same as {@link StructuredRecordStringConverter}.
+ */
+public class JsonRecordEncoderTest {
+  private static final Schema INNER = Schema.recordOf(
+    "inner",
+    Schema.Field.of("s", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("d", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))));
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("b", Schema.of(Schema.Type.BOOLEAN)),
+    Schema.Field.of("i", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+    Schema.Field.of("l", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("f", Schema.nullableOf(Schema.of(Schema.Type.FLOAT))),
+    Schema.Field.of("d", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))),
+    Schema.Field.of("s", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("a", Schema.nullableOf(Schema.arrayOf(Schema.nullableOf(Schema.of(Schema.Type.STRING))))),
+    Schema.Field.of("r", Schema.nullableOf(INNER)),
+    Schema.Field.of("ra", Schema.arrayOf(INNER)));
+
+  @Test
+  public void testPrimitivesAndNesting() throws Exception {
+    JsonRecordEncoder encoder = new JsonRecordEncoder();
+    assertEncoded(encoder, StructuredRecord.builder(SCHEMA)
+      .set("b", true).set("i", Integer.MIN_VALUE).set("l", Long.MIN_VALUE).set("f", 1.5f).set("d", -0.001d)
+      .set("s", "plain").set("a", Arrays.asList("x", null, "z"))
+      .set("r", StructuredRecord.builder(INNER).set("s", "inner").set("d", 1e300d).build())
+      .set("ra", Arrays.asList(StructuredRecord.builder(INNER).build(),
+                               StructuredRecord.builder(INNER).set("d", 0d).build()))
+      .build());
+    // nulls, empty arrays and arrays given as object arrays
+    assertEncoded(encoder, StructuredRecord.builder(SCHEMA)
+      .set("b", false).set("l", Long.MAX_VALUE).set("a", new String[] { "p", "q" }).set("ra", Collections.emptyList())
+      .build());
+  }
+
+  @Test
+  public void testEscaping() throws Exception {
+    JsonRecordEncoder encoder = new JsonRecordEncoder();
+    String[] values = {
+      "", "quote \" and backslash \\", "tab\t newline\n return\r backspace\b formfeed\f", "control \u0001\u001f",
+      "separators \u2028 and \u2029", "html <a href='x'>&amp;</a>", "latin é, cjk 中文",
+      "surrogate pair \uD83D\uDE00", "unpaired \uD83D surrogate \uDE00", "\u007f delete"
+    };
+    for (String value : values) {
+      assertEncoded(encoder, StructuredRecord.builder(SCHEMA)
+        .set("b", true).set("l", 0L).set("s", value).set("a", Collections.singletonList(value))
+        .set("r", StructuredRecord.builder(INNER).set("s", value).build()).set("ra", Collections.emptyList())
+        .build());
+    }
+  }
+
+  @Test
+  public void testNonFiniteNumbersFallBack() throws Exception {
+    JsonRecordEncoder encoder = new JsonRecordEncoder();
+    for (double value : new double[] { Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY }) {
+      // in a top level field, and after the nested record was partially written
+      assertEncoded(encoder, StructuredRecord.builder(SCHEMA)
+        .set("b", true).set("l", 1L).set("d", value).set("ra", Collections.emptyList()).build());
+      assertEncoded(encoder, StructuredRecord.builder(SCHEMA)
+        .set("b", true).set("l", 1L).set("s", "before")
+        .set("ra", Arrays.asList(StructuredRecord.builder(INNER).set("s", "x").build(),
+                                 StructuredRecord.builder(INNER).set("s", "y").set("d", value).build()))
+        .build());
+      assertEncoded(encoder, StructuredRecord.builder(SCHEMA)
+        .set("b", true).set("l", 1L).set("f", (float) value).set("ra", Collections.emptyList()).build());
+    }
+    // the encoder still generates records directly after a fallback
+    assertEncoded(encoder, StructuredRecord.builder(SCHEMA)
+      .set("b", true).set("l", 2L).set("d", 2.5d).set("ra", Collections.emptyList()).build());
+  }
+
+  @Test
+  public void testUnsupportedSchemasFallBack() throws Exception {
+    JsonRecordEncoder encoder = new JsonRecordEncoder();
+    Schema schema = Schema.recordOf(
+      "other",
+      Schema.Field.of("s", Schema.of(Schema.Type.STRING)),
+      Schema.Field.of("by", Schema.nullableOf(Schema.of(Schema.Type.BYTES))),
+      Schema.Field.of("date", Schema.nullableOf(Schema.of(Schema.LogicalType.DATE))),
+      Schema.Field.of("m", Schema.nullableOf(Schema.mapOf(Schema.of(Schema.Type.STRING), Schema.of(Schema.Type.INT)))),
+      Schema.Field.of("e", Schema.nullableOf(Schema.enumWith("A", "B"))),
+      Schema.Field.of("u", Schema.unionOf(Schema.of(Schema.Type.INT), Schema.of(Schema.Type.STRING))));
+    assertEncoded(encoder, StructuredRecord.builder(schema)
+      .set("s", "x\"y").set("by", new byte[] { 1, 2, 3 }).set("date", 17897)
+      .set("m", Collections.singletonMap("k", 1)).set("e", "B").set("u", "u")
+      .build());
+    assertEncoded(encoder, StructuredRecord.builder(schema).set("s", "").set("u", 5).build());
+  }
+
+  /**
+   * Asserts that the encoder appends the same bytes that StructuredRecordStringConverter produces, or fails the same
+   * way, and leaves what was in the buffer before untouched.
+   */
+  private static void assertEncoded(JsonRecordEncoder encoder, StructuredRecord record) throws Exception {
+    String expected;
+    try {
+      expected = StructuredRecordStringConverter.toJsonString(record);
+    } catch (Exception e) {
+      try {
+        encoder.encode(record, new TextBuffer());
+        Assert.fail("Expected encoding " + record + " to fail with " + e);
+      } catch (Exception actual) {
+        Assert.assertEquals(e.getClass(), actual.getClass());
+      }
+      return;
+    }
+    TextBuffer buffer = new TextBuffer();
+    buffer.writeUtf8("previous\n");
+    encoder.encode(record, buffer);
+    Assert.assertArrayEquals(("previous\n" + expected).getBytes(StandardCharsets.UTF_8), buffer.toByteArray());
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.orc.input;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.hive.ql.io.sarg.SearchArgument;
+import org.apache.orc.OrcFile;
+import org.apache.orc.Reader;
+import org.apache.orc.RecordReader;
+import org.apache.orc.TypeDescription;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Reads a range of an ORC file one {@link VectorizedRowBatch} at a time. Only the requested top level columns are
+ * decoded, and if a search argument is given, stripes and row groups whose statistics show that no row can match
+ * are skipped. Rows within the remaining row groups are not filtered.
+ *
+ * The same batch, and the same column vectors, are reused for every call to {@link #nextBatch()}.
+ */
+public class OrcBatchReader implements Closeable {
+  private final TypeDescription fileSchema;
+  private final Map<String, Integer> columnIndexes;
+  private final RecordReader rows;
+  private final VectorizedRowBatch batch;
+
+  /**
+   * Opens a reader for the given range of a file.
+   *
+   * @param conf the hadoop configuration
+   * @param path the file to read
+   * @param start the offset of the range to read. Stripes that start within the range are read.
+   * @param length the length of the range to read
+   * @param columns the names of the top level columns to read. Columns that are not in the file are ignored,
+   *                and {@link #getColumn(String)} will return null for them.
+   * @param searchArgument the search argument to skip stripes and row groups with,
+   *                       whose leaves refer to columns by name
+   */
+  public OrcBatchReader(Configuration conf, Path path, long start, long length, Collection<String> columns,
+                        @Nullable SearchArgument searchArgument) throws IOException {
+    Reader reader = OrcFile.createReader(path, OrcFile.readerOptions(conf));
+    fileSchema = reader.getSchema();
+    if (fileSchema.getCategory() != TypeDescription.Category.STRUCT) {
+      throw new IllegalArgumentException(String.format("File '%s' does not contain ORC structs but %s.",
+                                                       path, fileSchema));
+    }
+
+    List<String> fieldNames = fileSchema.getFieldNames();
+    List<TypeDescription> children = fileSchema.getChildren();
+    boolean[] include = new boolean[fileSchema.getMaximumId() + 1];
+    include[0] = true;
+    // search argument columns are looked up by column id
+    String[] columnNames = new String[include.length];
+    columnIndexes = new HashMap<>();
+    for (String column : columns) {
+      int index = findField(fieldNames, column);
+      if (index < 0) {
+        continue;
+      }
+      columnIndexes.put(column, index);
+      TypeDescription child = children.get(index);
+      columnNames[child.getId()] = column;
+      for (int id = child.getId(); id <= child.getMaximumId(); id++) {
+        include[id] = true;
+      }
+    }
+
+    Reader.Options options = reader.options().range(start, length).include(include);
+    if (searchArgument != null) {
+      options.searchArgument(searchArgument, columnNames);
+    }
+    rows = reader.rows(options);
+    batch = fileSchema.createRowBatch();
+  }
+
+  /**
+   * Returns the schema of the file.
+   */
+  public TypeDescription getFileSchema() {
+    return fileSchema;
+  }
+
+  /**
+   * Returns the type of the given column in the file, or null if the file does not contain it.
+   */
+  @Nullable
+  public TypeDescription getColumnType(String column) {
+    Integer index = columnIndexes.get(column);
+    return index == null ? null : fileSchema.getChildren().get(index);
+  }
+
+  /**
+   * Returns the vector that holds the values of the given column in the current batch, or null if the file does
+   * not contain it. The vector stays the same for all batches.
+   */
+  @Nullable
+  public ColumnVector getColumn(String column) {
+    Integer index = columnIndexes.get(column);
+    return index == null ? null : batch.cols[index];
+  }
+
+  /**
+   * Reads the next batch of rows.
+   *
+   * @return false if there are no more rows
+   */
+  public boolean nextBatch() throws IOException {
+    return rows.nextBatch(batch) && batch.size > 0;
+  }
+
+  /**
+   * Returns the current batch of rows.
+   */
+  public VectorizedRowBatch getBatch() {
+    return batch;
+  }
+
+  public float getProgress() throws IOException {
+    return rows.getProgress();
+  }
+
+  @Override
+  public void close() throws IOException {
+    rows.close();
+  }
+
+  private static int findField(List<String> fieldNames, String name) {
+    int index = fieldNames.indexOf(name);
+    if (index >= 0) {
+      return index;
+    }
+    // schemas stored in the hive metastore, and files written by hive, use lower case names
+    for (int i = 0; i < fieldNames.size(); i++) {
+      if (fieldNames.get(i).equalsIgnoreCase(name)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,490 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.orc.input;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.format.FilterExpression;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.io.sarg.PredicateLeaf;
+import org.apache.hadoop.hive.ql.io.sarg.SearchArgument;
+import org.apache.hadoop.hive.ql.io.sarg.SearchArgumentFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link FilterExpression} that is translated into an ORC {@link SearchArgument}, so that stripes and row groups
+ * whose statistics show that no row can match are skipped, and into a {@link RowFilter} that is evaluated against
+ * the column vectors of the remaining rows. Fields must be of type boolean, int, long, float, double or string.
+ *
+ * Comparisons follow the same rules as for Parquet: a comparison with a null value is false, except for != and
+ * NOT IN, which match null values. NOT is applied by inverting the comparisons beneath it, so NOT (x > 5) is
+ * x <= 5 and does not match nulls either. Since search arguments treat a comparison with null as unknown, != and
+ * NOT IN are pushed down together with an IS NULL check so that row groups with null values are never skipped.
+ */
+public final class OrcFilterExpression {
+  private final String expression;
+  private final Schema schema;
+  private final Set<String> columns;
+  private final SearchArgument searchArgument;
+  private final Condition condition;
+
+  private OrcFilterExpression(String expression, Schema schema, FilterExpression filter) {
+    this.expression = expression;
+    this.schema = schema;
+    this.columns = filter.getFields();
+    this.condition = toCondition(filter.getRoot());
+    SearchArgument.Builder builder = SearchArgumentFactory.newBuilder();
+    condition.push(builder);
+    this.searchArgument = builder.build();
+  }
+
+  /**
+   * Parses the given expression.
+   *
+   * @param expression the filter expression
+   * @param schema the schema of the data, used to determine the type of each column
+   * @return the parsed expression
+   * @throws IllegalArgumentException if the expression is invalid or refers to a field that cannot be filtered on
+   */
+  public static OrcFilterExpression parse(String expression, Schema schema) {
+    return new OrcFilterExpression(expression, schema, FilterExpression.parse(expression));
+  }
+
+  public SearchArgument getSearchArgument() {
+    return searchArgument;
+  }
+
+  /**
+   * Returns the names of the columns that the expression refers to.
+   */
+  public Set<String> getColumns() {
+    return columns;
+  }
+
+  /**
+   * Returns a filter that evaluates the expression against the rows of the batches read by the given reader.
+   * The reader must read all of the columns returned by {@link #getColumns()}.
+   */
+  public RowFilter bind(OrcBatchReader reader) {
+    return condition.bind(reader);
+  }
+
+  /**
+   * Tests whether a row of the current batch matches the expression.
+   */
+  public interface RowFilter {
+
+    /**
+     * Returns whether the row at the given index of the current batch matches.
+     */
+    boolean test(int row);
+  }
+
+  private Condition toCondition(FilterExpression.Node node) {
+    if (node instanceof FilterExpression.And) {
+      return new Junction(toConditions(((FilterExpression.And) node).getChildren()), true);
+    }
+    if (node instanceof FilterExpression.Or) {
+      return new Junction(toConditions(((FilterExpression.Or) node).getChildren()), false);
+    }
+    if (node instanceof FilterExpression.Not) {
+      return toCondition(((FilterExpression.Not) node).getChild()).negate();
+    }
+    if (node instanceof FilterExpression.In) {
+      FilterExpression.In in = (FilterExpression.In) node;
+      Schema.Type type = getType(in.getField());
+      List<Object> values = new ArrayList<>(in.getValues().size());
+      for (String value : in.getValues()) {
+        values.add(parseLiteral(in.getField(), type, FilterExpression.Operator.EQ, value));
+      }
+      return new Leaf(in.getField(), type, null, values, false);
+    }
+    FilterExpression.Comparison comparison = (FilterExpression.Comparison) node;
+    String field = comparison.getField();
+    Schema.Type type = getType(field);
+    FilterExpression.Operator operator = comparison.getOperator();
+    if (comparison.getValue() == null) {
+      return new Leaf(field, type, operator, null, false);
+    }
+    Object literal = parseLiteral(field, type, operator, comparison.getValue());
+    List<Object> values = new ArrayList<>(1);
+    values.add(literal);
+    return new Leaf(field, type, operator, values, false);
+  }
+
+  private List<Condition> toConditions(List<FilterExpression.Node> nodes) {
+    List<Condition> conditions = new ArrayList<>(nodes.size());
+    for (FilterExpression.Node node : nodes) {
+      conditions.add(toCondition(node));
+    }
+    return conditions;
+  }
+
+  private Schema.Type getType(String field) {
+    Schema.Field schemaField = schema.getField(field);
+    if (schemaField == null) {
+      throw error("Field '" + field + "' does not exist in the schema");
+    }
+    Schema fieldSchema = schemaField.getSchema();
+    Schema.Type type = fieldSchema.isNullable() ? fieldSchema.getNonNullable().getType() : fieldSchema.getType();
+    switch (type) {
+      case BOOLEAN:
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+      case STRING:
+        return type;
+      default:
+        throw error("Field '" + field + "' of type " + type + " cannot be used in a filter");
+    }
+  }
+
+  /**
+   * Parses a literal into the type used by search arguments, which is Long for integers, Double for floating
+   * point numbers, String or Boolean.
+   */
+  private Object parseLiteral(String field, Schema.Type type, FilterExpression.Operator operator, String value) {
+    try {
+      switch (type) {
+        case BOOLEAN:
+          if (operator != FilterExpression.Operator.EQ && operator != FilterExpression.Operator.NOT_EQ) {
+            throw error("Boolean field '" + field + "' can only be compared with = or !=");
+          }
+          if (!"true".equalsIgnoreCase(value) && !"false".equalsIgnoreCase(value)) {
+            throw error("Value '" + value + "' is not valid for boolean field '" + field + "'");
+          }
+          return Boolean.valueOf(value);
+        case INT:
+          return (long) Integer.parseInt(value);
+        case LONG:
+          return Long.parseLong(value);
+        case FLOAT:
+          // floats are widened to doubles in both statistics and column vectors
+          return (double) Float.parseFloat(value);
+        case DOUBLE:
+          return Double.parseDouble(value);
+        default:
+          return value;
+      }
+    } catch (NumberFormatException e) {
+      throw error("Value '" + value + "' is not valid for " + type + " field '" + field + "'");
+    }
+  }
+
+  private IllegalArgumentException error(String message) {
+    return new IllegalArgumentException(String.format("Invalid filter '%s': %s.", expression, message));
+  }
+
+  /**
+   * A node of the expression that can be pushed into a search argument and bound to column vectors.
+   */
+  private abstract static class Condition {
+
+    /**
+     * Adds the condition to the search argument that is being built.
+     */
+    abstract void push(SearchArgument.Builder builder);
+
+    /**
+     * Returns the inverse of the condition. Like the inverse of a Parquet predicate, it does not match rows that
+     * the condition does not match because of a null value, unless it is a != or NOT IN comparison.
+     */
+    abstract Condition negate();
+
+    abstract RowFilter bind(OrcBatchReader reader);
+  }
+
+  /**
+   * AND or OR of several conditions.
+   */
+  private static final class Junction extends Condition {
+    private final List<Condition> children;
+    private final boolean and;
+
+    private Junction(List<Condition> children, boolean and) {
+      this.children = children;
+      this.and = and;
+    }
+
+    @Override
+    void push(SearchArgument.Builder builder) {
+      if (and) {
+        builder.startAnd();
+      } else {
+        builder.startOr();
+      }
+      for (Condition child : children) {
+        child.push(builder);
+      }
+      builder.end();
+    }
+
+    @Override
+    Condition negate() {
+      List<Condition> negated = new ArrayList<>(children.size());
+      for (Condition child : children) {
+        negated.add(child.negate());
+      }
+      return new Junction(negated, !and);
+    }
+
+    @Override
+    RowFilter bind(OrcBatchReader reader) {
+      final RowFilter[] filters = new RowFilter[children.size()];
+      for (int i = 0; i < filters.length; i++) {
+        filters[i] = children.get(i).bind(reader);
+      }
+      if (and) {
+        return row -> {
+          for (RowFilter filter : filters) {
+            if (!filter.test(row)) {
+              return false;
+            }
+          }
+          return true;
+        };
+      }
+      return row -> {
+        for (RowFilter filter : filters) {
+          if (filter.test(row)) {
+            return true;
+          }
+        }
+        return false;
+      };
+    }
+  }
+
+  /**
+   * Comparison of a column with a literal, IS [NOT] NULL if there are no values, or [NOT] IN if there is no
+   * operator.
+   */
+  private static final class Leaf extends Condition {
+    private final String field;
+    private final Schema.Type type;
+    private final FilterExpression.Operator operator;
+    private final List<Object> values;
+    private final boolean notIn;
+
+    private Leaf(String field, Schema.Type type, @Nullable FilterExpression.Operator operator,
+                 @Nullable List<Object> values, boolean notIn) {
+      this.field = field;
+      this.type = type;
+      this.operator = operator;
+      this.values = values;
+      this.notIn = notIn;
+    }
+
+    @Override
+    void push(SearchArgument.Builder builder) {
+      PredicateLeaf.Type leafType = getLeafType();
+      if (values == null) {
+        if (operator == FilterExpression.Operator.EQ) {
+          builder.isNull(field, leafType);
+        } else {
+          builder.startNot().isNull(field, leafType).end();
+        }
+        return;
+      }
+      boolean matchesNull = matchesNull();
+      if (matchesNull) {
+        // null values match, but are unknown to the search argument
+        builder.startOr().isNull(field, leafType);
+      }
+      // x != v is NOT x = v, x > v is NOT x <= v, and x >= v is NOT x < v
+      boolean not = notIn || operator == FilterExpression.Operator.NOT_EQ
+        || operator == FilterExpression.Operator.GT || operator == FilterExpression.Operator.GT_EQ;
+      if (not) {
+        builder.startNot();
+      }
+      if (operator == null) {
+        builder.in(field, leafType, values.toArray());
+      } else {
+        Object literal = values.get(0);
+        switch (operator) {
+          case EQ:
+          case NOT_EQ:
+            builder.equals(field, leafType, literal);
+            break;
+          case LT:
+          case GT_EQ:
+            builder.lessThan(field, leafType, literal);
+            break;
+          default:
+            builder.lessThanEquals(field, leafType, literal);
+        }
+      }
+      if (not) {
+        builder.end();
+      }
+      if (matchesNull) {
+        builder.end();
+      }
+    }
+
+    @Override
+    Condition negate() {
+      if (operator == null) {
+        return new Leaf(field, type, null, values, !notIn);
+      }
+      return new Leaf(field, type, inverse(operator), values, false);
+    }
+
+    /**
+     * Returns the result of the comparison for a null value, which is also the result for missing columns.
+     */
+    private boolean matchesNull() {
+      if (values == null) {
+        return operator == FilterExpression.Operator.EQ;
+      }
+      return notIn || operator == FilterExpression.Operator.NOT_EQ;
+    }
+
+    private static FilterExpression.Operator inverse(FilterExpression.Operator operator) {
+      switch (operator) {
+        case EQ:
+          return FilterExpression.Operator.NOT_EQ;
+        case NOT_EQ:
+          return FilterExpression.Operator.EQ;
+        case LT:
+          return FilterExpression.Operator.GT_EQ;
+        case LT_EQ:
+          return FilterExpression.Operator.GT;
+        case GT:
+          return FilterExpression.Operator.LT_EQ;
+        default:
+          return FilterExpression.Operator.LT;
+      }
+    }
+
+    private PredicateLeaf.Type getLeafType() {
+      switch (type) {
+        case BOOLEAN:
+          return PredicateLeaf.Type.BOOLEAN;
+        case INT:
+        case LONG:
+          return PredicateLeaf.Type.LONG;
+        case FLOAT:
+        case DOUBLE:
+          return PredicateLeaf.Type.FLOAT;
+        default:
+          return PredicateLeaf.Type.STRING;
+      }
+    }
+
+    @Override
+    RowFilter bind(OrcBatchReader reader) {
+      ColumnVector column = reader.getColumn(field);
+      final boolean nullResult = matchesNull();
+      if (column == null) {
+        return row -> nullResult;
+      }
+      final boolean[] isNull = column.isNull;
+      if (values == null) {
+        return row -> column.noNulls || !isNull[column.isRepeating ? 0 : row] ? !nullResult : nullResult;
+      }
+      final ValueComparator comparator = getComparator(column);
+      return row -> {
+        int index = column.isRepeating ? 0 : row;
+        if (!column.noNulls && isNull[index]) {
+          return nullResult;
+        }
+        if (operator == null) {
+          for (int i = 0; i < values.size(); i++) {
+            if (comparator.compare(index, i) == 0) {
+              return !notIn;
+            }
+          }
+          return notIn;
+        }
+        int result = comparator.compare(index, 0);
+        switch (operator) {
+          case EQ:
+            return result == 0;
+          case NOT_EQ:
+            return result != 0;
+          case LT:
+            return result < 0;
+          case LT_EQ:
+            return result <= 0;
+          case GT:
+            return result > 0;
+          default:
+            return result >= 0;
+        }
+      };
+    }
+
+    private ValueComparator getComparator(ColumnVector column) {
+      if (column instanceof LongColumnVector) {
+        long[] vector = ((LongColumnVector) column).vector;
+        long[] literals = new long[values.size()];
+        for (int i = 0; i < literals.length; i++) {
+          Object value = values.get(i);
+          literals[i] = value instanceof Boolean ? ((Boolean) value ? 1L : 0L) : ((Number) value).longValue();
+        }
+        return (index, literal) -> Long.compare(vector[index], literals[literal]);
+      }
+      if (column instanceof DoubleColumnVector) {
+        double[] vector = ((DoubleColumnVector) column).vector;
+        double[] literals = new double[values.size()];
+        for (int i = 0; i < literals.length; i++) {
+          literals[i] = ((Number) values.get(i)).doubleValue();
+        }
+        return (index, literal) -> Double.compare(vector[index], literals[literal]);
+      }
+      if (column instanceof BytesColumnVector) {
+        BytesColumnVector bytes = (BytesColumnVector) column;
+        byte[][] literals = new byte[values.size()][];
+        for (int i = 0; i < literals.length; i++) {
+          literals[i] = String.valueOf(values.get(i)).getBytes(StandardCharsets.UTF_8);
+        }
+        return (index, literal) -> compareBytes(bytes.vector[index], bytes.start[index], bytes.length[index],
+                                                literals[literal]);
+      }
+      throw new IllegalArgumentException(String.format("Field '%s' of type %s cannot be used in a filter.",
+                                                       field, column.getClass().getSimpleName()));
+    }
+
+    private static int compareBytes(byte[] bytes, int start, int length, byte[] literal) {
+      int common = Math.min(length, literal.length);
+      for (int i = 0; i < common; i++) {
+        int diff = (bytes[start + i] & 0xff) - (literal[i] & 0xff);
+        if (diff != 0) {
+          return diff;
+        }
+      }
+      return length - literal.length;
+    }
+  }
+
+  /**
+   * Compares the value at an index of a column vector with one of the literals of a leaf.
+   */
+  private interface ValueComparator {
+    int compare(int index, int literal);
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.orc.input;
+
+import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Macro;
+import io.cdap.cdap.api.annotation.Name;
+import io.cdap.cdap.api.annotation.Plugin;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.plugin.PluginClass;
+import io.cdap.cdap.api.plugin.PluginPropertyField;
+import io.cdap.plugin.format.input.PathTrackingConfig;
+import io.cdap.plugin.format.input.PathTrackingInputFormatProvider;
+
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Provides and sets up configuration for an ORC input format.
+ */
+@Plugin(type = "inputformat")
+@Name(OrcInputFormatProvider.NAME)
+@Description(OrcInputFormatProvider.DESC)
+public class OrcInputFormatProvider extends PathTrackingInputFormatProvider<OrcInputFormatProvider.Conf> {
+  static final String NAME = "orc";
+  static final String DESC = "Plugin for reading files in orc format.";
+  public static final PluginClass PLUGIN_CLASS = getPluginClass();
+
+  public OrcInputFormatProvider(Conf conf) {
+    super(conf);
+  }
+
+  @Override
+  public String getInputFormatClassName() {
+    return CombineOrcInputFormat.class.getName();
+  }
+
+  @Override
+  protected void validate() {
+    Schema schema = conf.getSchema();
+    if (schema == null) {
+      throw new IllegalArgumentException("ORC format cannot be used without specifying a schema.");
+    }
+    if (conf.filter != null) {
+      OrcFilterExpression.parse(conf.filter, schema);
+    }
+  }
+
+  @Override
+  protected void addFormatProperties(Map<String, String> properties) {
+    if (conf.filter != null) {
+      properties.put(PathTrackingOrcInputFormat.FILTER, conf.filter);
+    }
+  }
+
+  /**
+   * Plugin config for orc input format
+   */
+  public static class Conf extends PathTrackingConfig {
+    private static final String FILTER_DESC = "Expression that records must match in order to be read, "
+      + "such as \"day = '2019-06-01' AND status IN (200, 204)\". Stripes and row groups whose statistics show "
+      + "that no record can match are skipped without being read. "
+      + "If no value is given, all records are read.";
+
+    @Macro
+    @Nullable
+    @Description(FILTER_DESC)
+    private String filter;
+  }
+
+  private static PluginClass getPluginClass() {
+    Map<String, PluginPropertyField> properties = new HashMap<>(PathTrackingConfig.FIELDS);
+    properties.put("filter", new PluginPropertyField("filter", Conf.FILTER_DESC, "string", false, true));
+    return new PluginClass("inputformat", NAME, DESC, OrcInputFormatProvider.class.getName(),
+                           "conf", properties);
+  }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.orc.input;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.TimestampColumnVector;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.orc.TypeDescription;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Reads batches of rows with an {@link OrcBatchReader} and turns each row that passes the filter into a
+ * {@link StructuredRecord.Builder}. The conversion from each column vector is resolved once per file, so that
+ * reading a value is a direct array access.
+ */
+class OrcRecordReader extends RecordReader<NullWritable, StructuredRecord.Builder> {
+  private final Schema schema;
+  private final String pathField;
+  private final OrcFilterExpression filterExpression;
+  private OrcBatchReader reader;
+  private OrcFilterExpression.RowFilter rowFilter;
+  private FieldReader[] fieldReaders;
+  private int row;
+  private int size;
+  private StructuredRecord.Builder current;
+
+  OrcRecordReader(Schema schema, @Nullable String pathField, @Nullable OrcFilterExpression filterExpression) {
+    this.schema = schema;
+    this.pathField = pathField;
+    this.filterExpression = filterExpression;
+  }
+
+  @Override
+  public void initialize(InputSplit split, TaskAttemptContext context) throws IOException {
+    FileSplit fileSplit = (FileSplit) split;
+    Set<String> columns = new LinkedHashSet<>();
+    for (Schema.Field field : schema.getFields()) {
+      if (!field.getName().equals(pathField)) {
+        columns.add(field.getName());
+      }
+    }
+    if (filterExpression != null) {
+      columns.addAll(filterExpression.getColumns());
+    }
+    reader = new OrcBatchReader(context.getConfiguration(), fileSplit.getPath(), fileSplit.getStart(),
+                                fileSplit.getLength(), columns,
+                                filterExpression == null ? null : filterExpression.getSearchArgument());
+    rowFilter = filterExpression == null ? null : filterExpression.bind(reader);
+
+    List<FieldReader> readers = new ArrayList<>();
+    for (Schema.Field field : schema.getFields()) {
+      ColumnVector column = reader.getColumn(field.getName());
+      // fields that are not in the file are left as null
+      if (column != null) {
+        readers.add(createFieldReader(field, reader.getColumnType(field.getName()), column));
+      }
+    }
+    fieldReaders = readers.toArray(new FieldReader[0]);
+  }
+
+  @Override
+  public boolean nextKeyValue() throws IOException {
+    while (true) {
+      if (row >= size) {
+        if (!reader.nextBatch()) {
+          return false;
+        }
+        row = 0;
+        size = reader.getBatch().size;
+      }
+      int index = row++;
+      if (rowFilter != null && !rowFilter.test(index)) {
+        continue;
+      }
+      StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+      for (FieldReader fieldReader : fieldReaders) {
+        fieldReader.read(builder, index);
+      }
+      current = builder;
+      return true;
+    }
+  }
+
+  @Override
+  public NullWritable getCurrentKey() {
+    return NullWritable.get();
+  }
+
+  @Override
+  public StructuredRecord.Builder getCurrentValue() {
+    return current;
+  }
+
+  @Override
+  public float getProgress() throws IOException {
+    return reader == null ? 0f : reader.getProgress();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (reader != null) {
+      reader.close();
+    }
+  }
+
+  private static FieldReader createFieldReader(Schema.Field field, TypeDescription orcType, ColumnVector column) {
+    String name = field.getName();
+    Schema fieldSchema = field.getSchema().isNullable() ? field.getSchema().getNonNullable() : field.getSchema();
+    Schema.LogicalType logicalType = fieldSchema.getLogicalType();
+    Schema.Type type = fieldSchema.getType();
+
+    if (column instanceof LongColumnVector) {
+      long[] vector = ((LongColumnVector) column).vector;
+      // date columns hold days since the epoch, which only a date field can be read from
+      boolean isDateColumn = orcType.getCategory() == TypeDescription.Category.DATE;
+      if (type == Schema.Type.BOOLEAN && !isDateColumn) {
+        return new FieldReader(column, (builder, index) -> builder.set(name, vector[index] != 0));
+      }
+      // the ORC sink writes date, time and timestamp fields as int and bigint columns of their underlying value
+      boolean readsAsInt = isDateColumn ? logicalType == Schema.LogicalType.DATE :
+        logicalType == null || logicalType == Schema.LogicalType.DATE || logicalType == Schema.LogicalType.TIME_MILLIS;
+      if (type == Schema.Type.INT && readsAsInt) {
+        return new FieldReader(column, (builder, index) -> builder.set(name, (int) vector[index]));
+      }
+      if (type == Schema.Type.LONG && !isDateColumn) {
+        return new FieldReader(column, (builder, index) -> builder.set(name, vector[index]));
+      }
+    } else if (column instanceof DoubleColumnVector) {
+      double[] vector = ((DoubleColumnVector) column).vector;
+      if (type == Schema.Type.FLOAT) {
+        return new FieldReader(column, (builder, index) -> builder.set(name, (float) vector[index]));
+      }
+      if (type == Schema.Type.DOUBLE) {
+        return new FieldReader(column, (builder, index) -> builder.set(name, vector[index]));
+      }
+    } else if (column instanceof BytesColumnVector) {
+      BytesColumnVector bytes = (BytesColumnVector) column;
+      if (type == Schema.Type.STRING || type == Schema.Type.ENUM) {
+        return new FieldReader(column, (builder, index) -> builder.set(
+          name, new String(bytes.vector[index], bytes.start[index], bytes.length[index], StandardCharsets.UTF_8)));
+      }
+      if (type == Schema.Type.BYTES && logicalType == null) {
+        return new FieldReader(column, (builder, index) -> builder.set(
+          name, ByteBuffer.wrap(Arrays.copyOfRange(bytes.vector[index], bytes.start[index],
+                                                   bytes.start[index] + bytes.length[index]))));
+      }
+    } else if (column instanceof TimestampColumnVector) {
+      TimestampColumnVector timestamps = (TimestampColumnVector) column;
+      if (logicalType == Schema.LogicalType.TIMESTAMP_MILLIS) {
+        return new FieldReader(column, (builder, index) -> builder.set(name, timestamps.time[index]));
+      }
+      if (logicalType == Schema.LogicalType.TIMESTAMP_MICROS) {
+        // time holds the milliseconds, including those from the nanos
+        return new FieldReader(column, (builder, index) -> builder.set(
+          name, timestamps.time[index] * 1000 + (timestamps.nanos[index] / 1000) % 1000));
+      }
+    }
+    throw new IllegalArgumentException(
+      String.format("Field '%s' of type %s cannot be read from ORC type %s.", name,
+                    logicalType == null ? type : logicalType.getToken(), orcType));
+  }
+
+  /**
+   * Reads the value of a field from the current batch, skipping nulls.
+   */
+  private static final class FieldReader {
+    private final ColumnVector column;
+    private final ValueReader valueReader;
+
+    private FieldReader(ColumnVector column, ValueReader valueReader) {
+      this.column = column;
+      this.valueReader = valueReader;
+    }
+
+    void read(StructuredRecord.Builder builder, int row) {
+      int index = column.isRepeating ? 0 : row;
+      if (column.noNulls || !column.isNull[index]) {
+        valueReader.read(builder, index);
+      }
+    }
+  }
+
+  /**
+   * Sets the value at an index of a column vector in a record.
+   */
+  private interface ValueReader {
+    void read(StructuredRecord.Builder builder, int index);
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.orc.input;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.format.SchemaProjection;
+import io.cdap.plugin.format.input.PathTrackingInputFormat;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+
+import javax.annotation.Nullable;
+
+/**
+ * ORC input format that reads records with an {@link OrcBatchReader}.
+ */
+public class PathTrackingOrcInputFormat extends PathTrackingInputFormat {
+  static final String FILTER = "cdap.orc.filter";
+
+  @Override
+  protected boolean supportsProjection() {
+    return true;
+  }
+
+  @Override
+  protected RecordReader<NullWritable, StructuredRecord.Builder> createRecordReader(FileSplit split,
+                                                                                    TaskAttemptContext context,
+                                                                                    @Nullable String pathField,
+                                                                                    @Nullable Schema schema) {
+    if (schema == null) {
+      throw new IllegalArgumentException("ORC format cannot be used without specifying a schema.");
+    }
+    Configuration conf = context.getConfiguration();
+    Schema projectedSchema = SchemaProjection.getProjectedSchema(conf, schema, pathField);
+    String filter = conf.get(FILTER);
+    OrcFilterExpression filterExpression = filter == null ? null : OrcFilterExpression.parse(filter, schema);
+    return new OrcRecordReader(projectedSchema == null ? schema : projectedSchema, pathField, filterExpression);
+  }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.orc.output;
+
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.orc.TypeDescription;
+import org.apache.orc.Writer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes StructuredRecords by filling the column vectors of a reused {@link VectorizedRowBatch}, which is handed
+ * to the ORC {@link Writer} whenever it is full. Unlike converting each record into an OrcStruct, this does not
+ * allocate any objects per field, except for the bytes of strings.
+ */
+class OrcBatchRecordWriter extends RecordWriter<NullWritable, StructuredRecord> {
+  private final Writer writer;
+  private final TypeDescription orcSchema;
+  private final VectorizedRowBatch batch;
+  private Schema schema;
+  private ColumnWriter[] columnWriters;
+
+  OrcBatchRecordWriter(Writer writer, TypeDescription orcSchema) {
+    this.writer = writer;
+    this.orcSchema = orcSchema;
+    this.batch = orcSchema.createRowBatch();
+    // initializes the buffers of the byte vectors
+    batch.reset();
+  }
+
+  @Override
+  public void write(NullWritable key, StructuredRecord record) throws IOException {
+    Schema recordSchema = record.getSchema();
+    if (recordSchema != schema && !recordSchema.equals(schema)) {
+      columnWriters = createColumnWriters(recordSchema);
+      schema = recordSchema;
+    }
+    int row = batch.size++;
+    for (ColumnWriter columnWriter : columnWriters) {
+      columnWriter.write(record, row);
+    }
+    if (batch.size == batch.getMaxSize()) {
+      flush();
+    }
+  }
+
+  @Override
+  public void close(TaskAttemptContext context) throws IOException {
+    try {
+      if (batch.size > 0) {
+        flush();
+      }
+    } finally {
+      writer.close();
+    }
+  }
+
+  private void flush() throws IOException {
+    writer.addRowBatch(batch);
+    batch.reset();
+  }
+
+  private ColumnWriter[] createColumnWriters(Schema recordSchema) {
+    List<String> orcFields = orcSchema.getFieldNames();
+    List<Schema.Field> fields = recordSchema.getFields();
+    ColumnWriter[] writers = new ColumnWriter[orcFields.size()];
+    for (int i = 0; i < writers.length; i++) {
+      Schema.Field field = recordSchema.getField(orcFields.get(i));
+      if (field == null) {
+        throw new IllegalArgumentException(
+          String.format("Field '%s' of the ORC schema does not exist in the record schema.", orcFields.get(i)));
+      }
+      writers[i] = new ColumnWriter(field.getName(), batch.cols[i], createValueWriter(field, batch.cols[i]));
+    }
+    if (fields.size() > writers.length) {
+      throw new IllegalArgumentException(
+        String.format("Record schema %s has fields that are not in the ORC schema %s.", recordSchema, orcSchema));
+    }
+    return writers;
+  }
+
+  private static ValueWriter createValueWriter(Schema.Field field, ColumnVector column) {
+    Schema fieldSchema = field.getSchema().isNullable() ? field.getSchema().getNonNullable() : field.getSchema();
+    Schema.Type type = fieldSchema.getType();
+    // logical types such as dates and timestamps are written as their underlying int or long, the same way hive
+    // maps them to int and bigint columns
+    switch (type) {
+      case STRING:
+        if (column instanceof BytesColumnVector) {
+          BytesColumnVector vector = (BytesColumnVector) column;
+          return (row, value) -> {
+            // a freshly encoded array can be referenced instead of copied
+            byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+            vector.setRef(row, bytes, 0, bytes.length);
+          };
+        }
+        break;
+      case ENUM:
+        if (column instanceof BytesColumnVector) {
+          BytesColumnVector vector = (BytesColumnVector) column;
+          return (row, value) -> {
+            byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+            vector.setRef(row, bytes, 0, bytes.length);
+          };
+        }
+        break;
+      case BYTES:
+        if (column instanceof BytesColumnVector) {
+          BytesColumnVector vector = (BytesColumnVector) column;
+          return (row, value) -> {
+            if (value instanceof ByteBuffer) {
+              byte[] bytes = Bytes.getBytes((ByteBuffer) value);
+              vector.setRef(row, bytes, 0, bytes.length);
+            } else {
+              // the array belongs to the record, so it is copied into the vector's buffer
+              byte[] bytes = (byte[]) value;
+              vector.setVal(row, bytes, 0, bytes.length);
+            }
+          };
+        }
+        break;
+      case BOOLEAN:
+        if (column instanceof LongColumnVector) {
+          long[] vector = ((LongColumnVector) column).vector;
+          return (row, value) -> vector[row] = (Boolean) value ? 1L : 0L;
+        }
+        break;
+      case INT:
+        if (column instanceof LongColumnVector) {
+          long[] vector = ((LongColumnVector) column).vector;
+          return (row, value) -> vector[row] = (Integer) value;
+        }
+        break;
+      case LONG:
+        if (column instanceof LongColumnVector) {
+          long[] vector = ((LongColumnVector) column).vector;
+          return (row, value) -> vector[row] = (Long) value;
+        }
+        break;
+      case FLOAT:
+        if (column instanceof DoubleColumnVector) {
+          double[] vector = ((DoubleColumnVector) column).vector;
+          return (row, value) -> vector[row] = (Float) value;
+        }
+        break;
+      case DOUBLE:
+        if (column instanceof DoubleColumnVector) {
+          double[] vector = ((DoubleColumnVector) column).vector;
+          return (row, value) -> vector[row] = (Double) value;
+        }
+        break;
+    }
+    throw new IllegalArgumentException(String.format("Type '%s' of field '%s' is currently not supported in ORC",
+                                                     type.name(), field.getName()));
+  }
+
+  /**
+   * Writes the value of a field into its column vector, marking nulls.
+   */
+  private static final class ColumnWriter {
+    private final String name;
+    private final ColumnVector column;
+    private final ValueWriter valueWriter;
+
+    private ColumnWriter(String name, ColumnVector column, ValueWriter valueWriter) {
+      this.name = name;
+      this.column = column;
+      this.valueWriter = valueWriter;
+    }
+
+    void write(StructuredRecord record, int row) {
+      Object value = record.get(name);
+      if (value == null) {
+        column.noNulls = false;
+        column.isNull[row] = true;
+      } else {
+        valueWriter.write(row, value);
+      }
+    }
+  }
+
+  /**
+   * Sets a non-null value at a row of a column vector.
+   */
+  private interface ValueWriter {
+    void write(int row, Object value);
+  }
+}
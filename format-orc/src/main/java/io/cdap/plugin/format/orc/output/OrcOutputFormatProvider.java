@@ -47,8 +47,12 @@ public class OrcOutputFormatProvider implements OutputFormatProvider {
   private static final String SNAPPY_CODEC = "SNAPPY";
   private static final String ZLIB_CODEC = "ZLIB";
   private static final String COMPRESS_SIZE = "orc.compress.size";
+  private static final String STRIPE_SIZE = "orc.stripe.size";
   private static final String ROW_INDEX_STRIDE = "orc.row.index.stride";
   private static final String CREATE_INDEX = "orc.create.index";
+  private static final String BLOOM_FILTER_COLUMNS = "orc.bloom.filter.columns";
+  private static final String BLOOM_FILTER_FPP = "orc.bloom.filter.fpp";
+  private static final String DICTIONARY_KEY_THRESHOLD = "orc.dictionary.key.threshold";
   private final Conf conf;
 
   public OrcOutputFormatProvider(Conf conf) {
@@ -72,19 +76,38 @@ public class OrcOutputFormatProvider implements OutputFormatProvider {
       } catch (IllegalArgumentException e) {
         throw new IllegalArgumentException("Unsupported compression codec " + conf.compressionCodec);
       }
-
-      if (conf.compressionChunkSize != null) {
-        configuration.put(COMPRESS_SIZE, String.valueOf(conf.compressionChunkSize));
-      }
-      if (conf.stripeSize != null) {
-        configuration.put(COMPRESS_SIZE, String.valueOf(conf.stripeSize.toString()));
-      }
-      if (conf.indexStride != null) {
-        configuration.put(ROW_INDEX_STRIDE, String.valueOf(conf.indexStride));
+    }
+    if (conf.compressionChunkSize != null) {
+      configuration.put(COMPRESS_SIZE, String.valueOf(conf.compressionChunkSize));
+    }
+    if (conf.stripeSize != null) {
+      configuration.put(STRIPE_SIZE, String.valueOf(conf.stripeSize));
+    }
+    if (conf.createIndex != null && !conf.createIndex) {
+      // the writer only skips the row index if the stride is 0
+      configuration.put(ROW_INDEX_STRIDE, "0");
+    } else if (conf.indexStride != null) {
+      configuration.put(ROW_INDEX_STRIDE, String.valueOf(conf.indexStride));
+    }
+    if (conf.createIndex != null) {
+      configuration.put(CREATE_INDEX, String.valueOf(conf.createIndex));
+    }
+    if (conf.bloomFilterColumns != null) {
+      configuration.put(BLOOM_FILTER_COLUMNS, conf.bloomFilterColumns);
+    }
+    if (conf.bloomFilterFpp != null) {
+      if (conf.bloomFilterFpp <= 0d || conf.bloomFilterFpp >= 1d) {
+        throw new IllegalArgumentException(
+          String.format("Bloom filter false positive probability %s must be between 0 and 1.", conf.bloomFilterFpp));
       }
-      if (conf.createIndex != null) {
-        configuration.put(CREATE_INDEX, String.valueOf(conf.createIndex));
+      configuration.put(BLOOM_FILTER_FPP, String.valueOf(conf.bloomFilterFpp));
+    }
+    if (conf.dictionaryKeyThreshold != null) {
+      if (conf.dictionaryKeyThreshold < 0d || conf.dictionaryKeyThreshold > 1d) {
+        throw new IllegalArgumentException(
+          String.format("Dictionary key threshold %s must be between 0 and 1.", conf.dictionaryKeyThreshold));
       }
+      configuration.put(DICTIONARY_KEY_THRESHOLD, String.valueOf(conf.dictionaryKeyThreshold));
     }
     return configuration;
   }
@@ -101,6 +124,14 @@ public class OrcOutputFormatProvider implements OutputFormatProvider {
     private static final String INDEX_STRIDE_DESC =
       "Number of rows between index entries. The value must be at least 1000.";
     private static final String INDEX_CREATE_DESC = "Whether to create inline indexes.";
+    private static final String BLOOM_FILTER_COLUMNS_DESC =
+      "Comma separated list of the columns to create bloom filters for. Bloom filters let readers skip row groups "
+      + "when filtering on equality, and are most useful for columns with many distinct values.";
+    private static final String BLOOM_FILTER_FPP_DESC =
+      "False positive probability of the bloom filters. Must be between 0 and 1. The default value is 0.05.";
+    private static final String DICTIONARY_KEY_THRESHOLD_DESC =
+      "Maximum ratio of distinct values to the number of values in a string column for dictionary encoding to be "
+      + "used. A value of 0 disables dictionary encoding. The default value is 0.8.";
 
     @Macro
     @Description(SCHEMA_DESC)
@@ -130,6 +161,21 @@ public class OrcOutputFormatProvider implements OutputFormatProvider {
     @Nullable
     @Description(INDEX_CREATE_DESC)
     private Boolean createIndex;
+
+    @Macro
+    @Nullable
+    @Description(BLOOM_FILTER_COLUMNS_DESC)
+    private String bloomFilterColumns;
+
+    @Macro
+    @Nullable
+    @Description(BLOOM_FILTER_FPP_DESC)
+    private Double bloomFilterFpp;
+
+    @Macro
+    @Nullable
+    @Description(DICTIONARY_KEY_THRESHOLD_DESC)
+    private Double dictionaryKeyThreshold;
   }
 
   private static String parseOrcSchema(String configuredSchema) {
@@ -156,6 +202,13 @@ public class OrcOutputFormatProvider implements OutputFormatProvider {
     properties.put("indexStride", new PluginPropertyField("indexStride", Conf.INDEX_STRIDE_DESC, "long", false, true));
     properties.put("createIndex",
                    new PluginPropertyField("createIndex", Conf.INDEX_CREATE_DESC, "boolean", false, true));
+    properties.put("bloomFilterColumns", new PluginPropertyField("bloomFilterColumns", Conf.BLOOM_FILTER_COLUMNS_DESC,
+                                                                 "string", false, true));
+    properties.put("bloomFilterFpp",
+                   new PluginPropertyField("bloomFilterFpp", Conf.BLOOM_FILTER_FPP_DESC, "double", false, true));
+    properties.put("dictionaryKeyThreshold",
+                   new PluginPropertyField("dictionaryKeyThreshold", Conf.DICTIONARY_KEY_THRESHOLD_DESC, "double",
+                                           false, true));
     return new PluginClass("outputformat", NAME, DESC, OrcOutputFormatProvider.class.getName(),
                            "conf", properties);
   }
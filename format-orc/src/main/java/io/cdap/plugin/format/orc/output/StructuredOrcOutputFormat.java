@@ -14,33 +14,42 @@
  * the License.
  */
 
+
 package io.cdap.plugin.format.orc.output;
 
 import io.cdap.cdap.api.data.format.StructuredRecord;
-import io.cdap.cdap.api.dataset.lib.KeyValue;
-import io.cdap.plugin.format.orc.StructuredToOrcTransformer;
-import io.cdap.plugin.format.output.DelegatingOutputFormat;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.NullWritable;
-import org.apache.hadoop.mapreduce.OutputFormat;
+import org.apache.hadoop.mapreduce.RecordWriter;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
-import org.apache.orc.mapred.OrcStruct;
-import org.apache.orc.mapreduce.OrcOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.orc.OrcConf;
+import org.apache.orc.OrcFile;
+import org.apache.orc.TypeDescription;
+import org.apache.orc.Writer;
+import org.apache.orc.mapred.OrcOutputFormat;
 
-import java.util.function.Function;
+import java.io.IOException;
 
 /**
- * Converts StructuredRecord into OrcStruct before delegating to OrcOutputFormat.
+ * Writes StructuredRecords to ORC files in batches of rows. Writer options such as the stripe size, row index
+ * stride and bloom filter columns are read from the configuration, the same way as for {@link OrcOutputFormat}.
  */
-public class StructuredOrcOutputFormat extends DelegatingOutputFormat<NullWritable, OrcStruct> {
-
-  @Override
-  protected OutputFormat<NullWritable, OrcStruct> createDelegate() {
-    return new OrcOutputFormat<>();
-  }
+public class StructuredOrcOutputFormat extends FileOutputFormat<NullWritable, StructuredRecord> {
+  private static final String EXTENSION = ".orc";
 
   @Override
-  protected Function<StructuredRecord, KeyValue<NullWritable, OrcStruct>> getConversion(TaskAttemptContext context) {
-    StructuredToOrcTransformer transformer = new StructuredToOrcTransformer();
-    return record -> new KeyValue<>(NullWritable.get(), transformer.transform(record));
+  public RecordWriter<NullWritable, StructuredRecord> getRecordWriter(TaskAttemptContext context)
+    throws IOException {
+    Configuration conf = context.getConfiguration();
+    String schema = OrcConf.MAPRED_OUTPUT_SCHEMA.getString(conf);
+    if (schema == null) {
+      throw new IllegalArgumentException(
+        String.format("The ORC schema must be set with '%s'.", OrcConf.MAPRED_OUTPUT_SCHEMA.getAttribute()));
+    }
+    Path file = getDefaultWorkFile(context, EXTENSION);
+    Writer writer = OrcFile.createWriter(file, OrcOutputFormat.buildOptions(conf));
+    return new OrcBatchRecordWriter(writer, TypeDescription.fromString(schema));
   }
 }
@@ -0,0 +1,177 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.parquet.input;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.format.FilterExpression;
+import org.apache.parquet.filter2.predicate.FilterApi;
+import org.apache.parquet.filter2.predicate.FilterPredicate;
+import org.apache.parquet.filter2.predicate.Operators;
+import org.apache.parquet.io.api.Binary;
+
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link FilterExpression} that is translated into a Parquet {@link FilterPredicate}, so that row groups whose
+ * column statistics cannot match are skipped, and the remaining records are filtered while they are assembled.
+ * Fields must be of type boolean, int, long, float, double or string.
+ */
+public final class ParquetFilterExpression {
+  private final String expression;
+  private final Schema schema;
+  private final FilterPredicate predicate;
+  private final Set<String> columns;
+
+  private ParquetFilterExpression(String expression, Schema schema, FilterExpression filter) {
+    this.expression = expression;
+    this.schema = schema;
+    this.columns = filter.getFields();
+    this.predicate = translate(filter.getRoot());
+  }
+
+  /**
+   * Parses the given expression.
+   *
+   * @param expression the filter expression
+   * @param schema the schema of the data, used to determine the type of each column
+   * @return the parsed expression
+   * @throws IllegalArgumentException if the expression is invalid or refers to a field that cannot be filtered on
+   */
+  public static ParquetFilterExpression parse(String expression, Schema schema) {
+    return new ParquetFilterExpression(expression, schema, FilterExpression.parse(expression));
+  }
+
+  public FilterPredicate getPredicate() {
+    return predicate;
+  }
+
+  /**
+   * Returns the names of the columns that the expression refers to.
+   */
+  public Set<String> getColumns() {
+    return columns;
+  }
+
+  private FilterPredicate translate(FilterExpression.Node node) {
+    if (node instanceof FilterExpression.And) {
+      List<FilterExpression.Node> children = ((FilterExpression.And) node).getChildren();
+      FilterPredicate predicate = translate(children.get(0));
+      for (int i = 1; i < children.size(); i++) {
+        predicate = FilterApi.and(predicate, translate(children.get(i)));
+      }
+      return predicate;
+    }
+    if (node instanceof FilterExpression.Or) {
+      List<FilterExpression.Node> children = ((FilterExpression.Or) node).getChildren();
+      FilterPredicate predicate = translate(children.get(0));
+      for (int i = 1; i < children.size(); i++) {
+        predicate = FilterApi.or(predicate, translate(children.get(i)));
+      }
+      return predicate;
+    }
+    if (node instanceof FilterExpression.Not) {
+      return FilterApi.not(translate(((FilterExpression.Not) node).getChild()));
+    }
+    if (node instanceof FilterExpression.In) {
+      FilterExpression.In in = (FilterExpression.In) node;
+      Schema.Type type = getType(in.getField());
+      FilterPredicate predicate = null;
+      for (String value : in.getValues()) {
+        FilterPredicate eq = compare(in.getField(), type, FilterExpression.Operator.EQ, value);
+        predicate = predicate == null ? eq : FilterApi.or(predicate, eq);
+      }
+      return predicate;
+    }
+    FilterExpression.Comparison comparison = (FilterExpression.Comparison) node;
+    return compare(comparison.getField(), getType(comparison.getField()), comparison.getOperator(),
+                   comparison.getValue());
+  }
+
+  private Schema.Type getType(String field) {
+    Schema.Field schemaField = schema.getField(field);
+    if (schemaField == null) {
+      throw error("Field '" + field + "' does not exist in the schema");
+    }
+    Schema fieldSchema = schemaField.getSchema();
+    return fieldSchema.isNullable() ? fieldSchema.getNonNullable().getType() : fieldSchema.getType();
+  }
+
+  private FilterPredicate compare(String field, Schema.Type type, FilterExpression.Operator operator,
+                                  @Nullable String value) {
+    try {
+      switch (type) {
+        case BOOLEAN:
+          Operators.BooleanColumn booleanColumn = FilterApi.booleanColumn(field);
+          Boolean booleanValue = value == null ? null : parseBoolean(field, value);
+          if (operator == FilterExpression.Operator.EQ) {
+            return FilterApi.eq(booleanColumn, booleanValue);
+          } else if (operator == FilterExpression.Operator.NOT_EQ) {
+            return FilterApi.notEq(booleanColumn, booleanValue);
+          }
+          throw error("Boolean field '" + field + "' can only be compared with = or !=");
+        case INT:
+          return compare(FilterApi.intColumn(field), operator, value == null ? null : Integer.valueOf(value));
+        case LONG:
+          return compare(FilterApi.longColumn(field), operator, value == null ? null : Long.valueOf(value));
+        case FLOAT:
+          return compare(FilterApi.floatColumn(field), operator, value == null ? null : Float.valueOf(value));
+        case DOUBLE:
+          return compare(FilterApi.doubleColumn(field), operator, value == null ? null : Double.valueOf(value));
+        case STRING:
+          return compare(FilterApi.binaryColumn(field), operator, value == null ? null : Binary.fromString(value));
+        default:
+          throw error("Field '" + field + "' of type " + type + " cannot be used in a filter");
+      }
+    } catch (NumberFormatException e) {
+      throw error("Value '" + value + "' is not valid for " + type + " field '" + field + "'");
+    }
+  }
+
+  private <T extends Comparable<T>, C extends Operators.Column<T> & Operators.SupportsLtGt>
+  FilterPredicate compare(C column, FilterExpression.Operator operator, @Nullable T value) {
+    if (value == null && operator != FilterExpression.Operator.EQ && operator != FilterExpression.Operator.NOT_EQ) {
+      throw error("Field '" + column.getColumnPath().toDotString() + "' cannot be compared with null");
+    }
+    switch (operator) {
+      case EQ:
+        return FilterApi.eq(column, value);
+      case NOT_EQ:
+        return FilterApi.notEq(column, value);
+      case LT:
+        return FilterApi.lt(column, value);
+      case LT_EQ:
+        return FilterApi.ltEq(column, value);
+      case GT:
+        return FilterApi.gt(column, value);
+      default:
+        return FilterApi.gtEq(column, value);
+    }
+  }
+
+  private Boolean parseBoolean(String field, String value) {
+    if (!"true".equalsIgnoreCase(value) && !"false".equalsIgnoreCase(value)) {
+      throw error("Value '" + value + "' is not valid for boolean field '" + field + "'");
+    }
+    return Boolean.valueOf(value);
+  }
+
+  private IllegalArgumentException error(String message) {
+    return new IllegalArgumentException(String.format("Invalid filter '%s': %s.", expression, message));
+  }
+}
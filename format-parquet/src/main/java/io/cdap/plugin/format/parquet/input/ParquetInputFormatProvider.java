@@ -17,14 +17,18 @@
 package io.cdap.plugin.format.parquet.input;
 
 import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Macro;
 import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.plugin.PluginClass;
+import io.cdap.cdap.api.plugin.PluginPropertyField;
 import io.cdap.plugin.format.input.PathTrackingConfig;
 import io.cdap.plugin.format.input.PathTrackingInputFormatProvider;
 
+import java.util.HashMap;
 import java.util.Map;
+import javax.annotation.Nullable;
 
 /**
  * Provides and sets up configuration for an parquet input format.
@@ -32,14 +36,12 @@ import java.util.Map;
 @Plugin(type = "inputformat")
 @Name(ParquetInputFormatProvider.NAME)
 @Description(ParquetInputFormatProvider.DESC)
-public class ParquetInputFormatProvider extends PathTrackingInputFormatProvider<PathTrackingConfig> {
+public class ParquetInputFormatProvider extends PathTrackingInputFormatProvider<ParquetInputFormatProvider.Conf> {
   static final String NAME = "parquet";
   static final String DESC = "Plugin for reading files in text format.";
-  public static final PluginClass PLUGIN_CLASS =
-    new PluginClass("inputformat", NAME, DESC, ParquetInputFormatProvider.class.getName(),
-                    "conf", PathTrackingConfig.FIELDS);
+  public static final PluginClass PLUGIN_CLASS = getPluginClass();
 
-  public ParquetInputFormatProvider(PathTrackingConfig conf) {
+  public ParquetInputFormatProvider(Conf conf) {
     super(conf);
   }
 
@@ -48,11 +50,47 @@ public class ParquetInputFormatProvider extends PathTrackingInputFormatProvider<
     return CombineParquetInputFormat.class.getName();
   }
 
+  @Override
+  protected void validate() {
+    if (conf.filter != null) {
+      Schema schema = conf.getSchema();
+      if (schema == null) {
+        throw new IllegalArgumentException("Parquet filter cannot be used without specifying a schema.");
+      }
+      ParquetFilterExpression.parse(conf.filter, schema);
+    }
+  }
+
   @Override
   protected void addFormatProperties(Map<String, String> properties) {
     Schema schema = conf.getSchema();
     if (schema != null) {
       properties.put("parquet.avro.schema", schema.toString());
     }
+    if (conf.filter != null) {
+      properties.put(PathTrackingParquetInputFormat.FILTER, conf.filter);
+    }
+  }
+
+  /**
+   * Plugin config for parquet input format
+   */
+  public static class Conf extends PathTrackingConfig {
+    private static final String FILTER_DESC = "Expression that records must match in order to be read, "
+      + "such as \"day = '2019-06-01' AND status IN (200, 204)\". Row groups whose column statistics show "
+      + "that no record can match are skipped without being read. "
+      + "If no value is given, all records are read.";
+
+    @Macro
+    @Nullable
+    @Description(FILTER_DESC)
+    private String filter;
+  }
+
+  private static PluginClass getPluginClass() {
+    Map<String, PluginPropertyField> properties = new HashMap<>(PathTrackingConfig.FIELDS);
+    properties.put("filter", new PluginPropertyField("filter", Conf.FILTER_DESC, "string", false, true));
+    return new PluginClass("inputformat", NAME, DESC, ParquetInputFormatProvider.class.getName(),
+                           "conf", properties);
   }
 }
@@ -18,25 +18,35 @@ package io.cdap.plugin.format.parquet.input;
 
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.format.SchemaProjection;
 import io.cdap.plugin.format.avro.AvroToStructuredTransformer;
 import io.cdap.plugin.format.input.PathTrackingInputFormat;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.input.FileSplit;
-import org.apache.parquet.avro.AvroParquetInputFormat;
+import org.apache.parquet.hadoop.ParquetInputFormat;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import javax.annotation.Nullable;
 
 /**
  * Parquet format that tracks which file each record was read from.
  */
 public class PathTrackingParquetInputFormat extends PathTrackingInputFormat {
+  static final String FILTER = "cdap.parquet.filter";
+
+  @Override
+  protected boolean supportsProjection() {
+    return true;
+  }
 
   @Override
   protected RecordReader<NullWritable, StructuredRecord.Builder> createRecordReader(FileSplit split,
@@ -44,9 +54,77 @@ public class PathTrackingParquetInputFormat extends PathTrackingInputFormat {
                                                                                     @Nullable String pathField,
                                                                                     @Nullable Schema schema)
     throws IOException, InterruptedException {
-    RecordReader<Void, GenericRecord> delegate = (new AvroParquetInputFormat<GenericRecord>())
-      .createRecordReader(split, context);
-    return new ParquetRecordReader(delegate, schema, pathField);
+    if (schema == null) {
+      // the schema is taken from the files, which is only possible through avro
+      RecordReader<Void, GenericRecord> delegate =
+        new ParquetInputFormat<GenericRecord>(ProjectingAvroReadSupport.class).createRecordReader(split, context);
+      return new ParquetRecordReader(delegate, null, pathField);
+    }
+
+    // only the columns of the output schema, and the columns used by the filter, are read from the files
+    Configuration conf = context.getConfiguration();
+    Schema projectedSchema = SchemaProjection.getProjectedSchema(conf, schema, pathField);
+    Schema readSchema = projectedSchema == null ? schema : projectedSchema;
+    Set<String> columns = new LinkedHashSet<>();
+    for (Schema.Field field : readSchema.getFields()) {
+      if (!field.getName().equals(pathField)) {
+        columns.add(field.getName());
+      }
+    }
+    String filter = conf.get(FILTER);
+    if (filter != null) {
+      ParquetFilterExpression filterExpression = ParquetFilterExpression.parse(filter, schema);
+      ParquetInputFormat.setFilterPredicate(conf, filterExpression.getPredicate());
+      columns.addAll(filterExpression.getColumns());
+    }
+    ProjectingAvroReadSupport.setColumns(conf, columns);
+    StructuredRecordReadSupport.setSchema(conf, readSchema, pathField);
+
+    RecordReader<Void, StructuredRecord.Builder> delegate =
+      new ParquetInputFormat<StructuredRecord.Builder>(StructuredRecordReadSupport.class)
+        .createRecordReader(split, context);
+    return new BuilderRecordReader(delegate);
+  }
+
+  /**
+   * Returns the builders materialized by {@link StructuredRecordReadSupport}.
+   */
+  static class BuilderRecordReader extends RecordReader<NullWritable, StructuredRecord.Builder> {
+    private final RecordReader<Void, StructuredRecord.Builder> delegate;
+
+    BuilderRecordReader(RecordReader<Void, StructuredRecord.Builder> delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void initialize(InputSplit split, TaskAttemptContext context) throws IOException, InterruptedException {
+      delegate.initialize(split, context);
+    }
+
+    @Override
+    public boolean nextKeyValue() throws IOException, InterruptedException {
+      return delegate.nextKeyValue();
+    }
+
+    @Override
+    public NullWritable getCurrentKey() {
+      return NullWritable.get();
+    }
+
+    @Override
+    public StructuredRecord.Builder getCurrentValue() throws IOException, InterruptedException {
+      return delegate.getCurrentValue();
+    }
+
+    @Override
+    public float getProgress() throws IOException, InterruptedException {
+      return delegate.getProgress();
+    }
+
+    @Override
+    public void close() throws IOException {
+      delegate.close();
+    }
   }
 
   /**
@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.parquet.input;
+
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.avro.AvroReadSupport;
+import org.apache.parquet.hadoop.api.InitContext;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Type;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An {@link AvroReadSupport} that only reads the configured top level columns. The requested schema is taken
+ * from the schema of each file rather than converted from the configured schema, so that it always matches the
+ * types and repetition of the columns in the file. Columns that are not requested are never decoded.
+ */
+public class ProjectingAvroReadSupport extends AvroReadSupport<GenericRecord> {
+  static final String COLUMNS = "cdap.parquet.read.columns";
+
+  static void setColumns(Configuration conf, Set<String> columns) {
+    conf.setStrings(COLUMNS, columns.toArray(new String[0]));
+  }
+
+  @Override
+  public ReadContext init(InitContext context) {
+    ReadContext readContext = super.init(context);
+    String[] columns = context.getConfiguration().getStrings(COLUMNS);
+    if (columns == null) {
+      return readContext;
+    }
+
+    Set<String> requested = new HashSet<>(Arrays.asList(columns));
+    MessageType fileSchema = context.getFileSchema();
+    List<Type> fields = new ArrayList<>(requested.size());
+    for (Type field : fileSchema.getFields()) {
+      if (requested.contains(field.getName())) {
+        fields.add(field);
+      }
+    }
+    if (fields.isEmpty()) {
+      // none of the columns are in this file, the configured schema decides how that is handled
+      return readContext;
+    }
+    return new ReadContext(new MessageType(fileSchema.getName(), fields), readContext.getReadSupportMetadata());
+  }
+}
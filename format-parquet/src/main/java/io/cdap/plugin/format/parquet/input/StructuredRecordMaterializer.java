@@ -0,0 +1,525 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.parquet.input;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.parquet.column.Dictionary;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.Converter;
+import org.apache.parquet.io.api.GroupConverter;
+import org.apache.parquet.io.api.PrimitiveConverter;
+import org.apache.parquet.io.api.RecordMaterializer;
+import org.apache.parquet.schema.GroupType;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Type;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Materializes Parquet records directly into {@link StructuredRecord.Builder}s. A converter is built once for every
+ * column of the requested schema, and values are set on the builder as the column readers produce them, without
+ * going through Avro objects. String columns that are dictionary encoded are decoded once per dictionary entry.
+ *
+ * Nested records, lists and maps are supported. If the schema contains something that cannot be mapped directly,
+ * such as a union of several non-null types, an {@link IllegalArgumentException} is thrown when the materializer
+ * is created so that the caller can fall back to reading through Avro.
+ */
+final class StructuredRecordMaterializer extends RecordMaterializer<StructuredRecord.Builder> {
+  private final RecordConverter root;
+
+  StructuredRecordMaterializer(MessageType requestedSchema, Schema schema) {
+    this.root = new RecordConverter(requestedSchema, schema, null);
+  }
+
+  @Override
+  public StructuredRecord.Builder getCurrentRecord() {
+    return root.builder;
+  }
+
+  @Override
+  public GroupConverter getRootConverter() {
+    return root;
+  }
+
+  /**
+   * Receives the values produced by a converter.
+   */
+  private interface ValueSink {
+    void add(Object value);
+  }
+
+  private static Converter newConverter(Type type, Schema schema, ValueSink sink) {
+    Schema nonNullable = schema.isNullable() ? schema.getNonNullable() : schema;
+    Schema.Type schemaType = nonNullable.getType();
+    if (type.isRepetition(Type.Repetition.REPEATED)) {
+      throw new IllegalArgumentException(String.format("Repeated column '%s' must be read into an array.",
+                                                       type.getName()));
+    }
+    if (type.isPrimitive()) {
+      return newPrimitiveConverter(type.asPrimitiveType(), nonNullable, sink);
+    }
+
+    GroupType groupType = type.asGroupType();
+    switch (schemaType) {
+      case RECORD:
+        return new RecordConverter(groupType, nonNullable, sink);
+      case ARRAY:
+        return new ListConverter(groupType, nonNullable.getComponentSchema(), sink);
+      case MAP:
+        Map.Entry<Schema, Schema> mapSchema = nonNullable.getMapSchema();
+        return new MapConverter(groupType, mapSchema.getKey(), mapSchema.getValue(), sink);
+      default:
+        throw new IllegalArgumentException(String.format("Group column '%s' cannot be read as a %s.",
+                                                         type.getName(), schemaType));
+    }
+  }
+
+  private static PrimitiveConverter newPrimitiveConverter(PrimitiveType type, Schema schema, ValueSink sink) {
+    PrimitiveType.PrimitiveTypeName typeName = type.getPrimitiveTypeName();
+    switch (schema.getType()) {
+      case BOOLEAN:
+        if (typeName == PrimitiveType.PrimitiveTypeName.BOOLEAN) {
+          return new PrimitiveConverter() {
+            @Override
+            public void addBoolean(boolean value) {
+              sink.add(value);
+            }
+          };
+        }
+        break;
+      case INT:
+        if (typeName == PrimitiveType.PrimitiveTypeName.INT32) {
+          return new PrimitiveConverter() {
+            @Override
+            public void addInt(int value) {
+              sink.add(value);
+            }
+          };
+        }
+        break;
+      case LONG:
+        if (typeName == PrimitiveType.PrimitiveTypeName.INT32 || typeName == PrimitiveType.PrimitiveTypeName.INT64) {
+          return new PrimitiveConverter() {
+            @Override
+            public void addInt(int value) {
+              sink.add((long) value);
+            }
+
+            @Override
+            public void addLong(long value) {
+              sink.add(value);
+            }
+          };
+        }
+        break;
+      case FLOAT:
+        if (typeName == PrimitiveType.PrimitiveTypeName.FLOAT) {
+          return new PrimitiveConverter() {
+            @Override
+            public void addFloat(float value) {
+              sink.add(value);
+            }
+          };
+        }
+        break;
+      case DOUBLE:
+        if (typeName == PrimitiveType.PrimitiveTypeName.FLOAT || typeName == PrimitiveType.PrimitiveTypeName.DOUBLE) {
+          return new PrimitiveConverter() {
+            @Override
+            public void addFloat(float value) {
+              sink.add((double) value);
+            }
+
+            @Override
+            public void addDouble(double value) {
+              sink.add(value);
+            }
+          };
+        }
+        break;
+      case STRING:
+      case ENUM:
+        if (typeName == PrimitiveType.PrimitiveTypeName.BINARY) {
+          return new StringConverter(sink);
+        }
+        break;
+      case BYTES:
+        if (typeName == PrimitiveType.PrimitiveTypeName.BINARY
+          || typeName == PrimitiveType.PrimitiveTypeName.FIXED_LEN_BYTE_ARRAY) {
+          return new PrimitiveConverter() {
+            @Override
+            public void addBinary(Binary value) {
+              sink.add(ByteBuffer.wrap(value.getBytes()));
+            }
+          };
+        }
+        break;
+    }
+    throw new IllegalArgumentException(String.format("Column '%s' of type %s cannot be read as a %s.",
+                                                     type.getName(), typeName, schema.getType()));
+  }
+
+  /**
+   * Builds a record from a group. The root converter has no sink, its builder is the materialized record.
+   */
+  private static final class RecordConverter extends GroupConverter {
+    private final Schema schema;
+    private final ValueSink sink;
+    private final Converter[] converters;
+    private final RepeatedSink[] repeated;
+    private StructuredRecord.Builder builder;
+
+    private RecordConverter(GroupType type, Schema schema, ValueSink sink) {
+      this.schema = schema;
+      this.sink = sink;
+      this.converters = new Converter[type.getFieldCount()];
+      List<RepeatedSink> repeatedSinks = new ArrayList<>();
+      for (int i = 0; i < converters.length; i++) {
+        Type fieldType = type.getType(i);
+        Schema.Field field = schema.getField(fieldType.getName());
+        if (field == null) {
+          // a column that is only read for the filter
+          converters[i] = fieldType.isPrimitive() ? new SkippingPrimitiveConverter() :
+            new SkippingGroupConverter(fieldType.asGroupType());
+          continue;
+        }
+        String name = field.getName();
+        if (fieldType.isRepetition(Type.Repetition.REPEATED)) {
+          // legacy list representation, where the repeated column itself holds the elements
+          Schema fieldSchema = field.getSchema().isNullable() ? field.getSchema().getNonNullable() : field.getSchema();
+          if (fieldSchema.getType() != Schema.Type.ARRAY) {
+            throw new IllegalArgumentException(
+              String.format("Repeated column '%s' must be read into an array.", name));
+          }
+          RepeatedSink repeatedSink = new RepeatedSink(name);
+          repeatedSinks.add(repeatedSink);
+          converters[i] = newElementConverter(fieldType, fieldSchema.getComponentSchema(), repeatedSink);
+        } else {
+          converters[i] = newConverter(fieldType, field.getSchema(), value -> builder.set(name, value));
+        }
+      }
+      this.repeated = repeatedSinks.toArray(new RepeatedSink[0]);
+    }
+
+    @Override
+    public Converter getConverter(int fieldIndex) {
+      return converters[fieldIndex];
+    }
+
+    @Override
+    public void start() {
+      builder = StructuredRecord.builder(schema);
+      for (RepeatedSink repeatedSink : repeated) {
+        repeatedSink.values = new ArrayList<>();
+      }
+    }
+
+    @Override
+    public void end() {
+      for (RepeatedSink repeatedSink : repeated) {
+        builder.set(repeatedSink.name, repeatedSink.values);
+      }
+      if (sink != null) {
+        sink.add(builder.build());
+      }
+    }
+  }
+
+  /**
+   * Collects the values of a repeated column of a record.
+   */
+  private static final class RepeatedSink implements ValueSink {
+    private final String name;
+    private List<Object> values;
+
+    private RepeatedSink(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public void add(Object value) {
+      values.add(value);
+    }
+  }
+
+  /**
+   * Creates a converter for the elements of a repeated column, ignoring the repetition.
+   */
+  private static Converter newElementConverter(Type type, Schema elementSchema, ValueSink sink) {
+    Type element = type.isPrimitive() ?
+      new PrimitiveType(Type.Repetition.REQUIRED, type.asPrimitiveType().getPrimitiveTypeName(),
+                        type.asPrimitiveType().getTypeLength(), type.getName(), type.getOriginalType()) :
+      new GroupType(Type.Repetition.REQUIRED, type.getName(), type.getOriginalType(), type.asGroupType().getFields());
+    return newConverter(element, elementSchema, sink);
+  }
+
+  /**
+   * Builds a list from a group annotated as a LIST. Both the standard three level structure and the legacy two
+   * level structure written by older versions of parquet-avro are supported.
+   */
+  private static final class ListConverter extends GroupConverter {
+    private final ValueSink sink;
+    private final Converter converter;
+    private List<Object> values;
+
+    private ListConverter(GroupType type, Schema elementSchema, ValueSink sink) {
+      if (type.getFieldCount() != 1 || !type.getType(0).isRepetition(Type.Repetition.REPEATED)) {
+        throw new IllegalArgumentException(
+          String.format("Column '%s' is not a list with a single repeated field.", type.getName()));
+      }
+      this.sink = sink;
+      Type repeated = type.getType(0);
+      if (isElementType(repeated, type.getName())) {
+        this.converter = newElementConverter(repeated, elementSchema, value -> values.add(value));
+      } else {
+        this.converter = new ElementConverter(repeated.asGroupType(), elementSchema, this);
+      }
+    }
+
+    @Override
+    public Converter getConverter(int fieldIndex) {
+      return converter;
+    }
+
+    @Override
+    public void start() {
+      values = new ArrayList<>();
+    }
+
+    @Override
+    public void end() {
+      sink.add(values);
+    }
+
+    /**
+     * Same rules as parquet-avro for deciding whether the repeated field is the element itself.
+     */
+    private static boolean isElementType(Type repeated, String parentName) {
+      return repeated.isPrimitive() || repeated.asGroupType().getFieldCount() > 1
+        || repeated.getName().equals("array") || repeated.getName().equals(parentName + "_tuple");
+    }
+  }
+
+  /**
+   * The repeated group of a three level list, which holds a single, possibly null, element.
+   */
+  private static final class ElementConverter extends GroupConverter {
+    private final Converter converter;
+    private final ListConverter list;
+    private boolean added;
+
+    private ElementConverter(GroupType type, Schema elementSchema, ListConverter list) {
+      this.list = list;
+      this.converter = newConverter(type.getType(0), elementSchema, value -> {
+        list.values.add(value);
+        added = true;
+      });
+    }
+
+    @Override
+    public Converter getConverter(int fieldIndex) {
+      return converter;
+    }
+
+    @Override
+    public void start() {
+      added = false;
+    }
+
+    @Override
+    public void end() {
+      if (!added) {
+        list.values.add(null);
+      }
+    }
+  }
+
+  /**
+   * Builds a map from a group annotated as a MAP, which contains a repeated group of keys and values.
+   */
+  private static final class MapConverter extends GroupConverter {
+    private final ValueSink sink;
+    private final KeyValueConverter keyValueConverter;
+    private Map<Object, Object> values;
+
+    private MapConverter(GroupType type, Schema keySchema, Schema valueSchema, ValueSink sink) {
+      if (type.getFieldCount() != 1 || type.getType(0).isPrimitive()
+        || type.getType(0).asGroupType().getFieldCount() != 2) {
+        throw new IllegalArgumentException(
+          String.format("Column '%s' is not a map with a repeated group of keys and values.", type.getName()));
+      }
+      this.sink = sink;
+      this.keyValueConverter = new KeyValueConverter(type.getType(0).asGroupType(), keySchema, valueSchema, this);
+    }
+
+    @Override
+    public Converter getConverter(int fieldIndex) {
+      return keyValueConverter;
+    }
+
+    @Override
+    public void start() {
+      values = new HashMap<>();
+    }
+
+    @Override
+    public void end() {
+      sink.add(values);
+    }
+  }
+
+  /**
+   * A single entry of a map.
+   */
+  private static final class KeyValueConverter extends GroupConverter {
+    private final MapConverter map;
+    private final Converter keyConverter;
+    private final Converter valueConverter;
+    private Object key;
+    private Object value;
+
+    private KeyValueConverter(GroupType type, Schema keySchema, Schema valueSchema, MapConverter map) {
+      this.map = map;
+      this.keyConverter = newConverter(type.getType(0), keySchema, k -> key = k);
+      this.valueConverter = newConverter(type.getType(1), valueSchema, v -> value = v);
+    }
+
+    @Override
+    public Converter getConverter(int fieldIndex) {
+      return fieldIndex == 0 ? keyConverter : valueConverter;
+    }
+
+    @Override
+    public void start() {
+      key = null;
+      value = null;
+    }
+
+    @Override
+    public void end() {
+      map.values.put(key, value);
+    }
+  }
+
+  /**
+   * Decodes UTF-8 values into Strings. Dictionary encoded values are decoded once per dictionary entry.
+   */
+  private static final class StringConverter extends PrimitiveConverter {
+    private final ValueSink sink;
+    private String[] dictionary;
+
+    private StringConverter(ValueSink sink) {
+      this.sink = sink;
+    }
+
+    @Override
+    public boolean hasDictionarySupport() {
+      return true;
+    }
+
+    @Override
+    public void setDictionary(Dictionary dictionary) {
+      this.dictionary = new String[dictionary.getMaxId() + 1];
+      for (int i = 0; i <= dictionary.getMaxId(); i++) {
+        this.dictionary[i] = dictionary.decodeToBinary(i).toStringUsingUTF8();
+      }
+    }
+
+    @Override
+    public void addValueFromDictionary(int dictionaryId) {
+      sink.add(dictionary[dictionaryId]);
+    }
+
+    @Override
+    public void addBinary(Binary value) {
+      sink.add(value.toStringUsingUTF8());
+    }
+  }
+
+  /**
+   * Ignores the values of a primitive column.
+   */
+  private static final class SkippingPrimitiveConverter extends PrimitiveConverter {
+
+    @Override
+    public void addBinary(Binary value) {
+      // no-op
+    }
+
+    @Override
+    public void addBoolean(boolean value) {
+      // no-op
+    }
+
+    @Override
+    public void addDouble(double value) {
+      // no-op
+    }
+
+    @Override
+    public void addFloat(float value) {
+      // no-op
+    }
+
+    @Override
+    public void addInt(int value) {
+      // no-op
+    }
+
+    @Override
+    public void addLong(long value) {
+      // no-op
+    }
+  }
+
+  /**
+   * Ignores the values of a group column.
+   */
+  private static final class SkippingGroupConverter extends GroupConverter {
+    private final Converter[] converters;
+
+    private SkippingGroupConverter(GroupType type) {
+      this.converters = new Converter[type.getFieldCount()];
+      for (int i = 0; i < converters.length; i++) {
+        Type fieldType = type.getType(i);
+        converters[i] = fieldType.isPrimitive() ? new SkippingPrimitiveConverter() :
+          new SkippingGroupConverter(fieldType.asGroupType());
+      }
+    }
+
+    @Override
+    public Converter getConverter(int fieldIndex) {
+      return converters[fieldIndex];
+    }
+
+    @Override
+    public void start() {
+      // no-op
+    }
+
+    @Override
+    public void end() {
+      // no-op
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.parquet.input;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.format.avro.AvroToStructuredTransformer;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.hadoop.api.InitContext;
+import org.apache.parquet.hadoop.api.ReadSupport;
+import org.apache.parquet.io.api.GroupConverter;
+import org.apache.parquet.io.api.RecordMaterializer;
+import org.apache.parquet.schema.MessageType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Reads Parquet records directly into {@link StructuredRecord.Builder}s of the schema set with
+ * {@link #setSchema(Configuration, Schema, String)}. Columns are requested the same way as
+ * {@link ProjectingAvroReadSupport}. Files whose columns cannot be mapped directly onto the schema are read through Avro instead.
+ */
+public class StructuredRecordReadSupport extends ReadSupport<StructuredRecord.Builder> {
+  private static final String SCHEMA = "cdap.parquet.read.record.schema";
+  private static final String PATH_FIELD = "cdap.parquet.read.path.field";
+  private final ProjectingAvroReadSupport avroReadSupport = new ProjectingAvroReadSupport();
+
+  static void setSchema(Configuration conf, Schema schema, @Nullable String pathField) {
+    conf.set(SCHEMA, schema.toString());
+    if (pathField == null) {
+      conf.unset(PATH_FIELD);
+    } else {
+      conf.set(PATH_FIELD, pathField);
+    }
+  }
+
+  @Override
+  public ReadContext init(InitContext context) {
+    return avroReadSupport.init(context);
+  }
+
+  @Override
+  public RecordMaterializer<StructuredRecord.Builder> prepareForRead(Configuration configuration,
+                                                                     Map<String, String> keyValueMetaData,
+                                                                     MessageType fileSchema,
+                                                                     ReadContext readContext) {
+    Schema schema;
+    try {
+      schema = Schema.parseJson(configuration.get(SCHEMA));
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Unable to parse the read schema: " + e.getMessage(), e);
+    }
+
+    try {
+      return new StructuredRecordMaterializer(readContext.getRequestedSchema(), schema);
+    } catch (IllegalArgumentException e) {
+      // fall back to reading through avro
+      RecordMaterializer<GenericRecord> avroMaterializer =
+        avroReadSupport.prepareForRead(configuration, keyValueMetaData, fileSchema, readContext);
+      return new AvroRecordMaterializer(avroMaterializer, schema, configuration.get(PATH_FIELD));
+    }
+  }
+
+  /**
+   * Converts the records of an Avro materializer into StructuredRecords.
+   */
+  private static final class AvroRecordMaterializer extends RecordMaterializer<StructuredRecord.Builder> {
+    private final RecordMaterializer<GenericRecord> delegate;
+    private final Schema schema;
+    private final String pathField;
+    private final AvroToStructuredTransformer transformer;
+
+    private AvroRecordMaterializer(RecordMaterializer<GenericRecord> delegate, Schema schema,
+                                   @Nullable String pathField) {
+      this.delegate = delegate;
+      this.schema = schema;
+      this.pathField = pathField;
+      this.transformer = new AvroToStructuredTransformer();
+    }
+
+    @Override
+    public StructuredRecord.Builder getCurrentRecord() {
+      try {
+        return transformer.transform(delegate.getCurrentRecord(), schema, pathField);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    @Override
+    public GroupConverter getRootConverter() {
+      return delegate.getRootConverter();
+    }
+  }
+}
@@ -44,6 +44,11 @@ public class ParquetOutputFormatProvider implements OutputFormatProvider {
   static final String NAME = "parquet";
   static final String DESC = "Plugin for writing files in parquet format.";
   private static final String PARQUET_COMPRESSION = "parquet.compression";
+  private static final String BLOCK_SIZE = "parquet.block.size";
+  private static final String PAGE_SIZE = "parquet.page.size";
+  private static final String DICTIONARY_PAGE_SIZE = "parquet.dictionary.page.size";
+  private static final String ENABLE_DICTIONARY = "parquet.enable.dictionary";
+  private static final String WRITER_VERSION = "parquet.writer.version";
   private final Conf conf;
 
   public ParquetOutputFormatProvider(Conf conf) {
@@ -71,6 +76,21 @@ public class ParquetOutputFormatProvider implements OutputFormatProvider {
         throw new IllegalArgumentException("Unsupported compression codec " + conf.compressionCodec, e);
       }
     }
+    if (conf.rowGroupSize != null) {
+      configuration.put(BLOCK_SIZE, String.valueOf(conf.rowGroupSize));
+    }
+    if (conf.pageSize != null) {
+      configuration.put(PAGE_SIZE, String.valueOf(conf.pageSize));
+    }
+    if (conf.dictionaryPageSize != null) {
+      configuration.put(DICTIONARY_PAGE_SIZE, String.valueOf(conf.dictionaryPageSize));
+    }
+    if (conf.enableDictionary != null) {
+      configuration.put(ENABLE_DICTIONARY, String.valueOf(conf.enableDictionary));
+    }
+    if (conf.writerVersion != null) {
+      configuration.put(WRITER_VERSION, conf.writerVersion.toLowerCase());
+    }
     return configuration;
   }
 
@@ -81,6 +101,19 @@ public class ParquetOutputFormatProvider implements OutputFormatProvider {
     private static final String SCHEMA_DESC = "Schema of the data to write.";
     private static final String CODEC_DESC =
       "Compression codec to use when writing data. Must be 'snappy', 'gzip', or 'none'.";
+    private static final String ROW_GROUP_SIZE_DESC =
+      "Number of bytes in each row group. Larger row groups allow for larger, more efficient reads, but require "
+      + "more memory while writing. The default value is 128MB.";
+    private static final String PAGE_SIZE_DESC =
+      "Number of bytes in each page. Pages are the unit of compression and encoding within a column chunk. "
+      + "The default value is 1MB.";
+    private static final String DICTIONARY_PAGE_SIZE_DESC =
+      "Maximum number of bytes in the dictionary of a column chunk. Columns whose dictionary grows larger than this "
+      + "fall back to plain encoding. The default value is 1MB.";
+    private static final String ENABLE_DICTIONARY_DESC =
+      "Whether to dictionary encode columns. The default value is true.";
+    private static final String WRITER_VERSION_DESC =
+      "Version of the parquet data pages to write. Must be 'v1' or 'v2'. The default value is 'v1'.";
 
     @Macro
     @Nullable
@@ -92,6 +125,31 @@ public class ParquetOutputFormatProvider implements OutputFormatProvider {
     @Description(CODEC_DESC)
     private String compressionCodec;
 
+    @Macro
+    @Nullable
+    @Description(ROW_GROUP_SIZE_DESC)
+    private Long rowGroupSize;
+
+    @Macro
+    @Nullable
+    @Description(PAGE_SIZE_DESC)
+    private Integer pageSize;
+
+    @Macro
+    @Nullable
+    @Description(DICTIONARY_PAGE_SIZE_DESC)
+    private Integer dictionaryPageSize;
+
+    @Macro
+    @Nullable
+    @Description(ENABLE_DICTIONARY_DESC)
+    private Boolean enableDictionary;
+
+    @Macro
+    @Nullable
+    @Description(WRITER_VERSION_DESC)
+    private String writerVersion;
+
     private void validate() {
       if (!containsMacro("schema") && schema != null) {
         try {
@@ -100,6 +158,20 @@ public class ParquetOutputFormatProvider implements OutputFormatProvider {
           throw new IllegalArgumentException("Unable to parse schema: " + e.getMessage(), e);
         }
       }
+      validatePositive("rowGroupSize", rowGroupSize);
+      validatePositive("pageSize", pageSize);
+      validatePositive("dictionaryPageSize", dictionaryPageSize);
+      if (!containsMacro("writerVersion") && writerVersion != null
+        && !"v1".equalsIgnoreCase(writerVersion) && !"v2".equalsIgnoreCase(writerVersion)) {
+        throw new IllegalArgumentException(
+          String.format("Unsupported writer version '%s'. Must be 'v1' or 'v2'.", writerVersion));
+      }
+    }
+
+    private void validatePositive(String name, @Nullable Number value) {
+      if (!containsMacro(name) && value != null && value.longValue() <= 0) {
+        throw new IllegalArgumentException(String.format("%s must be positive, but is %s.", name, value));
+      }
     }
   }
 
@@ -108,6 +180,15 @@ public class ParquetOutputFormatProvider implements OutputFormatProvider {
     properties.put("schema", new PluginPropertyField("schema", Conf.SCHEMA_DESC, "string", false, true));
     properties.put("compressionCodec",
                    new PluginPropertyField("compressionCodec", Conf.CODEC_DESC, "string", false, true));
+    properties.put("rowGroupSize",
+                   new PluginPropertyField("rowGroupSize", Conf.ROW_GROUP_SIZE_DESC, "long", false, true));
+    properties.put("pageSize", new PluginPropertyField("pageSize", Conf.PAGE_SIZE_DESC, "int", false, true));
+    properties.put("dictionaryPageSize",
+                   new PluginPropertyField("dictionaryPageSize", Conf.DICTIONARY_PAGE_SIZE_DESC, "int", false, true));
+    properties.put("enableDictionary",
+                   new PluginPropertyField("enableDictionary", Conf.ENABLE_DICTIONARY_DESC, "boolean", false, true));
+    properties.put("writerVersion",
+                   new PluginPropertyField("writerVersion", Conf.WRITER_VERSION_DESC, "string", false, true));
     return new PluginClass("outputformat", NAME, DESC, ParquetOutputFormatProvider.class.getName(),
                            "conf", properties);
   }
@@ -0,0 +1,254 @@
+/*
+ * Copyright © 2018-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.format.parquet.output;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.format.avro.StructuredToAvroTransformer;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.avro.AvroReadSupport;
+import org.apache.parquet.avro.AvroSchemaConverter;
+import org.apache.parquet.avro.AvroWriteSupport;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.GroupType;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Type;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes {@link StructuredRecord}s straight into the Parquet record consumer, without converting them into Avro
+ * records first. Files are written with the same Parquet schema and metadata as {@link AvroWriteSupport} writes for
+ * the Avro version of the schema, so they are read the same way. Schemas that cannot be written directly, such as
+ * schemas with unions other than nullable types or with nullable array elements, are written through Avro instead.
+ */
+public class StructuredRecordWriteSupport extends WriteSupport<StructuredRecord> {
+  private Schema schema;
+  private MessageType parquetSchema;
+  private RecordConsumer recordConsumer;
+  // only set if the schema has to be written through avro
+  private AvroWriteSupport<GenericRecord> avroWriteSupport;
+  private StructuredToAvroTransformer transformer;
+
+  @Override
+  public WriteContext init(Configuration configuration) {
+    String schemaStr = configuration.get(ParquetOutputFormatProvider.SCHEMA_KEY);
+    try {
+      schema = Schema.parseJson(schemaStr);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Unable to parse schema: " + e.getMessage(), e);
+    }
+    if (!isSupported(schema, false)) {
+      avroWriteSupport = new AvroWriteSupport<>();
+      transformer = new StructuredToAvroTransformer(schema);
+      return avroWriteSupport.init(configuration);
+    }
+    org.apache.avro.Schema avroSchema = new org.apache.avro.Schema.Parser().parse(schemaStr);
+    parquetSchema = new AvroSchemaConverter(configuration).convert(avroSchema);
+    return new WriteContext(parquetSchema, Collections.singletonMap(AvroReadSupport.AVRO_SCHEMA_METADATA_KEY,
+                                                                    avroSchema.toString()));
+  }
+
+  @Override
+  public void prepareForWrite(RecordConsumer recordConsumer) {
+    if (avroWriteSupport != null) {
+      avroWriteSupport.prepareForWrite(recordConsumer);
+    } else {
+      this.recordConsumer = recordConsumer;
+    }
+  }
+
+  @Override
+  public void write(StructuredRecord record) {
+    if (avroWriteSupport != null) {
+      try {
+        avroWriteSupport.write(transformer.transform(record));
+      } catch (IOException e) {
+        throw new RuntimeException("Unable to transform structured record into a generic record", e);
+      }
+      return;
+    }
+    recordConsumer.startMessage();
+    writeFields(record, schema, parquetSchema);
+    recordConsumer.endMessage();
+  }
+
+  private void writeFields(StructuredRecord record, Schema schema, GroupType type) {
+    List<Schema.Field> fields = schema.getFields();
+    for (int i = 0; i < fields.size(); i++) {
+      Schema.Field field = fields.get(i);
+      String name = field.getName();
+      Object value = record.get(name);
+      if (value == null) {
+        if (record.getSchema().getField(name) == null) {
+          throw new IllegalArgumentException("Input record does not contain the " + name + " field.");
+        }
+        if (!field.getSchema().isNullable()) {
+          throw new IllegalArgumentException(
+            String.format("Error converting field '%s': Found a null value for a non-nullable field.", name));
+        }
+        continue;
+      }
+      Type fieldType = type.getType(i);
+      recordConsumer.startField(fieldType.getName(), i);
+      writeValue(value, field.getSchema(), fieldType);
+      recordConsumer.endField(fieldType.getName(), i);
+    }
+  }
+
+  private void writeValue(Object value, Schema schema, Type type) {
+    Schema valueSchema = schema.isNullable() ? schema.getNonNullable() : schema;
+    switch (valueSchema.getType()) {
+      case BOOLEAN:
+        recordConsumer.addBoolean((Boolean) value);
+        break;
+      case INT:
+        recordConsumer.addInteger(((Number) value).intValue());
+        break;
+      case LONG:
+        recordConsumer.addLong(((Number) value).longValue());
+        break;
+      case FLOAT:
+        recordConsumer.addFloat(((Number) value).floatValue());
+        break;
+      case DOUBLE:
+        recordConsumer.addDouble(((Number) value).doubleValue());
+        break;
+      case STRING:
+        recordConsumer.addBinary(Binary.fromString(value.toString()));
+        break;
+      case BYTES:
+        recordConsumer.addBinary(value instanceof ByteBuffer ? Binary.fromConstantByteBuffer((ByteBuffer) value) :
+                                   Binary.fromConstantByteArray((byte[]) value));
+        break;
+      case RECORD:
+        recordConsumer.startGroup();
+        writeFields((StructuredRecord) value, valueSchema, type.asGroupType());
+        recordConsumer.endGroup();
+        break;
+      case ARRAY:
+        writeArray(value, valueSchema.getComponentSchema(), type.asGroupType());
+        break;
+      case MAP:
+        writeMap((Map<?, ?>) value, valueSchema.getMapSchema().getValue(), type.asGroupType());
+        break;
+      default:
+        // ruled out by isSupported
+        throw new IllegalStateException("Unsupported type " + valueSchema.getType());
+    }
+  }
+
+  /**
+   * Writes an array in the two level list structure that AvroWriteSupport writes by default.
+   */
+  private void writeArray(Object value, Schema componentSchema, GroupType listType) {
+    recordConsumer.startGroup();
+    int size = value instanceof Collection ? ((Collection<?>) value).size() : Array.getLength(value);
+    if (size > 0) {
+      Type elementType = listType.getType(0);
+      recordConsumer.startField(elementType.getName(), 0);
+      if (value instanceof Collection) {
+        for (Object element : (Collection<?>) value) {
+          writeElement(element, componentSchema, elementType);
+        }
+      } else {
+        for (int i = 0; i < size; i++) {
+          writeElement(Array.get(value, i), componentSchema, elementType);
+        }
+      }
+      recordConsumer.endField(elementType.getName(), 0);
+    }
+    recordConsumer.endGroup();
+  }
+
+  private void writeElement(Object element, Schema componentSchema, Type elementType) {
+    if (element == null) {
+      throw new IllegalArgumentException("Found a null value in an array with non-nullable elements.");
+    }
+    writeValue(element, componentSchema, elementType);
+  }
+
+  private void writeMap(Map<?, ?> map, Schema valueSchema, GroupType mapType) {
+    recordConsumer.startGroup();
+    if (!map.isEmpty()) {
+      GroupType entryType = mapType.getType(0).asGroupType();
+      Type keyType = entryType.getType(0);
+      Type valueType = entryType.getType(1);
+      recordConsumer.startField(entryType.getName(), 0);
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        recordConsumer.startGroup();
+        recordConsumer.startField(keyType.getName(), 0);
+        recordConsumer.addBinary(Binary.fromString(entry.getKey().toString()));
+        recordConsumer.endField(keyType.getName(), 0);
+        Object value = entry.getValue();
+        if (value != null) {
+          recordConsumer.startField(valueType.getName(), 1);
+          writeValue(value, valueSchema, valueType);
+          recordConsumer.endField(valueType.getName(), 1);
+        } else if (!valueSchema.isNullable()) {
+          throw new IllegalArgumentException("Found a null value in a map with non-nullable values.");
+        }
+        recordConsumer.endGroup();
+      }
+      recordConsumer.endField(entryType.getName(), 0);
+    }
+    recordConsumer.endGroup();
+  }
+
+  /**
+   * Whether values of the given schema can be written directly, in the same structure as AvroWriteSupport writes.
+   */
+  private static boolean isSupported(Schema schema, boolean allowNullable) {
+    if (schema.isNullable()) {
+      return allowNullable && isSupported(schema.getNonNullable(), false);
+    }
+    switch (schema.getType()) {
+      case BOOLEAN:
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+      case STRING:
+      case BYTES:
+        return true;
+      case RECORD:
+        for (Schema.Field field : schema.getFields()) {
+          if (!isSupported(field.getSchema(), true)) {
+            return false;
+          }
+        }
+        return true;
+      case ARRAY:
+        return isSupported(schema.getComponentSchema(), false);
+      case MAP:
+        Map.Entry<Schema, Schema> mapSchema = schema.getMapSchema();
+        return mapSchema.getKey().getType() == Schema.Type.STRING && isSupported(mapSchema.getValue(), true);
+      default:
+        return false;
+    }
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.parquet.output;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.format.avro.StructuredToAvroTransformer;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.avro.AvroParquetReader;
+import org.apache.parquet.avro.AvroParquetWriter;
+import org.apache.parquet.avro.AvroReadSupport;
+import org.apache.parquet.column.ParquetProperties;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.hadoop.metadata.FileMetaData;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests that {@link StructuredRecordWriteSupport} writes the same files as writing the records through
+ * {@link org.apache.parquet.avro.AvroWriteSupport}.
+ */
+public class StructuredRecordWriteSupportTest {
+  @ClassRule
+  public static final TemporaryFolder TMP_FOLDER = new TemporaryFolder();
+
+  private static final Schema INNER = Schema.recordOf(
+    "inner",
+    Schema.Field.of("x", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("y", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("b", Schema.of(Schema.Type.BOOLEAN)),
+    Schema.Field.of("i", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+    Schema.Field.of("l", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("f", Schema.of(Schema.Type.FLOAT)),
+    Schema.Field.of("d", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))),
+    Schema.Field.of("s", Schema.of(Schema.Type.STRING)),
+    Schema.Field.of("body", Schema.of(Schema.Type.BYTES)),
+    Schema.Field.of("nbody", Schema.nullableOf(Schema.of(Schema.Type.BYTES))),
+    Schema.Field.of("ints", Schema.arrayOf(Schema.of(Schema.Type.INT))),
+    Schema.Field.of("strs", Schema.nullableOf(Schema.arrayOf(Schema.of(Schema.Type.STRING)))),
+    Schema.Field.of("m", Schema.nullableOf(Schema.mapOf(Schema.of(Schema.Type.STRING),
+                                                        Schema.nullableOf(Schema.of(Schema.Type.INT))))),
+    Schema.Field.of("r", Schema.nullableOf(INNER)),
+    Schema.Field.of("rs", Schema.arrayOf(INNER)));
+
+  @Test
+  public void testDirectWriteMatchesAvro() throws Exception {
+    List<StructuredRecord> records = new ArrayList<>();
+    List<ByteBuffer> bodies = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      // bodies are views into larger arrays, so only the remaining bytes must be written
+      ByteBuffer body = ByteBuffer.wrap(new byte[] { -1, (byte) i, (byte) (i * 7), -1 }, 1, 2);
+      bodies.add(body);
+      StructuredRecord.Builder builder = StructuredRecord.builder(SCHEMA)
+        .set("b", i % 2 == 0)
+        .set("l", (long) i << 40)
+        .set("f", i / 3f)
+        .set("s", "s" + (i % 5))
+        .set("body", body)
+        .set("ints", i % 4 == 0 ? Collections.emptyList() : Arrays.asList(i, -i, Integer.MAX_VALUE))
+        .set("rs", Arrays.asList(StructuredRecord.builder(INNER).set("x", i).build(),
+                                 StructuredRecord.builder(INNER).set("x", -i).set("y", "y" + i).build()));
+      // every third record has nulls in all the nullable fields
+      if (i % 3 != 0) {
+        Map<String, Integer> map = new HashMap<>();
+        map.put("k" + i, i);
+        map.put("null", null);
+        builder.set("i", -i)
+          .set("d", i * 1e100d)
+          .set("nbody", new byte[] { (byte) i })
+          .set("strs", Arrays.asList("a" + i, "", "ü"))
+          .set("m", map)
+          .set("r", StructuredRecord.builder(INNER).set("x", i * 2).build());
+      }
+      records.add(builder.build());
+    }
+
+    assertSameAsAvro(SCHEMA, records);
+    for (ByteBuffer body : bodies) {
+      Assert.assertEquals(1, body.position());
+      Assert.assertEquals(2, body.remaining());
+    }
+  }
+
+  @Test
+  public void testUnsupportedSchemaFallsBackToAvro() throws Exception {
+    Schema schema = Schema.recordOf(
+      "record",
+      Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+      Schema.Field.of("u", Schema.unionOf(Schema.of(Schema.Type.INT), Schema.of(Schema.Type.STRING))),
+      // avro writes lists in the old structure, which cannot hold null elements, even if the schema allows them
+      Schema.Field.of("a", Schema.arrayOf(Schema.nullableOf(Schema.of(Schema.Type.STRING)))),
+      Schema.Field.of("body", Schema.of(Schema.Type.BYTES)));
+    List<StructuredRecord> records = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      records.add(StructuredRecord.builder(schema)
+                    .set("id", i)
+                    .set("u", i % 2 == 0 ? i : "u" + i)
+                    .set("a", Arrays.asList("a", "c" + i))
+                    .set("body", ByteBuffer.wrap(new byte[] { 0, (byte) i }, 1, 1))
+                    .build());
+    }
+
+    List<GenericRecord> read = assertSameAsAvro(schema, records);
+    Assert.assertEquals(4, read.get(4).get("u"));
+    Assert.assertEquals("u5", read.get(5).get("u").toString());
+    Assert.assertEquals("c3", ((List<?>) read.get(3).get("a")).get(1).toString());
+    Assert.assertEquals(ByteBuffer.wrap(new byte[] { 3 }), read.get(3).get("body"));
+  }
+
+  /**
+   * Writes the records with a StructuredRecordWriteSupport and through avro, asserts that both files have the same
+   * schemas and are read back the same, and returns what was read.
+   */
+  private static List<GenericRecord> assertSameAsAvro(Schema schema,
+                                                      List<StructuredRecord> records) throws IOException {
+    Path directPath = newPath("direct.parquet");
+    try (ParquetWriter<StructuredRecord> writer = createWriter(schema, directPath)) {
+      for (StructuredRecord record : records) {
+        writer.write(record);
+      }
+    }
+
+    Path avroPath = newPath("avro.parquet");
+    org.apache.avro.Schema avroSchema = new org.apache.avro.Schema.Parser().parse(schema.toString());
+    StructuredToAvroTransformer transformer = new StructuredToAvroTransformer(schema);
+    try (ParquetWriter<GenericRecord> writer = new AvroParquetWriter<>(avroPath, avroSchema)) {
+      for (StructuredRecord record : records) {
+        writer.write(transformer.transform(record));
+      }
+    }
+
+    Configuration conf = new Configuration();
+    FileMetaData directMetaData = ParquetFileReader.readFooter(conf, directPath).getFileMetaData();
+    FileMetaData avroMetaData = ParquetFileReader.readFooter(conf, avroPath).getFileMetaData();
+    Assert.assertEquals(avroMetaData.getSchema(), directMetaData.getSchema());
+    Assert.assertEquals(avroMetaData.getKeyValueMetaData().get(AvroReadSupport.AVRO_SCHEMA_METADATA_KEY),
+                        directMetaData.getKeyValueMetaData().get(AvroReadSupport.AVRO_SCHEMA_METADATA_KEY));
+
+    List<GenericRecord> read = read(directPath);
+    Assert.assertEquals(records.size(), read.size());
+    Assert.assertEquals(read(avroPath), read);
+    return read;
+  }
+
+  private static Path newPath(String name) throws IOException {
+    return new Path(new File(TMP_FOLDER.newFolder(), name).toURI());
+  }
+
+  private static ParquetWriter<StructuredRecord> createWriter(Schema schema, Path path) throws IOException {
+    Configuration conf = new Configuration();
+    conf.set(ParquetOutputFormatProvider.SCHEMA_KEY, schema.toString());
+    // validation checks that the records are written in the structure of the parquet schema
+    return new ParquetWriter<>(path, new StructuredRecordWriteSupport(), CompressionCodecName.UNCOMPRESSED,
+                               ParquetWriter.DEFAULT_BLOCK_SIZE, ParquetWriter.DEFAULT_PAGE_SIZE,
+                               ParquetWriter.DEFAULT_PAGE_SIZE, true, true,
+                               ParquetProperties.WriterVersion.PARQUET_1_0, conf);
+  }
+
+  private static List<GenericRecord> read(Path path) throws IOException {
+    List<GenericRecord> records = new ArrayList<>();
+    try (ParquetReader<GenericRecord> reader = AvroParquetReader.<GenericRecord>builder(path).build()) {
+      GenericRecord record = reader.read();
+      while (record != null) {
+        records.add(record);
+        record = reader.read();
+      }
+    }
+    return records;
+  }
+}
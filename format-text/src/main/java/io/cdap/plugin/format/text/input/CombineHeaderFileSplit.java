@@ -16,6 +16,7 @@
 
 package io.cdap.plugin.format.text.input;
 
+import io.cdap.plugin.format.input.PathTrackingCombineFileSplit;
 import org.apache.hadoop.mapreduce.lib.input.CombineFileRecordReader;
 import org.apache.hadoop.mapreduce.lib.input.CombineFileSplit;
 
@@ -28,7 +29,7 @@ import javax.annotation.Nullable;
  * A {@link CombineFileSplit} that also contains the header for the files in the split. This must extend
  * CombineFileSplit because {@link CombineFileRecordReader} expects a CombineFileSplit.
  */
-public class CombineHeaderFileSplit extends CombineFileSplit {
+public class CombineHeaderFileSplit extends PathTrackingCombineFileSplit {
   private String header;
 
   public CombineHeaderFileSplit() {
@@ -36,7 +37,8 @@ public class CombineHeaderFileSplit extends CombineFileSplit {
   }
 
   public CombineHeaderFileSplit(CombineFileSplit split, @Nullable String header) throws IOException {
-    super(split.getPaths(), split.getStartOffsets(), split.getLengths(), split.getLocations());
+    super(split, split instanceof PathTrackingCombineFileSplit ?
+      ((PathTrackingCombineFileSplit) split).getFileIds() : null);
     this.header = header;
   }
 
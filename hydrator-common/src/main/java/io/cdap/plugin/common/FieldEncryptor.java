@@ -17,24 +17,40 @@
 package io.cdap.plugin.common;
 
 import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import org.apache.commons.codec.binary.Hex;
 
 import java.io.InputStream;
+import java.security.GeneralSecurityException;
 import java.security.Key;
 import java.security.KeyStore;
-import javax.crypto.BadPaddingException;
+import java.security.SecureRandom;
+import java.util.Set;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.IvParameterSpec;
 
 /**
  * Encrypts and decrypts fields based on their schema.
+ *
+ * If the transformation uses GCM mode, a random nonce is generated for every value and prepended to the
+ * ciphertext, so the configured initialization vector is not used. Other modes use a single cipher initialized
+ * once with the configured initialization vector.
  */
 public abstract class FieldEncryptor {
+  public static final int GCM_NONCE_LENGTH = 12;
+  public static final int GCM_TAG_BITS = 128;
+
   private final KeystoreConf conf;
+  private final byte[] scratch = new byte[Bytes.SIZEOF_LONG];
+  private final byte[] nonce = new byte[GCM_NONCE_LENGTH];
   private int mode;
+  private boolean gcm;
+  private Key key;
   private Cipher cipher;
+  private SecureRandom random;
 
   public FieldEncryptor(KeystoreConf conf, int mode) {
     this.mode = mode;
@@ -46,9 +62,13 @@ public abstract class FieldEncryptor {
     try (InputStream keystoreStream = getKeystoreInputStream(conf.getKeystorePath())) {
       keystore.load(keystoreStream, conf.getKeystorePassword().toCharArray());
     }
-    Key key = keystore.getKey(conf.getKeyAlias(), conf.getKeyPassword().toCharArray());
+    key = keystore.getKey(conf.getKeyAlias(), conf.getKeyPassword().toCharArray());
     cipher = Cipher.getInstance(conf.getTransformation());
-    if (conf.getIvHex() != null) {
+    gcm = conf.isGcmMode();
+    if (gcm) {
+      // the cipher is re-initialized with a fresh nonce for every value
+      random = new SecureRandom();
+    } else if (conf.getIvHex() != null) {
       byte[] ivBytes = Hex.decodeHex(conf.getIvHex().toCharArray());
       IvParameterSpec ivParameterSpec = new IvParameterSpec(ivBytes);
       cipher.init(mode, key, ivParameterSpec);
@@ -59,45 +79,86 @@ public abstract class FieldEncryptor {
 
   public abstract InputStream getKeystoreInputStream(String keystorePath) throws Exception;
 
-  public byte[] encrypt(Object fieldVal, Schema fieldSchema) throws BadPaddingException, IllegalBlockSizeException {
+  public byte[] encrypt(Object fieldVal, Schema fieldSchema) throws GeneralSecurityException {
     if (fieldVal == null) {
       return null;
     }
 
     Schema.Type fieldType = fieldSchema.isNullable() ? fieldSchema.getNonNullable().getType() : fieldSchema.getType();
-    byte[] fieldBytes;
+    // numeric values are written into a reused scratch buffer instead of allocating a new array per value
+    byte[] fieldBytes = scratch;
+    int length;
     switch (fieldType) {
       case INT:
-        fieldBytes = Bytes.toBytes((int) fieldVal);
+        length = Bytes.putInt(scratch, 0, (int) fieldVal);
         break;
       case LONG:
-        fieldBytes = Bytes.toBytes((long) fieldVal);
+        length = Bytes.putLong(scratch, 0, (long) fieldVal);
         break;
       case FLOAT:
-        fieldBytes = Bytes.toBytes((float) fieldVal);
+        length = Bytes.putFloat(scratch, 0, (float) fieldVal);
         break;
       case DOUBLE:
-        fieldBytes = Bytes.toBytes((double) fieldVal);
+        length = Bytes.putDouble(scratch, 0, (double) fieldVal);
         break;
       case STRING:
         fieldBytes = Bytes.toBytes((String) fieldVal);
+        length = fieldBytes.length;
         break;
       case BYTES:
         fieldBytes = (byte[]) fieldVal;
+        length = fieldBytes.length;
         break;
       default:
         throw new IllegalArgumentException("field type " + fieldType + " is not supported.");
     }
-    return cipher.doFinal(fieldBytes);
+
+    if (!gcm) {
+      return cipher.doFinal(fieldBytes, 0, length);
+    }
+
+    // nonce followed by the ciphertext and tag, written straight into a buffer of the final size
+    random.nextBytes(nonce);
+    cipher.init(mode, key, new GCMParameterSpec(GCM_TAG_BITS, nonce));
+    byte[] output = new byte[GCM_NONCE_LENGTH + cipher.getOutputSize(length)];
+    System.arraycopy(nonce, 0, output, 0, GCM_NONCE_LENGTH);
+    int written = cipher.doFinal(fieldBytes, 0, length, output, GCM_NONCE_LENGTH);
+    if (GCM_NONCE_LENGTH + written != output.length) {
+      byte[] trimmed = new byte[GCM_NONCE_LENGTH + written];
+      System.arraycopy(output, 0, trimmed, 0, trimmed.length);
+      return trimmed;
+    }
+    return output;
   }
 
-  public Object decrypt(byte[] fieldBytes, Schema fieldSchema) throws BadPaddingException, IllegalBlockSizeException {
+  /**
+   * Encrypts the given fields of a record in a single pass over its schema, setting every field of the input
+   * record on the given builder. Fields that are not to be encrypted are copied as is.
+   */
+  public void encrypt(StructuredRecord record, Set<String> fieldsToEncrypt,
+                      StructuredRecord.Builder builder) throws GeneralSecurityException {
+    for (Schema.Field field : record.getSchema().getFields()) {
+      String name = field.getName();
+      Object val = record.get(name);
+      builder.set(name, fieldsToEncrypt.contains(name) ? encrypt(val, field.getSchema()) : val);
+    }
+  }
+
+  public Object decrypt(byte[] fieldBytes, Schema fieldSchema) throws GeneralSecurityException {
     if (fieldBytes == null) {
       return null;
     }
 
     Schema.Type fieldType = fieldSchema.isNullable() ? fieldSchema.getNonNullable().getType() : fieldSchema.getType();
-    fieldBytes = cipher.doFinal(fieldBytes);
+    if (gcm) {
+      if (fieldBytes.length < GCM_NONCE_LENGTH) {
+        throw new IllegalBlockSizeException("Encrypted value is shorter than the GCM nonce.");
+      }
+      cipher.init(mode, key, new GCMParameterSpec(GCM_TAG_BITS, fieldBytes, 0, GCM_NONCE_LENGTH));
+      fieldBytes = cipher.doFinal(fieldBytes, GCM_NONCE_LENGTH, fieldBytes.length - GCM_NONCE_LENGTH);
+    } else {
+      fieldBytes = cipher.doFinal(fieldBytes);
+    }
     switch (fieldType) {
       case INT:
         return Bytes.toInt(fieldBytes);
@@ -27,12 +27,14 @@ import javax.annotation.Nullable;
  * Config for keystore properties.
  */
 public class KeystoreConf extends PluginConfig {
-  @Description("Transformation algorithm, mode, and padding, separated by slashes; for example: AES/CBC/PKCS5Padding")
+  @Description("Transformation algorithm, mode, and padding, separated by slashes; for example: AES/CBC/PKCS5Padding. " +
+    "With GCM mode, for example AES/GCM/NoPadding, a random nonce is generated per value and prepended to the " +
+    "encrypted bytes.")
   @Macro
   private String transformation;
 
   @Nullable
-  @Description("Initialization vector if using CBC mode")
+  @Description("Initialization vector if using CBC mode. Ignored in GCM mode.")
   @Macro
   private String ivHex;
 
@@ -81,6 +83,14 @@ public class KeystoreConf extends PluginConfig {
     return ivHex;
   }
 
+  /**
+   * @return whether the transformation uses GCM mode, in which case a new nonce is used for every value
+   */
+  public boolean isGcmMode() {
+    String[] parts = transformation.split("/");
+    return parts.length > 1 && "GCM".equalsIgnoreCase(parts[1].trim());
+  }
+
   public String getKeystorePath() {
     return keystorePath;
   }
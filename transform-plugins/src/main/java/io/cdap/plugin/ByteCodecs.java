@@ -0,0 +1,157 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin;
+
+import java.util.Arrays;
+
+/**
+ * Hex and Base32 (RFC 4648) codecs that read and write byte arrays directly, so callers can encode
+ * into exactly sized or reused buffers. Output is compatible with the commons-codec {@code Hex} and
+ * {@code Base32} codecs in their default configuration.
+ */
+final class ByteCodecs {
+  private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes();
+  private static final byte[] BASE32_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ234567".getBytes();
+  private static final byte BASE32_PAD = '=';
+  private static final byte[] HEX_DECODE_TABLE = new byte[128];
+  private static final byte[] BASE32_DECODE_TABLE = new byte[128];
+
+  static {
+    Arrays.fill(HEX_DECODE_TABLE, (byte) -1);
+    for (int i = 0; i < 10; i++) {
+      HEX_DECODE_TABLE['0' + i] = (byte) i;
+    }
+    for (int i = 0; i < 6; i++) {
+      HEX_DECODE_TABLE['a' + i] = (byte) (10 + i);
+      HEX_DECODE_TABLE['A' + i] = (byte) (10 + i);
+    }
+    Arrays.fill(BASE32_DECODE_TABLE, (byte) -1);
+    for (int i = 0; i < BASE32_ALPHABET.length; i++) {
+      BASE32_DECODE_TABLE[BASE32_ALPHABET[i]] = (byte) i;
+      BASE32_DECODE_TABLE[Character.toLowerCase(BASE32_ALPHABET[i])] = (byte) i;
+    }
+  }
+
+  private ByteCodecs() {
+  }
+
+  static int hexEncodedLength(int length) {
+    return length * 2;
+  }
+
+  static int hexDecodedLength(int length) {
+    return length / 2;
+  }
+
+  static int base32EncodedLength(int length) {
+    return ((length + 4) / 5) * 8;
+  }
+
+  static int base32MaxDecodedLength(int length) {
+    return (length * 5) / 8;
+  }
+
+  /**
+   * Writes the lowercase hex digits of {@code src} into {@code dst}, returning the number of bytes written.
+   */
+  static int encodeHex(byte[] src, byte[] dst) {
+    int j = 0;
+    for (byte b : src) {
+      dst[j++] = HEX_DIGITS[(b >> 4) & 0x0F];
+      dst[j++] = HEX_DIGITS[b & 0x0F];
+    }
+    return j;
+  }
+
+  /**
+   * Decodes hex digits from {@code src} into {@code dst}, returning the number of bytes written.
+   *
+   * @throws IllegalArgumentException if the input has an odd length or contains a non hex character
+   */
+  static int decodeHex(byte[] src, byte[] dst) {
+    if ((src.length & 0x01) != 0) {
+      throw new IllegalArgumentException("Odd number of characters in hex value.");
+    }
+    int j = 0;
+    for (int i = 0; i < src.length; i += 2) {
+      dst[j++] = (byte) ((hexDigit(src[i]) << 4) | hexDigit(src[i + 1]));
+    }
+    return j;
+  }
+
+  /**
+   * Base32 encodes {@code src} into {@code dst} with padding, returning the number of bytes written.
+   */
+  static int encodeBase32(byte[] src, byte[] dst) {
+    int j = 0;
+    int i = 0;
+    for (; i + 5 <= src.length; i += 5) {
+      long bits = ((src[i] & 0xFFL) << 32) | ((src[i + 1] & 0xFFL) << 24) | ((src[i + 2] & 0xFFL) << 16)
+        | ((src[i + 3] & 0xFFL) << 8) | (src[i + 4] & 0xFFL);
+      for (int shift = 35; shift >= 0; shift -= 5) {
+        dst[j++] = BASE32_ALPHABET[(int) (bits >> shift) & 0x1F];
+      }
+    }
+    int remaining = src.length - i;
+    if (remaining > 0) {
+      long bits = 0;
+      for (int k = 0; k < 5; k++) {
+        bits = (bits << 8) | (k < remaining ? src[i + k] & 0xFFL : 0);
+      }
+      // number of significant characters for 1 to 4 trailing bytes
+      int chars = (remaining * 8 + 4) / 5;
+      for (int k = 0; k < 8; k++) {
+        dst[j++] = k < chars ? BASE32_ALPHABET[(int) (bits >> (35 - k * 5)) & 0x1F] : BASE32_PAD;
+      }
+    }
+    return j;
+  }
+
+  /**
+   * Decodes Base32 from {@code src} into {@code dst}, returning the number of bytes written. Decoding stops at the
+   * first padding character and, like commons-codec, characters outside of the alphabet are skipped.
+   */
+  static int decodeBase32(byte[] src, byte[] dst) {
+    int j = 0;
+    long bits = 0;
+    int bitCount = 0;
+    for (byte b : src) {
+      if (b == BASE32_PAD) {
+        break;
+      }
+      int value = b < 0 ? -1 : BASE32_DECODE_TABLE[b];
+      if (value < 0) {
+        continue;
+      }
+      bits = (bits << 5) | value;
+      bitCount += 5;
+      if (bitCount >= 8) {
+        bitCount -= 8;
+        dst[j++] = (byte) (bits >> bitCount);
+      }
+    }
+    return j;
+  }
+
+  private static int hexDigit(byte b) {
+    int value = b < 0 ? -1 : HEX_DECODE_TABLE[b];
+    if (value < 0) {
+      throw new IllegalArgumentException("Illegal hexadecimal character " + (char) b + ".");
+    }
+    return value;
+  }
+}
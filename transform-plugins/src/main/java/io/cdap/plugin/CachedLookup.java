@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin;
+
+import io.cdap.cdap.etl.api.Lookup;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Wraps a {@link Lookup} with a local cache of looked up values. Keys that are not present in the lookup are cached
+ * as well, so that repeated misses do not go back to the dataset.
+ */
+final class CachedLookup {
+  // Cached marker for keys that have no value, or an empty value, in the lookup.
+  private static final String MISSING = "";
+
+  private final Lookup<String> lookup;
+  private final Map<String, String> cache;
+  private final boolean perRecord;
+
+  private CachedLookup(Lookup<String> lookup, Map<String, String> cache, boolean perRecord) {
+    this.lookup = lookup;
+    this.cache = cache;
+    this.perRecord = perRecord;
+  }
+
+  /**
+   * Creates a lookup that only keeps values for the duration of a record, so that the keys of a record can still
+   * be fetched in a single batch.
+   */
+  static CachedLookup uncached(Lookup<String> lookup) {
+    return new CachedLookup(lookup, new HashMap<String, String>(), true);
+  }
+
+  /**
+   * Creates a lookup that keeps every key it has seen. Meant for small lookup tables.
+   */
+  static CachedLookup unbounded(Lookup<String> lookup) {
+    return new CachedLookup(lookup, new HashMap<String, String>(), false);
+  }
+
+  /**
+   * Creates a lookup that keeps the most recently used {@code maxSize} keys.
+   */
+  static CachedLookup lru(Lookup<String> lookup, final int maxSize) {
+    Map<String, String> cache = new LinkedHashMap<String, String>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+        return size() > maxSize;
+      }
+    };
+    return new CachedLookup(lookup, cache, false);
+  }
+
+  /**
+   * Called before each record is processed.
+   */
+  void startRecord() {
+    if (perRecord) {
+      cache.clear();
+    }
+  }
+
+  /**
+   * Fetches all keys that are not cached yet with a single batched lookup.
+   */
+  void prefetch(Collection<String> keys) {
+    Set<String> missing = new HashSet<>();
+    for (String key : keys) {
+      if (!cache.containsKey(key)) {
+        missing.add(key);
+      }
+    }
+    if (missing.size() == 1) {
+      lookup(missing.iterator().next());
+    } else if (!missing.isEmpty()) {
+      Map<String, String> values = lookup.lookup(missing);
+      for (String key : missing) {
+        cache.put(key, normalize(values.get(key)));
+      }
+    }
+  }
+
+  /**
+   * Returns the value for the given key, or {@code null} if the lookup has no value or an empty value for it.
+   */
+  @Nullable
+  String lookup(String key) {
+    String value = cache.get(key);
+    if (value == null) {
+      value = normalize(lookup.lookup(key));
+      cache.put(key, value);
+    }
+    return value.isEmpty() ? null : value;
+  }
+
+  private static String normalize(@Nullable String value) {
+    return value == null || value.isEmpty() ? MISSING : value;
+  }
+}
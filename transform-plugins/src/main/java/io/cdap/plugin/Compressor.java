@@ -16,6 +16,8 @@
 
 package io.cdap.plugin;
 
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdCompressCtx;
 import com.google.common.collect.Maps;
 import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Name;
@@ -29,17 +31,23 @@ import io.cdap.cdap.etl.api.Emitter;
 import io.cdap.cdap.etl.api.PipelineConfigurer;
 import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.api.TransformContext;
+import net.jpountz.lz4.LZ4CompressorWithLength;
+import net.jpountz.lz4.LZ4Factory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xerial.snappy.Snappy;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
+import javax.annotation.Nullable;
 
 /**
  * Compresses the configured fields using the algorithms specified.
@@ -49,6 +57,7 @@ import java.util.zip.ZipOutputStream;
 @Description("Compresses configured fields using the algorithms specified.")
 public final class Compressor extends Transform<StructuredRecord, StructuredRecord> {
   private static final Logger LOG = LoggerFactory.getLogger(Compressor.class);
+  private static final int DEFAULT_ZSTD_LEVEL = 3;
   private final Config config;
 
   // Output Schema associated with transform output.
@@ -59,6 +68,13 @@ public final class Compressor extends Transform<StructuredRecord, StructuredReco
 
   private final Map<String, CompressorType> compMap = Maps.newTreeMap();
 
+  // Compression state reused across records of a task. The scratch buffer grows to the largest
+  // compressed value seen so far, so each compressed value costs a single exactly sized copy.
+  private final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+  private byte[] buffer = new byte[0];
+  private LZ4CompressorWithLength lz4Compressor;
+  private ZstdCompressCtx zstdCompressor;
+
   // This is used only for tests, otherwise this is being injected by the ingestion framework.
   public Compressor(Config config) {
     this.config = config;
@@ -91,6 +107,16 @@ public final class Compressor extends Transform<StructuredRecord, StructuredReco
   public void initialize(TransformContext context) throws Exception {
     super.initialize(context);
     parseConfiguration(config.compressor);
+    if (compMap.containsValue(CompressorType.LZ4)) {
+      lz4Compressor = new LZ4CompressorWithLength(LZ4Factory.fastestInstance().fastCompressor());
+    }
+    if (compMap.containsValue(CompressorType.ZSTD)) {
+      zstdCompressor = new ZstdCompressCtx();
+      zstdCompressor.setLevel(config.getZstdLevel());
+      if (config.zstdDictionary != null) {
+        zstdCompressor.loadDict(Files.readAllBytes(Paths.get(config.zstdDictionary)));
+      }
+    }
     try {
       outSchema = Schema.parseJson(config.schema);
       List<Field> outFields = outSchema.getFields();
@@ -129,6 +155,11 @@ public final class Compressor extends Transform<StructuredRecord, StructuredReco
       throw new IllegalArgumentException("Format of schema specified is invalid. Please check the format.");
     }
 
+    if (config.zstdLevel != null && (config.zstdLevel < 1 || config.zstdLevel > Zstd.maxCompressionLevel())) {
+      throw new IllegalArgumentException(String.format("Zstandard level must be between 1 and %d, but is %d.",
+                                                       Zstd.maxCompressionLevel(), config.zstdLevel));
+    }
+
     Schema inputSchema = pipelineConfigurer.getStageConfigurer().getInputSchema();
     if (inputSchema != null) {
       for (Schema.Field field : inputSchema.getFields()) {
@@ -190,6 +221,10 @@ public final class Compressor extends Transform<StructuredRecord, StructuredReco
           outValue = zip(obj);
         } else if (type == CompressorType.GZIP) {
           outValue = gzip(obj);
+        } else if (type == CompressorType.LZ4) {
+          outValue = lz4(obj);
+        } else if (type == CompressorType.ZSTD) {
+          outValue = zstd(obj);
         }
 
         // Depending on the output field type, either convert it to 
@@ -207,8 +242,34 @@ public final class Compressor extends Transform<StructuredRecord, StructuredReco
     emitter.emit(builder.build());
   }
 
-  private static byte[] gzip(byte[] input) {
-    ByteArrayOutputStream out = new ByteArrayOutputStream();
+  @Override
+  public void destroy() {
+    if (zstdCompressor != null) {
+      zstdCompressor.close();
+    }
+  }
+
+  private byte[] lz4(byte[] input) {
+    ensureCapacity(lz4Compressor.maxCompressedLength(input.length));
+    int length = lz4Compressor.compress(input, 0, input.length, buffer, 0, buffer.length);
+    return Arrays.copyOf(buffer, length);
+  }
+
+  private byte[] zstd(byte[] input) {
+    ensureCapacity((int) Zstd.compressBound(input.length));
+    int length = zstdCompressor.compressByteArray(buffer, 0, buffer.length, input, 0, input.length);
+    return Arrays.copyOf(buffer, length);
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (buffer.length < capacity) {
+      buffer = new byte[capacity];
+    }
+  }
+
+  private byte[] gzip(byte[] input) {
+    ByteArrayOutputStream out = compressed;
+    out.reset();
     GZIPOutputStream gzip = null;
     try {
       gzip = new GZIPOutputStream(out);
@@ -232,7 +293,8 @@ public final class Compressor extends Transform<StructuredRecord, StructuredReco
   }
 
   private byte[] zip(byte[] input) {
-    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ByteArrayOutputStream out = compressed;
+    out.reset();
     ZipOutputStream zos = new ZipOutputStream(out);
     try {
       zos.setLevel(9);
@@ -264,6 +326,8 @@ public final class Compressor extends Transform<StructuredRecord, StructuredReco
     SNAPPY("SNAPPY"),
     ZIP("ZIP"),
     GZIP("GZIP"),
+    LZ4("LZ4"),
+    ZSTD("ZSTD"),
     NONE("NONE");
 
     private String type;
@@ -290,9 +354,30 @@ public final class Compressor extends Transform<StructuredRecord, StructuredReco
     @Description("Specifies the output schema")
     private final String schema;
 
+    @Nullable
+    @Name("zstdLevel")
+    @Description("Compression level used by the ZSTD compressor type, from 1 to 22. Defaults to 3.")
+    private final Integer zstdLevel;
+
+    @Nullable
+    @Name("zstdDictionary")
+    @Description("Path to a Zstandard dictionary on local disk, used by the ZSTD compressor type. The dictionary " +
+      "must be present on every node of the cluster, and the same dictionary must be used to decompress.")
+    private final String zstdDictionary;
+
     public Config(String compressor, String schema) {
+      this(compressor, schema, null, null);
+    }
+
+    public Config(String compressor, String schema, @Nullable Integer zstdLevel, @Nullable String zstdDictionary) {
       this.compressor = compressor;
       this.schema = schema;
+      this.zstdLevel = zstdLevel;
+      this.zstdDictionary = zstdDictionary;
+    }
+
+    private int getZstdLevel() {
+      return zstdLevel == null ? DEFAULT_ZSTD_LEVEL : zstdLevel;
     }
   }
 }
@@ -27,13 +27,13 @@ import io.cdap.cdap.etl.api.Emitter;
 import io.cdap.cdap.etl.api.PipelineConfigurer;
 import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.api.TransformContext;
-import org.apache.commons.codec.binary.Base32;
-import org.apache.commons.codec.binary.Base64;
-import org.apache.commons.codec.binary.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -51,10 +51,11 @@ public final class Decoder extends Transform<StructuredRecord, StructuredRecord>
   private final Config config;
   // Mapping of input field to decoder type.
   private final Map<String, DecoderType> decodeMap = new TreeMap<>();
-  // Decoder handlers.
-  private final Base64 base64Decoder = new Base64();
-  private final Base32 base32Decoder = new Base32();
-  private final Hex hexDecoder = new Hex();
+  // Decoder handlers. The MIME decoder skips line breaks and other characters outside of the Base64 alphabet.
+  // Values in the URL-safe alphabet are translated to the standard one first, as commons-codec decoded both.
+  private final Base64.Decoder base64Decoder = Base64.getMimeDecoder();
+  // Reused buffer that values are decoded into.
+  private byte[] buffer = new byte[0];
   // Output Field name to type map
   private final Map<String, Schema.Type> outSchemaMap = new HashMap<>();
   // Output Schema associated with transform output.
@@ -161,35 +162,77 @@ public final class Decoder extends Transform<StructuredRecord, StructuredRecord>
         // to byte[]
         byte[] obj = new byte[0];
         if (field.getSchema().getType() == Schema.Type.STRING) {
-          obj = ((String) in.get(name)).getBytes();
+          String value = in.get(name);
+          obj = value == null ? null : value.getBytes(StandardCharsets.US_ASCII);
         } else if (field.getSchema().getType() == Schema.Type.BYTES) {
           obj = in.get(name);
         }
+        if (obj == null) {
+          builder.set(name, null);
+          continue;
+        }
 
         // Now, based on the decode type configured for the field - decode the byte[] of the
-        // value.
-        byte[] outValue = new byte[0];
+        // value into the reused buffer.
         DecoderType type = decodeMap.get(name);
-        if (type == DecoderType.STRING_BASE32 || type == DecoderType.BASE32) {
-          outValue = base32Decoder.decode(obj);
-        } else if (type == DecoderType.STRING_BASE64 || type == DecoderType.BASE64) {
-          outValue = base64Decoder.decode(obj);
-        } else if (type == DecoderType.HEX) {
-          outValue = hexDecoder.decode(obj);
-        }
+        int length = decode(type, obj);
 
-        // Depending on the output field type, either convert it to
-        // Bytes or to String.
+        // Depending on the output field type, either copy it out as
+        // Bytes or convert it to String.
         if (outFieldType == Schema.Type.BYTES) {
-          builder.set(name, outValue);
+          builder.set(name, Arrays.copyOf(buffer, length));
         } else if (outFieldType == Schema.Type.STRING) {
-          builder.set(name, new String(outValue, "UTF-8"));
+          builder.set(name, new String(buffer, 0, length, StandardCharsets.UTF_8));
         }
       }
     }
     emitter.emit(builder.build());
   }
 
+  /**
+   * Decodes the value into the reused buffer, growing it if needed, and returns the decoded length.
+   */
+  private int decode(DecoderType type, byte[] src) {
+    switch (type) {
+      case STRING_BASE64:
+      case BASE64:
+        ensureCapacity(3 * ((src.length + 3) / 4));
+        return base64Decoder.decode(toStandardAlphabet(src), buffer);
+      case STRING_BASE32:
+      case BASE32:
+        ensureCapacity(ByteCodecs.base32MaxDecodedLength(src.length));
+        return ByteCodecs.decodeBase32(src, buffer);
+      case HEX:
+        ensureCapacity(ByteCodecs.hexDecodedLength(src.length));
+        return ByteCodecs.decodeHex(src, buffer);
+      default:
+        return 0;
+    }
+  }
+
+  /**
+   * Returns the Base64 value with the URL-safe characters '-' and '_' replaced by '+' and '/', which they stand
+   * for in the standard alphabet. Values without them are returned as they are.
+   */
+  private static byte[] toStandardAlphabet(byte[] src) {
+    byte[] standard = src;
+    for (int i = 0; i < src.length; i++) {
+      if (src[i] == '-' || src[i] == '_') {
+        if (standard == src) {
+          standard = src.clone();
+        }
+        standard[i] = src[i] == '-' ? (byte) '+' : (byte) '/';
+      }
+    }
+    return standard;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (buffer.length < capacity) {
+      buffer = new byte[capacity];
+    }
+  }
+
   /**
    * Defines decoding types supported.
    */
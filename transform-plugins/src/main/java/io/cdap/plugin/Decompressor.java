@@ -16,6 +16,9 @@
 
 package io.cdap.plugin;
 
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDecompressCtx;
+import com.github.luben.zstd.ZstdException;
 import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
@@ -27,6 +30,10 @@ import io.cdap.cdap.etl.api.Emitter;
 import io.cdap.cdap.etl.api.PipelineConfigurer;
 import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.api.TransformContext;
+import net.jpountz.lz4.LZ4DecompressorWithLength;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xerial.snappy.Snappy;
@@ -34,6 +41,9 @@ import org.xerial.snappy.Snappy;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -41,6 +51,7 @@ import java.util.TreeMap;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
+import javax.annotation.Nullable;
 
 /**
  * Decompreses the configured fields using the algorithms specified.
@@ -50,6 +61,13 @@ import java.util.zip.ZipInputStream;
 @Description("Decompresses configured fields using the algorithms specified.")
 public final class Decompressor extends Transform<StructuredRecord, StructuredRecord> {
   private static final Logger LOG = LoggerFactory.getLogger(Decompressor.class);
+  // Largest array the JVM can reliably allocate.
+  private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+  // Decompressed sizes recorded in a value are only allocated up front if they are at most this many times the
+  // compressed size, or at most MIN_TRUSTED_SIZE. Larger sizes are decompressed into the growing scratch buffer,
+  // so a header that declares more than the value contains cannot make the transform allocate it.
+  private static final int MAX_TRUSTED_RATIO = 256;
+  private static final int MIN_TRUSTED_SIZE = 1024 * 1024;
   private final Config config;
 
   // Output Schema associated with transform output.
@@ -61,6 +79,15 @@ public final class Decompressor extends Transform<StructuredRecord, StructuredRe
   // Map of field to decompressor type.
   private final Map<String, DecompressorType> deCompMap = new TreeMap<>();
 
+  // Decompression state reused across records of a task. The scratch buffer is sized from the
+  // largest decompressed value seen so far.
+  private final ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+  private final byte[] readBuffer = new byte[8192];
+  private byte[] buffer = new byte[1024];
+  private LZ4DecompressorWithLength lz4Decompressor;
+  private LZ4SafeDecompressor lz4SafeDecompressor;
+  private ZstdDecompressCtx zstdDecompressor;
+
   // This is used only for tests, otherwise this is being injected by the ingestion framework.
   public Decompressor(Config config) {
     this.config = config;
@@ -139,6 +166,16 @@ public final class Decompressor extends Transform<StructuredRecord, StructuredRe
   public void initialize(TransformContext context) throws Exception {
     super.initialize(context);
     parseConfiguration(config.decompressor);
+    if (deCompMap.containsValue(DecompressorType.LZ4)) {
+      lz4Decompressor = new LZ4DecompressorWithLength(LZ4Factory.fastestInstance().fastDecompressor());
+      lz4SafeDecompressor = LZ4Factory.fastestInstance().safeDecompressor();
+    }
+    if (deCompMap.containsValue(DecompressorType.ZSTD)) {
+      zstdDecompressor = new ZstdDecompressCtx();
+      if (config.zstdDictionary != null) {
+        zstdDecompressor.loadDict(Files.readAllBytes(Paths.get(config.zstdDictionary)));
+      }
+    }
     try {
       outSchema = Schema.parseJson(config.schema);
       List<Field> outFields = outSchema.getFields();
@@ -197,6 +234,10 @@ public final class Decompressor extends Transform<StructuredRecord, StructuredRe
           outValue = unzip(obj);
         } else if (type == DecompressorType.GZIP) {
           outValue = ungzip(obj);
+        } else if (type == DecompressorType.LZ4) {
+          outValue = unlz4(obj);
+        } else if (type == DecompressorType.ZSTD) {
+          outValue = unzstd(obj);
         }
 
         // Depending on the output field type, either convert it to
@@ -213,15 +254,93 @@ public final class Decompressor extends Transform<StructuredRecord, StructuredRe
     emitter.emit(builder.build());
   }
 
+  @Override
+  public void destroy() {
+    if (zstdDecompressor != null) {
+      zstdDecompressor.close();
+    }
+  }
+
+  /**
+   * Decompresses using Zstandard. Frames written by the Compressor record their content size, so the
+   * output is allocated exactly if that size is plausible for the length of the value. Otherwise the value
+   * is decompressed into the reused scratch buffer, which is grown until it fits. The recorded size comes
+   * from the value itself, so a size that does not fit in an array is rejected, and a size that is unknown,
+   * invalid or larger than the value could hold is not used to allocate the output.
+   */
+  private byte[] unzstd(byte[] body) {
+    long size = Zstd.decompressedSize(body);
+    if (size > MAX_BUFFER_SIZE) {
+      throw new IllegalArgumentException(
+        String.format("Zstandard value has a decompressed size of %d bytes, which is more than the maximum of %d.",
+                      size, MAX_BUFFER_SIZE));
+    }
+    if (size > 0 && isTrustedSize(size, body.length)) {
+      return zstdDecompressor.decompress(body, (int) size);
+    }
+    while (true) {
+      try {
+        int length = zstdDecompressor.decompressByteArray(buffer, 0, buffer.length, body, 0, body.length);
+        return Arrays.copyOf(buffer, length);
+      } catch (ZstdException e) {
+        if (e.getErrorCode() != Zstd.errDstSizeTooSmall() || buffer.length == MAX_BUFFER_SIZE) {
+          throw e;
+        }
+        buffer = new byte[(int) Math.min(MAX_BUFFER_SIZE, buffer.length * 2L)];
+      }
+    }
+  }
+
+  /**
+   * Decompresses using LZ4, from values that start with their decompressed length as written by
+   * {@link net.jpountz.lz4.LZ4CompressorWithLength}. Like for Zstandard, the output is only allocated
+   * from that length if it is plausible for the length of the value. Otherwise the value is decompressed
+   * into the reused scratch buffer, which is grown up to the recorded length until it fits, and the
+   * value is rejected if it does not contain as many bytes as it records.
+   */
+  private byte[] unlz4(byte[] body) {
+    if (body.length < 4) {
+      throw new IllegalArgumentException("LZ4 value is too short to contain its decompressed length.");
+    }
+    int size = (body[0] & 0xFF) | (body[1] & 0xFF) << 8 | (body[2] & 0xFF) << 16 | (body[3] & 0xFF) << 24;
+    if (size < 0 || size > MAX_BUFFER_SIZE) {
+      throw new IllegalArgumentException(
+        String.format("LZ4 value has an invalid decompressed size of %d bytes.", size & 0xFFFFFFFFL));
+    }
+    if (isTrustedSize(size, body.length)) {
+      return lz4Decompressor.decompress(body);
+    }
+    while (true) {
+      try {
+        int length = lz4SafeDecompressor.decompress(body, 4, body.length - 4, buffer, 0, buffer.length);
+        if (length != size) {
+          throw new IllegalArgumentException(
+            String.format("LZ4 value has a decompressed size of %d bytes, but contains %d bytes.", size, length));
+        }
+        return Arrays.copyOf(buffer, length);
+      } catch (LZ4Exception e) {
+        if (buffer.length >= size) {
+          throw e;
+        }
+        buffer = new byte[(int) Math.min(size, buffer.length * 2L)];
+      }
+    }
+  }
+
+  private static boolean isTrustedSize(long size, int compressedLength) {
+    return size <= Math.max(MIN_TRUSTED_SIZE, (long) compressedLength * MAX_TRUSTED_RATIO);
+  }
+
   /**
    * Decompresses using GZIP Algorithm. 
    */
   private byte[] ungzip(byte[] body) {
     ByteArrayInputStream bytein = new ByteArrayInputStream(body);
-    try (GZIPInputStream gzin = new GZIPInputStream(bytein);
-         ByteArrayOutputStream byteout = new ByteArrayOutputStream()) {
+    ByteArrayOutputStream byteout = decompressed;
+    byteout.reset();
+    try (GZIPInputStream gzin = new GZIPInputStream(bytein)) {
       int res = 0;
-      byte buf[] = new byte[1024];
+      byte buf[] = readBuffer;
       while (res >= 0) {
         res = gzin.read(buf, 0, buf.length);
         if (res > 0) {
@@ -242,9 +361,10 @@ public final class Decompressor extends Transform<StructuredRecord, StructuredRe
    */
   private byte[] unzip(byte[] body)  {
     ZipEntry ze;
-    byte buf[] = new byte[1024];
-    try (ByteArrayOutputStream bao = new ByteArrayOutputStream();
-         ByteArrayInputStream bytein = new ByteArrayInputStream(body);
+    byte buf[] = readBuffer;
+    ByteArrayOutputStream bao = decompressed;
+    bao.reset();
+    try (ByteArrayInputStream bytein = new ByteArrayInputStream(body);
          ZipInputStream zis = new ZipInputStream(bytein)) {
       while ((ze = zis.getNextEntry()) != null) {
         int l = 0;
@@ -267,6 +387,8 @@ public final class Decompressor extends Transform<StructuredRecord, StructuredRe
     SNAPPY("SNAPPY"),
     ZIP("ZIP"),
     GZIP("GZIP"),
+    LZ4("LZ4"),
+    ZSTD("ZSTD"),
     NONE("NONE");
 
     private String type;
@@ -293,9 +415,20 @@ public final class Decompressor extends Transform<StructuredRecord, StructuredRe
     @Description("Specifies the output schema")
     private final String schema;
 
+    @Nullable
+    @Name("zstdDictionary")
+    @Description("Path to the Zstandard dictionary on local disk that was used to compress values with the ZSTD " +
+      "compressor type. The dictionary must be present on every node of the cluster.")
+    private final String zstdDictionary;
+
     public Config(String decompressor, String schema) {
+      this(decompressor, schema, null);
+    }
+
+    public Config(String decompressor, String schema, @Nullable String zstdDictionary) {
       this.decompressor = decompressor;
       this.schema = schema;
+      this.zstdDictionary = zstdDictionary;
     }
   }
 }
@@ -27,13 +27,12 @@ import io.cdap.cdap.etl.api.Emitter;
 import io.cdap.cdap.etl.api.PipelineConfigurer;
 import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.api.TransformContext;
-import org.apache.commons.codec.binary.Base32;
-import org.apache.commons.codec.binary.Base64;
-import org.apache.commons.codec.binary.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -56,9 +55,10 @@ public final class Encoder extends Transform<StructuredRecord, StructuredRecord>
   private final Map<String, EncodeType> encodeMap = new TreeMap<>();
 
   // Encoder handlers.
-  private final Base64 base64Encoder = new Base64();
-  private final Base32 base32Encoder = new Base32();
-  private final Hex hexEncoder = new Hex();
+  private final Base64.Encoder base64Encoder = Base64.getEncoder();
+
+  // Reused buffer for values that are emitted as strings.
+  private byte[] buffer = new byte[0];
 
   // Output Field name to type map
   private final Map<String, Schema.Type> outSchemaMap = new HashMap<>();
@@ -166,39 +166,67 @@ public final class Encoder extends Transform<StructuredRecord, StructuredRecord>
         // to byte[] 
         byte[] obj = new byte[0];
         if (field.getSchema().getType() == Schema.Type.STRING) {
-          obj = ((String) in.get(name)).getBytes();
+          String value = in.get(name);
+          obj = value == null ? null : value.getBytes(StandardCharsets.UTF_8);
         } else if (field.getSchema().getType() == Schema.Type.BYTES) {
           obj = in.get(name);
         }
-
-        // Now, based on the encode type configured for the field - encode the byte[] of the 
-        // value.
-        byte[] outValue = new byte[0];
-        EncodeType type = encodeMap.get(name);
-        if (type == EncodeType.STRING_BASE32) {
-          outValue = base32Encoder.encodeAsString(obj).getBytes();
-        } else if (type == EncodeType.BASE32) {
-          outValue = base32Encoder.encode(obj);
-        } else if (type == EncodeType.STRING_BASE64) {
-          outValue = base64Encoder.encodeAsString(obj).getBytes();
-        } else if (type == EncodeType.BASE64) {
-          outValue = base64Encoder.encode(obj);
-        } else if (type == EncodeType.HEX) {
-          outValue = hexEncoder.encode(obj);
+        if (obj == null) {
+          builder.set(name, null);
+          continue;
         }
 
-        // Depending on the output field type, either convert it to 
-        // Bytes or to String. 
+        // Now, based on the encode type configured for the field - encode the byte[] of the
+        // value. Bytes are encoded straight into an exactly sized output array, while strings
+        // are encoded into the reused buffer and decoded from it, as the output is plain ASCII.
+        EncodeType type = encodeMap.get(name);
+        int encodedLength = getEncodedLength(type, obj.length);
         if (outFieldType == Schema.Type.BYTES) {
+          byte[] outValue = new byte[encodedLength];
+          encode(type, obj, outValue);
           builder.set(name, outValue);
         } else if (outFieldType == Schema.Type.STRING) {
-          builder.set(name, new String(outValue, "UTF-8"));
+          if (buffer.length < encodedLength) {
+            buffer = new byte[encodedLength];
+          }
+          int length = encode(type, obj, buffer);
+          builder.set(name, new String(buffer, 0, length, StandardCharsets.US_ASCII));
         }
       }
     }
     emitter.emit(builder.build());
   }
 
+  private static int getEncodedLength(EncodeType type, int length) {
+    switch (type) {
+      case STRING_BASE64:
+      case BASE64:
+        return 4 * ((length + 2) / 3);
+      case STRING_BASE32:
+      case BASE32:
+        return ByteCodecs.base32EncodedLength(length);
+      case HEX:
+        return ByteCodecs.hexEncodedLength(length);
+      default:
+        return 0;
+    }
+  }
+
+  private int encode(EncodeType type, byte[] src, byte[] dst) {
+    switch (type) {
+      case STRING_BASE64:
+      case BASE64:
+        return base64Encoder.encode(src, dst);
+      case STRING_BASE32:
+      case BASE32:
+        return ByteCodecs.encodeBase32(src, dst);
+      case HEX:
+        return ByteCodecs.encodeHex(src, dst);
+      default:
+        return 0;
+    }
+  }
+
   /**
    * Defines encoding types supported.  
    */
@@ -51,6 +51,9 @@ public final class Encryptor extends Transform<StructuredRecord, StructuredRecor
   private final Conf conf;
   private Set<String> encryptFields;
   private FieldEncryptor fieldEncryptor;
+  // output schema is cached for the last seen input schema, since records almost always share the same schema
+  private Schema inputSchema;
+  private Schema outputSchema;
 
   public Encryptor(Conf conf) {
     this.conf = conf;
@@ -74,15 +77,12 @@ public final class Encryptor extends Transform<StructuredRecord, StructuredRecor
 
   @Override
   public void transform(StructuredRecord in, Emitter<StructuredRecord> emitter) throws Exception {
-    Schema schema = getOutputSchema(in.getSchema());
-    StructuredRecord.Builder recordBuilder = StructuredRecord.builder(schema);
-    for (Field field : in.getSchema().getFields()) {
-      if (encryptFields.contains(field.getName())) {
-        recordBuilder.set(field.getName(), fieldEncryptor.encrypt(in.get(field.getName()), field.getSchema()));
-      } else {
-        recordBuilder.set(field.getName(), in.get(field.getName()));
-      }
+    if (!in.getSchema().equals(inputSchema)) {
+      inputSchema = in.getSchema();
+      outputSchema = getOutputSchema(inputSchema);
     }
+    StructuredRecord.Builder recordBuilder = StructuredRecord.builder(outputSchema);
+    fieldEncryptor.encrypt(in, encryptFields, recordBuilder);
     emitter.emit(recordBuilder.build());
   }
 
@@ -48,8 +48,8 @@ public class NullFieldSplitter extends SplitterTransform<StructuredRecord, Struc
   public static final String NULL_PORT = "null";
   public static final String NON_NULL_PORT = "nonnull";
   private final Conf conf;
-  // only used when input schema is variable
-  private Map<Schema, Schema> schemaMap;
+  // non-null output rewriters by input schema, filled in as new input schemas are seen
+  private Map<Schema, RecordRewriter> rewriters;
 
   public NullFieldSplitter(Conf conf) {
     this.conf = conf;
@@ -66,11 +66,11 @@ public class NullFieldSplitter extends SplitterTransform<StructuredRecord, Struc
 
   @Override
   public void initialize(TransformContext context) {
-    schemaMap = new HashMap<>();
+    rewriters = new HashMap<>();
     Schema inputSchema = context.getInputSchema();
     if (inputSchema != null) {
       Schema nonNullSchema = getNonNullSchema(context.getInputSchema(), conf.field);
-      schemaMap.put(inputSchema, nonNullSchema);
+      rewriters.put(inputSchema, new RecordRewriter(inputSchema, nonNullSchema));
     }
   }
 
@@ -83,17 +83,12 @@ public class NullFieldSplitter extends SplitterTransform<StructuredRecord, Struc
     } else if (!conf.modifySchema) {
       emitter.emit(NON_NULL_PORT, record);
     } else {
-      Schema outputSchema = schemaMap.get(recordSchema);
-      if (outputSchema == null) {
-        outputSchema = getNonNullSchema(recordSchema, conf.field);
-        schemaMap.put(recordSchema, outputSchema);
+      RecordRewriter rewriter = rewriters.get(recordSchema);
+      if (rewriter == null) {
+        rewriter = new RecordRewriter(recordSchema, getNonNullSchema(recordSchema, conf.field));
+        rewriters.put(recordSchema, rewriter);
       }
-      StructuredRecord.Builder builder = StructuredRecord.builder(outputSchema);
-      for (Schema.Field recordField : record.getSchema().getFields()) {
-        String fieldName = recordField.getName();
-        builder.set(fieldName, record.get(fieldName));
-      }
-      emitter.emit(NON_NULL_PORT, builder.build());
+      emitter.emit(NON_NULL_PORT, rewriter.rewrite(record));
     }
   }
 
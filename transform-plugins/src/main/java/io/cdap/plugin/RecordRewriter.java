@@ -0,0 +1,49 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+
+import java.util.List;
+
+/**
+ * Copies records of one input schema into records of an output schema that has the same field names, such as a
+ * schema that only narrows the type of a field. The field names are resolved once, when the rewriter is created
+ * for an input schema, instead of for every record.
+ */
+final class RecordRewriter {
+  private final Schema outputSchema;
+  private final String[] fieldNames;
+
+  RecordRewriter(Schema inputSchema, Schema outputSchema) {
+    this.outputSchema = outputSchema;
+    List<Schema.Field> fields = inputSchema.getFields();
+    this.fieldNames = new String[fields.size()];
+    for (int i = 0; i < fieldNames.length; i++) {
+      fieldNames[i] = fields.get(i).getName();
+    }
+  }
+
+  StructuredRecord rewrite(StructuredRecord record) {
+    StructuredRecord.Builder builder = StructuredRecord.builder(outputSchema);
+    for (String fieldName : fieldNames) {
+      builder.set(fieldName, record.get(fieldName));
+    }
+    return builder.build();
+  }
+}
@@ -48,6 +48,8 @@ import javax.annotation.Nullable;
   "bool, int, long, float, double, or string).")
 public class UnionSplitter extends SplitterTransform<StructuredRecord, StructuredRecord> {
   private final Conf conf;
+  // emit plans by input schema, filled in as new input schemas are seen
+  private final Map<Schema, EmitPlan> plans = new HashMap<>();
 
   public UnionSplitter(Conf conf) {
     this.conf = conf;
@@ -71,13 +73,18 @@ public class UnionSplitter extends SplitterTransform<StructuredRecord, Structure
       return;
     }
 
-    Schema.Field schemaField = record.getSchema().getField(conf.unionField);
-    if (schemaField == null) {
+    EmitPlan plan = plans.get(record.getSchema());
+    if (plan == null) {
+      plan = new EmitPlan(record.getSchema());
+      plans.put(record.getSchema(), plan);
+    }
+
+    if (plan.unionSchema == null) {
       emitter.emitError(new InvalidEntry<>(100, String.format("Field '%s' does not exist.", conf.unionField), record));
       return;
     }
 
-    Schema fieldSchema = schemaField.getSchema();
+    Schema fieldSchema = plan.unionSchema;
     if (fieldSchema.getType() != Schema.Type.UNION) {
       emitter.emitError(new InvalidEntry<>(200, String.format("Field '%s' is not of type union, but is of type '%s'.",
                                                               conf.unionField, fieldSchema.getType()), record));
@@ -127,41 +134,16 @@ public class UnionSplitter extends SplitterTransform<StructuredRecord, Structure
       return;
     }
 
-    boolean foundSchema = false;
-    for (Schema unionSchema : fieldSchema.getUnionSchemas()) {
-      // if the schema in the union matches the value's schema
-      if (unionSchema.equals(valSchema)) {
-        foundSchema = true;
-      }
-    }
-    if (!foundSchema) {
+    Port port = plan.getPort(valSchema);
+    if (port == null) {
       emitter.emitError(
         new InvalidEntry<>(400, String.format("Field '%s' has schema '%s', which is not in its union schema.",
                                               conf.unionField, valSchema), record));
       return;
     }
 
-    Schema inputSchema = record.getSchema();
-    List<Schema.Field> fields = new ArrayList<>(inputSchema.getFields().size());
-    for (Schema.Field inputSchemaField : inputSchema.getFields()) {
-      String fieldName = inputSchemaField.getName();
-      if (fieldName.equals(conf.unionField)) {
-        fields.add(Schema.Field.of(fieldName, valSchema));
-      } else {
-        fields.add(inputSchemaField);
-      }
-    }
-
-    Schema.Type valType = valSchema.getType();
-    String port = valType == Schema.Type.RECORD ? valSchema.getRecordName() : valType.name().toLowerCase();
-    Schema outputSchema = conf.modifySchema ?
-      Schema.recordOf(inputSchema.getRecordName() + "." + port, fields) : inputSchema;
-    StructuredRecord.Builder builder = StructuredRecord.builder(outputSchema);
-    for (Schema.Field inputSchemaField : inputSchema.getFields()) {
-      String fieldName = inputSchemaField.getName();
-      builder.set(fieldName, record.get(fieldName));
-    }
-    emitter.emit(port, builder.build());
+    // without a schema change the record is emitted as is, since records are immutable
+    emitter.emit(port.name, port.rewriter == null ? record : port.rewriter.rewrite(record));
   }
 
   @VisibleForTesting
@@ -215,6 +197,67 @@ public class UnionSplitter extends SplitterTransform<StructuredRecord, Structure
     return outputPortSchemas;
   }
 
+  /**
+   * How records of one input schema are emitted. The output port and schema for each schema in the union are
+   * computed the first time a value of that schema is seen.
+   */
+  private final class EmitPlan {
+    private final Schema inputSchema;
+    // schema of the union field, or null if the input schema does not have the field
+    private final Schema unionSchema;
+    // ports by value schema. Value schemas that are not part of the union map to null.
+    private final Map<Schema, Port> ports = new HashMap<>();
+
+    private EmitPlan(Schema inputSchema) {
+      this.inputSchema = inputSchema;
+      Schema.Field unionField = inputSchema.getField(conf.unionField);
+      this.unionSchema = unionField == null ? null : unionField.getSchema();
+    }
+
+    @Nullable
+    private Port getPort(Schema valSchema) {
+      if (ports.containsKey(valSchema)) {
+        return ports.get(valSchema);
+      }
+      Port port = unionSchema.getUnionSchemas().contains(valSchema) ? createPort(valSchema) : null;
+      ports.put(valSchema, port);
+      return port;
+    }
+
+    private Port createPort(Schema valSchema) {
+      Schema.Type valType = valSchema.getType();
+      String name = valType == Schema.Type.RECORD ? valSchema.getRecordName() : valType.name().toLowerCase();
+      if (!conf.modifySchema) {
+        return new Port(name, null);
+      }
+
+      List<Schema.Field> fields = new ArrayList<>(inputSchema.getFields().size());
+      for (Schema.Field inputSchemaField : inputSchema.getFields()) {
+        String fieldName = inputSchemaField.getName();
+        if (fieldName.equals(conf.unionField)) {
+          fields.add(Schema.Field.of(fieldName, valSchema));
+        } else {
+          fields.add(inputSchemaField);
+        }
+      }
+      Schema outputSchema = Schema.recordOf(inputSchema.getRecordName() + "." + name, fields);
+      return new Port(name, new RecordRewriter(inputSchema, outputSchema));
+    }
+  }
+
+  /**
+   * Output port of a value schema, with the rewriter to its output schema if the schema is modified.
+   */
+  private static final class Port {
+    private final String name;
+    private final RecordRewriter rewriter;
+
+    private Port(String name, @Nullable RecordRewriter rewriter) {
+      this.name = name;
+      this.rewriter = rewriter;
+    }
+  }
+
   /**
    * Plugin conf
    */
@@ -31,8 +31,11 @@ import io.cdap.cdap.etl.api.TransformContext;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * Transforms records using custom mapping provided by the config.
@@ -42,11 +45,14 @@ import java.util.Map;
 @Description("Maps and converts record values using a mapping dataset")
 public class ValueMapper extends Transform<StructuredRecord, StructuredRecord> {
 
+  private static final int DEFAULT_CACHE_SIZE = 10000;
   private final Config config;
   private final Map<Schema, Schema> schemaCache = new HashMap<>();
   private static final Map<String, ValueMapping> mappingValues = new HashMap<>();
   private static Map<String, String> defaultsMapping = new HashMap<>();
-  private Map<String, Lookup<String>> lookupTableCache = new HashMap<String, Lookup<String>>();
+  private Map<String, CachedLookup> lookupTableCache = new HashMap<>();
+  // Source fields of lookup tables that are used by more than one mapping. Their keys are fetched in one batch.
+  private final Map<String, List<String>> batchedSourceFields = new HashMap<>();
 
   //for unit tests, otherwise config is injected by plugin framework.
   public ValueMapper(Config config) {
@@ -73,9 +79,47 @@ public class ValueMapper extends Transform<StructuredRecord, StructuredRecord> {
             "For example: lang_code:English,country_code:Britain")
     private final String defaults;
 
+    @Nullable
+    @Name("cacheMode")
+    @Description("How looked up values are cached. NONE looks up every value in the dataset. FULL keeps every " +
+            "looked up key in memory, which suits small lookup tables. LRU keeps the most recently used keys, " +
+            "up to the cache size. Keys that are not found are cached as well. Defaults to NONE.")
+    private final String cacheMode;
+
+    @Nullable
+    @Name("cacheSize")
+    @Description("Maximum number of keys cached per lookup table when the cache mode is LRU. Defaults to 10000.")
+    private final Integer cacheSize;
+
     public Config(String mapping, String defaults) {
+      this(mapping, defaults, null, null);
+    }
+
+    public Config(String mapping, String defaults, @Nullable String cacheMode, @Nullable Integer cacheSize) {
       this.mapping = mapping;
       this.defaults = defaults;
+      this.cacheMode = cacheMode;
+      this.cacheSize = cacheSize;
+    }
+
+    private CacheMode getCacheMode() {
+      if (cacheMode == null || cacheMode.isEmpty()) {
+        return CacheMode.NONE;
+      }
+      try {
+        return CacheMode.valueOf(cacheMode.toUpperCase());
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("Invalid cache mode " + cacheMode + ". Cache mode must be one of " +
+                                             "NONE, FULL or LRU.");
+      }
+    }
+
+    private int getCacheSize() {
+      int size = cacheSize == null ? DEFAULT_CACHE_SIZE : cacheSize;
+      if (size < 1) {
+        throw new IllegalArgumentException("Invalid cache size " + size + ". Cache size must be positive.");
+      }
+      return size;
     }
 
     /**
@@ -164,20 +208,61 @@ public class ValueMapper extends Transform<StructuredRecord, StructuredRecord> {
    * retrieve lookup table from table name
    */
   private void createLookupTableData(TransformContext context) {
+    CacheMode cacheMode = config.getCacheMode();
+    Map<String, List<String>> sourceFieldsByTable = new HashMap<>();
     for (String key : mappingValues.keySet()) {
       ValueMapping mapping = mappingValues.get(key);
       String lookupTableName = mapping.getLookupTableName();
       if (!lookupTableCache.containsKey(lookupTableName)) {
         LookupTableConfig tableConfig = new LookupTableConfig(LookupTableConfig.TableType.DATASET);
         Lookup<String> lookupTable = context.provide(lookupTableName, tableConfig.getDatasetProperties());
-        lookupTableCache.put(lookupTableName, lookupTable);
+        switch (cacheMode) {
+          case FULL:
+            lookupTableCache.put(lookupTableName, CachedLookup.unbounded(lookupTable));
+            break;
+          case LRU:
+            lookupTableCache.put(lookupTableName, CachedLookup.lru(lookupTable, config.getCacheSize()));
+            break;
+          default:
+            lookupTableCache.put(lookupTableName, CachedLookup.uncached(lookupTable));
+        }
+        sourceFieldsByTable.put(lookupTableName, new ArrayList<String>());
+      }
+      sourceFieldsByTable.get(lookupTableName).add(key);
+    }
+    for (Map.Entry<String, List<String>> entry : sourceFieldsByTable.entrySet()) {
+      if (entry.getValue().size() > 1) {
+        batchedSourceFields.put(entry.getKey(), entry.getValue());
       }
     }
   }
 
+  /**
+   * Fetches the keys of all source fields that share a lookup table with one batched lookup per table.
+   */
+  private void prefetch(StructuredRecord input) {
+    for (Map.Entry<String, List<String>> entry : batchedSourceFields.entrySet()) {
+      Set<String> keys = new HashSet<>();
+      for (String sourceFieldName : entry.getValue()) {
+        if (input.getSchema().getField(sourceFieldName) == null) {
+          continue;
+        }
+        String sourceVal = input.get(sourceFieldName);
+        if (sourceVal != null && !sourceVal.isEmpty()) {
+          keys.add(sourceVal);
+        }
+      }
+      lookupTableCache.get(entry.getKey()).prefetch(keys);
+    }
+  }
+
   @Override
   public void transform(StructuredRecord input, Emitter<StructuredRecord> emitter) throws Exception {
     StructuredRecord.Builder builder = StructuredRecord.builder(getOutputSchema(input.getSchema()));
+    for (CachedLookup lookup : lookupTableCache.values()) {
+      lookup.startRecord();
+    }
+    prefetch(input);
     for (Schema.Field sourceField : input.getSchema().getFields()) {
       String sourceFieldName = sourceField.getName();
       if (mappingValues.containsKey(sourceFieldName)) {
@@ -191,9 +276,9 @@ public class ValueMapper extends Transform<StructuredRecord, StructuredRecord> {
           }
         } else {
           // for those source field whose values are neither NULL nor EMPTY
-          Lookup<String> valueMapperLookUp = lookupTableCache.get(mapping.getLookupTableName());
+          CachedLookup valueMapperLookUp = lookupTableCache.get(mapping.getLookupTableName());
           String lookupValue = valueMapperLookUp.lookup(sourceVal);
-          if (lookupValue != null && !lookupValue.isEmpty()) {
+          if (lookupValue != null) {
             builder.set(mapping.getTargetField(), lookupValue);
           } else {
             builder.set(mapping.getTargetField(), mapping.getDefaultValue());
@@ -221,6 +306,9 @@ public class ValueMapper extends Transform<StructuredRecord, StructuredRecord> {
   @Override
   public void configurePipeline(PipelineConfigurer pipelineConfigurer) throws IllegalArgumentException {
     super.configurePipeline(pipelineConfigurer);
+    if (config.getCacheMode() == CacheMode.LRU) {
+      config.getCacheSize();
+    }
     Schema outputSchema = null;
     Schema inputSchema = pipelineConfigurer.getStageConfigurer().getInputSchema();
     if (inputSchema != null) {
@@ -229,6 +317,15 @@ public class ValueMapper extends Transform<StructuredRecord, StructuredRecord> {
     pipelineConfigurer.getStageConfigurer().setOutputSchema(outputSchema);
   }
 
+  /**
+   * How values looked up in the mapping datasets are cached.
+   */
+  private enum CacheMode {
+    NONE,
+    FULL,
+    LRU
+  }
+
   /**
    * Object used to keep input mapping corresponding to each source field
    */
@@ -24,6 +24,8 @@ import io.cdap.cdap.etl.mock.common.MockPipelineConfigurer;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.List;
+
 /**
  * Tests {@link CloneRecord}.
  */
@@ -51,6 +53,27 @@ public class CloneRecordTest {
     Assert.assertEquals(5, emitter.getEmitted().size());
   }
 
+  @Test
+  public void testCopiesShareTheInputRecord() throws Exception {
+    Transform<StructuredRecord, StructuredRecord> transform = new CloneRecord(new CloneRecord.Config(3));
+    transform.initialize(null);
+
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    StructuredRecord first = StructuredRecord.builder(INPUT)
+      .set("a", "1").set("b", "2").set("c", "3").set("d", "4").set("e", "5").build();
+    StructuredRecord second = StructuredRecord.builder(INPUT)
+      .set("a", "6").set("b", "7").set("c", "8").set("d", "9").set("e", "10").build();
+    transform.transform(first, emitter);
+    transform.transform(second, emitter);
+
+    List<StructuredRecord> emitted = emitter.getEmitted();
+    Assert.assertEquals(6, emitted.size());
+    for (int i = 0; i < 3; i++) {
+      Assert.assertSame(first, emitted.get(i));
+      Assert.assertSame(second, emitted.get(i + 3));
+    }
+  }
+
   @Test
   public void testSchemaValidation() throws Exception {
     CloneRecord.Config config = new CloneRecord.Config(5);
@@ -16,11 +16,14 @@
 
 package io.cdap.plugin;
 
+import com.github.luben.zstd.Zstd;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.mock.common.MockEmitter;
 import io.cdap.cdap.etl.mock.common.MockPipelineConfigurer;
+import net.jpountz.lz4.LZ4DecompressorWithLength;
+import net.jpountz.lz4.LZ4Factory;
 import org.junit.Assert;
 import org.junit.Test;
 import org.xerial.snappy.Snappy;
@@ -106,6 +109,53 @@ public class CompressorTest {
     Assert.assertArrayEquals(expected, actual);
   }
 
+  @Test
+  public void testLZ4Compress() throws Exception {
+    Transform<StructuredRecord, StructuredRecord> transform =
+      new Compressor(new Compressor.Config("a:LZ4", OUTPUT.toString()));
+    transform.initialize(null);
+
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    transform.transform(StructuredRecord.builder(INPUT)
+                          .set("a", "This is a test for testing lz4 compression")
+                          .set("b", "2")
+                          .set("c", "3")
+                          .set("d", "4")
+                          .set("e", "5").build(), emitter);
+
+    byte[] actual = emitter.getEmitted().get(0).get("a");
+    LZ4DecompressorWithLength decompressor =
+      new LZ4DecompressorWithLength(LZ4Factory.fastestInstance().fastDecompressor());
+    Assert.assertEquals(2, emitter.getEmitted().get(0).getSchema().getFields().size());
+    Assert.assertArrayEquals("This is a test for testing lz4 compression".getBytes(), decompressor.decompress(actual));
+  }
+
+  @Test
+  public void testZstdCompress() throws Exception {
+    Transform<StructuredRecord, StructuredRecord> transform =
+      new Compressor(new Compressor.Config("a:ZSTD", OUTPUT.toString(), 5, null));
+    transform.initialize(null);
+
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    // compress a few values of different sizes to exercise reuse of the compression buffers
+    String[] values = { "This is a test for testing zstd compression", "", "zstd" };
+    for (String value : values) {
+      transform.transform(StructuredRecord.builder(INPUT)
+                            .set("a", value)
+                            .set("b", "2")
+                            .set("c", "3")
+                            .set("d", "4")
+                            .set("e", "5").build(), emitter);
+    }
+    transform.destroy();
+
+    for (int i = 0; i < values.length; i++) {
+      byte[] actual = emitter.getEmitted().get(i).get("a");
+      byte[] expected = values[i].getBytes();
+      Assert.assertArrayEquals(expected, Zstd.decompress(actual, expected.length));
+    }
+  }
+
   @Test
   public void testSchemaValidation() throws Exception {
     Transform<StructuredRecord, StructuredRecord> transform =
@@ -196,6 +196,56 @@ public class DecoderTest {
     Assert.assertEquals(test, emitterDecoded.getEmitted().get(0).get("a"));
   }
 
+  @Test
+  public void testDecodesLikeCommonsCodec() throws Exception {
+    byte[] bytes = new byte[256];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) i;
+    }
+    String standard = Base64.encodeBase64String(bytes);
+    String urlSafe = Base64.encodeBase64URLSafeString(bytes);
+    // the standard and URL-safe encodings differ in the characters for 62 and 63
+    Assert.assertTrue(standard.contains("+") && standard.contains("/"));
+    Assert.assertTrue(urlSafe.contains("-") && urlSafe.contains("_"));
+
+    String[] base64Values = {
+      standard, urlSafe, Base64.encodeBase64URLSafeString("?>?".getBytes("UTF-8")),
+      new String(Base64.encodeBase64Chunked(bytes), "US-ASCII"), "", "YQ", "YQ=="
+    };
+    for (String value : base64Values) {
+      Assert.assertArrayEquals(value, Base64.decodeBase64(value), decode("BASE64", value));
+      Assert.assertArrayEquals(value, Base64.decodeBase64(value), decode("STRING_BASE64", value));
+    }
+
+    Base32 base32 = new Base32();
+    for (String value : new String[] { base32.encodeAsString(bytes), "ME======", "" }) {
+      Assert.assertArrayEquals(value, base32.decode(value), decode("BASE32", value));
+      Assert.assertArrayEquals(value, base32.decode(value), decode("STRING_BASE32", value));
+    }
+
+    String hex = Hex.encodeHexString(bytes);
+    for (String value : new String[] { hex, hex.toUpperCase(), "" }) {
+      Assert.assertArrayEquals(value, Hex.decodeHex(value.toCharArray()), decode("HEX", value));
+    }
+  }
+
+  /**
+   * Decodes the value in field "a" with a decoder of the given type, and returns the decoded bytes.
+   */
+  private static byte[] decode(String type, String value) throws Exception {
+    Transform<StructuredRecord, StructuredRecord> decoder =
+      new Decoder(new Decoder.Config("a:" + type, OUTPUT.toString()));
+    decoder.initialize(null);
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    decoder.transform(StructuredRecord.builder(INPUT)
+                        .set("a", value)
+                        .set("b", "2")
+                        .set("c", "3")
+                        .set("d", "4")
+                        .set("e", "5").build(), emitter);
+    return emitter.getEmitted().get(0).get("a");
+  }
+
   @Test
   public void testSchemaValidation() throws Exception {
     Transform<StructuredRecord, StructuredRecord> decoder =
@@ -17,17 +17,30 @@
 package io.cdap.plugin;
 
 
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdException;
+import com.github.luben.zstd.ZstdOutputStream;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.mock.common.MockEmitter;
 import io.cdap.cdap.etl.mock.common.MockPipelineConfigurer;
+import net.jpountz.lz4.LZ4CompressorWithLength;
+import net.jpountz.lz4.LZ4Factory;
 import org.junit.Assert;
+import org.junit.ClassRule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.xerial.snappy.Snappy;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
 import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
@@ -36,6 +49,9 @@ import java.util.zip.ZipOutputStream;
  * Tests {@link Decompressor}
  */
 public class DecompressorTest {
+  @ClassRule
+  public static final TemporaryFolder TMP_FOLDER = new TemporaryFolder();
+
   private static final Schema INPUT = Schema.recordOf("input",
                                                       Schema.Field.of("a", Schema.of(Schema.Type.BYTES)),
                                                       Schema.Field.of("b", Schema.of(Schema.Type.STRING)),
@@ -107,6 +123,178 @@ public class DecompressorTest {
     Assert.assertEquals(decompressTester, actual);
   }
 
+  @Test
+  public void testLZ4Compress() throws Exception {
+    String decompressTester = "This is a test for testing lz4 compression";
+    Transform<StructuredRecord, StructuredRecord> transform =
+      new Decompressor(new Decompressor.Config("a:LZ4", OUTPUT.toString()));
+    transform.initialize(null);
+
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    LZ4CompressorWithLength compressor = new LZ4CompressorWithLength(LZ4Factory.fastestInstance().fastCompressor());
+    byte[] compressed = compressor.compress(decompressTester.getBytes());
+    transform.transform(StructuredRecord.builder(INPUT)
+                          .set("a", compressed)
+                          .set("b", "2")
+                          .set("c", "3")
+                          .set("d", "4")
+                          .set("e", "5").build(), emitter);
+    String actual = emitter.getEmitted().get(0).get("a");
+    Assert.assertEquals(2, emitter.getEmitted().get(0).getSchema().getFields().size());
+    Assert.assertEquals(decompressTester, actual);
+  }
+
+  @Test
+  public void testZstdCompress() throws Exception {
+    String decompressTester = "This is a test for testing zstd compression";
+    Transform<StructuredRecord, StructuredRecord> transform =
+      new Decompressor(new Decompressor.Config("a:ZSTD", OUTPUT.toString()));
+    transform.initialize(null);
+
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    byte[] compressed = Zstd.compress(decompressTester.getBytes());
+    transform.transform(StructuredRecord.builder(INPUT)
+                          .set("a", compressed)
+                          .set("b", "2")
+                          .set("c", "3")
+                          .set("d", "4")
+                          .set("e", "5").build(), emitter);
+    transform.destroy();
+    String actual = emitter.getEmitted().get(0).get("a");
+    Assert.assertEquals(2, emitter.getEmitted().get(0).getSchema().getFields().size());
+    Assert.assertEquals(decompressTester, actual);
+  }
+
+  @Test
+  public void testZstdWithDictionary() throws Exception {
+    // any content can be used as a raw dictionary
+    byte[] dictionary = new byte[2000];
+    Random random = new Random(0L);
+    for (int i = 0; i < dictionary.length; i++) {
+      dictionary[i] = (byte) ('a' + random.nextInt(26));
+    }
+    File dictionaryFile = TMP_FOLDER.newFile("dictionary");
+    Files.write(dictionaryFile.toPath(), dictionary);
+    String value = new String(dictionary, 100, 1800, StandardCharsets.US_ASCII);
+
+    Schema compressed = Schema.recordOf("compressed",
+                                        Schema.Field.of("a", Schema.of(Schema.Type.BYTES)),
+                                        Schema.Field.of("b", Schema.of(Schema.Type.STRING)));
+    Transform<StructuredRecord, StructuredRecord> compressor =
+      new Compressor(new Compressor.Config("a:ZSTD", compressed.toString(), 3, dictionaryFile.getPath()));
+    compressor.initialize(null);
+    MockEmitter<StructuredRecord> compressorEmitter = new MockEmitter<>();
+    compressor.transform(StructuredRecord.builder(INPUT)
+                           .set("a", value)
+                           .set("b", "2")
+                           .set("c", "3")
+                           .set("d", "4")
+                           .set("e", "5").build(), compressorEmitter);
+    compressor.destroy();
+    StructuredRecord record = compressorEmitter.getEmitted().get(0);
+    // the value is only this small if it was compressed against the dictionary
+    Assert.assertTrue(record.<byte[]>get("a").length < 100);
+
+    Transform<StructuredRecord, StructuredRecord> transform =
+      new Decompressor(new Decompressor.Config("a:ZSTD", OUTPUT.toString(), dictionaryFile.getPath()));
+    transform.initialize(null);
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    transform.transform(record, emitter);
+    transform.destroy();
+    Assert.assertEquals(value, emitter.getEmitted().get(0).get("a"));
+  }
+
+  @Test
+  public void testZstdWithUnknownSize() throws Exception {
+    // frames written by a stream do not record their content size, and are larger than the initial buffer
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      builder.append("line ").append(i).append('\n');
+    }
+    String value = builder.toString();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ZstdOutputStream zstd = new ZstdOutputStream(out)) {
+      zstd.write(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    Transform<StructuredRecord, StructuredRecord> transform =
+      new Decompressor(new Decompressor.Config("a:ZSTD", OUTPUT.toString()));
+    transform.initialize(null);
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    transform.transform(StructuredRecord.builder(INPUT)
+                          .set("a", out.toByteArray())
+                          .set("b", "2")
+                          .set("c", "3")
+                          .set("d", "4")
+                          .set("e", "5").build(), emitter);
+    transform.destroy();
+    Assert.assertEquals(value, emitter.getEmitted().get(0).get("a"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testZstdRejectsOversizedValue() throws Exception {
+    // a frame header that claims a content size of 4GB
+    ByteBuffer header = ByteBuffer.allocate(13).order(ByteOrder.LITTLE_ENDIAN);
+    header.putInt(0xFD2FB528).put((byte) 0xE0).putLong(1L << 32);
+
+    Transform<StructuredRecord, StructuredRecord> transform =
+      new Decompressor(new Decompressor.Config("a:ZSTD", OUTPUT.toString()));
+    transform.initialize(null);
+    transform.transform(StructuredRecord.builder(INPUT)
+                          .set("a", header.array())
+                          .set("b", "2")
+                          .set("c", "3")
+                          .set("d", "4")
+                          .set("e", "5").build(), new MockEmitter<>());
+  }
+
+  @Test
+  public void testZstdDoesNotTrustDeclaredSize() throws Exception {
+    // a frame header that claims a content size of 1GB, followed by a single raw block of 5 bytes
+    ByteBuffer frame = ByteBuffer.allocate(17).order(ByteOrder.LITTLE_ENDIAN);
+    frame.putInt(0xFD2FB528).put((byte) 0xA0).putInt(1 << 30)
+      .put((byte) ((5 << 3) | 1)).put((byte) 0).put((byte) 0).put("hello".getBytes(StandardCharsets.US_ASCII));
+
+    Transform<StructuredRecord, StructuredRecord> transform =
+      new Decompressor(new Decompressor.Config("a:ZSTD", OUTPUT.toString()));
+    transform.initialize(null);
+    try {
+      transform.transform(StructuredRecord.builder(INPUT)
+                            .set("a", frame.array())
+                            .set("b", "2")
+                            .set("c", "3")
+                            .set("d", "4")
+                            .set("e", "5").build(), new MockEmitter<>());
+      Assert.fail("Expected a frame with less content than its header declares to fail");
+    } catch (ZstdException e) {
+      // the frame is rejected after decompressing it into the small scratch buffer
+    } finally {
+      transform.destroy();
+    }
+  }
+
+  @Test
+  public void testLZ4DoesNotTrustDeclaredSize() throws Exception {
+    LZ4CompressorWithLength compressor = new LZ4CompressorWithLength(LZ4Factory.fastestInstance().fastCompressor());
+    byte[] compressed = compressor.compress("hello".getBytes(StandardCharsets.US_ASCII));
+    // the value claims to decompress to 1GB
+    ByteBuffer.wrap(compressed).order(ByteOrder.LITTLE_ENDIAN).putInt(0, 1 << 30);
+
+    Transform<StructuredRecord, StructuredRecord> transform =
+      new Decompressor(new Decompressor.Config("a:LZ4", OUTPUT.toString()));
+    transform.initialize(null);
+    try {
+      transform.transform(StructuredRecord.builder(INPUT)
+                            .set("a", compressed)
+                            .set("b", "2")
+                            .set("c", "3")
+                            .set("d", "4")
+                            .set("e", "5").build(), new MockEmitter<>());
+      Assert.fail("Expected a value with less content than its header declares to fail");
+    } catch (IllegalArgumentException e) {
+      Assert.assertTrue(e.getMessage().contains("contains 5 bytes"));
+    }
+  }
 
   private static byte[] gzip(byte[] input) throws IOException {
     ByteArrayOutputStream out = new ByteArrayOutputStream();
@@ -156,6 +156,31 @@ public class EncoderTest {
     Assert.assertArrayEquals(expected, actual);
   }
 
+  @Test
+  public void testEncodingsOfAllPaddingLengths() throws Exception {
+    Transform<StructuredRecord, StructuredRecord> transform =
+      new Encoder(new Encoder.Config("a:BASE32,b:HEX", OUTPUTSTR.toString()));
+    transform.initialize(null);
+
+    // values of increasing length cover every padding case and reuse of the encode buffer
+    Base32 base32 = new Base32();
+    Hex hex = new Hex();
+    String test = "abcdefghijk";
+    for (int i = 0; i <= test.length(); i++) {
+      String value = test.substring(0, i);
+      MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+      transform.transform(StructuredRecord.builder(INPUT)
+                            .set("a", value)
+                            .set("b", value)
+                            .set("c", "3")
+                            .set("d", "4")
+                            .set("e", "5").build(), emitter);
+      Assert.assertEquals(base32.encodeAsString(value.getBytes("UTF-8")), emitter.getEmitted().get(0).get("a"));
+      Assert.assertEquals(new String(hex.encode(value.getBytes("UTF-8")), "UTF-8"),
+                          emitter.getEmitted().get(0).get("b"));
+    }
+  }
+
   @Test
   public void testSchemaValidation() throws Exception {
     Transform<StructuredRecord, StructuredRecord> transform =
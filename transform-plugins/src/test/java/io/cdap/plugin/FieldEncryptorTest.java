@@ -28,6 +28,7 @@ import org.junit.rules.TemporaryFolder;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.security.KeyStore;
+import java.util.Arrays;
 import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
@@ -75,4 +76,31 @@ public class FieldEncryptorTest {
     Assert.assertEquals("abc", decryptor.decrypt(encryptor.encrypt("abc", fieldSchema), fieldSchema));
   }
 
+  @Test
+  public void testGcmEncryption() throws Exception {
+    KeystoreConf gcmConf = new KeystoreConf("AES/GCM/NoPadding", null,
+                                            keystoreConf.getKeystorePath(),
+                                            keystoreConf.getKeystorePassword(),
+                                            keystoreConf.getKeystoreType(),
+                                            keystoreConf.getKeyAlias(),
+                                            keystoreConf.getKeyPassword());
+    FieldEncryptor encryptor = new FileBasedFieldEncryptor(gcmConf, Cipher.ENCRYPT_MODE);
+    encryptor.initialize();
+    FieldEncryptor decryptor = new FileBasedFieldEncryptor(gcmConf, Cipher.DECRYPT_MODE);
+    decryptor.initialize();
+
+    Schema stringSchema = Schema.of(Schema.Type.STRING);
+    byte[] first = encryptor.encrypt("abc", stringSchema);
+    byte[] second = encryptor.encrypt("abc", stringSchema);
+    // every value gets its own nonce, so equal values must not produce equal ciphertexts
+    Assert.assertFalse(Arrays.equals(first, second));
+    Assert.assertEquals("abc", decryptor.decrypt(first, stringSchema));
+    Assert.assertEquals("abc", decryptor.decrypt(second, stringSchema));
+
+    Schema longSchema = Schema.nullableOf(Schema.of(Schema.Type.LONG));
+    Assert.assertEquals(123456789L, decryptor.decrypt(encryptor.encrypt(123456789L, longSchema), longSchema));
+    Schema doubleSchema = Schema.of(Schema.Type.DOUBLE);
+    Assert.assertEquals(1.5d, decryptor.decrypt(encryptor.encrypt(1.5d, doubleSchema), doubleSchema));
+  }
+
 }
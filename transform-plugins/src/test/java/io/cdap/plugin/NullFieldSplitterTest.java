@@ -133,4 +133,36 @@ public class NullFieldSplitterTest {
       mockEmitter.getEmitted());
   }
 
+  @Test
+  public void testModifySchemaSplitWithChangingInputSchema() throws Exception {
+    Schema first = Schema.recordOf("first",
+                                   Schema.Field.of("x", Schema.of(Schema.Type.LONG)),
+                                   Schema.Field.of("z", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    Schema second = Schema.recordOf("second",
+                                    Schema.Field.of("z", Schema.nullableOf(Schema.of(Schema.Type.INT))));
+    Schema firstNonNull = Schema.recordOf("first.nonnull",
+                                          Schema.Field.of("x", Schema.of(Schema.Type.LONG)),
+                                          Schema.Field.of("z", Schema.of(Schema.Type.STRING)));
+    Schema secondNonNull = Schema.recordOf("second.nonnull",
+                                           Schema.Field.of("z", Schema.of(Schema.Type.INT)));
+    NullFieldSplitter nullFieldSplitter = new NullFieldSplitter(new NullFieldSplitter.Conf("z", true));
+    nullFieldSplitter.initialize(new MockTransformContext());
+
+    // each input schema is rewritten to its own non-null schema, however the records are interleaved
+    MockMultiOutputEmitter<StructuredRecord> mockEmitter = new MockMultiOutputEmitter<>();
+    nullFieldSplitter.transform(StructuredRecord.builder(first).set("x", 0L).set("z", "a").build(), mockEmitter);
+    nullFieldSplitter.transform(StructuredRecord.builder(second).set("z", 1).build(), mockEmitter);
+    nullFieldSplitter.transform(StructuredRecord.builder(first).set("x", 2L).set("z", "b").build(), mockEmitter);
+    StructuredRecord nullRecord = StructuredRecord.builder(second).build();
+    nullFieldSplitter.transform(nullRecord, mockEmitter);
+
+    Assert.assertEquals(
+      ImmutableMap.of(NullFieldSplitter.NON_NULL_PORT,
+                      ImmutableList.of(StructuredRecord.builder(firstNonNull).set("x", 0L).set("z", "a").build(),
+                                       StructuredRecord.builder(secondNonNull).set("z", 1).build(),
+                                       StructuredRecord.builder(firstNonNull).set("x", 2L).set("z", "b").build()),
+                      NullFieldSplitter.NULL_PORT, ImmutableList.of(nullRecord)),
+      mockEmitter.getEmitted());
+    Assert.assertSame(nullRecord, mockEmitter.getEmitted().get(NullFieldSplitter.NULL_PORT).get(0));
+  }
 }
@@ -292,4 +292,69 @@ public class UnionSplitterTest {
     Map<String, List<Object>> actual = mockEmitter.getEmitted();
     Assert.assertEquals(expected, actual);
   }
+
+  @Test
+  public void testEmitPlansByInputSchema() throws Exception {
+    Schema union = Schema.unionOf(Schema.of(Schema.Type.INT), Schema.of(Schema.Type.STRING));
+    Schema first = Schema.recordOf("first",
+                                   Schema.Field.of("a", Schema.of(Schema.Type.LONG)),
+                                   Schema.Field.of("b", union));
+    Schema second = Schema.recordOf("second",
+                                    Schema.Field.of("b", union),
+                                    Schema.Field.of("c", Schema.of(Schema.Type.STRING)));
+    Schema firstInt = Schema.recordOf("first.int",
+                                      Schema.Field.of("a", Schema.of(Schema.Type.LONG)),
+                                      Schema.Field.of("b", Schema.of(Schema.Type.INT)));
+    Schema secondInt = Schema.recordOf("second.int",
+                                       Schema.Field.of("b", Schema.of(Schema.Type.INT)),
+                                       Schema.Field.of("c", Schema.of(Schema.Type.STRING)));
+    Schema secondString = Schema.recordOf("second.string",
+                                          Schema.Field.of("b", Schema.of(Schema.Type.STRING)),
+                                          Schema.Field.of("c", Schema.of(Schema.Type.STRING)));
+
+    UnionSplitter unionSplitter = new UnionSplitter(new UnionSplitter.Conf("b", true));
+    unionSplitter.initialize(new MockTransformContext());
+
+    // records of both input schemas are interleaved, so that each is emitted with the plan of its own schema
+    MockMultiOutputEmitter<StructuredRecord> mockEmitter = new MockMultiOutputEmitter<>();
+    unionSplitter.transform(StructuredRecord.builder(first).set("a", 0L).set("b", 1).build(), mockEmitter);
+    unionSplitter.transform(StructuredRecord.builder(second).set("b", 2).set("c", "x").build(), mockEmitter);
+    unionSplitter.transform(StructuredRecord.builder(first).set("a", 3L).set("b", 4).build(), mockEmitter);
+    unionSplitter.transform(StructuredRecord.builder(second).set("b", "y").set("c", "z").build(), mockEmitter);
+
+    Map<String, List<Object>> expected = new HashMap<>();
+    expected.put("int", ImmutableList.of(StructuredRecord.builder(firstInt).set("a", 0L).set("b", 1).build(),
+                                         StructuredRecord.builder(secondInt).set("b", 2).set("c", "x").build(),
+                                         StructuredRecord.builder(firstInt).set("a", 3L).set("b", 4).build()));
+    expected.put("string", ImmutableList.of(StructuredRecord.builder(secondString)
+                                              .set("b", "y").set("c", "z").build()));
+    Map<String, List<Object>> actual = mockEmitter.getEmitted();
+    Assert.assertEquals(expected, actual);
+
+    // the output schema of a port is computed once per input schema
+    List<Object> ints = actual.get("int");
+    Assert.assertSame(((StructuredRecord) ints.get(0)).getSchema(), ((StructuredRecord) ints.get(2)).getSchema());
+  }
+
+  @Test
+  public void testSplitWithoutModifyingSchema() throws Exception {
+    Schema inputSchema = Schema.recordOf(
+      "union",
+      Schema.Field.of("a", Schema.of(Schema.Type.LONG)),
+      Schema.Field.of("b", Schema.unionOf(Schema.of(Schema.Type.NULL), Schema.of(Schema.Type.STRING))));
+    UnionSplitter unionSplitter = new UnionSplitter(new UnionSplitter.Conf("b", false));
+    unionSplitter.initialize(new MockTransformContext());
+
+    MockMultiOutputEmitter<StructuredRecord> mockEmitter = new MockMultiOutputEmitter<>();
+    StructuredRecord nullRecord = StructuredRecord.builder(inputSchema).set("a", 0L).build();
+    StructuredRecord stringRecord = StructuredRecord.builder(inputSchema).set("a", 1L).set("b", "x").build();
+    unionSplitter.transform(nullRecord, mockEmitter);
+    unionSplitter.transform(stringRecord, mockEmitter);
+
+    // the input records are emitted as they are
+    Map<String, List<Object>> actual = mockEmitter.getEmitted();
+    Assert.assertEquals(2, actual.size());
+    Assert.assertSame(nullRecord, actual.get("null").get(0));
+    Assert.assertSame(stringRecord, actual.get("string").get(0));
+  }
 }
@@ -315,6 +315,86 @@ public class ValueMapperTest extends TransformPluginsTestBase {
       .get(SALARYDESC));
   }
 
+  @Test
+  public void testCachedLookupWithSharedTable() throws Exception {
+    String inputTable = "input_table_cached_lookup";
+    ETLStage source = new ETLStage("source", MockSource.getPlugin(inputTable));
+
+    // both source fields use the same table, so their keys are fetched together
+    Map<String, String> sourceproperties = new ImmutableMap.Builder<String, String>()
+      .put("mapping", "designationid:code_lookup_table_cached:designationName," +
+        "salary:code_lookup_table_cached:salaryDesc")
+      .put("defaults", "designationid:DefaultID")
+      .put("cacheMode", "LRU")
+      .put("cacheSize", "2")
+      .build();
+
+    ETLStage transform = new ETLStage("transform",
+                                      new ETLPlugin("ValueMapper", Transform.PLUGIN_TYPE, sourceproperties, null));
+
+    String sinkTable = "output_table_cached_lookup";
+    ETLStage sink = new ETLStage("sink", MockSink.getPlugin(sinkTable));
+
+    ETLBatchConfig etlConfig = ETLBatchConfig.builder("* * * * *")
+      .addStage(source)
+      .addStage(transform)
+      .addStage(sink)
+      .addConnection(source.getName(), transform.getName())
+      .addConnection(transform.getName(), sink.getName())
+      .build();
+
+    AppRequest<ETLBatchConfig> appRequest = new AppRequest<>(BATCH_ARTIFACT, etlConfig);
+    ApplicationId appId = NamespaceId.DEFAULT.app("valuemappertest_cached_lookup");
+    ApplicationManager appManager = deployApplication(appId, appRequest);
+
+    addDatasetInstance(KeyValueTable.class.getName(), "code_lookup_table_cached");
+    DataSetManager<KeyValueTable> dataSetManager = getDataset("code_lookup_table_cached");
+    KeyValueTable keyValueTable = dataSetManager.get();
+    keyValueTable.write("1".getBytes(Charsets.UTF_8), "SE".getBytes(Charsets.UTF_8));
+    keyValueTable.write("2".getBytes(Charsets.UTF_8), "SSE".getBytes(Charsets.UTF_8));
+    keyValueTable.write("1000".getBytes(Charsets.UTF_8), "Low".getBytes(Charsets.UTF_8));
+    keyValueTable.write("2000".getBytes(Charsets.UTF_8), "Medium".getBytes(Charsets.UTF_8));
+    dataSetManager.flush();
+
+    DataSetManager<Table> inputManager = getDataset(inputTable);
+    List<StructuredRecord> input = ImmutableList.of(
+      StructuredRecord.builder(SOURCE_SCHEMA).set(ID, "100").set(NAME, "John").set(SALARY, "1000")
+        .set(DESIGNATIONID, "1").build(),
+      StructuredRecord.builder(SOURCE_SCHEMA).set(ID, "101").set(NAME, "Kerry").set(SALARY, "2000")
+        .set(DESIGNATIONID, "9").build(),
+      StructuredRecord.builder(SOURCE_SCHEMA).set(ID, "102").set(NAME, "Mathew").set(SALARY, "1000")
+        .set(DESIGNATIONID, "9").build(),
+      StructuredRecord.builder(SOURCE_SCHEMA).set(ID, "103").set(NAME, "Allie").set(SALARY, "2000")
+        .set(DESIGNATIONID, "2").build()
+    );
+    MockSource.writeInput(inputManager, input);
+
+    WorkflowManager workflowManager = appManager.getWorkflowManager(SmartWorkflow.NAME);
+    workflowManager.start();
+    workflowManager.waitForRuns(ProgramRunStatus.COMPLETED, 1, 5, TimeUnit.MINUTES);
+
+    DataSetManager<Table> outputManager = getDataset(sinkTable);
+    List<StructuredRecord> outputRecords = MockSink.readOutput(outputManager);
+
+    Map<String, String> nameDesignationMap = new HashMap<>();
+    nameDesignationMap.put("John", "SE");
+    nameDesignationMap.put("Kerry", "DefaultID");
+    nameDesignationMap.put("Mathew", "DefaultID");
+    nameDesignationMap.put("Allie", "SSE");
+
+    Map<String, String> nameSalaryMap = new HashMap<>();
+    nameSalaryMap.put("John", "Low");
+    nameSalaryMap.put("Kerry", "Medium");
+    nameSalaryMap.put("Mathew", "Low");
+    nameSalaryMap.put("Allie", "Medium");
+
+    Assert.assertEquals(4, outputRecords.size());
+    for (StructuredRecord record : outputRecords) {
+      Assert.assertEquals(nameDesignationMap.get(record.get(NAME)), record.get(DESIGNATIONNAME));
+      Assert.assertEquals(nameSalaryMap.get(record.get(NAME)), record.get(SALARYDESC));
+    }
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void testStringHandling() throws Exception {
     Schema inputSchema = Schema.recordOf("sourceRecord",